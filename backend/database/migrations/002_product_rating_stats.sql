@@ -0,0 +1,107 @@
+-- Migration: Product Rating Stats
+-- Version: 002
+-- Date: 2026-10-17
+-- Description: Maintained per-product review aggregate (count, sum, histogram)
+
+-- Product listings used to load every review row to compute ratings. This table
+-- keeps the aggregate up to date incrementally via triggers on reviews, so read
+-- paths, rating filters and rating/popularity sorts touch one row per product.
+
+\echo 'Running migration 002: Product Rating Stats...'
+
+CREATE TABLE product_rating_stats (
+    product_id UUID PRIMARY KEY REFERENCES products(id) ON DELETE CASCADE,
+    review_count INTEGER NOT NULL DEFAULT 0,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    rating_1_count INTEGER NOT NULL DEFAULT 0,
+    rating_2_count INTEGER NOT NULL DEFAULT 0,
+    rating_3_count INTEGER NOT NULL DEFAULT 0,
+    rating_4_count INTEGER NOT NULL DEFAULT 0,
+    rating_5_count INTEGER NOT NULL DEFAULT 0,
+    average_rating DECIMAL(3,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_product_rating_stats_average ON product_rating_stats(average_rating DESC, review_count DESC);
+CREATE INDEX idx_product_rating_stats_count ON product_rating_stats(review_count DESC);
+
+-- Backfill from existing published reviews
+INSERT INTO product_rating_stats (
+    product_id, review_count, rating_sum,
+    rating_1_count, rating_2_count, rating_3_count, rating_4_count, rating_5_count,
+    average_rating
+)
+SELECT p.id,
+       COUNT(r.id),
+       COALESCE(SUM(r.rating), 0),
+       COUNT(r.id) FILTER (WHERE r.rating = 1),
+       COUNT(r.id) FILTER (WHERE r.rating = 2),
+       COUNT(r.id) FILTER (WHERE r.rating = 3),
+       COUNT(r.id) FILTER (WHERE r.rating = 4),
+       COUNT(r.id) FILTER (WHERE r.rating = 5),
+       COALESCE(ROUND(AVG(r.rating)::numeric, 2), 0)
+FROM products p
+LEFT JOIN reviews r ON r.product_id = p.id AND r.is_published = TRUE
+GROUP BY p.id;
+
+-- Function to apply a single published review delta (+1 / -1) to a product
+CREATE OR REPLACE FUNCTION apply_product_rating_delta(p_product_id UUID, p_rating INTEGER, p_delta INTEGER)
+RETURNS VOID AS $$
+BEGIN
+    UPDATE product_rating_stats SET
+        review_count = review_count + p_delta,
+        rating_sum = rating_sum + p_delta * p_rating,
+        rating_1_count = rating_1_count + CASE WHEN p_rating = 1 THEN p_delta ELSE 0 END,
+        rating_2_count = rating_2_count + CASE WHEN p_rating = 2 THEN p_delta ELSE 0 END,
+        rating_3_count = rating_3_count + CASE WHEN p_rating = 3 THEN p_delta ELSE 0 END,
+        rating_4_count = rating_4_count + CASE WHEN p_rating = 4 THEN p_delta ELSE 0 END,
+        rating_5_count = rating_5_count + CASE WHEN p_rating = 5 THEN p_delta ELSE 0 END,
+        average_rating = CASE
+            WHEN review_count + p_delta > 0
+                THEN ROUND((rating_sum + p_delta * p_rating)::numeric / (review_count + p_delta), 2)
+            ELSE 0
+        END,
+        updated_at = CURRENT_TIMESTAMP
+    WHERE product_id = p_product_id;
+END;
+$$ language 'plpgsql';
+
+-- Function to keep product_rating_stats in sync with published reviews
+CREATE OR REPLACE FUNCTION update_product_rating_stats()
+RETURNS TRIGGER AS $$
+BEGIN
+    -- Remove the old contribution (unpublish, rating change, move or delete)
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.is_published THEN
+        PERFORM apply_product_rating_delta(OLD.product_id, OLD.rating, -1);
+    END IF;
+
+    -- Add the new contribution (publish, rating change, move or insert)
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.is_published THEN
+        INSERT INTO product_rating_stats (product_id) VALUES (NEW.product_id)
+        ON CONFLICT (product_id) DO NOTHING;
+        PERFORM apply_product_rating_delta(NEW.product_id, NEW.rating, 1);
+    END IF;
+
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+-- Function to create the empty aggregate row for new products
+CREATE OR REPLACE FUNCTION create_product_rating_stats()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO product_rating_stats (product_id) VALUES (NEW.id)
+    ON CONFLICT (product_id) DO NOTHING;
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+CREATE TRIGGER update_reviews_rating_stats
+    AFTER INSERT OR DELETE OR UPDATE OF product_id, rating, is_published ON reviews
+    FOR EACH ROW EXECUTE FUNCTION update_product_rating_stats();
+
+CREATE TRIGGER create_products_rating_stats
+    AFTER INSERT ON products
+    FOR EACH ROW EXECUTE FUNCTION create_product_rating_stats();
+
+\echo 'Migration 002 completed successfully!'
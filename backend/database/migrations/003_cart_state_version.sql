@@ -0,0 +1,15 @@
+-- Migration: Cart State Version
+-- Version: 003
+-- Date: 2026-10-17
+-- Description: Version column for carts flushed from the Redis cart store
+
+-- Active carts live in Redis and are written back to carts/cart_items in
+-- batches. Every cart mutation bumps a version in Redis; the flusher only
+-- applies a snapshot newer than the stored version, so a slow flush can never
+-- overwrite a later one from another node.
+
+\echo 'Running migration 003: Cart State Version...'
+
+ALTER TABLE carts ADD COLUMN IF NOT EXISTS state_version BIGINT NOT NULL DEFAULT 0;
+
+\echo 'Migration 003 completed successfully!'
@@ -0,0 +1,32 @@
+-- Migration: Notification Fan-out Jobs
+-- Version: 004
+-- Date: 2026-10-17
+-- Description: Progress records for announcement fan-out
+
+-- An announcement walks the users table in id order, one page per
+-- transaction. Each page commits its notifications together with the job's
+-- cursor (last_user_id), so a job taken over after a node failure resumes
+-- right after the last committed page without duplicating notifications.
+
+\echo 'Running migration 004: Notification Fan-out Jobs...'
+
+CREATE TABLE IF NOT EXISTS notification_fanout_jobs (
+    id UUID PRIMARY KEY,
+    title VARCHAR(200) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    request_payload TEXT NOT NULL,
+    last_user_id UUID,
+    processed_count BIGINT NOT NULL DEFAULT 0,
+    delivered_count BIGINT NOT NULL DEFAULT 0,
+    failed_count BIGINT NOT NULL DEFAULT 0,
+    error TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    completed_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_notification_fanout_jobs_open
+    ON notification_fanout_jobs (updated_at)
+    WHERE status IN ('PENDING', 'RUNNING');
+
+\echo 'Migration 004 completed successfully!'
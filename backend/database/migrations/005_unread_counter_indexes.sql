@@ -0,0 +1,20 @@
+-- Migration: Unread Counter Indexes
+-- Version: 005
+-- Date: 2026-10-17
+-- Description: Partial indexes for unread notification and message counts
+
+-- Unread counters are kept in Redis and loaded or reconciled from the
+-- database with grouped counts over many users at once. These indexes cover
+-- only unread rows, so the counts stay cheap as read history grows.
+
+\echo 'Running migration 005: Unread Counter Indexes...'
+
+CREATE INDEX IF NOT EXISTS idx_notifications_unread_target_user
+    ON notifications (target_user_id)
+    WHERE is_read = false;
+
+CREATE INDEX IF NOT EXISTS idx_chat_messages_unread_receiver
+    ON chat_messages (receiver_id, conversation_id)
+    WHERE is_read = false;
+
+\echo 'Migration 005 completed successfully!'
@@ -0,0 +1,79 @@
+-- Migration: Conversation Inbox
+-- Version: 006
+-- Date: 2026-10-17
+-- Description: Per-participant read model of chat conversations
+
+-- One row per participant and conversation, holding the participant set, a
+-- snapshot of the latest message and the participant's unread count. Rows
+-- are maintained in the same transaction as chat_messages, so a user's inbox
+-- is a single range read on (user_id, last_activity_at).
+
+\echo 'Running migration 006: Conversation Inbox...'
+
+CREATE TABLE IF NOT EXISTS conversation_inbox (
+    user_id UUID NOT NULL,
+    conversation_id UUID NOT NULL,
+    participant_ids UUID[] NOT NULL,
+    last_message_id UUID NOT NULL,
+    last_sender_id UUID NOT NULL,
+    last_receiver_id UUID NOT NULL,
+    last_message_type VARCHAR(20) NOT NULL,
+    last_content TEXT NOT NULL,
+    last_attachment_url VARCHAR(255),
+    last_attachment_name VARCHAR(255),
+    last_delivery_status VARCHAR(20) NOT NULL,
+    last_is_read BOOLEAN NOT NULL DEFAULT FALSE,
+    last_activity_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    unread_count BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (user_id, conversation_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_conversation_inbox_user_activity
+    ON conversation_inbox (user_id, last_activity_at DESC);
+
+CREATE INDEX IF NOT EXISTS idx_conversation_inbox_conversation
+    ON conversation_inbox (conversation_id);
+
+-- Backfill from existing messages
+WITH participants AS (
+    SELECT conversation_id, sender_id AS user_id FROM chat_messages
+    UNION
+    SELECT conversation_id, receiver_id AS user_id FROM chat_messages
+),
+participant_sets AS (
+    SELECT conversation_id, ARRAY_AGG(user_id) AS participant_ids
+    FROM participants
+    GROUP BY conversation_id
+),
+latest AS (
+    SELECT DISTINCT ON (conversation_id) *
+    FROM chat_messages
+    ORDER BY conversation_id, created_at DESC, id DESC
+),
+first_activity AS (
+    SELECT conversation_id, MIN(created_at) AS created_at
+    FROM chat_messages
+    GROUP BY conversation_id
+),
+unread AS (
+    SELECT conversation_id, receiver_id AS user_id, COUNT(*) AS unread_count
+    FROM chat_messages
+    WHERE is_read = false
+    GROUP BY conversation_id, receiver_id
+)
+INSERT INTO conversation_inbox (
+    user_id, conversation_id, participant_ids, last_message_id, last_sender_id, last_receiver_id,
+    last_message_type, last_content, last_attachment_url, last_attachment_name, last_delivery_status,
+    last_is_read, last_activity_at, unread_count, created_at)
+SELECT p.user_id, p.conversation_id, s.participant_ids, l.id, l.sender_id, l.receiver_id,
+       l.message_type, l.content, l.attachment_url, l.attachment_name, l.delivery_status,
+       l.is_read, l.created_at, COALESCE(u.unread_count, 0), f.created_at
+FROM participants p
+JOIN participant_sets s ON s.conversation_id = p.conversation_id
+JOIN latest l ON l.conversation_id = p.conversation_id
+JOIN first_activity f ON f.conversation_id = p.conversation_id
+LEFT JOIN unread u ON u.conversation_id = p.conversation_id AND u.user_id = p.user_id
+ON CONFLICT (user_id, conversation_id) DO NOTHING;
+
+\echo 'Migration 006 completed successfully!'
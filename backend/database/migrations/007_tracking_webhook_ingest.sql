@@ -0,0 +1,24 @@
+-- Migration: Tracking Webhook Ingest
+-- Version: 007
+-- Date: 2026-10-17
+-- Description: Unique carrier event key and webhook activity on shipments
+
+-- Carrier webhooks are persisted in batches with one upsert on
+-- (shipment_id, event_id), so that key must be unique; duplicates left by
+-- earlier polling are removed first, keeping the oldest row. Shipments that
+-- received a webhook recently are skipped by the tracking poller.
+
+\echo 'Running migration 007: Tracking Webhook Ingest...'
+
+DELETE FROM tracking_events a
+    USING tracking_events b
+    WHERE a.shipment_id = b.shipment_id
+      AND a.event_id = b.event_id
+      AND (a.created_at, a.id) > (b.created_at, b.id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_tracking_events_shipment_event
+    ON tracking_events (shipment_id, event_id);
+
+ALTER TABLE shipments ADD COLUMN IF NOT EXISTS last_webhook_at TIMESTAMP;
+
+\echo 'Migration 007 completed successfully!'
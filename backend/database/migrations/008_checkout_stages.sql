@@ -0,0 +1,24 @@
+-- Migration: Checkout Stages
+-- Version: 008
+-- Date: 2026-10-17
+-- Description: Persisted checkout stage, idempotency key and payment intent on orders
+
+-- Checkout runs as separate stages: the order is committed PENDING before the
+-- payment provider is called, and confirmed or compensated afterwards. Each
+-- transition is recorded here so an interrupted checkout can be resumed by a
+-- retry carrying the same idempotency key, or compensated by the recovery job.
+
+\echo 'Running migration 008: Checkout Stages...'
+
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS checkout_stage VARCHAR(30);
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS checkout_stage_at TIMESTAMP WITH TIME ZONE;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS checkout_idempotency_key VARCHAR(100);
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS payment_intent_id VARCHAR(255);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_orders_checkout_idempotency_key
+    ON orders (checkout_idempotency_key);
+
+CREATE INDEX IF NOT EXISTS idx_orders_checkout_stage
+    ON orders (checkout_stage, checkout_stage_at);
+
+\echo 'Migration 008 completed successfully!'
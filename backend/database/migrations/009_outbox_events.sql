@@ -0,0 +1,36 @@
+-- Migration: Outbox Events
+-- Version: 009
+-- Date: 2026-10-17
+-- Description: Transactional outbox for post-commit side effects
+
+-- Side effects of a change (emails, shipment creation, refunds) are written
+-- here in the same transaction as the change and run by the outbox
+-- dispatcher after it commits. Dispatchers claim due events with
+-- FOR UPDATE SKIP LOCKED and lease them by pushing available_at forward, so
+-- an event claimed by a node that dies is picked up again once the lease
+-- ends. Handled events are deleted; events that exhaust their retries stay
+-- behind as FAILED.
+
+\echo 'Running migration 009: Outbox Events...'
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id UUID PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id UUID NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    available_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    last_error TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    failed_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_due
+    ON outbox_events (available_at)
+    WHERE status = 'PENDING';
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_aggregate
+    ON outbox_events (aggregate_id);
+
+\echo 'Migration 009 completed successfully!'
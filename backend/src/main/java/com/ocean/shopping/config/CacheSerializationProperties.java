@@ -0,0 +1,45 @@
+package com.ocean.shopping.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for how Redis cache values are serialized
+ */
+@ConfigurationProperties(prefix = "ocean.shopping.cache.serialization")
+@Data
+@Validated
+public class CacheSerializationProperties {
+
+    /**
+     * Format for caches without an explicit setting
+     */
+    @NotNull
+    private Format defaultFormat = Format.COMPACT;
+
+    /**
+     * Encoded size in bytes above which compact values are LZ4-compressed (0 disables compression)
+     */
+    @PositiveOrZero
+    private int compressionThresholdBytes = 1024;
+
+    /**
+     * Per-cache format overrides, keyed by cache name
+     */
+    private Map<String, Format> caches = new HashMap<>();
+
+    public Format formatFor(String cacheName) {
+        return caches.getOrDefault(cacheName, defaultFormat);
+    }
+
+    public enum Format {
+        JSON,       // Plain JSON of the declared type
+        COMPACT     // Versioned Smile with optional LZ4 compression
+    }
+}
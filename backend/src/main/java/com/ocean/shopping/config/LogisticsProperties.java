@@ -1,5 +1,6 @@
 package com.ocean.shopping.config;
 
+import com.ocean.shopping.model.entity.enums.CarrierType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
@@ -7,6 +8,8 @@ import org.springframework.validation.annotation.Validated;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.Valid;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Configuration properties for logistics and shipping
@@ -63,6 +66,18 @@ public class LogisticsProperties {
     @Valid
     private UspsProperties usps = new UspsProperties();
 
+    /**
+     * Carrier API requests allowed per minute
+     */
+    public int getRateLimitPerMinute(CarrierType carrier) {
+        return switch (carrier) {
+            case DHL -> dhl.getRateLimitPerMinute();
+            case FEDEX -> fedex.getRateLimitPerMinute();
+            case UPS -> ups.getRateLimitPerMinute();
+            case USPS -> usps.getRateLimitPerMinute();
+        };
+    }
+
     @Data
     public static class RateShoppingProperties {
         private boolean enabled = true;
@@ -79,6 +94,24 @@ public class LogisticsProperties {
         
         @Positive
         private int cacheExpiryMinutes = 60;
+
+        @Positive
+        private int cacheMaxEntries = 10000;
+
+        // Rate shopping answers with the carriers that replied within this time
+        @Positive
+        private long deadlineMillis = 3000;
+
+        // Consecutive failures that open a carrier's circuit, and how long it stays open
+        @Positive
+        private int circuitFailureThreshold = 5;
+
+        @Positive
+        private int circuitOpenSeconds = 30;
+
+        // Upper bound for concurrent rate calls per carrier; the bulkhead is sized from its rate limit
+        @Positive
+        private int maxConcurrentCallsPerCarrier = 20;
     }
 
     @Data
@@ -103,6 +136,21 @@ public class LogisticsProperties {
         
         @Positive
         private int retentionDays = 730; // 2 years
+        
+        // Shipments polled concurrently across all carriers
+        @Positive
+        private int pollConcurrency = 8;
+        
+        // Upper bound of the poll interval of shipments without recent changes
+        @Positive
+        private int maxPollIntervalMinutes = 720;
+        
+        @Positive
+        private int refillIntervalMinutes = 5;
+        
+        // Tracking numbers whose carrier is remembered in memory
+        @Positive
+        private int carrierCacheMaxEntries = 100000;
     }
 
     @Data
@@ -127,6 +175,23 @@ public class LogisticsProperties {
         
         @Positive
         private int maxRetries = 5;
+        
+        // HMAC-SHA256 signature of the raw request body, hex or Base64
+        @NotBlank
+        private String signatureHeader = "X-Webhook-Signature";
+        
+        // Signing secrets by carrier code; carriers without one use the secret key
+        private Map<String, String> carrierSecrets = new HashMap<>();
+        
+        // Shipments with a webhook newer than this are not polled
+        @Positive
+        private int pollSuppressionMinutes = 360;
+        
+        @Positive
+        private int ingestQueueCapacity = 2000;
+        
+        @Positive
+        private int ingestBatchSize = 200;
     }
 
     @Data
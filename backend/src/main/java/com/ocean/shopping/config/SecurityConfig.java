@@ -88,6 +88,10 @@ public class SecurityConfig {
                 // Static resources
                 .requestMatchers("/favicon.ico").permitAll()
                 
+                // Carrier tracking webhooks carry no JWT; the controller verifies their HMAC signature
+                .requestMatchers("/api/webhooks/tracking/test").hasRole("ADMINISTRATOR")
+                .requestMatchers(HttpMethod.POST, "/api/webhooks/tracking/**").permitAll()
+                
                 // Admin-only endpoints
                 .requestMatchers("/api/admin/**").hasRole("ADMINISTRATOR")
                 
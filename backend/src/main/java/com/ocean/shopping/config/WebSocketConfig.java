@@ -1,5 +1,7 @@
 package com.ocean.shopping.config;
 
+import com.ocean.shopping.websocket.UserDestinationRelay;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
@@ -12,9 +14,12 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  */
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 @Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final UserDestinationRelay userDestinationRelay;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable simple in-memory broker for destinations prefixed with "/topic" and "/queue"
@@ -26,6 +31,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // Set user destination prefix for private messages
         config.setUserDestinationPrefix("/user");
         
+        // Relay user and topic messages to the nodes that own the recipients' sessions
+        config.configureBrokerChannel().interceptors(userDestinationRelay);
+        
         log.info("WebSocket message broker configured with prefixes: /topic, /queue, /user");
     }
 
@@ -1,5 +1,6 @@
 package com.ocean.shopping.controller;
 
+import com.ocean.shopping.dto.common.CursorPage;
 import com.ocean.shopping.dto.order.OrderResponse;
 import com.ocean.shopping.dto.order.OrderSummaryResponse;
 import com.ocean.shopping.dto.order.OrderStatusUpdateRequest;
@@ -64,6 +65,35 @@ public class AdminOrderController {
         }
     }
 
+    /**
+     * Scroll all orders with cursor pagination (infinite scroll and exports)
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<OrderSummaryResponse>> scrollAllOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean includeCount,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime endDate,
+            Authentication authentication) {
+
+        try {
+            UUID adminId = ((JwtAuthenticationToken) authentication).getUserId();
+            log.debug("Admin {} scrolling orders with filters - status: {}, dates: {} to {}",
+                adminId, status, startDate, endDate);
+
+            CursorPage<OrderSummaryResponse> orders = orderManagementService.scrollAllOrders(
+                cursor, size, includeCount, status, startDate, endDate);
+
+            return ResponseEntity.ok(orders);
+
+        } catch (Exception e) {
+            log.error("Error scrolling orders: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * Search all orders
      */
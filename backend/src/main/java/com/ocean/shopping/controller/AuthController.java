@@ -121,6 +121,29 @@ public class AuthController {
         return ResponseEntity.ok().build();
     }
 
+    @Operation(summary = "Logout all sessions", 
+               description = "Revoke every access and refresh token issued to the user so far")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Logout successful"),
+        @ApiResponse(responseCode = "401", description = "User not authenticated",
+                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutAll() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        
+        if (authentication != null && authentication.getPrincipal() instanceof com.ocean.shopping.model.entity.User) {
+            com.ocean.shopping.model.entity.User user = 
+                (com.ocean.shopping.model.entity.User) authentication.getPrincipal();
+            
+            log.info("Logout-all request received for user: {}", user.getEmail());
+            
+            authService.logoutAllSessions(user.getId().toString());
+        }
+
+        return ResponseEntity.ok().build();
+    }
+
     @Operation(summary = "Validate token", 
                description = "Validate if the current access token is valid and return user info")
     @ApiResponses(value = {
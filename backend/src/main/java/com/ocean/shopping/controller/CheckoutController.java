@@ -32,6 +32,7 @@ public class CheckoutController {
     @PostMapping
     public ResponseEntity<CheckoutResponse> processCheckout(
             @Valid @RequestBody CheckoutRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication,
             HttpSession session) {
         
@@ -51,7 +52,7 @@ public class CheckoutController {
                 log.debug("Guest checkout for session: {}", sessionId);
             }
 
-            CheckoutResponse response = orderService.processCheckout(request, userId, sessionId);
+            CheckoutResponse response = orderService.processCheckout(request, userId, sessionId, idempotencyKey);
 
             if (response.isSuccess()) {
                 log.info("Checkout successful - Order: {}", response.getOrderNumber());
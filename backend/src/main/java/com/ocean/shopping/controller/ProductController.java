@@ -1,8 +1,10 @@
 package com.ocean.shopping.controller;
 
+import com.ocean.shopping.dto.common.CursorPage;
 import com.ocean.shopping.dto.product.ProductFilter;
 import com.ocean.shopping.dto.product.ProductRequest;
 import com.ocean.shopping.dto.product.ProductResponse;
+import com.ocean.shopping.dto.product.ProductSearchFacets;
 import com.ocean.shopping.exception.ErrorResponse;
 import com.ocean.shopping.model.entity.User;
 import com.ocean.shopping.service.ProductService;
@@ -103,6 +105,63 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @Operation(summary = "Scroll products",
+               description = "Get products with cursor (keyset) pagination for infinite scroll and exports")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Products retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid filter parameters or cursor",
+                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<ProductResponse>> scrollProducts(
+            @Parameter(description = "Cursor returned by the previous slice")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Search query for product name/description")
+            @RequestParam(required = false) String query,
+            @Parameter(description = "Store ID to filter by")
+            @RequestParam(required = false) UUID storeId,
+            @Parameter(description = "Category ID to filter by")
+            @RequestParam(required = false) UUID categoryId,
+            @Parameter(description = "Minimum price filter")
+            @RequestParam(required = false) BigDecimal minPrice,
+            @Parameter(description = "Maximum price filter")
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @Parameter(description = "Filter by in-stock products only")
+            @RequestParam(required = false) Boolean inStock,
+            @Parameter(description = "Filter by featured products only")
+            @RequestParam(required = false) Boolean featured,
+            @Parameter(description = "Minimum rating filter")
+            @RequestParam(required = false) BigDecimal minRating,
+            @Parameter(description = "Sort field (name, price, createdAt or updatedAt)")
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "Sort direction")
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @Parameter(description = "Slice size")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Also return the total number of matching products")
+            @RequestParam(defaultValue = "false") boolean includeCount) {
+
+        log.debug("Scrolling products with filters - query: {}, storeId: {}, categoryId: {}",
+                  query, storeId, categoryId);
+
+        ProductFilter filter = ProductFilter.builder()
+                .query(query)
+                .storeId(storeId)
+                .categoryId(categoryId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .inStock(inStock)
+                .featured(featured)
+                .minRating(minRating)
+                .sortBy(sortBy)
+                .sortDirection(sortDirection)
+                .size(size)
+                .build();
+
+        CursorPage<ProductResponse> products = productService.scrollProducts(filter, cursor, includeCount);
+        return ResponseEntity.ok(products);
+    }
+
     @Operation(summary = "Get product by ID", 
                description = "Get detailed product information by product ID")
     @ApiResponses(value = {
@@ -165,7 +224,7 @@ public class ProductController {
             @Parameter(description = "Minimum rating filter")
             @RequestParam(required = false) BigDecimal minRating,
             @Parameter(description = "Sort field")
-            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "relevance") String sortBy,
             @Parameter(description = "Sort direction")
             @RequestParam(defaultValue = "desc") String sortDirection,
             @Parameter(description = "Page number (0-based)")
@@ -193,6 +252,44 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @Operation(summary = "Get search facets",
+               description = "Get category, store, price range and stock counts for products matching a search")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Facets retrieved successfully")
+    })
+    @GetMapping("/search/facets")
+    public ResponseEntity<ProductSearchFacets> getSearchFacets(
+            @Parameter(description = "Search query", required = true)
+            @RequestParam String q,
+            @Parameter(description = "Store ID to filter by")
+            @RequestParam(required = false) UUID storeId,
+            @Parameter(description = "Category ID to filter by")
+            @RequestParam(required = false) UUID categoryId,
+            @Parameter(description = "Minimum price filter")
+            @RequestParam(required = false) BigDecimal minPrice,
+            @Parameter(description = "Maximum price filter")
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @Parameter(description = "Filter by in-stock products only")
+            @RequestParam(required = false) Boolean inStock,
+            @Parameter(description = "Minimum rating filter")
+            @RequestParam(required = false) BigDecimal minRating) {
+
+        log.debug("Getting search facets for query: {}", q);
+
+        ProductFilter filter = ProductFilter.builder()
+                .query(q)
+                .storeId(storeId)
+                .categoryId(categoryId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .inStock(inStock)
+                .minRating(minRating)
+                .build();
+
+        ProductSearchFacets facets = productService.getSearchFacets(filter);
+        return ResponseEntity.ok(facets);
+    }
+
     @Operation(summary = "Get featured products", 
                description = "Get featured products for homepage display")
     @ApiResponses(value = {
@@ -1,17 +1,30 @@
 package com.ocean.shopping.controller.webhook;
 
-import com.ocean.shopping.service.TrackingService;
+import com.ocean.shopping.config.LogisticsProperties;
+import com.ocean.shopping.model.entity.enums.CarrierType;
+import com.ocean.shopping.service.logistics.CarrierWebhookParser;
+import com.ocean.shopping.service.logistics.TrackingWebhookIngestService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
- * Webhook controller for receiving tracking updates from carriers
+ * Webhook controller for receiving tracking updates from carriers.
+ * Carriers send no JWT, so the endpoints are open and authenticated by the payload's
+ * HMAC signature alone. A webhook is acknowledged (202) once its events are committed;
+ * any other answer makes the carrier redeliver it, which is safe because events are
+ * upserted by their event ID.
  */
 @RestController
 @RequestMapping("/api/webhooks/tracking")
@@ -19,7 +32,9 @@ import java.util.Map;
 @Slf4j
 public class TrackingWebhookController {
 
-    private final TrackingService trackingService;
+    private final CarrierWebhookParser webhookParser;
+    private final TrackingWebhookIngestService ingestService;
+    private final LogisticsProperties logisticsProperties;
 
     /**
      * DHL tracking webhook
@@ -27,23 +42,11 @@ public class TrackingWebhookController {
     @PostMapping("/dhl")
     public ResponseEntity<String> handleDhlWebhook(
             @RequestBody String payload,
-            @RequestHeader Map<String, String> headers,
+            @RequestHeader HttpHeaders headers,
             HttpServletRequest request) {
         
         log.info("Received DHL tracking webhook from IP: {}", request.getRemoteAddr());
-        
-        try {
-            // TODO: Implement DHL webhook signature verification
-            // TODO: Parse DHL webhook payload
-            // TODO: Update tracking information
-            
-            log.info("Processed DHL tracking webhook successfully");
-            return ResponseEntity.ok("OK");
-            
-        } catch (Exception e) {
-            log.error("Failed to process DHL tracking webhook: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error processing webhook");
-        }
+        return ingest(CarrierType.DHL, payload, headers);
     }
 
     /**
@@ -52,23 +55,11 @@ public class TrackingWebhookController {
     @PostMapping("/fedex")
     public ResponseEntity<String> handleFedexWebhook(
             @RequestBody String payload,
-            @RequestHeader Map<String, String> headers,
+            @RequestHeader HttpHeaders headers,
             HttpServletRequest request) {
         
         log.info("Received FedEx tracking webhook from IP: {}", request.getRemoteAddr());
-        
-        try {
-            // TODO: Implement FedEx webhook signature verification
-            // TODO: Parse FedEx webhook payload
-            // TODO: Update tracking information
-            
-            log.info("Processed FedEx tracking webhook successfully");
-            return ResponseEntity.ok("OK");
-            
-        } catch (Exception e) {
-            log.error("Failed to process FedEx tracking webhook: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error processing webhook");
-        }
+        return ingest(CarrierType.FEDEX, payload, headers);
     }
 
     /**
@@ -77,23 +68,11 @@ public class TrackingWebhookController {
     @PostMapping("/ups")
     public ResponseEntity<String> handleUpsWebhook(
             @RequestBody String payload,
-            @RequestHeader Map<String, String> headers,
+            @RequestHeader HttpHeaders headers,
             HttpServletRequest request) {
         
         log.info("Received UPS tracking webhook from IP: {}", request.getRemoteAddr());
-        
-        try {
-            // TODO: Implement UPS webhook signature verification
-            // TODO: Parse UPS webhook payload
-            // TODO: Update tracking information
-            
-            log.info("Processed UPS tracking webhook successfully");
-            return ResponseEntity.ok("OK");
-            
-        } catch (Exception e) {
-            log.error("Failed to process UPS tracking webhook: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error processing webhook");
-        }
+        return ingest(CarrierType.UPS, payload, headers);
     }
 
     /**
@@ -102,23 +81,11 @@ public class TrackingWebhookController {
     @PostMapping("/usps")
     public ResponseEntity<String> handleUspsWebhook(
             @RequestBody String payload,
-            @RequestHeader Map<String, String> headers,
+            @RequestHeader HttpHeaders headers,
             HttpServletRequest request) {
         
         log.info("Received USPS tracking webhook from IP: {}", request.getRemoteAddr());
-        
-        try {
-            // TODO: Implement USPS webhook signature verification
-            // TODO: Parse USPS webhook payload
-            // TODO: Update tracking information
-            
-            log.info("Processed USPS tracking webhook successfully");
-            return ResponseEntity.ok("OK");
-            
-        } catch (Exception e) {
-            log.error("Failed to process USPS tracking webhook: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error processing webhook");
-        }
+        return ingest(CarrierType.USPS, payload, headers);
     }
 
     /**
@@ -152,4 +119,39 @@ public class TrackingWebhookController {
                 "timestamp", String.valueOf(System.currentTimeMillis())
         ));
     }
-}
\ No newline at end of file
+
+    // Private helper methods
+
+    private ResponseEntity<String> ingest(CarrierType carrier, String payload, HttpHeaders headers) {
+        LogisticsProperties.WebhookProperties webhook = logisticsProperties.getWebhook();
+        if (!webhookParser.verifySignature(carrier, payload, headers.getFirst(webhook.getSignatureHeader()))) {
+            log.warn("Rejected {} tracking webhook with invalid signature", carrier.getDisplayName());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid signature");
+        }
+
+        List<CarrierWebhookParser.CarrierEvent> events;
+        try {
+            events = webhookParser.parse(carrier, payload);
+        } catch (RuntimeException e) {
+            log.warn("Rejected malformed {} tracking webhook: {}", carrier.getDisplayName(), e.getMessage());
+            return ResponseEntity.badRequest().body("Malformed payload");
+        }
+
+        try {
+            int stored = ingestService.submit(events).get(webhook.getTimeoutSeconds(), TimeUnit.SECONDS);
+            log.info("Processed {} tracking webhook successfully - {} of {} events for known shipments",
+                    carrier.getDisplayName(), stored, events.size());
+            return ResponseEntity.accepted().body("OK");
+            
+        } catch (RejectedExecutionException | TimeoutException e) {
+            log.warn("Deferred {} tracking webhook: {}", carrier.getDisplayName(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Busy, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Busy, please retry");
+        } catch (ExecutionException e) {
+            log.error("Failed to process {} tracking webhook: {}", carrier.getDisplayName(), e.getCause().getMessage(), e.getCause());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error processing webhook");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.ocean.shopping.dto.common;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cursor-based page (slice) response
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Slice of results with an opaque cursor for the next slice")
+public class CursorPage<T> {
+
+    @Schema(description = "Items in this slice")
+    private List<T> content;
+
+    @Schema(description = "Number of items in this slice", example = "20")
+    private int size;
+
+    @Schema(description = "Whether more items follow this slice", example = "true")
+    private boolean hasNext;
+
+    @Schema(description = "Cursor to pass to fetch the next slice; null on the last slice")
+    private String nextCursor;
+
+    @Schema(description = "Total number of matching items; only present when requested", example = "1520")
+    private Long totalElements;
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 /**
  * DTO for checkout response containing order confirmation details
@@ -16,7 +17,7 @@ import java.math.BigDecimal;
 @Builder
 public class CheckoutResponse {
 
-    private Long orderId;
+    private UUID orderId;
     private String orderNumber;
     private BigDecimal totalAmount;
     private String currency;
@@ -37,7 +38,7 @@ public class CheckoutResponse {
     private boolean requiresPaymentAction;
     private String paymentActionUrl;
 
-    public static CheckoutResponse success(Long orderId, String orderNumber, 
+    public static CheckoutResponse success(UUID orderId, String orderNumber, 
                                          BigDecimal totalAmount, String currency,
                                          String paymentIntentId, String customerEmail) {
         return CheckoutResponse.builder()
@@ -66,7 +66,7 @@ public class ProductFilter {
     private List<String> tags;
 
     // Sorting options
-    @Schema(description = "Sort field", example = "name", allowableValues = {"name", "price", "createdAt", "updatedAt", "rating", "popularity"})
+    @Schema(description = "Sort field", example = "name", allowableValues = {"relevance", "name", "price", "createdAt", "updatedAt", "rating", "popularity"})
     @Builder.Default
     private String sortBy = "createdAt";
 
@@ -122,7 +122,7 @@ public class ProductFilter {
     }
 
     private boolean isValidSortField(String field) {
-        return List.of("name", "price", "createdAt", "updatedAt", "rating", "popularity").contains(field);
+        return List.of("relevance", "name", "price", "createdAt", "updatedAt", "rating", "popularity").contains(field);
     }
 
     /**
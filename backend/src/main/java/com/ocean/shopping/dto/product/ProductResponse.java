@@ -2,7 +2,7 @@ package com.ocean.shopping.dto.product;
 
 import com.ocean.shopping.model.entity.Product;
 import com.ocean.shopping.model.entity.ProductImage;
-import com.ocean.shopping.model.entity.Review;
+import com.ocean.shopping.model.entity.ProductRatingStats;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,6 +13,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -129,6 +130,9 @@ public class ProductResponse {
     @Schema(description = "Total reviews count", example = "150")
     private Integer reviewCount;
 
+    @Schema(description = "Published review count per star rating (5 to 1)")
+    private Map<Integer, Integer> ratingDistribution;
+
     /**
      * Store information DTO
      */
@@ -259,25 +263,8 @@ public class ProductResponse {
             builder.images(imageResponses);
         }
 
-        // Calculate review statistics
-        if (product.getReviews() != null && !product.getReviews().isEmpty()) {
-            List<Review> publishedReviews = product.getReviews().stream()
-                    .filter(Review::getIsPublished)
-                    .collect(Collectors.toList());
-
-            builder.reviewCount(publishedReviews.size());
-
-            if (!publishedReviews.isEmpty()) {
-                double avgRating = publishedReviews.stream()
-                        .mapToInt(Review::getRating)
-                        .average()
-                        .orElse(0.0);
-                builder.averageRating(BigDecimal.valueOf(avgRating).setScale(2, RoundingMode.HALF_UP));
-            }
-        } else {
-            builder.reviewCount(0);
-            builder.averageRating(BigDecimal.ZERO);
-        }
+        // Review statistics come from the precomputed aggregate
+        applyRatingStats(builder, product.getRatingStats(), true);
 
         return builder.build();
     }
@@ -341,26 +328,23 @@ public class ProductResponse {
                     });
         }
 
-        // Calculate review statistics
-        if (product.getReviews() != null && !product.getReviews().isEmpty()) {
-            List<Review> publishedReviews = product.getReviews().stream()
-                    .filter(Review::getIsPublished)
-                    .collect(Collectors.toList());
+        // Review statistics come from the precomputed aggregate
+        applyRatingStats(builder, product.getRatingStats(), false);
 
-            builder.reviewCount(publishedReviews.size());
+        return builder.build();
+    }
 
-            if (!publishedReviews.isEmpty()) {
-                double avgRating = publishedReviews.stream()
-                        .mapToInt(Review::getRating)
-                        .average()
-                        .orElse(0.0);
-                builder.averageRating(BigDecimal.valueOf(avgRating).setScale(2, RoundingMode.HALF_UP));
-            }
-        } else {
+    private static void applyRatingStats(ProductResponseBuilder builder, ProductRatingStats stats, boolean includeDistribution) {
+        if (stats == null) {
             builder.reviewCount(0);
             builder.averageRating(BigDecimal.ZERO);
+            return;
         }
 
-        return builder.build();
+        builder.reviewCount(stats.getReviewCount());
+        builder.averageRating(stats.getAverageRating().setScale(2, RoundingMode.HALF_UP));
+        if (includeDistribution) {
+            builder.ratingDistribution(stats.getRatingDistribution());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.ocean.shopping.dto.product;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Facet counts for a product search
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Facet counts for the products matching a search")
+public class ProductSearchFacets {
+
+    @Schema(description = "Total matching products", example = "42")
+    private long totalHits;
+
+    @Schema(description = "Matching products per category ID")
+    private Map<UUID, Long> categories;
+
+    @Schema(description = "Matching products per store ID")
+    private Map<UUID, Long> stores;
+
+    @Schema(description = "Matching products per price range", example = "{\"0-25\": 10, \"25-50\": 32}")
+    private Map<String, Long> priceRanges;
+
+    @Schema(description = "Matching products in stock", example = "40")
+    private long inStock;
+
+    @Schema(description = "Matching products out of stock", example = "2")
+    private long outOfStock;
+
+    /**
+     * Facets for an empty result
+     */
+    public static ProductSearchFacets empty() {
+        return ProductSearchFacets.builder()
+                .totalHits(0)
+                .categories(Map.of())
+                .stores(Map.of())
+                .priceRanges(Map.of())
+                .build();
+    }
+}
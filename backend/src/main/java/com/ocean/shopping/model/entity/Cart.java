@@ -80,6 +80,10 @@ public class Cart extends BaseEntity {
     @Column(name = "merged_from_session")
     private String mergedFromSession;
 
+    // Version of the last Redis cart state flushed to this row, maintained by the flusher
+    @Column(name = "state_version", insertable = false, updatable = false)
+    private Long stateVersion;
+
 
     /**
      * Cart status enum for tracking cart lifecycle
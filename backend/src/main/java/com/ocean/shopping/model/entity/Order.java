@@ -1,5 +1,6 @@
 package com.ocean.shopping.model.entity;
 
+import com.ocean.shopping.model.entity.enums.CheckoutStage;
 import com.ocean.shopping.model.entity.enums.OrderStatus;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -21,7 +22,8 @@ import java.util.List;
     @Index(name = "idx_orders_user_id", columnList = "user_id"),
     @Index(name = "idx_orders_store_id", columnList = "store_id"),
     @Index(name = "idx_orders_status", columnList = "status"),
-    @Index(name = "idx_orders_customer_email", columnList = "customer_email")
+    @Index(name = "idx_orders_customer_email", columnList = "customer_email"),
+    @Index(name = "idx_orders_checkout_stage", columnList = "checkout_stage, checkout_stage_at")
 })
 @Getter
 @Setter
@@ -170,6 +172,20 @@ public class Order extends BaseEntity {
     @Column(name = "cancelled_at")
     private ZonedDateTime cancelledAt;
 
+    // Checkout pipeline
+    @Enumerated(EnumType.STRING)
+    @Column(name = "checkout_stage", length = 30)
+    private CheckoutStage checkoutStage;
+
+    @Column(name = "checkout_stage_at")
+    private ZonedDateTime checkoutStageAt;
+
+    @Column(name = "checkout_idempotency_key", unique = true, length = 100)
+    private String checkoutIdempotencyKey;
+
+    @Column(name = "payment_intent_id")
+    private String paymentIntentId;
+
     // Relationships
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<OrderItem> orderItems;
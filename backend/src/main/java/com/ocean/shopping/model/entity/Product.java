@@ -139,6 +139,11 @@ public class Product extends BaseEntity {
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Review> reviews;
 
+    // Review aggregate; the row is created by a trigger on insert and shares the product ID
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id", referencedColumnName = "product_id", insertable = false, updatable = false)
+    private ProductRatingStats ratingStats;
+
     // Helper methods
     public boolean isInStock() {
         return !trackInventory || inventoryQuantity > 0;
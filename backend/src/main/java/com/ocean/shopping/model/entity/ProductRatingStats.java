@@ -0,0 +1,73 @@
+package com.ocean.shopping.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Precomputed review aggregate for a product.
+ * <p>
+ * Maintained by database triggers on the reviews table whenever a review is
+ * published, unpublished, re-rated or deleted, so it is read-only here.
+ */
+@Entity
+@Table(name = "product_rating_stats", indexes = {
+    @Index(name = "idx_product_rating_stats_average", columnList = "average_rating DESC, review_count DESC"),
+    @Index(name = "idx_product_rating_stats_count", columnList = "review_count DESC")
+})
+@Immutable
+@BatchSize(size = 100)
+@Getter
+@NoArgsConstructor
+public class ProductRatingStats {
+
+    @Id
+    @Column(name = "product_id", updatable = false, nullable = false)
+    private UUID productId;
+
+    @Column(name = "review_count", nullable = false)
+    private Integer reviewCount = 0;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "rating_1_count", nullable = false)
+    private Integer rating1Count = 0;
+
+    @Column(name = "rating_2_count", nullable = false)
+    private Integer rating2Count = 0;
+
+    @Column(name = "rating_3_count", nullable = false)
+    private Integer rating3Count = 0;
+
+    @Column(name = "rating_4_count", nullable = false)
+    private Integer rating4Count = 0;
+
+    @Column(name = "rating_5_count", nullable = false)
+    private Integer rating5Count = 0;
+
+    @Column(name = "average_rating", nullable = false, precision = 3, scale = 2)
+    private BigDecimal averageRating = BigDecimal.ZERO;
+
+    @Column(name = "updated_at", nullable = false)
+    private ZonedDateTime updatedAt;
+
+    // Helper methods
+    public Map<Integer, Integer> getRatingDistribution() {
+        Map<Integer, Integer> distribution = new LinkedHashMap<>();
+        distribution.put(5, rating5Count);
+        distribution.put(4, rating4Count);
+        distribution.put(3, rating3Count);
+        distribution.put(2, rating2Count);
+        distribution.put(1, rating1Count);
+        return distribution;
+    }
+}
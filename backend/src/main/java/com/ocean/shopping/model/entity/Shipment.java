@@ -278,6 +278,10 @@ public class Shipment extends BaseEntity {
     @Column(name = "last_tracking_update")
     private LocalDateTime lastTrackingUpdate;
 
+    // Last carrier webhook received; recently pushed shipments are not polled
+    @Column(name = "last_webhook_at")
+    private LocalDateTime lastWebhookAt;
+
     // Relationships
     @OneToMany(mappedBy = "shipment", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<TrackingEvent> trackingEvents;
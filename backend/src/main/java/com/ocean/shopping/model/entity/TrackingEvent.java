@@ -18,6 +18,8 @@ import java.time.LocalDateTime;
     @Index(name = "idx_tracking_events_event_time", columnList = "event_time"),
     @Index(name = "idx_tracking_events_status", columnList = "status"),
     @Index(name = "idx_tracking_events_event_type", columnList = "event_type")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uq_tracking_events_shipment_event", columnNames = {"shipment_id", "event_id"})
 })
 @Getter
 @Setter
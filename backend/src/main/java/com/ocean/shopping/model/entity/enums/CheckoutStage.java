@@ -0,0 +1,18 @@
+package com.ocean.shopping.model.entity.enums;
+
+/**
+ * Persisted stages of a checkout, in order. ORDER_CREATED and PAYMENT_PENDING are in
+ * flight; COMPLETED, FAILED and REFUNDED are final. REFUNDED is a failed checkout whose
+ * payment went through anyway and is being refunded.
+ */
+public enum CheckoutStage {
+    ORDER_CREATED,
+    PAYMENT_PENDING,
+    COMPLETED,
+    FAILED,
+    REFUNDED;
+
+    public boolean isFinal() {
+        return this == COMPLETED || this == FAILED || this == REFUNDED;
+    }
+}
@@ -0,0 +1,14 @@
+package com.ocean.shopping.model.entity.enums;
+
+/**
+ * Side effects recorded in the transactional outbox. Each type is one side effect, so a
+ * retried event never repeats another that already succeeded.
+ */
+public enum OutboxEventType {
+    ORDER_CONFIRMATION_EMAIL,
+    ORDER_STATUS_EMAIL,
+    ORDER_CANCELLATION_EMAIL,
+    ORDER_SHIPMENT,
+    ORDER_REFUND,
+    ORDER_INVENTORY_COMMIT
+}
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -50,6 +51,12 @@ public interface CartRepository extends JpaRepository<Cart, UUID>, JpaSpecificat
     @Query("SELECT c FROM Cart c WHERE c.status = 'ACTIVE' AND c.expiresAt IS NOT NULL AND c.expiresAt < :now")
     List<Cart> findExpiredCarts(@Param("now") ZonedDateTime now);
 
+    @Query("SELECT c.id FROM Cart c WHERE c.status = 'ACTIVE' AND c.updatedAt < :threshold")
+    List<UUID> findIdsOfActiveCartsOlderThan(@Param("threshold") ZonedDateTime threshold);
+
+    @Query("SELECT c.id FROM Cart c WHERE c.status = 'ACTIVE' AND c.expiresAt IS NOT NULL AND c.expiresAt < :now")
+    List<UUID> findIdsOfExpiredCarts(@Param("now") ZonedDateTime now);
+
     // Empty cart management
     @Query("SELECT c FROM Cart c WHERE c.status = 'ACTIVE' AND SIZE(c.items) = 0")
     List<Cart> findEmptyActiveCarts();
@@ -80,8 +87,9 @@ public interface CartRepository extends JpaRepository<Cart, UUID>, JpaSpecificat
 
     // Bulk operations
     @Modifying
-    @Query("UPDATE Cart c SET c.status = 'ABANDONED' WHERE c.status = 'ACTIVE' AND c.updatedAt < :threshold")
-    int markOldCartsAsAbandoned(@Param("threshold") ZonedDateTime threshold);
+    @Query("UPDATE Cart c SET c.status = 'ABANDONED' " +
+           "WHERE c.id IN :cartIds AND c.status = 'ACTIVE' AND c.updatedAt < :threshold")
+    int markCartsAsAbandoned(@Param("cartIds") Collection<UUID> cartIds, @Param("threshold") ZonedDateTime threshold);
     
     @Modifying
     @Query("UPDATE Cart c SET c.status = 'EXPIRED' WHERE c.expiresAt IS NOT NULL AND c.expiresAt < :now")
@@ -2,8 +2,11 @@ package com.ocean.shopping.repository;
 
 import com.ocean.shopping.model.entity.ChatMessage;
 import com.ocean.shopping.model.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -25,6 +28,13 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, UUID>
     @Query("SELECT cm FROM ChatMessage cm WHERE cm.conversationId = :conversationId ORDER BY cm.createdAt ASC")
     Page<ChatMessage> findByConversationIdOrderByCreatedAtAsc(@Param("conversationId") UUID conversationId, Pageable pageable);
 
+    /**
+     * Keyset scroll over a conversation, newest first
+     */
+    Window<ChatMessage> findByConversationIdOrderByCreatedAtDescIdDesc(UUID conversationId, ScrollPosition position, Limit limit);
+
+    long countByConversationId(UUID conversationId);
+
     /**
      * Find messages in a conversation after a specific timestamp
      */
@@ -2,8 +2,11 @@ package com.ocean.shopping.repository;
 
 import com.ocean.shopping.model.entity.Notification;
 import com.ocean.shopping.model.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -25,6 +28,13 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
     @Query("SELECT n FROM Notification n WHERE n.targetUser = :targetUser ORDER BY n.createdAt DESC")
     Page<Notification> findByTargetUserOrderByCreatedAtDesc(@Param("targetUser") User targetUser, Pageable pageable);
 
+    /**
+     * Keyset scroll over a user's notifications, newest first
+     */
+    Window<Notification> findByTargetUserOrderByCreatedAtDescIdDesc(User targetUser, ScrollPosition position, Limit limit);
+
+    long countByTargetUser(User targetUser);
+
     /**
      * Find unread notifications for a user
      */
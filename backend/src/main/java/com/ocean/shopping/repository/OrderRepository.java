@@ -3,10 +3,15 @@ package com.ocean.shopping.repository;
 import com.ocean.shopping.model.entity.Order;
 import com.ocean.shopping.model.entity.Store;
 import com.ocean.shopping.model.entity.User;
+import com.ocean.shopping.model.entity.enums.CheckoutStage;
 import com.ocean.shopping.model.entity.enums.OrderStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,6 +20,7 @@ import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Repository for Order entity with comprehensive query support
@@ -83,6 +89,18 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
                                        @Param("endDate") ZonedDateTime endDate,
                                        Pageable pageable);
 
+    // Keyset scroll queries (newest first)
+    Window<Order> findAllByOrderByCreatedAtDescIdDesc(ScrollPosition position, Limit limit);
+
+    Window<Order> findByStatusOrderByCreatedAtDescIdDesc(OrderStatus status, ScrollPosition position, Limit limit);
+
+    Window<Order> findByCreatedAtBetweenOrderByCreatedAtDescIdDesc(ZonedDateTime startDate, ZonedDateTime endDate,
+                                                                  ScrollPosition position, Limit limit);
+
+    Window<Order> findByStatusAndCreatedAtBetweenOrderByCreatedAtDescIdDesc(OrderStatus status,
+                                                                           ZonedDateTime startDate, ZonedDateTime endDate,
+                                                                           ScrollPosition position, Limit limit);
+
     // Count queries
     long countByUser(User user);
     
@@ -94,6 +112,10 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     long countByStatus(OrderStatus status);
 
+    long countByCreatedAtBetween(ZonedDateTime startDate, ZonedDateTime endDate);
+
+    long countByStatusAndCreatedAtBetween(OrderStatus status, ZonedDateTime startDate, ZonedDateTime endDate);
+
     // Amount queries
     @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.user = :user AND o.status IN :statuses")
     BigDecimal sumTotalAmountByUserAndStatuses(@Param("user") User user, 
@@ -154,6 +176,43 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.status = 'CONFIRMED' AND o.confirmedAt < :cutoffTime")
     List<Order> findOrdersReadyForProcessing(@Param("cutoffTime") ZonedDateTime cutoffTime);
 
+    // Checkout stage queries
+    Optional<Order> findByCheckoutIdempotencyKey(String checkoutIdempotencyKey);
+
+    List<Order> findByCheckoutStageInAndCheckoutStageAtBefore(List<CheckoutStage> stages, ZonedDateTime cutoffTime,
+                                                             Pageable pageable);
+
+    // Conditional transitions: return 0 when the order already left the expected stages
+    @Modifying
+    @Query("UPDATE Order o SET o.checkoutStage = 'PAYMENT_PENDING', o.checkoutStageAt = :now, " +
+           "o.paymentIntentId = :paymentIntentId, o.updatedAt = :now " +
+           "WHERE o.id = :orderId AND o.checkoutStage = 'ORDER_CREATED'")
+    int markPaymentPending(@Param("orderId") UUID orderId,
+                           @Param("paymentIntentId") String paymentIntentId,
+                           @Param("now") ZonedDateTime now);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.checkoutStage = 'COMPLETED', o.checkoutStageAt = :now, " +
+           "o.status = 'CONFIRMED', o.confirmedAt = :now, o.updatedAt = :now " +
+           "WHERE o.id = :orderId AND o.checkoutStage IN ('ORDER_CREATED', 'PAYMENT_PENDING') " +
+           "AND o.status <> 'CANCELLED'")
+    int markCheckoutCompleted(@Param("orderId") UUID orderId, @Param("now") ZonedDateTime now);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.checkoutStage = 'FAILED', o.checkoutStageAt = :now, " +
+           "o.status = 'CANCELLED', o.cancelledAt = :now, o.updatedAt = :now, " +
+           "o.internalNotes = :internalNotes " +
+           "WHERE o.id = :orderId AND o.checkoutStage IN ('ORDER_CREATED', 'PAYMENT_PENDING')")
+    int markCheckoutFailed(@Param("orderId") UUID orderId,
+                           @Param("internalNotes") String internalNotes,
+                           @Param("now") ZonedDateTime now);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.checkoutStage = 'REFUNDED', o.checkoutStageAt = :now, o.updatedAt = :now " +
+           "WHERE o.id = :orderId AND (o.checkoutStage = 'FAILED' " +
+           "OR (o.checkoutStage IN ('ORDER_CREATED', 'PAYMENT_PENDING') AND o.status = 'CANCELLED'))")
+    int markCheckoutRefunded(@Param("orderId") UUID orderId, @Param("now") ZonedDateTime now);
+
     // Customer insights
     @Query("SELECT COUNT(DISTINCT o.customerEmail) FROM Order o WHERE o.store = :store")
     long countUniqueCustomersByStore(@Param("store") Store store);
@@ -106,21 +106,23 @@ public interface ProductRepository extends JpaRepository<Product, UUID>, JpaSpec
 
     // Products by rating
     @Query("SELECT p FROM Product p " +
-           "LEFT JOIN p.reviews r " +
-           "WHERE p.isActive = true AND r.isPublished = true " +
-           "GROUP BY p.id " +
-           "HAVING AVG(CAST(r.rating AS double)) >= :minRating " +
-           "ORDER BY AVG(CAST(r.rating AS double)) DESC")
+           "JOIN p.ratingStats s " +
+           "WHERE p.isActive = true AND s.reviewCount > 0 AND s.averageRating >= :minRating " +
+           "ORDER BY s.averageRating DESC, s.reviewCount DESC")
     Page<Product> findByMinRating(@Param("minRating") BigDecimal minRating, Pageable pageable);
 
     // Popular products (by review count)
     @Query("SELECT p FROM Product p " +
-           "LEFT JOIN p.reviews r " +
-           "WHERE p.isActive = true AND r.isPublished = true " +
-           "GROUP BY p.id " +
-           "ORDER BY COUNT(r.id) DESC")
+           "JOIN p.ratingStats s " +
+           "WHERE p.isActive = true AND s.reviewCount > 0 " +
+           "ORDER BY s.reviewCount DESC, s.averageRating DESC")
     Page<Product> findPopularProducts(Pageable pageable);
 
+    // Keyset scan over active products, used to bulk-load the search index
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category " +
+           "WHERE p.isActive = true AND p.id > :afterId ORDER BY p.id")
+    List<Product> findActiveProductsAfter(@Param("afterId") UUID afterId, Pageable pageable);
+
     // Recently added products
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.createdAt >= :since ORDER BY p.createdAt DESC")
     List<Product> findRecentProducts(@Param("since") ZonedDateTime since, Pageable pageable);
@@ -7,14 +7,17 @@ import com.ocean.shopping.model.entity.enums.ShipmentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Repository for Shipment entity
@@ -122,6 +125,14 @@ public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
     @Query("SELECT s FROM Shipment s WHERE s.trackingNumber IN :trackingNumbers")
     List<Shipment> findByTrackingNumbers(@Param("trackingNumbers") List<String> trackingNumbers);
 
+    /**
+     * Record a tracking poll that changed nothing, without loading or rewriting the shipments
+     */
+    @Modifying
+    @Query("UPDATE Shipment s SET s.lastTrackingUpdate = :polledAt WHERE s.id IN :shipmentIds")
+    int markTrackingPolled(@Param("shipmentIds") Collection<UUID> shipmentIds,
+                           @Param("polledAt") LocalDateTime polledAt);
+
     /**
      * Find recent shipments for a customer
      */
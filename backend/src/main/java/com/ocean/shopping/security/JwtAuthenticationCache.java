@@ -0,0 +1,182 @@
+package com.ocean.shopping.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ocean.shopping.model.entity.User;
+import com.ocean.shopping.repository.UserRepository;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Authentication fast path for {@link JwtAuthenticationFilter}.
+ * <p>
+ * A token is verified (signature and Redis revocation check) the first time a node
+ * sees it; its claims are then cached by token hash, so repeated requests cost no
+ * crypto and no Redis round-trip. Cached claims are checked against the revocations
+ * {@link TokenRevocationStore} replicates to every node; the claims TTL bounds how
+ * long a node trusts a token if a revocation message is lost. Principals are kept
+ * in a short-lived cache that user updates invalidate cluster-wide after commit.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtAuthenticationCache {
+
+    public static final String PRINCIPAL_INVALIDATION_CHANNEL = "auth:principal:invalidate";
+
+    private final JwtTokenProvider tokenProvider;
+    private final TokenRevocationStore revocationStore;
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.auth.claims-cache-size:100000}")
+    private long claimsCacheSize;
+
+    @Value("${ocean.shopping.auth.claims-cache-ttl-seconds:300}")
+    private long claimsCacheTtlSeconds;
+
+    @Value("${ocean.shopping.auth.principal-cache-size:20000}")
+    private long principalCacheSize;
+
+    @Value("${ocean.shopping.auth.principal-cache-ttl-seconds:30}")
+    private long principalCacheTtlSeconds;
+
+    private Cache<String, JwtClaims> claimsCache;
+    private Cache<UUID, User> principalCache;
+
+    private Counter claimsHitCounter;
+    private Counter claimsMissCounter;
+
+    @PostConstruct
+    public void initialize() {
+        claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(claimsCacheTtlSeconds))
+                .recordStats()
+                .build();
+        principalCache = Caffeine.newBuilder()
+                .maximumSize(principalCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(principalCacheTtlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, claimsCache, "auth.claims");
+        CaffeineCacheMetrics.monitor(meterRegistry, principalCache, "auth.principal");
+
+        claimsHitCounter = Counter.builder("auth.claims.requests")
+                .description("Token authentications served from cached claims")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        claimsMissCounter = Counter.builder("auth.claims.requests")
+                .description("Token authentications served from cached claims")
+                .tag("result", "miss")
+                .register(meterRegistry);
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onPrincipalInvalidation(message),
+                new ChannelTopic(PRINCIPAL_INVALIDATION_CHANNEL));
+
+        log.info("JWT authentication cache initialized - claims TTL: {}s, principal TTL: {}s",
+                claimsCacheTtlSeconds, principalCacheTtlSeconds);
+    }
+
+    /**
+     * Get the claims of a valid, unrevoked access token
+     * @return Claims, or null if the token is invalid, expired or revoked
+     */
+    public JwtClaims authenticate(String token) {
+        String hash = TokenRevocationStore.tokenHash(token);
+
+        JwtClaims claims = claimsCache.getIfPresent(hash);
+        if (claims != null) {
+            claimsHitCounter.increment();
+            if (claims.isExpired() || revocationStore.isRevokedLocally(claims)) {
+                claimsCache.invalidate(hash);
+                return null;
+            }
+            return claims;
+        }
+
+        claimsMissCounter.increment();
+        try {
+            claims = tokenProvider.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException ex) {
+            log.debug("Rejected JWT token: {}", ex.getMessage());
+            return null;
+        }
+
+        if (revocationStore.isRevoked(claims) || tokenProvider.isTokenBlacklisted(token)) {
+            log.debug("Token is blacklisted");
+            return null;
+        }
+
+        claimsCache.put(hash, claims);
+        return claims;
+    }
+
+    /**
+     * Load the principal for an authenticated user, from cache when possible
+     * @return User, or null if it does not exist
+     */
+    public User loadPrincipal(UUID userId) {
+        return principalCache.get(userId, id -> userRepository.findById(id).orElse(null));
+    }
+
+    /**
+     * Drop the cached principal of a user on every node. When called inside a transaction
+     * the invalidation is deferred until commit, so readers cannot re-cache stale rows.
+     */
+    public void invalidatePrincipal(UUID userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishPrincipalInvalidation(userId);
+                }
+            });
+        } else {
+            publishPrincipalInvalidation(userId);
+        }
+    }
+
+    // Private helper methods
+
+    private void publishPrincipalInvalidation(UUID userId) {
+        // Evict locally right away; other nodes follow via pub/sub
+        principalCache.invalidate(userId);
+
+        try {
+            redisTemplate.convertAndSend(PRINCIPAL_INVALIDATION_CHANNEL, userId.toString());
+        } catch (Exception e) {
+            log.error("Failed to publish principal invalidation for user {}", userId, e);
+        }
+    }
+
+    private void onPrincipalInvalidation(Message message) {
+        String userId = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            principalCache.invalidate(UUID.fromString(userId));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed principal invalidation: {}", userId);
+        }
+    }
+}
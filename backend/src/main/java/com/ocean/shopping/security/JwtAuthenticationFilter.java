@@ -1,7 +1,6 @@
 package com.ocean.shopping.security;
 
 import com.ocean.shopping.model.entity.User;
-import com.ocean.shopping.repository.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,15 +19,16 @@ import java.io.IOException;
 import java.util.UUID;
 
 /**
- * JWT authentication filter for processing JWT tokens on each request
+ * JWT authentication filter for processing JWT tokens on each request.
+ * Tokens and principals are resolved through {@link JwtAuthenticationCache},
+ * so a repeated token costs neither a signature check nor a database query.
  */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtTokenProvider tokenProvider;
-    private final UserRepository userRepository;
+    private final JwtAuthenticationCache authenticationCache;
 
     @Override
     protected void doFilterInternal(
@@ -39,12 +39,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String userId = tokenProvider.getUserIdFromToken(jwt);
+            JwtClaims claims = StringUtils.hasText(jwt) ? authenticationCache.authenticate(jwt) : null;
 
-                // Load user from database
-                User user = userRepository.findById(UUID.fromString(userId))
-                        .orElse(null);
+            if (claims != null) {
+                UUID userId = claims.userId();
+
+                // Load user, from the principal cache when possible
+                User user = authenticationCache.loadPrincipal(userId);
 
                 if (user != null && user.isEnabled()) {
                     // Create authentication token
@@ -0,0 +1,13 @@
+package com.ocean.shopping.security;
+
+import java.util.UUID;
+
+/**
+ * Verified claims of an access token, parsed once and cached by {@link JwtAuthenticationCache}
+ */
+public record JwtClaims(String tokenId, UUID userId, String email, String role, long issuedAtMs, long expiresAtMs) {
+
+    public boolean isExpired() {
+        return expiresAtMs <= System.currentTimeMillis();
+    }
+}
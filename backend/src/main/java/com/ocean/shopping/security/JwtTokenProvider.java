@@ -13,6 +13,7 @@ import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
 import java.time.ZonedDateTime;
 import java.util.Date;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,16 +27,19 @@ public class JwtTokenProvider {
     private final long jwtExpirationInMs;
     private final long refreshTokenExpirationInMs;
     private final StringRedisTemplate redisTemplate;
+    private final TokenRevocationStore revocationStore;
 
     public JwtTokenProvider(
             @Value("${ocean.shopping.jwt.secret}") String jwtSecret,
             @Value("${ocean.shopping.jwt.expiration}") long jwtExpirationInMs,
             @Value("${ocean.shopping.jwt.refresh-expiration}") long refreshTokenExpirationInMs,
-            StringRedisTemplate redisTemplate) {
+            StringRedisTemplate redisTemplate,
+            TokenRevocationStore revocationStore) {
         this.secretKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
         this.jwtExpirationInMs = jwtExpirationInMs;
         this.refreshTokenExpirationInMs = refreshTokenExpirationInMs;
         this.redisTemplate = redisTemplate;
+        this.revocationStore = revocationStore;
     }
 
     /**
@@ -53,6 +57,7 @@ public class JwtTokenProvider {
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationInMs);
 
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(user.getId().toString())
                 .claim("email", user.getEmail())
                 .claim("role", user.getRole().name())
@@ -70,7 +75,9 @@ public class JwtTokenProvider {
     public String generateRefreshToken(User user) {
         Date expiryDate = new Date(System.currentTimeMillis() + refreshTokenExpirationInMs);
 
+        String tokenId = UUID.randomUUID().toString();
         String refreshToken = Jwts.builder()
+                .id(tokenId)
                 .subject(user.getId().toString())
                 .claim("type", "refresh")
                 .issuedAt(new Date())
@@ -78,9 +85,9 @@ public class JwtTokenProvider {
                 .signWith(secretKey, Jwts.SIG.HS512)
                 .compact();
 
-        // Store refresh token in Redis with expiration
+        // Store the current refresh token ID in Redis with expiration
         String redisKey = "refresh_token:" + user.getId();
-        redisTemplate.opsForValue().set(redisKey, refreshToken, 
+        redisTemplate.opsForValue().set(redisKey, tokenId, 
             refreshTokenExpirationInMs, TimeUnit.MILLISECONDS);
 
         return refreshToken;
@@ -99,6 +106,29 @@ public class JwtTokenProvider {
         return claims.getSubject();
     }
 
+    /**
+     * Verify an access token and extract its claims in a single parse
+     * @throws JwtException if the token is invalid or expired
+     */
+    public JwtClaims parseClaims(String token) {
+        Claims claims = Jwts.parser()
+                .verifyWith(secretKey)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+
+        // Tokens issued before jti was introduced are identified by their hash
+        String tokenId = claims.getId() != null ? claims.getId() : TokenRevocationStore.tokenHash(token);
+
+        return new JwtClaims(
+                tokenId,
+                UUID.fromString(claims.getSubject()),
+                claims.get("email", String.class),
+                claims.get("role", String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L,
+                claims.getExpiration().getTime());
+    }
+
     /**
      * Get user email from JWT token
      */
@@ -143,17 +173,14 @@ public class JwtTokenProvider {
      */
     public boolean validateToken(String authToken) {
         try {
-            // Check if token is blacklisted
-            if (isTokenBlacklisted(authToken)) {
+            JwtClaims claims = parseClaims(authToken);
+
+            // Check if token is revoked
+            if (revocationStore.isRevoked(claims) || isTokenBlacklisted(authToken)) {
                 log.debug("Token is blacklisted");
                 return false;
             }
 
-            Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(authToken);
-
             return true;
         } catch (SignatureException ex) {
             log.error("Invalid JWT signature: {}", ex.getMessage());
@@ -174,15 +201,6 @@ public class JwtTokenProvider {
      */
     public boolean validateRefreshToken(String refreshToken, String userId) {
         try {
-            // Check if token exists in Redis
-            String redisKey = "refresh_token:" + userId;
-            String storedToken = redisTemplate.opsForValue().get(redisKey);
-            
-            if (storedToken == null || !storedToken.equals(refreshToken)) {
-                log.debug("Refresh token not found or doesn't match stored token");
-                return false;
-            }
-
             // Validate token signature and expiration
             Claims claims = Jwts.parser()
                     .verifyWith(secretKey)
@@ -190,6 +208,16 @@ public class JwtTokenProvider {
                     .parseSignedClaims(refreshToken)
                     .getPayload();
 
+            // Check if token is the user's current refresh token
+            String redisKey = "refresh_token:" + userId;
+            String storedTokenId = redisTemplate.opsForValue().get(redisKey);
+            
+            if (storedTokenId == null
+                    || !(storedTokenId.equals(claims.getId()) || isLegacyRefreshToken(storedTokenId, refreshToken))) {
+                log.debug("Refresh token not found or doesn't match stored token");
+                return false;
+            }
+
             // Check if it's actually a refresh token
             String tokenType = claims.get("type", String.class);
             if (!"refresh".equals(tokenType)) {
@@ -204,6 +232,14 @@ public class JwtTokenProvider {
         }
     }
 
+    /**
+     * Refresh tokens issued before token IDs were stored are stored as the raw token; they
+     * are accepted until those entries have expired, one refresh token lifetime after deploy
+     */
+    private boolean isLegacyRefreshToken(String storedValue, String refreshToken) {
+        return storedValue.equals(refreshToken);
+    }
+
     /**
      * Invalidate refresh token
      */
@@ -217,22 +253,26 @@ public class JwtTokenProvider {
      */
     public void blacklistToken(String token) {
         try {
-            Date expiration = getExpirationDateFromToken(token);
-            long ttl = expiration.getTime() - System.currentTimeMillis();
-            
-            if (ttl > 0) {
-                String redisKey = "blacklist:" + token;
-                redisTemplate.opsForValue().set(redisKey, "true", ttl, TimeUnit.MILLISECONDS);
-            }
+            JwtClaims claims = parseClaims(token);
+            revocationStore.revoke(claims.tokenId(), claims.expiresAtMs());
         } catch (Exception ex) {
             log.error("Error blacklisting token: {}", ex.getMessage());
         }
     }
 
     /**
-     * Check if token is blacklisted
+     * Revoke every access token issued to the user so far and the refresh token
+     */
+    public void revokeAllTokens(UUID userId) {
+        revocationStore.revokeAllIssuedBefore(userId, System.currentTimeMillis());
+        invalidateRefreshToken(userId.toString());
+    }
+
+    /**
+     * Check if token is blacklisted under the raw-token key used before the
+     * revocation store; kept until those entries have expired
      */
-    private boolean isTokenBlacklisted(String token) {
+    public boolean isTokenBlacklisted(String token) {
         try {
             String redisKey = "blacklist:" + token;
             return redisTemplate.hasKey(redisKey);
@@ -0,0 +1,205 @@
+package com.ocean.shopping.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compact store of revoked tokens.
+ * <p>
+ * Revoked tokens are recorded by token ID in Redis sets bucketed by token expiry
+ * ({@code auth:revoked:{bucket}}); a bucket expires as a whole once every token in
+ * it has expired. Mass logout sets a per-user watermark
+ * ({@code auth:revoked-before:{userId}}): tokens issued at or before it are invalid.
+ * Both are replicated to a local read-through cache over pub/sub, so checks on
+ * already-seen tokens need no network hop.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationStore {
+
+    public static final String REVOCATION_CHANNEL = "auth:token:revoked";
+    public static final String WATERMARK_CHANNEL = "auth:user:revoked-before";
+
+    private static final String BUCKET_PREFIX = "auth:revoked:";
+    private static final String WATERMARK_PREFIX = "auth:revoked-before:";
+
+    // Add a token ID to its expiry bucket, expire the bucket with its last token and notify all nodes
+    private static final RedisScript<Long> REVOKE_SCRIPT = RedisScript.of(
+        "redis.call('sadd', KEYS[1], ARGV[1]) " +
+        "redis.call('pexpireat', KEYS[1], ARGV[2]) " +
+        "redis.call('publish', ARGV[3], ARGV[1]) " +
+        "return 1", Long.class);
+
+    // Raise the user's watermark (never lower it) and notify all nodes
+    private static final RedisScript<Long> WATERMARK_SCRIPT = RedisScript.of(
+        "local current = tonumber(redis.call('get', KEYS[1]) or '0') " +
+        "if tonumber(ARGV[1]) > current then " +
+        "    redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+        "end " +
+        "redis.call('publish', ARGV[3], ARGV[4]) " +
+        "return 1", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${ocean.shopping.auth.revocation-bucket-minutes:60}")
+    private long bucketMinutes;
+
+    @Value("${ocean.shopping.jwt.refresh-expiration}")
+    private long maxTokenLifetimeMs;
+
+    @Value("${ocean.shopping.auth.claims-cache-size:100000}")
+    private long localCacheSize;
+
+    @Value("${ocean.shopping.auth.claims-cache-ttl-seconds:300}")
+    private long localCacheTtlSeconds;
+
+    private long bucketMs;
+    private Cache<String, Boolean> revokedTokens;
+    private Cache<UUID, Long> watermarks;
+
+    @PostConstruct
+    public void initialize() {
+        bucketMs = Duration.ofMinutes(bucketMinutes).toMillis();
+
+        revokedTokens = Caffeine.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(localCacheTtlSeconds))
+                .build();
+        watermarks = Caffeine.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(localCacheTtlSeconds))
+                .build();
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onRevocation(message),
+                new ChannelTopic(REVOCATION_CHANNEL));
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onWatermark(message),
+                new ChannelTopic(WATERMARK_CHANNEL));
+    }
+
+    /**
+     * Revoke a single token until it expires
+     */
+    public void revoke(String tokenId, long expiresAtMs) {
+        if (expiresAtMs <= System.currentTimeMillis()) {
+            return;
+        }
+
+        long bucket = expiresAtMs / bucketMs;
+        revokedTokens.put(tokenId, Boolean.TRUE);
+        redisTemplate.execute(REVOKE_SCRIPT,
+                List.of(BUCKET_PREFIX + bucket),
+                tokenId,
+                String.valueOf((bucket + 1) * bucketMs),
+                REVOCATION_CHANNEL);
+    }
+
+    /**
+     * Revoke every token of a user issued up to now, in O(1)
+     */
+    public void revokeAllIssuedBefore(UUID userId, long watermarkMs) {
+        watermarks.asMap().merge(userId, watermarkMs, Math::max);
+        redisTemplate.execute(WATERMARK_SCRIPT,
+                List.of(WATERMARK_PREFIX + userId),
+                String.valueOf(watermarkMs),
+                String.valueOf(maxTokenLifetimeMs),
+                WATERMARK_CHANNEL,
+                userId + ":" + watermarkMs);
+    }
+
+    /**
+     * Authoritative check: local state first, then the token's Redis bucket
+     */
+    public boolean isRevoked(JwtClaims claims) {
+        if (isRevokedLocally(claims)) {
+            return true;
+        }
+
+        try {
+            String key = BUCKET_PREFIX + (claims.expiresAtMs() / bucketMs);
+            if (Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(key, claims.tokenId()))) {
+                revokedTokens.put(claims.tokenId(), Boolean.TRUE);
+                return true;
+            }
+        } catch (Exception ex) {
+            log.error("Error checking token revocation: {}", ex.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Check against revocations replicated to this node and the user's watermark.
+     * JWT issue times have second precision, so tokens issued in the same second
+     * as a mass logout are revoked as well.
+     */
+    public boolean isRevokedLocally(JwtClaims claims) {
+        if (revokedTokens.getIfPresent(claims.tokenId()) != null) {
+            return true;
+        }
+        Long watermark = watermarks.get(claims.userId(), this::loadWatermark);
+        return watermark != null && claims.issuedAtMs() <= watermark;
+    }
+
+    /**
+     * Fixed-size (128-bit) ID for tokens issued without a jti claim
+     */
+    public static String tokenHash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Private helper methods
+
+    private Long loadWatermark(UUID userId) {
+        try {
+            String value = redisTemplate.opsForValue().get(WATERMARK_PREFIX + userId);
+            return value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception ex) {
+            // Not cached, so the next request retries
+            log.error("Error loading revocation watermark for user {}: {}", userId, ex.getMessage());
+            return null;
+        }
+    }
+
+    private void onRevocation(Message message) {
+        revokedTokens.put(new String(message.getBody(), StandardCharsets.UTF_8), Boolean.TRUE);
+    }
+
+    private void onWatermark(Message message) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            int separator = body.lastIndexOf(':');
+            UUID userId = UUID.fromString(body.substring(0, separator));
+            long watermark = Long.parseLong(body.substring(separator + 1));
+            watermarks.asMap().merge(userId, watermark, Math::max);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed revocation watermark: {}", body);
+        }
+    }
+}
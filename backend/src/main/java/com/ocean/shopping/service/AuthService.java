@@ -194,6 +194,18 @@ public class AuthService {
         }
     }
 
+    /**
+     * Logout user from every session by revoking all tokens issued so far
+     */
+    @Transactional
+    public void logoutAllSessions(String userId) {
+        log.info("Logging out all sessions of user: {}", userId);
+
+        // Failures propagate: the caller must not be told sessions were revoked when they were not
+        tokenProvider.revokeAllTokens(UUID.fromString(userId));
+        log.info("Successfully logged out all sessions of user: {}", userId);
+    }
+
     /**
      * Validate if user exists and is active
      */
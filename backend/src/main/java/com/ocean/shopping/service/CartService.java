@@ -2,27 +2,35 @@ package com.ocean.shopping.service;
 
 import com.ocean.shopping.model.entity.*;
 import com.ocean.shopping.repository.CartRepository;
-import com.ocean.shopping.repository.CartItemRepository;
 import com.ocean.shopping.repository.ProductRepository;
 import com.ocean.shopping.exception.BadRequestException;
 import com.ocean.shopping.exception.ResourceNotFoundException;
+import com.ocean.shopping.service.cart.CartStateStore;
+import com.ocean.shopping.service.cart.CartStateStore.CartLine;
+import com.ocean.shopping.service.cart.CartStateStore.CartState;
+import com.ocean.shopping.service.inventory.InventoryReservationService;
 import com.ocean.shopping.service.lock.DistributedLockManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Cart service for managing shopping cart operations with Redis session support.
  * Handles both authenticated user carts and guest session-based carts.
+ * <p>
+ * Active carts are held by {@link CartStateStore}; mutations apply to Redis and are
+ * written back to the database in batches, and at checkout via {@link #flushCart(Cart)}.
+ * Carts returned by this service are transient snapshots, not managed entities.
  */
 @Service
 @RequiredArgsConstructor
@@ -30,35 +38,31 @@ import java.util.stream.Collectors;
 public class CartService {
 
     private final CartRepository cartRepository;
-    private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
     private final UserService userService;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final CartStateStore cartStateStore;
     private final DistributedLockManager lockManager;
+    private final InventoryReservationService inventoryReservationService;
 
     // Constants
-    private static final String CART_CACHE_PREFIX = "cart:";
-    private static final String SESSION_CART_PREFIX = "session_cart:";
     private static final int CART_EXPIRATION_DAYS = 30;
     private static final int ABANDONED_CART_THRESHOLD_HOURS = 24;
+    private static final int CLEANUP_BATCH_SIZE = 1000;
 
     /**
      * Get or create cart for authenticated user
      */
-    @Transactional(readOnly = true)
+    @Transactional
     public Cart getUserCart(UUID userId) {
         log.debug("Getting cart for user: {}", userId);
 
-        User user = userService.getUserById(userId);
-        
-        return cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
-                .orElseGet(() -> createUserCart(user));
+        return cartStateStore.toCart(userCartState(userId));
     }
 
     /**
      * Get or create cart for session (guest user)
      */
-    @Transactional(readOnly = true)
+    @Transactional
     public Cart getSessionCart(String sessionId) {
         log.debug("Getting cart for session: {}", sessionId);
 
@@ -66,58 +70,38 @@ public class CartService {
             throw new BadRequestException("Session ID is required");
         }
 
-        // Try cache first
-        String cacheKey = SESSION_CART_PREFIX + sessionId;
-        Cart cachedCart = (Cart) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedCart != null) {
-            log.debug("Found cached cart for session: {}", sessionId);
-            return cachedCart;
-        }
-
-        // Try database
-        Optional<Cart> dbCart = cartRepository.findBySessionIdAndStatus(sessionId, Cart.CartStatus.ACTIVE);
-        if (dbCart.isPresent()) {
-            // Cache the cart
-            cacheCart(dbCart.get());
-            return dbCart.get();
-        }
-
-        // Create new session cart
-        return createSessionCart(sessionId);
+        return cartStateStore.toCart(sessionCartState(sessionId));
     }
 
     /**
      * Add item to cart with distributed lock protection
      */
     @Transactional
-    public Cart addItemToCart(UUID userId, String sessionId, UUID productId, Integer quantity, 
+    public Cart addItemToCart(UUID userId, String sessionId, UUID productId, Integer quantity,
                              UUID productVariantId, Map<String, String> selectedOptions) {
-        log.debug("Adding item to cart - User: {}, Session: {}, Product: {}, Quantity: {}", 
+        log.debug("Adding item to cart - User: {}, Session: {}, Product: {}, Quantity: {}",
                   userId, sessionId, productId, quantity);
 
         if (quantity == null || quantity < 1) {
             throw new BadRequestException("Quantity must be at least 1");
         }
 
-        // Use distributed locks to prevent race conditions
+        // Cart lock serializes edits to the same cart; inventory is reserved atomically in Redis
         String userIdentifier = userId != null ? userId.toString() : sessionId;
         String cartLockKey = lockManager.cartLockKey(userIdentifier);
-        String inventoryLockKey = lockManager.inventoryLockKey(productId.toString());
-        
+
         // Execute cart operation with distributed lock protection
         return lockManager.executeWithLockOrThrow(cartLockKey, () -> {
-            return lockManager.executeWithLockOrThrow(inventoryLockKey, () -> {
-                return addItemToCartInternal(userId, sessionId, productId, quantity, productVariantId, selectedOptions);
-            });
+            return addItemToCartInternal(userId, sessionId, productId, quantity, productVariantId, selectedOptions);
         });
     }
 
     /**
-     * Internal method for adding item to cart (protected by locks)
+     * Internal method for adding item to cart (protected by cart lock)
      */
-    private Cart addItemToCartInternal(UUID userId, String sessionId, UUID productId, Integer quantity, 
+    private Cart addItemToCartInternal(UUID userId, String sessionId, UUID productId, Integer quantity,
                                       UUID productVariantId, Map<String, String> selectedOptions) {
-        
+
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> ResourceNotFoundException.forEntity("Product", productId));
 
@@ -125,43 +109,25 @@ public class CartService {
             throw new BadRequestException("Product is not active");
         }
 
-        // Check inventory with fresh data (within lock)
-        if (product.getTrackInventory() && quantity > product.getInventoryQuantity()) {
-            throw new BadRequestException("Insufficient inventory. Available: " + product.getInventoryQuantity());
-        }
+        CartState state = cartState(userId, sessionId);
 
-        Cart cart = userId != null ? getUserCart(userId) : getSessionCart(sessionId);
-        
-        // Check if item already exists in cart
-        Optional<CartItem> existingItem = findExistingCartItem(cart, productId, productVariantId, selectedOptions);
-        
-        if (existingItem.isPresent()) {
-            // Update quantity of existing item
-            CartItem item = existingItem.get();
-            int newQuantity = item.getQuantity() + quantity;
-            
-            // Re-check inventory with new total quantity
-            if (product.getTrackInventory() && newQuantity > product.getInventoryQuantity()) {
-                throw new BadRequestException("Total quantity exceeds available inventory");
-            }
-            
-            item.updateQuantity(newQuantity);
-            cartItemRepository.save(item);
-        } else {
-            // Create new cart item
-            CartItem cartItem = createCartItem(cart, product, productVariantId, quantity, selectedOptions);
-            cart.addItem(cartItem);
-            cartItemRepository.save(cartItem);
-        }
+        // Reserve the additional units in the inventory ledger
+        reserveInventory(state, product, reservedQuantity(state, productId, null) + quantity);
+
+        // Adds to an existing line with the same product, variant and options
+        cartStateStore.addLine(state.getCartId(), CartLine.builder()
+                .lineId(UUID.randomUUID())
+                .productId(productId)
+                .variantId(productVariantId)
+                .quantity(quantity)
+                .unitPrice(product.getPrice())
+                .selectedOptions(selectedOptions)
+                .createdAt(System.currentTimeMillis())
+                .build());
 
-        cart.recalculateTotals();
-        Cart savedCart = cartRepository.save(cart);
-        
-        // Update cache
-        cacheCart(savedCart);
-        
-        log.debug("Item added to cart successfully. Cart total: {}", savedCart.getTotal());
-        return savedCart;
+        Cart cart = currentCart(state.getCartId());
+        log.debug("Item added to cart successfully. Cart total: {}", cart.getTotal());
+        return cart;
     }
 
     /**
@@ -169,60 +135,41 @@ public class CartService {
      */
     @Transactional
     public Cart updateCartItemQuantity(UUID userId, String sessionId, UUID itemId, Integer quantity) {
-        log.debug("Updating cart item quantity - User: {}, Session: {}, Item: {}, Quantity: {}", 
+        log.debug("Updating cart item quantity - User: {}, Session: {}, Item: {}, Quantity: {}",
                   userId, sessionId, itemId, quantity);
 
         if (quantity == null || quantity < 1) {
             throw new BadRequestException("Quantity must be at least 1");
         }
 
-        // First get the cart item to determine locks needed
-        CartItem cartItem = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> ResourceNotFoundException.forEntity("CartItem", itemId));
-
         String userIdentifier = userId != null ? userId.toString() : sessionId;
         String cartLockKey = lockManager.cartLockKey(userIdentifier);
-        String inventoryLockKey = lockManager.inventoryLockKey(cartItem.getProduct().getId().toString());
-        
+
         // Execute update with distributed lock protection
         return lockManager.executeWithLockOrThrow(cartLockKey, () -> {
-            return lockManager.executeWithLockOrThrow(inventoryLockKey, () -> {
-                return updateCartItemQuantityInternal(userId, sessionId, itemId, quantity);
-            });
+            return updateCartItemQuantityInternal(userId, sessionId, itemId, quantity);
         });
     }
 
     /**
-     * Internal method for updating cart item quantity (protected by locks)
+     * Internal method for updating cart item quantity (protected by cart lock)
      */
     private Cart updateCartItemQuantityInternal(UUID userId, String sessionId, UUID itemId, Integer quantity) {
-        CartItem cartItem = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> ResourceNotFoundException.forEntity("CartItem", itemId));
-
-        Cart cart = cartItem.getCart();
-        
-        // Verify ownership
-        if (!verifyCartOwnership(cart, userId, sessionId)) {
-            throw new BadRequestException("Cart item does not belong to user or session");
-        }
+        CartState state = cartState(userId, sessionId);
+        CartLine line = requireLine(state, itemId);
 
-        // Check inventory with fresh data (within lock)
-        Product product = cartItem.getProduct();
-        if (product.getTrackInventory() && quantity > product.getInventoryQuantity()) {
-            throw new BadRequestException("Insufficient inventory. Available: " + product.getInventoryQuantity());
+        // Adjust the reservation to the new line quantity
+        if (!line.isSavedForLater()) {
+            Product product = requireProduct(line.getProductId());
+            reserveInventory(state, product, reservedQuantity(state, product.getId(), itemId) + quantity);
         }
 
-        cartItem.updateQuantity(quantity);
-        cartItemRepository.save(cartItem);
+        if (!cartStateStore.setQuantity(state.getCartId(), itemId, quantity)) {
+            throw ResourceNotFoundException.forEntity("CartItem", itemId);
+        }
 
-        cart.recalculateTotals();
-        Cart savedCart = cartRepository.save(cart);
-        
-        // Update cache
-        cacheCart(savedCart);
-        
         log.debug("Cart item quantity updated successfully");
-        return savedCart;
+        return currentCart(state.getCartId());
     }
 
     /**
@@ -234,7 +181,7 @@ public class CartService {
 
         String userIdentifier = userId != null ? userId.toString() : sessionId;
         String cartLockKey = lockManager.cartLockKey(userIdentifier);
-        
+
         // Execute removal with distributed lock protection
         return lockManager.executeWithLockOrThrow(cartLockKey, () -> {
             return removeCartItemInternal(userId, sessionId, itemId);
@@ -245,27 +192,19 @@ public class CartService {
      * Internal method for removing cart item (protected by locks)
      */
     private Cart removeCartItemInternal(UUID userId, String sessionId, UUID itemId) {
-        CartItem cartItem = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> ResourceNotFoundException.forEntity("CartItem", itemId));
-
-        Cart cart = cartItem.getCart();
-        
-        // Verify ownership
-        if (!verifyCartOwnership(cart, userId, sessionId)) {
-            throw new BadRequestException("Cart item does not belong to user or session");
+        CartState state = cartState(userId, sessionId);
+        CartLine line = requireLine(state, itemId);
+
+        if (!cartStateStore.removeLine(state.getCartId(), line)) {
+            throw ResourceNotFoundException.forEntity("CartItem", itemId);
         }
 
-        cart.removeItem(cartItem);
-        cartItemRepository.delete(cartItem);
+        // Return the line's units to available stock
+        Product product = requireProduct(line.getProductId());
+        reserveInventory(state, product, reservedQuantity(state, product.getId(), itemId));
 
-        cart.recalculateTotals();
-        Cart savedCart = cartRepository.save(cart);
-        
-        // Update cache
-        cacheCart(savedCart);
-        
         log.debug("Cart item removed successfully");
-        return savedCart;
+        return currentCart(state.getCartId());
     }
 
     /**
@@ -275,20 +214,13 @@ public class CartService {
     public void clearCart(UUID userId, String sessionId) {
         log.debug("Clearing cart - User: {}, Session: {}", userId, sessionId);
 
-        Cart cart = userId != null ? 
-                cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE).orElse(null) :
-                cartRepository.findBySessionIdAndStatus(sessionId, Cart.CartStatus.ACTIVE).orElse(null);
-
-        if (cart != null) {
-            cart.clearItems();
-            cartItemRepository.deleteAllByCartId(cart.getId());
-            
-            cart.recalculateTotals();
-            cartRepository.save(cart);
-            
-            // Clear cache
-            clearCartCache(cart);
-            
+        Optional<CartState> state = existingCartState(userId, sessionId);
+
+        if (state.isPresent()) {
+            UUID cartId = state.get().getCartId();
+            cartStateStore.clear(cartId);
+            inventoryReservationService.release(inventoryReservationService.cartReservationId(cartId));
+
             log.debug("Cart cleared successfully");
         }
     }
@@ -300,27 +232,19 @@ public class CartService {
     public Cart moveItemToWishlist(UUID userId, String sessionId, UUID itemId) {
         log.debug("Moving item to wishlist - User: {}, Session: {}, Item: {}", userId, sessionId, itemId);
 
-        CartItem cartItem = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> ResourceNotFoundException.forEntity("CartItem", itemId));
+        CartState state = cartState(userId, sessionId);
+        CartLine line = requireLine(state, itemId);
 
-        Cart cart = cartItem.getCart();
-        
-        // Verify ownership
-        if (!verifyCartOwnership(cart, userId, sessionId)) {
-            throw new BadRequestException("Cart item does not belong to user or session");
+        if (!cartStateStore.setSavedForLater(state.getCartId(), itemId, true)) {
+            throw ResourceNotFoundException.forEntity("CartItem", itemId);
         }
 
-        cartItem.saveForLater();
-        cartItemRepository.save(cartItem);
+        // Saved-for-later items do not hold stock
+        Product product = requireProduct(line.getProductId());
+        reserveInventory(state, product, reservedQuantity(state, product.getId(), itemId));
 
-        cart.recalculateTotals();
-        Cart savedCart = cartRepository.save(cart);
-        
-        // Update cache
-        cacheCart(savedCart);
-        
         log.debug("Item moved to wishlist successfully");
-        return savedCart;
+        return currentCart(state.getCartId());
     }
 
     /**
@@ -330,33 +254,19 @@ public class CartService {
     public Cart moveItemToCart(UUID userId, String sessionId, UUID itemId) {
         log.debug("Moving item to cart from wishlist - User: {}, Session: {}, Item: {}", userId, sessionId, itemId);
 
-        CartItem cartItem = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> ResourceNotFoundException.forEntity("CartItem", itemId));
+        CartState state = cartState(userId, sessionId);
+        CartLine line = requireLine(state, itemId);
 
-        Cart cart = cartItem.getCart();
-        
-        // Verify ownership
-        if (!verifyCartOwnership(cart, userId, sessionId)) {
-            throw new BadRequestException("Cart item does not belong to user or session");
-        }
+        // Reserve inventory before moving back
+        Product product = requireProduct(line.getProductId());
+        reserveInventory(state, product, reservedQuantity(state, product.getId(), itemId) + line.getQuantity());
 
-        // Check inventory before moving back
-        Product product = cartItem.getProduct();
-        if (product.getTrackInventory() && cartItem.getQuantity() > product.getInventoryQuantity()) {
-            throw new BadRequestException("Insufficient inventory to move item back to cart");
+        if (!cartStateStore.setSavedForLater(state.getCartId(), itemId, false)) {
+            throw ResourceNotFoundException.forEntity("CartItem", itemId);
         }
 
-        cartItem.moveToCart();
-        cartItemRepository.save(cartItem);
-
-        cart.recalculateTotals();
-        Cart savedCart = cartRepository.save(cart);
-        
-        // Update cache
-        cacheCart(savedCart);
-        
         log.debug("Item moved to cart from wishlist successfully");
-        return savedCart;
+        return currentCart(state.getCartId());
     }
 
     /**
@@ -366,20 +276,16 @@ public class CartService {
     public Cart applyCoupon(UUID userId, String sessionId, String couponCode) {
         log.debug("Applying coupon to cart - User: {}, Session: {}, Coupon: {}", userId, sessionId, couponCode);
 
-        Cart cart = userId != null ? getUserCart(userId) : getSessionCart(sessionId);
-        
+        CartState state = cartState(userId, sessionId);
+
         // TODO: Implement coupon validation and discount calculation
         // This will be implemented in Stream 4
-        
+
         // For now, just store the coupon code
-        cart.applyCoupon(couponCode, BigDecimal.ZERO);
-        Cart savedCart = cartRepository.save(cart);
-        
-        // Update cache
-        cacheCart(savedCart);
-        
+        cartStateStore.setCoupon(state.getCartId(), couponCode, BigDecimal.ZERO);
+
         log.debug("Coupon applied to cart successfully");
-        return savedCart;
+        return currentCart(state.getCartId());
     }
 
     /**
@@ -389,16 +295,12 @@ public class CartService {
     public Cart removeCoupon(UUID userId, String sessionId) {
         log.debug("Removing coupon from cart - User: {}, Session: {}", userId, sessionId);
 
-        Cart cart = userId != null ? getUserCart(userId) : getSessionCart(sessionId);
-        
-        cart.removeCoupon();
-        Cart savedCart = cartRepository.save(cart);
-        
-        // Update cache
-        cacheCart(savedCart);
-        
+        CartState state = cartState(userId, sessionId);
+
+        cartStateStore.setCoupon(state.getCartId(), null, BigDecimal.ZERO);
+
         log.debug("Coupon removed from cart successfully");
-        return savedCart;
+        return currentCart(state.getCartId());
     }
 
     /**
@@ -408,73 +310,81 @@ public class CartService {
     public Cart mergeGuestCart(UUID userId, String guestSessionId) {
         log.debug("Merging guest cart with user cart - User: {}, Guest Session: {}", userId, guestSessionId);
 
-        Cart userCart = getUserCart(userId);
-        Optional<Cart> guestCartOpt = cartRepository.findBySessionIdAndStatus(guestSessionId, Cart.CartStatus.ACTIVE);
+        CartState userState = userCartState(userId);
+        Optional<CartState> guestStateOpt = existingCartState(null, guestSessionId);
 
-        if (guestCartOpt.isEmpty()) {
+        if (guestStateOpt.isEmpty()) {
             log.debug("No guest cart found for session: {}", guestSessionId);
-            return userCart;
+            return cartStateStore.toCart(userState);
         }
 
-        Cart guestCart = guestCartOpt.get();
-        List<CartItem> guestItems = cartItemRepository.findByCartIdOrderByCreatedAt(guestCart.getId());
+        CartState guestState = guestStateOpt.get();
+        Map<UUID, Product> products = productRepository.findAllById(guestState.productIds()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
 
-        for (CartItem guestItem : guestItems) {
+        // Return the guest units to stock so the user cart can reserve them
+        inventoryReservationService.release(inventoryReservationService.cartReservationId(guestState.getCartId()));
+        Map<UUID, Integer> heldUnits = new HashMap<>();
+
+        for (CartLine guestLine : guestState.getLines()) {
             // Check if similar item exists in user cart
-            Optional<CartItem> existingItem = findExistingCartItem(userCart, 
-                    guestItem.getProduct().getId(), 
-                    guestItem.getProductVariant() != null ? guestItem.getProductVariant().getId() : null,
-                    guestItem.getSelectedOptions());
+            CartLine userLine = userState.findMatchingLine(guestLine);
+            boolean reserved = userLine != null ? !userLine.isSavedForLater() : !guestLine.isSavedForLater();
+
+            // Reserve the merged units, limited to what the ledger could hold
+            int quantity = guestLine.getQuantity();
+            Product product = products.get(guestLine.getProductId());
+            if (reserved && product != null && product.getTrackInventory()) {
+                UUID productId = product.getId();
+                int held = heldUnits.computeIfAbsent(productId, id -> reservedQuantity(userState, id, null));
+                quantity = Math.max(0, reserveUpTo(userState.getCartId(), productId, held + quantity) - held);
+                heldUnits.put(productId, held + quantity);
+                if (quantity < guestLine.getQuantity()) {
+                    log.warn("Limited merged quantity due to inventory constraints for product: {}", productId);
+                }
+            }
+            if (quantity == 0) {
+                continue;
+            }
 
-            if (existingItem.isPresent()) {
+            if (userLine != null) {
                 // Merge quantities
-                CartItem userItem = existingItem.get();
-                int newQuantity = userItem.getQuantity() + guestItem.getQuantity();
-                
-                // Check inventory limits
-                Product product = userItem.getProduct();
-                if (product.getTrackInventory() && newQuantity > product.getInventoryQuantity()) {
-                    newQuantity = product.getInventoryQuantity();
-                    log.warn("Limited merged quantity due to inventory constraints for product: {}", product.getId());
-                }
-                
-                userItem.updateQuantity(newQuantity);
-                cartItemRepository.save(userItem);
+                cartStateStore.setQuantity(userState.getCartId(), userLine.getLineId(), userLine.getQuantity() + quantity);
             } else {
-                // Move item to user cart
-                guestItem.setCart(userCart);
-                userCart.addItem(guestItem);
-                cartItemRepository.save(guestItem);
+                // Copy the line to the user cart; guest rows stay with the merged guest cart
+                cartStateStore.addLine(userState.getCartId(),
+                        guestLine.toBuilder().lineId(UUID.randomUUID()).quantity(quantity).build());
             }
         }
 
         // Mark guest cart as merged
-        guestCart.markAsMerged(guestSessionId);
-        cartRepository.save(guestCart);
+        cartRepository.findById(guestState.getCartId()).ifPresent(guestCart -> {
+            guestCart.markAsMerged(guestSessionId);
+            cartRepository.save(guestCart);
+        });
+        cartStateStore.evict(guestState.getCartId());
+
+        Cart userCart = currentCart(userState.getCartId());
 
-        userCart.recalculateTotals();
-        Cart savedUserCart = cartRepository.save(userCart);
-        
-        // Update cache
-        cacheCart(savedUserCart);
-        clearCartCache(guestCart);
-        
-        log.debug("Guest cart merged successfully. Total items: {}", savedUserCart.getTotalItems());
-        return savedUserCart;
+        log.debug("Guest cart merged successfully. Total items: {}", userCart.getTotalItems());
+        return userCart;
     }
 
     /**
      * Get cart item count for user or session
      */
-    @Transactional(readOnly = true)
+    @Transactional
     public int getCartItemCount(UUID userId, String sessionId) {
-        if (userId != null) {
-            return (int) cartItemRepository.countActiveItemsByUserId(userId);
-        } else if (StringUtils.hasText(sessionId)) {
-            Cart cart = getSessionCart(sessionId);
-            return cart.getTotalItems();
+        if (userId == null && !StringUtils.hasText(sessionId)) {
+            return 0;
         }
-        return 0;
+
+        return existingCartState(userId, sessionId)
+                .map(state -> state.getLines().stream()
+                        .filter(line -> userId == null || !line.isSavedForLater())
+                        .mapToInt(line -> userId != null ? 1 : line.getQuantity())
+                        .sum())
+                .orElse(0);
     }
 
     /**
@@ -484,9 +394,14 @@ public class CartService {
     public List<String> validateCart(UUID userId, String sessionId) {
         log.debug("Validating cart - User: {}, Session: {}", userId, sessionId);
 
-        Cart cart = userId != null ? getUserCart(userId) : getSessionCart(sessionId);
+        CartState state = cartState(userId, sessionId);
+        Cart cart = cartStateStore.toCart(state);
         List<String> issues = new ArrayList<>();
-        boolean cartUpdated = false;
+
+        // Units the inventory ledger lets the cart hold, re-reserved for every tracked product
+        Map<UUID, Integer> reservable = new HashMap<>();
+        reservedQuantities(cart).forEach((productId, quantity) ->
+                reservable.put(productId, reserveUpTo(state.getCartId(), productId, quantity)));
 
         for (CartItem item : cart.getItems()) {
             Product product = item.getProduct();
@@ -498,33 +413,26 @@ public class CartService {
             }
 
             // Check inventory
-            if (product.getTrackInventory() && item.getQuantity() > product.getInventoryQuantity()) {
-                if (product.getInventoryQuantity() > 0) {
-                    item.updateQuantity(product.getInventoryQuantity());
-                    cartItemRepository.save(item);
-                    cartUpdated = true;
-                    issues.add("Quantity reduced for '" + product.getName() + "' due to limited stock");
-                } else {
+            if (reservable.containsKey(product.getId()) && !Boolean.TRUE.equals(item.getSavedForLater())) {
+                int remaining = reservable.get(product.getId());
+                int allowed = Math.min(item.getQuantity(), remaining);
+                reservable.put(product.getId(), remaining - allowed);
+                if (allowed == 0) {
                     issues.add("Product '" + product.getName() + "' is out of stock");
+                } else if (allowed < item.getQuantity()) {
+                    cartStateStore.setQuantity(state.getCartId(), item.getId(), allowed);
+                    issues.add("Quantity reduced for '" + product.getName() + "' due to limited stock");
                 }
             }
 
             // Check price changes
             if (!item.getUnitPrice().equals(product.getPrice())) {
-                item.setOriginalUnitPrice(item.getUnitPrice());
-                item.setUnitPrice(product.getPrice());
-                cartItemRepository.save(item);
-                cartUpdated = true;
+                cartStateStore.updatePrice(state.getCartId(), state.findLine(item.getId()),
+                        product.getPrice(), item.getUnitPrice());
                 issues.add("Price updated for '" + product.getName() + "'");
             }
         }
 
-        if (cartUpdated) {
-            cart.recalculateTotals();
-            cartRepository.save(cart);
-            cacheCart(cart);
-        }
-
         log.debug("Cart validation completed. Issues found: {}", issues.size());
         return issues;
     }
@@ -536,43 +444,164 @@ public class CartService {
     public void markCartAsConverted(UUID cartId) {
         log.debug("Marking cart as converted: {}", cartId);
 
+        // Persist the final cart contents before it leaves the Redis store
+        cartStateStore.flush(cartId);
+
         Cart cart = cartRepository.findById(cartId)
                 .orElseThrow(() -> ResourceNotFoundException.forEntity("Cart", cartId));
 
         cart.markAsConverted();
         cartRepository.save(cart);
-        
-        // Clear cache
-        clearCartCache(cart);
-        
+        inventoryReservationService.commit(inventoryReservationService.cartReservationId(cart.getId()));
+        cartStateStore.evict(cartId);
+
         log.debug("Cart marked as converted successfully");
     }
 
     /**
-     * Clean up abandoned carts
+     * Write the cart's pending changes to the database now instead of waiting for
+     * the background flush (checkout reads and reports on the persisted cart)
+     */
+    public void flushCart(Cart cart) {
+        cartStateStore.flush(cart.getId());
+    }
+
+    /**
+     * Reserve inventory for every active line of a cart (re-validates stock at checkout,
+     * including carts whose reservation has expired)
+     */
+    public InventoryReservationService.ReservationResult reserveCartInventory(Cart cart) {
+        return inventoryReservationService.reserve(
+                inventoryReservationService.cartReservationId(cart.getId()), reservedQuantities(cart));
+    }
+
+    /**
+     * Hand the cart's inventory reservation over to an order placed from it; the order
+     * then commits or releases it once payment has settled
+     */
+    public boolean transferCartInventory(Cart cart, String reservationId) {
+        return inventoryReservationService.transfer(
+                inventoryReservationService.cartReservationId(cart.getId()), reservationId);
+    }
+
+    /**
+     * Clean up abandoned carts. Carts still changing in the Redis cart store are left
+     * alone; the others are dropped from the store before they are retired, so it stops
+     * serving them, and their inventory reservations are released.
      */
     @Transactional
     public int cleanupAbandonedCarts() {
         log.debug("Cleaning up abandoned carts");
 
-        ZonedDateTime threshold = ZonedDateTime.now().minusHours(ABANDONED_CART_THRESHOLD_HOURS);
-        int markedAsAbandoned = cartRepository.markOldCartsAsAbandoned(threshold);
-        
-        // Clean up expired carts
-        int markedAsExpired = cartRepository.markExpiredCarts(ZonedDateTime.now());
-        
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime threshold = now.minusHours(ABANDONED_CART_THRESHOLD_HOURS);
+        List<UUID> idleCartIds = cartRepository.findIdsOfActiveCartsOlderThan(threshold).stream()
+                .filter(cartId -> cartStateStore.evictIfIdle(cartId, threshold))
+                .collect(Collectors.toList());
+        int markedAsAbandoned = 0;
+        for (int i = 0; i < idleCartIds.size(); i += CLEANUP_BATCH_SIZE) {
+            markedAsAbandoned += cartRepository.markCartsAsAbandoned(
+                    idleCartIds.subList(i, Math.min(i + CLEANUP_BATCH_SIZE, idleCartIds.size())), threshold);
+        }
+
+        // Expired carts are retired whatever their recent activity
+        List<UUID> expiredCartIds = cartRepository.findIdsOfExpiredCarts(now);
+        expiredCartIds.forEach(cartStateStore::evict);
+        int markedAsExpired = cartRepository.markExpiredCarts(now);
+
+        // A cart reloaded into Redis before this commits would still be served, so drop it again
+        Set<UUID> retiredCartIds = new HashSet<>(idleCartIds);
+        retiredCartIds.addAll(expiredCartIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (UUID cartId : retiredCartIds) {
+                    cartStateStore.evict(cartId);
+                    inventoryReservationService.release(inventoryReservationService.cartReservationId(cartId));
+                }
+            }
+        });
+
         // Delete old processed carts
-        ZonedDateTime deleteThreshold = ZonedDateTime.now().minusDays(90);
+        ZonedDateTime deleteThreshold = now.minusDays(90);
         int deleted = cartRepository.deleteOldProcessedCarts(deleteThreshold);
-        
-        log.debug("Abandoned cart cleanup completed. Marked abandoned: {}, Expired: {}, Deleted: {}", 
+
+        log.debug("Abandoned cart cleanup completed. Marked abandoned: {}, Expired: {}, Deleted: {}",
                   markedAsAbandoned, markedAsExpired, deleted);
-        
+
         return markedAsAbandoned + markedAsExpired + deleted;
     }
 
     // Private helper methods
 
+    private CartState cartState(UUID userId, String sessionId) {
+        if (userId != null) {
+            return userCartState(userId);
+        }
+        if (!StringUtils.hasText(sessionId)) {
+            throw new BadRequestException("Session ID is required");
+        }
+        return sessionCartState(sessionId);
+    }
+
+    /**
+     * Active cart state for a user, loading or creating the cart in the database on a Redis miss
+     */
+    private CartState userCartState(UUID userId) {
+        UUID cartId = cartStateStore.findUserCartId(userId);
+        if (cartId != null) {
+            Optional<CartState> state = cartStateStore.find(cartId);
+            if (state.isPresent()) {
+                return state.get();
+            }
+        }
+
+        Cart cart = cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+                .orElseGet(() -> createUserCart(userService.getUserById(userId)));
+        return cartStateStore.load(cart);
+    }
+
+    /**
+     * Active cart state for a guest session, loading or creating the cart in the database on a Redis miss
+     */
+    private CartState sessionCartState(String sessionId) {
+        UUID cartId = cartStateStore.findSessionCartId(sessionId);
+        if (cartId != null) {
+            Optional<CartState> state = cartStateStore.find(cartId);
+            if (state.isPresent()) {
+                return state.get();
+            }
+        }
+
+        Cart cart = cartRepository.findBySessionIdAndStatus(sessionId, Cart.CartStatus.ACTIVE)
+                .orElseGet(() -> createSessionCart(sessionId));
+        return cartStateStore.load(cart);
+    }
+
+    /**
+     * Active cart state for a user or session without creating a cart
+     */
+    private Optional<CartState> existingCartState(UUID userId, String sessionId) {
+        UUID cartId = userId != null
+                ? cartStateStore.findUserCartId(userId)
+                : cartStateStore.findSessionCartId(sessionId);
+        if (cartId != null) {
+            Optional<CartState> state = cartStateStore.find(cartId);
+            if (state.isPresent()) {
+                return state;
+            }
+        }
+
+        Optional<Cart> cart = userId != null
+                ? cartRepository.findByUserIdAndStatus(userId, Cart.CartStatus.ACTIVE)
+                : cartRepository.findBySessionIdAndStatus(sessionId, Cart.CartStatus.ACTIVE);
+        return cart.map(cartStateStore::load);
+    }
+
+    private Cart currentCart(UUID cartId) {
+        return cartStateStore.toCart(cartStateStore.get(cartId));
+    }
+
     private Cart createUserCart(User user) {
         log.debug("Creating new cart for user: {}", user.getId());
 
@@ -594,86 +623,79 @@ public class CartService {
                 .expiresAt(ZonedDateTime.now().plusDays(CART_EXPIRATION_DAYS))
                 .build();
 
-        Cart savedCart = cartRepository.save(cart);
-        cacheCart(savedCart);
-        return savedCart;
+        return cartRepository.save(cart);
     }
 
-    private CartItem createCartItem(Cart cart, Product product, UUID productVariantId, 
-                                  Integer quantity, Map<String, String> selectedOptions) {
-        ProductVariant variant = null;
-        if (productVariantId != null) {
-            // TODO: Fetch product variant when variant system is implemented
+    private CartLine requireLine(CartState state, UUID itemId) {
+        CartLine line = state.findLine(itemId);
+        if (line == null) {
+            throw ResourceNotFoundException.forEntity("CartItem", itemId);
         }
+        return line;
+    }
 
-        return CartItem.builder()
-                .cart(cart)
-                .product(product)
-                .productVariant(variant)
-                .quantity(quantity)
-                .unitPrice(product.getPrice())
-                .selectedOptions(selectedOptions)
-                .build();
+    private Product requireProduct(UUID productId) {
+        return productRepository.findById(productId)
+                .orElseThrow(() -> ResourceNotFoundException.forEntity("Product", productId));
     }
 
-    private Optional<CartItem> findExistingCartItem(Cart cart, UUID productId, UUID productVariantId, 
-                                                  Map<String, String> selectedOptions) {
-        return cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .filter(item -> {
-                    if (productVariantId == null) {
-                        return item.getProductVariant() == null;
-                    } else {
-                        return item.getProductVariant() != null && 
-                               item.getProductVariant().getId().equals(productVariantId);
-                    }
-                })
-                .filter(item -> {
-                    if (selectedOptions == null || selectedOptions.isEmpty()) {
-                        return item.getSelectedOptions() == null || item.getSelectedOptions().isEmpty();
-                    } else {
-                        return Objects.equals(item.getSelectedOptions(), selectedOptions);
-                    }
-                })
-                .findFirst();
-    }
-
-    private boolean verifyCartOwnership(Cart cart, UUID userId, String sessionId) {
-        if (userId != null) {
-            return cart.getUser() != null && cart.getUser().getId().equals(userId);
-        } else if (StringUtils.hasText(sessionId)) {
-            return cart.getSessionId() != null && cart.getSessionId().equals(sessionId);
+    /**
+     * Set the cart's inventory reservation for a product, failing if stock is insufficient
+     */
+    private void reserveInventory(CartState state, Product product, int targetQuantity) {
+        if (!product.getTrackInventory()) {
+            return;
         }
-        return false;
-    }
-
-    private void cacheCart(Cart cart) {
-        try {
-            if (cart.getSessionId() != null) {
-                String cacheKey = SESSION_CART_PREFIX + cart.getSessionId();
-                redisTemplate.opsForValue().set(cacheKey, cart, CART_EXPIRATION_DAYS, TimeUnit.DAYS);
-                log.debug("Cart cached for session: {}", cart.getSessionId());
-            } else if (cart.getUser() != null) {
-                String cacheKey = CART_CACHE_PREFIX + cart.getUser().getId();
-                redisTemplate.opsForValue().set(cacheKey, cart, CART_EXPIRATION_DAYS, TimeUnit.DAYS);
-                log.debug("Cart cached for user: {}", cart.getUser().getId());
-            }
-        } catch (Exception e) {
-            log.warn("Failed to cache cart: {}", e.getMessage());
+
+        InventoryReservationService.ReservationResult result = inventoryReservationService.reserve(
+                inventoryReservationService.cartReservationId(state.getCartId()), Map.of(product.getId(), targetQuantity));
+
+        if (!result.isSuccess()) {
+            int available = reservedQuantity(state, product.getId(), null) + result.getAvailable();
+            throw new BadRequestException("Insufficient inventory. Available: " + available);
         }
     }
 
-    private void clearCartCache(Cart cart) {
-        try {
-            if (cart.getSessionId() != null) {
-                String cacheKey = SESSION_CART_PREFIX + cart.getSessionId();
-                redisTemplate.delete(cacheKey);
-            } else if (cart.getUser() != null) {
-                String cacheKey = CART_CACHE_PREFIX + cart.getUser().getId();
-                redisTemplate.delete(cacheKey);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to clear cart cache: {}", e.getMessage());
+    /**
+     * Reserve up to a target quantity of a product for a cart
+     * @return Units the cart holds afterwards, less than the target when stock is short
+     */
+    private int reserveUpTo(UUID cartId, UUID productId, int targetQuantity) {
+        String reservationId = inventoryReservationService.cartReservationId(cartId);
+        InventoryReservationService.ReservationResult result =
+                inventoryReservationService.reserve(reservationId, Map.of(productId, targetQuantity));
+        if (result.isSuccess()) {
+            return targetQuantity;
         }
+
+        int reservable = Math.min(targetQuantity,
+                inventoryReservationService.getReserved(reservationId, productId) + result.getAvailable());
+        if (inventoryReservationService.reserve(reservationId, Map.of(productId, reservable)).isSuccess()) {
+            return reservable;
+        }
+        return inventoryReservationService.getReserved(reservationId, productId);
+    }
+
+    /**
+     * Units of a product held by the cart's active lines, optionally excluding one line
+     */
+    private int reservedQuantity(CartState state, UUID productId, UUID excludedLineId) {
+        return state.getLines().stream()
+                .filter(line -> !line.getLineId().equals(excludedLineId))
+                .filter(line -> !line.isSavedForLater())
+                .filter(line -> line.getProductId().equals(productId))
+                .mapToInt(CartLine::getQuantity)
+                .sum();
+    }
+
+    /**
+     * Units per inventory-tracked product held by the cart's active lines
+     */
+    private Map<UUID, Integer> reservedQuantities(Cart cart) {
+        return cart.getItems().stream()
+                .filter(item -> !Boolean.TRUE.equals(item.getSavedForLater()))
+                .filter(item -> item.getProduct().getTrackInventory())
+                .collect(Collectors.groupingBy(item -> item.getProduct().getId(),
+                        Collectors.summingInt(CartItem::getQuantity)));
     }
-}
\ No newline at end of file
+}
@@ -3,17 +3,25 @@ package com.ocean.shopping.service;
 import com.ocean.shopping.dto.chat.ChatMessageRequest;
 import com.ocean.shopping.dto.chat.ChatMessageResponse;
 import com.ocean.shopping.dto.chat.ConversationResponse;
+import com.ocean.shopping.dto.common.CursorPage;
+import com.ocean.shopping.dto.user.UserResponse;
 import com.ocean.shopping.exception.BadRequestException;
 import com.ocean.shopping.exception.ResourceNotFoundException;
 import com.ocean.shopping.model.entity.ChatMessage;
 import com.ocean.shopping.model.entity.User;
 import com.ocean.shopping.repository.ChatMessageRepository;
 import com.ocean.shopping.repository.UserRepository;
+import com.ocean.shopping.service.chat.ChatIngestService;
+import com.ocean.shopping.service.chat.ChatParticipantCache;
+import com.ocean.shopping.service.chat.ChatReceiptBuffer;
+import com.ocean.shopping.service.chat.ConversationInboxStore;
+import com.ocean.shopping.service.pagination.KeysetCursor;
+import com.ocean.shopping.service.unread.UnreadCounterService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -21,6 +29,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -34,20 +43,30 @@ public class ChatService {
     private final ChatMessageRepository chatMessageRepository;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final UnreadCounterService unreadCounters;
+    private final ConversationInboxStore inboxStore;
+    private final ChatIngestService ingestService;
+    private final ChatReceiptBuffer receiptBuffer;
+    private final ChatParticipantCache participantCache;
 
     /**
-     * Send a chat message
+     * Send a chat message through the ingest pipeline.
+     * Validation errors are thrown right away; the message is pushed to the receiver once committed.
+     * @return Future completed with the message once it has been persisted
      */
-    @Transactional
-    public ChatMessageResponse sendMessage(UUID senderId, ChatMessageRequest request) {
-        log.info("Sending message from user {} to user {}", senderId, request.getReceiverId());
+    public CompletableFuture<ChatMessageResponse> sendMessage(UUID senderId, ChatMessageRequest request) {
+        log.debug("Sending message from user {} to user {}", senderId, request.getReceiverId());
 
         // Validate users exist
-        User sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Sender not found with id: " + senderId));
-        
-        User receiver = userRepository.findById(request.getReceiverId())
-                .orElseThrow(() -> new ResourceNotFoundException("Receiver not found with id: " + request.getReceiverId()));
+        UserResponse sender = participantCache.getUser(senderId);
+        if (sender == null) {
+            throw new ResourceNotFoundException("Sender not found with id: " + senderId);
+        }
+
+        UserResponse receiver = participantCache.getUser(request.getReceiverId());
+        if (receiver == null) {
+            throw new ResourceNotFoundException("Receiver not found with id: " + request.getReceiverId());
+        }
 
         // Validate message content
         if (request.getContent().trim().isEmpty()) {
@@ -60,33 +79,25 @@ public class ChatService {
             conversationId = generateConversationId(senderId, request.getReceiverId());
         }
 
-        // Create and save message
-        ChatMessage message = ChatMessage.builder()
+        // The message gets its ID and timestamp here; the ingest writer persists it as is
+        ZonedDateTime now = ZonedDateTime.now();
+        ChatMessageResponse message = ChatMessageResponse.builder()
+                .id(UUID.randomUUID())
                 .conversationId(conversationId)
                 .content(request.getContent().trim())
-                .messageType(ChatMessage.MessageType.valueOf(request.getMessageType().name()))
+                .messageType(request.getMessageType())
                 .sender(sender)
                 .receiver(receiver)
                 .attachmentUrl(request.getAttachmentUrl())
                 .attachmentName(request.getAttachmentName())
-                .deliveryStatus(ChatMessage.DeliveryStatus.SENT)
+                .deliveryStatus(ChatMessageResponse.DeliveryStatus.SENT)
                 .isRead(false)
+                .timestamp(now)
+                .createdAt(now)
                 .build();
 
-        ChatMessage savedMessage = chatMessageRepository.save(message);
-        
-        // Create response
-        ChatMessageResponse response = ChatMessageResponse.fromEntity(savedMessage);
-
-        // Send real-time notification to receiver
-        sendRealTimeMessage(receiver.getId(), response);
-
-        // Mark as delivered
-        savedMessage.markAsDelivered();
-        chatMessageRepository.save(savedMessage);
-
-        log.info("Message sent successfully from {} to {}", sender.getEmail(), receiver.getEmail());
-        return response;
+        // Participants are recorded by the ingest writer once the message has committed
+        return ingestService.submit(message);
     }
 
     /**
@@ -103,6 +114,23 @@ public class ChatService {
         return messages.map(ChatMessageResponse::fromEntity);
     }
 
+    /**
+     * Get conversation history with cursor pagination, newest first; each cursor loads older messages
+     */
+    @Transactional(readOnly = true)
+    @PreAuthorize("@chatService.isParticipantInConversation(#userId, #conversationId)")
+    public CursorPage<ChatMessageResponse> scrollConversationHistory(UUID userId, UUID conversationId,
+                                                                     String cursor, int size, boolean includeCount) {
+        log.debug("Scrolling conversation history for user {} in conversation {} from cursor {}",
+                userId, conversationId, cursor);
+
+        Window<ChatMessage> messages = chatMessageRepository.findByConversationIdOrderByCreatedAtDescIdDesc(
+                conversationId, KeysetCursor.decode(cursor, KeysetCursor.CREATED_AT_KEYS), KeysetCursor.limit(size));
+
+        Long total = includeCount ? chatMessageRepository.countByConversationId(conversationId) : null;
+        return KeysetCursor.toCursorPage(messages, ChatMessageResponse::fromEntity, total);
+    }
+
     /**
      * Get messages between two users
      */
@@ -123,41 +151,38 @@ public class ChatService {
     }
 
     /**
-     * Get user conversations
+     * Get user conversations, most recently active first, from the inbox read model
      */
     @Transactional(readOnly = true)
     public List<ConversationResponse> getUserConversations(UUID userId) {
         log.debug("Getting conversations for user {}", userId);
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        List<ConversationInboxStore.InboxEntry> inbox = inboxStore.findInbox(userId);
+        if (inbox.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        List<UUID> conversationIds = chatMessageRepository.findConversationsByUser(user);
-        
-        return conversationIds.stream()
-                .map(conversationId -> buildConversationResponse(conversationId, user))
-                .sorted((c1, c2) -> c2.getLastActivity().compareTo(c1.getLastActivity()))
+        Set<UUID> userIds = new HashSet<>();
+        inbox.forEach(entry -> {
+            userIds.addAll(entry.getParticipantIds());
+            userIds.add(entry.getLastSenderId());
+            userIds.add(entry.getLastReceiverId());
+        });
+        Map<UUID, UserResponse> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, UserResponse::fromEntity));
+
+        return inbox.stream()
+                .map(entry -> buildConversationResponse(entry, users))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Mark message as read
+     * Mark message as read. The receipt is buffered and written in bulk; it only
+     * applies if the user received the message, so no access check is needed here.
      */
-    @Transactional
-    @PreAuthorize("@chatService.canReadMessage(#userId, #messageId)")
     public void markMessageAsRead(UUID userId, UUID messageId) {
         log.debug("Marking message {} as read by user {}", messageId, userId);
-
-        ChatMessage message = chatMessageRepository.findById(messageId)
-                .orElseThrow(() -> new ResourceNotFoundException("Message not found with id: " + messageId));
-
-        if (!message.getIsRead() && message.getReceiver().getId().equals(userId)) {
-            message.markAsRead();
-            chatMessageRepository.save(message);
-
-            // Send read receipt to sender
-            sendReadReceipt(message.getSender().getId(), messageId);
-        }
+        receiptBuffer.read(userId, messageId);
     }
 
     /**
@@ -183,18 +208,16 @@ public class ChatService {
         });
 
         chatMessageRepository.saveAll(unreadMessages);
+        inboxStore.markConversationRead(userId, conversationId);
+        unreadCounters.messagesRead(userId, conversationId, unreadMessages.size());
         log.info("Marked {} messages as read in conversation {}", unreadMessages.size(), conversationId);
     }
 
     /**
      * Get unread message count for user
      */
-    @Transactional(readOnly = true)
     public long getUnreadMessageCount(UUID userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-
-        return chatMessageRepository.countUnreadMessagesByReceiver(user);
+        return unreadCounters.getChatCount(userId);
     }
 
     /**
@@ -215,6 +238,7 @@ public class ChatService {
         message.setAttachmentName(null);
 
         chatMessageRepository.save(message);
+        inboxStore.replaceContent(message);
     }
 
     /**
@@ -241,6 +265,8 @@ public class ChatService {
                 .build();
 
         ChatMessage saved = chatMessageRepository.save(systemMessage);
+        inboxStore.recordMessage(saved);
+        unreadCounters.messageSent(saved.getReceiver().getId(), conversationId);
         
         // Notify all participants
         participants.forEach(participant -> 
@@ -251,8 +277,7 @@ public class ChatService {
 
     // Security helper methods
     public boolean isParticipantInConversation(UUID userId, UUID conversationId) {
-        List<User> participants = chatMessageRepository.findConversationParticipants(conversationId);
-        return participants.stream().anyMatch(user -> user.getId().equals(userId));
+        return participantCache.isParticipant(conversationId, userId);
     }
 
     public boolean canReadMessage(UUID userId, UUID messageId) {
@@ -291,48 +316,33 @@ public class ChatService {
         }
     }
 
-    private void sendReadReceipt(UUID senderId, UUID messageId) {
-        try {
-            Map<String, Object> receipt = Map.of(
-                "type", "READ_RECEIPT",
-                "messageId", messageId,
-                "timestamp", ZonedDateTime.now()
-            );
-            
-            messagingTemplate.convertAndSendToUser(
-                senderId.toString(),
-                "/queue/chat",
-                receipt
-            );
-        } catch (Exception e) {
-            log.error("Failed to send read receipt to user {}: {}", senderId, e.getMessage());
-        }
-    }
-
-    private ConversationResponse buildConversationResponse(UUID conversationId, User currentUser) {
-        // Get participants
-        List<User> participants = chatMessageRepository.findConversationParticipants(conversationId);
-        
-        // Get latest message
-        List<ChatMessage> latestMessages = chatMessageRepository
-                .findLatestMessageInConversation(conversationId, PageRequest.of(0, 1));
-        
-        ChatMessageResponse lastMessage = latestMessages.isEmpty() ? null : 
-                ChatMessageResponse.fromEntity(latestMessages.get(0));
-        
-        // Count unread messages
-        long unreadCount = chatMessageRepository
-                .countUnreadMessagesInConversation(conversationId, currentUser);
+    private ConversationResponse buildConversationResponse(ConversationInboxStore.InboxEntry entry,
+                                                           Map<UUID, UserResponse> users) {
+        ChatMessageResponse lastMessage = ChatMessageResponse.builder()
+                .id(entry.getLastMessageId())
+                .conversationId(entry.getConversationId())
+                .content(entry.getLastContent())
+                .messageType(ChatMessageRequest.MessageType.valueOf(entry.getLastMessageType().name()))
+                .sender(users.get(entry.getLastSenderId()))
+                .receiver(users.get(entry.getLastReceiverId()))
+                .attachmentUrl(entry.getLastAttachmentUrl())
+                .attachmentName(entry.getLastAttachmentName())
+                .deliveryStatus(ChatMessageResponse.DeliveryStatus.valueOf(entry.getLastDeliveryStatus().name()))
+                .isRead(entry.isLastIsRead())
+                .timestamp(entry.getLastActivityAt())
+                .createdAt(entry.getLastActivityAt())
+                .build();
         
         return ConversationResponse.builder()
-                .conversationId(conversationId)
-                .participants(participants.stream()
-                        .map(user -> com.ocean.shopping.dto.user.UserResponse.fromEntity(user))
+                .conversationId(entry.getConversationId())
+                .participants(entry.getParticipantIds().stream()
+                        .map(users::get)
+                        .filter(Objects::nonNull)
                         .collect(Collectors.toList()))
                 .lastMessage(lastMessage)
-                .unreadCount(unreadCount)
-                .lastActivity(lastMessage != null ? lastMessage.getCreatedAt() : ZonedDateTime.now())
-                .createdAt(lastMessage != null ? lastMessage.getCreatedAt() : ZonedDateTime.now())
+                .unreadCount(entry.getUnreadCount())
+                .lastActivity(entry.getLastActivityAt())
+                .createdAt(entry.getCreatedAt())
                 .status(ConversationResponse.ConversationStatus.ACTIVE)
                 .build();
     }
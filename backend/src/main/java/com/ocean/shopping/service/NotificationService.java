@@ -3,16 +3,21 @@ package com.ocean.shopping.service;
 import com.ocean.shopping.dto.chat.NotificationRequest;
 import com.ocean.shopping.dto.chat.NotificationResponse;
 import com.ocean.shopping.dto.chat.NotificationPreferencesRequest;
+import com.ocean.shopping.dto.common.CursorPage;
 import com.ocean.shopping.exception.BadRequestException;
 import com.ocean.shopping.exception.ResourceNotFoundException;
 import com.ocean.shopping.model.entity.Notification;
 import com.ocean.shopping.model.entity.User;
 import com.ocean.shopping.repository.NotificationRepository;
 import com.ocean.shopping.repository.UserRepository;
+import com.ocean.shopping.service.notification.NotificationFanoutService;
+import com.ocean.shopping.service.pagination.KeysetCursor;
+import com.ocean.shopping.service.unread.UnreadCounterService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -35,6 +40,8 @@ public class NotificationService {
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationFanoutService fanoutService;
+    private final UnreadCounterService unreadCounters;
 
     /**
      * Send notification to a single user
@@ -50,9 +57,9 @@ public class NotificationService {
     }
 
     /**
-     * Send notification to multiple users
+     * Send notification to multiple users, inserted and delivered in batches. Runs without
+     * a transaction so each batch commits on its own.
      */
-    @Transactional
     public List<NotificationResponse> sendBulkNotification(NotificationRequest request) {
         log.info("Sending bulk notification '{}' to {} users", request.getTitle(), request.getTargetUserIds().size());
 
@@ -67,28 +74,22 @@ public class NotificationService {
                     request.getTargetUserIds().size(), targetUsers.size());
         }
 
-        return targetUsers.stream()
-                .map(user -> createAndSendNotification(user, request))
-                .collect(Collectors.toList());
+        return fanoutService.sendToUsers(request, targetUsers);
     }
 
     /**
-     * Send system announcement to all users
+     * Send system announcement to all users. Runs as a background fan-out job.
+     * @return ID of the job tracking delivery progress
      */
-    @Transactional
     @PreAuthorize("hasRole('ADMINISTRATOR')")
-    public void sendSystemAnnouncement(NotificationRequest request) {
+    public UUID sendSystemAnnouncement(NotificationRequest request) {
         log.info("Sending system announcement: {}", request.getTitle());
 
         // Override type to system announcement
         request.setType(NotificationRequest.NotificationType.SYSTEM_ANNOUNCEMENT);
+        request.setTargetUserIds(null);
         
-        List<User> allUsers = userRepository.findAll();
-        
-        allUsers.parallelStream()
-                .forEach(user -> createAndSendNotification(user, request));
-        
-        log.info("System announcement sent to {} users", allUsers.size());
+        return fanoutService.startAnnouncement(request);
     }
 
     /**
@@ -107,6 +108,23 @@ public class NotificationService {
         return notifications.map(NotificationResponse::fromEntity);
     }
 
+    /**
+     * Get notifications for a user with cursor pagination, newest first
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<NotificationResponse> scrollUserNotifications(UUID userId, String cursor, int size, boolean includeCount) {
+        log.debug("Scrolling notifications for user {} from cursor {}", userId, cursor);
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+        Window<Notification> notifications = notificationRepository.findByTargetUserOrderByCreatedAtDescIdDesc(
+                user, KeysetCursor.decode(cursor, KeysetCursor.CREATED_AT_KEYS), KeysetCursor.limit(size));
+
+        Long total = includeCount ? notificationRepository.countByTargetUser(user) : null;
+        return KeysetCursor.toCursorPage(notifications, NotificationResponse::fromEntity, total);
+    }
+
     /**
      * Get unread notifications for a user
      */
@@ -126,12 +144,8 @@ public class NotificationService {
     /**
      * Get unread notification count for a user
      */
-    @Transactional(readOnly = true)
     public long getUnreadNotificationCount(UUID userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-
-        return notificationRepository.countUnreadByTargetUser(user);
+        return unreadCounters.getNotificationCount(userId);
     }
 
     /**
@@ -148,6 +162,7 @@ public class NotificationService {
         if (!notification.getIsRead()) {
             notification.markAsRead();
             notificationRepository.save(notification);
+            unreadCounters.notificationsRead(userId, 1);
             
             // Send real-time update
             sendNotificationUpdate(userId, "NOTIFICATION_READ", Map.of("notificationId", notificationId));
@@ -175,14 +190,16 @@ public class NotificationService {
         }
 
         ZonedDateTime now = ZonedDateTime.now();
-        notifications.stream()
+        List<Notification> unread = notifications.stream()
                 .filter(notification -> !notification.getIsRead())
-                .forEach(notification -> {
-                    notification.setIsRead(true);
-                    notification.setReadAt(now);
-                });
+                .collect(Collectors.toList());
+        unread.forEach(notification -> {
+            notification.setIsRead(true);
+            notification.setReadAt(now);
+        });
 
         notificationRepository.saveAll(notifications);
+        unreadCounters.notificationsRead(userId, unread.size());
         
         // Send real-time update
         sendNotificationUpdate(userId, "NOTIFICATIONS_READ", 
@@ -201,6 +218,9 @@ public class NotificationService {
                 .orElseThrow(() -> new ResourceNotFoundException("Notification not found with id: " + notificationId));
 
         notificationRepository.delete(notification);
+        if (!notification.getIsRead()) {
+            unreadCounters.notificationsRead(userId, 1);
+        }
         
         // Send real-time update
         sendNotificationUpdate(userId, "NOTIFICATION_DELETED", Map.of("notificationId", notificationId));
@@ -279,6 +299,10 @@ public class NotificationService {
 
         if (!expiredNotifications.isEmpty()) {
             notificationRepository.deleteExpiredNotifications(ZonedDateTime.now());
+            unreadCounters.scheduleReconciliation(expiredNotifications.stream()
+                    .filter(notification -> !notification.getIsRead())
+                    .map(notification -> notification.getTargetUser().getId())
+                    .collect(Collectors.toSet()));
             log.info("Deleted {} expired notifications", expiredNotifications.size());
         }
     }
@@ -353,6 +377,7 @@ public class NotificationService {
                 .build();
 
         Notification savedNotification = notificationRepository.save(notification);
+        unreadCounters.notificationsCreated(List.of(targetUser.getId()));
 
         // Attempt immediate delivery
         try {
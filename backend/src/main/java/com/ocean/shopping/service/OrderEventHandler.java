@@ -0,0 +1,113 @@
+package com.ocean.shopping.service;
+
+import com.ocean.shopping.dto.chat.NotificationRequest;
+import com.ocean.shopping.exception.ResourceNotFoundException;
+import com.ocean.shopping.model.entity.Order;
+import com.ocean.shopping.model.entity.enums.CheckoutStage;
+import com.ocean.shopping.model.entity.enums.OrderStatus;
+import com.ocean.shopping.model.entity.enums.OutboxEventType;
+import com.ocean.shopping.model.entity.enums.PaymentProvider;
+import com.ocean.shopping.repository.OrderRepository;
+import com.ocean.shopping.service.inventory.InventoryReservationService;
+import com.ocean.shopping.service.outbox.OutboxEvent;
+import com.ocean.shopping.service.outbox.OutboxEventHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Side effects of order changes, run from the outbox once the change has committed.
+ * Failures propagate so the dispatcher retries them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderEventHandler implements OutboxEventHandler {
+
+    // Payload keys
+    static final String ORDER_NUMBER = "order_number";
+    static final String OLD_STATUS = "old_status";
+    static final String NEW_STATUS = "new_status";
+    static final String REASON = "reason";
+
+    private final OrderRepository orderRepository;
+    private final NotificationService notificationService;
+    private final ShippingService shippingService;
+    private final PaymentService paymentService;
+    private final InventoryReservationService inventoryReservationService;
+
+    @Override
+    public Set<OutboxEventType> getEventTypes() {
+        return EnumSet.of(
+            OutboxEventType.ORDER_CONFIRMATION_EMAIL,
+            OutboxEventType.ORDER_STATUS_EMAIL,
+            OutboxEventType.ORDER_CANCELLATION_EMAIL,
+            OutboxEventType.ORDER_SHIPMENT,
+            OutboxEventType.ORDER_REFUND,
+            OutboxEventType.ORDER_INVENTORY_COMMIT
+        );
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        String orderNumber = event.payload().get(ORDER_NUMBER);
+        Order order = orderRepository.findByOrderNumber(orderNumber)
+            .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderNumber));
+
+        switch (event.type()) {
+            case ORDER_CONFIRMATION_EMAIL -> notifyCustomer(order, "Order confirmed",
+                "Your order " + orderNumber + " has been confirmed");
+            case ORDER_STATUS_EMAIL -> notifyCustomer(order, "Order update",
+                "Your order " + orderNumber + " is now "
+                    + OrderStatus.valueOf(event.payload().get(NEW_STATUS)).name().toLowerCase(Locale.ROOT));
+            case ORDER_CANCELLATION_EMAIL -> notifyCustomer(order, "Order cancelled",
+                "Your order " + orderNumber + " has been cancelled");
+            case ORDER_SHIPMENT -> shippingService.createShipmentForOrder(orderNumber);
+            case ORDER_REFUND -> refund(order, event);
+            case ORDER_INVENTORY_COMMIT -> inventoryReservationService.commit(
+                inventoryReservationService.orderReservationId(order.getId()));
+            default -> throw new IllegalArgumentException("Unsupported order event type: " + event.type());
+        }
+
+        log.debug("Handled {} for order {}", event.type(), orderNumber);
+    }
+
+    // Private helper methods
+
+    /**
+     * Customers are told in-app; guest orders have no account to notify
+     */
+    private void notifyCustomer(Order order, String title, String message) {
+        if (order.getUser() == null) {
+            log.debug("Order {} has no customer account to notify", order.getOrderNumber());
+            return;
+        }
+        notificationService.sendNotification(order.getUser().getId(), NotificationRequest.builder()
+            .title(title)
+            .message(message)
+            .type(NotificationRequest.NotificationType.ORDER_UPDATE)
+            .data(Map.of(ORDER_NUMBER, order.getOrderNumber()))
+            .actionUrl("/orders/" + order.getOrderNumber())
+            .build());
+    }
+
+    /**
+     * Only orders whose payment went through are refunded. The outbox event id is the
+     * provider idempotency key, so a redelivered event cannot refund the order twice.
+     */
+    private void refund(Order order, OutboxEvent event) {
+        boolean paid = order.getCheckoutStage() == CheckoutStage.COMPLETED
+            || order.getCheckoutStage() == CheckoutStage.REFUNDED;
+        if (order.getPaymentIntentId() == null || !paid) {
+            log.debug("Order {} has no completed payment to refund", order.getOrderNumber());
+            return;
+        }
+        paymentService.refundPaymentIntent(order, event.payload().get(REASON), "order-refund:" + event.id(),
+            PaymentProvider.STRIPE);
+    }
+}
@@ -2,15 +2,20 @@ package com.ocean.shopping.service;
 
 import com.ocean.shopping.model.entity.*;
 import com.ocean.shopping.model.entity.enums.OrderStatus;
+import com.ocean.shopping.dto.common.CursorPage;
 import com.ocean.shopping.dto.order.*;
 import com.ocean.shopping.repository.OrderRepository;
 import com.ocean.shopping.repository.StoreRepository;
 import com.ocean.shopping.exception.BadRequestException;
 import com.ocean.shopping.exception.ResourceNotFoundException;
+import com.ocean.shopping.service.pagination.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -60,6 +65,47 @@ public class OrderManagementService {
         return orders.map(this::convertToSummaryResponse);
     }
 
+    /**
+     * Get all orders with cursor pagination, newest first. Suited to deep exports,
+     * since each slice seeks from the previous one instead of skipping rows.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummaryResponse> scrollAllOrders(String cursor, int size, boolean includeCount,
+                                                            OrderStatus status, ZonedDateTime startDate,
+                                                            ZonedDateTime endDate) {
+        KeysetScrollPosition position = KeysetCursor.decode(cursor, KeysetCursor.CREATED_AT_KEYS);
+        Limit limit = KeysetCursor.limit(size);
+        boolean dateRange = startDate != null && endDate != null;
+
+        Window<Order> orders;
+        Long total = null;
+        if (status != null && dateRange) {
+            orders = orderRepository.findByStatusAndCreatedAtBetweenOrderByCreatedAtDescIdDesc(
+                status, startDate, endDate, position, limit);
+            if (includeCount) {
+                total = orderRepository.countByStatusAndCreatedAtBetween(status, startDate, endDate);
+            }
+        } else if (status != null) {
+            orders = orderRepository.findByStatusOrderByCreatedAtDescIdDesc(status, position, limit);
+            if (includeCount) {
+                total = orderRepository.countByStatus(status);
+            }
+        } else if (dateRange) {
+            orders = orderRepository.findByCreatedAtBetweenOrderByCreatedAtDescIdDesc(
+                startDate, endDate, position, limit);
+            if (includeCount) {
+                total = orderRepository.countByCreatedAtBetween(startDate, endDate);
+            }
+        } else {
+            orders = orderRepository.findAllByOrderByCreatedAtDescIdDesc(position, limit);
+            if (includeCount) {
+                total = orderRepository.count();
+            }
+        }
+
+        return KeysetCursor.toCursorPage(orders, this::convertToSummaryResponse, total);
+    }
+
     /**
      * Search orders across all stores
      */
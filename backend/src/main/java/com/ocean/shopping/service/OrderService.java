@@ -1,29 +1,41 @@
 package com.ocean.shopping.service;
 
 import com.ocean.shopping.model.entity.*;
+import com.ocean.shopping.model.entity.enums.CheckoutStage;
 import com.ocean.shopping.model.entity.enums.OrderStatus;
+import com.ocean.shopping.model.entity.enums.OutboxEventType;
 import com.ocean.shopping.model.entity.enums.PaymentProvider;
-import com.ocean.shopping.model.entity.enums.PaymentStatus;
 import com.ocean.shopping.dto.order.*;
 import com.ocean.shopping.repository.OrderRepository;
 import com.ocean.shopping.repository.StoreRepository;
+import com.ocean.shopping.service.inventory.InventoryReservationService;
 import com.ocean.shopping.service.payment.PaymentProviderService;
 import com.ocean.shopping.service.lock.DistributedLockManager;
+import com.ocean.shopping.service.outbox.OutboxService;
 import com.ocean.shopping.exception.BadRequestException;
 import com.ocean.shopping.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.ZonedDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -39,56 +51,58 @@ public class OrderService {
     private final CartService cartService;
     private final PaymentService paymentService;
     private final UserService userService;
-    private final NotificationService notificationService;
     private final ShippingService shippingService;
     private final DistributedLockManager lockManager;
+    private final OutboxService outboxService;
+    private final InventoryReservationService inventoryReservationService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${ocean.shopping.checkout.stall-timeout-minutes:15}")
+    private long checkoutStallTimeoutMinutes;
+
+    @Value("${ocean.shopping.checkout.recovery-batch-size:100}")
+    private int checkoutRecoveryBatchSize;
+
+    private TransactionTemplate checkoutTransaction;
     
     // Order number generation prefix
     private static final String ORDER_NUMBER_PREFIX = "OSC";
 
+    // Leaves room for the customer prefix within checkout_idempotency_key
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+
+    @PostConstruct
+    public void initialize() {
+        checkoutTransaction = new TransactionTemplate(transactionManager);
+    }
+
     /**
-     * Process checkout and create order with distributed lock protection
+     * Process checkout in persisted stages, so no transaction or lock is held while the
+     * payment provider is called:
+     * <ol>
+     *   <li>under the cart lock, reserve inventory and commit the order as PENDING
+     *       ({@link CheckoutStage#ORDER_CREATED})</li>
+     *   <li>with nothing held, create the payment intent ({@link CheckoutStage#PAYMENT_PENDING})
+     *       and confirm it</li>
+     *   <li>confirm the order ({@link CheckoutStage#COMPLETED}) or compensate it
+     *       ({@link CheckoutStage#FAILED})</li>
+     * </ol>
+     * A retry with the same idempotency key resumes the checkout from its stored stage or
+     * returns its outcome, and gateway requests carry per-order idempotency keys.
      */
-    @Transactional
-    public CheckoutResponse processCheckout(CheckoutRequest request, UUID userId, String sessionId) {
+    public CheckoutResponse processCheckout(CheckoutRequest request, UUID userId, String sessionId,
+                                            String idempotencyKey) {
         log.info("Processing checkout for user: {} or session: {}", userId, sessionId);
 
         String userIdentifier = userId != null ? userId.toString() : sessionId;
+        String checkoutKey = checkoutKey(userIdentifier, idempotencyKey);
         String cartLockKey = lockManager.cartLockKey(userIdentifier);
-        
-        // Execute checkout with distributed lock protection
-        return lockManager.executeWithLockOrThrow(cartLockKey, () -> {
-            return processCheckoutInternal(request, userId, sessionId);
-        });
-    }
 
-    /**
-     * Internal checkout processing method (protected by locks)
-     */
-    private CheckoutResponse processCheckoutInternal(CheckoutRequest request, UUID userId, String sessionId) {
         try {
-            // Get cart
-            Cart cart = getCartForCheckout(userId, sessionId);
-            if (cart == null || cart.getCartItems().isEmpty()) {
-                throw new BadRequestException("Cart is empty");
-            }
-
-            // Collect all inventory locks needed for this order
-            List<String> inventoryLockKeys = cart.getCartItems().stream()
-                    .map(item -> lockManager.inventoryLockKey(item.getProduct().getId().toString()))
-                    .collect(Collectors.toList());
+            Order order = lockManager.executeWithLockOrThrow(cartLockKey,
+                () -> placePendingOrder(request, userId, sessionId, checkoutKey));
 
-            // Execute with multiple inventory locks
-            return executeWithInventoryLocks(inventoryLockKeys, () -> {
-                // Validate cart items and update prices (within inventory locks)
-                validateAndUpdateCart(cart);
-
-                // Create order from cart
-                Order order = createOrderFromCart(cart, request);
-
-                // Process payment with lock protection
-                return processPaymentAndFinalizeOrder(order, request, userId, sessionId, cart);
-            });
+            return settleCheckout(order, request, userId, sessionId);
 
         } catch (Exception e) {
             log.error("Error processing checkout for user: {} or session: {}", userId, sessionId, e);
@@ -97,79 +111,40 @@ public class OrderService {
     }
 
     /**
-     * Execute operation with multiple inventory locks
-     */
-    private CheckoutResponse executeWithInventoryLocks(List<String> lockKeys, Callable<CheckoutResponse> operation) {
-        if (lockKeys.isEmpty()) {
-            try {
-                return operation.call();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }
-
-        String firstLock = lockKeys.get(0);
-        List<String> remainingLocks = lockKeys.subList(1, lockKeys.size());
-
-        return lockManager.executeWithLockOrThrow(firstLock, () -> {
-            return executeWithInventoryLocks(remainingLocks, operation);
-        });
-    }
-
-    /**
-     * Process payment and finalize order
+     * Compensate checkouts left in flight past the stall timeout, e.g. by a node that died
+     * between stages or a client that never retried. The payment intent is cancelled first;
+     * if it cannot be, the order is left for the next run.
      */
-    private CheckoutResponse processPaymentAndFinalizeOrder(Order order, CheckoutRequest request, 
-                                                           UUID userId, String sessionId, Cart cart) {
-        // Generate unique payment lock key for this order
-        String paymentLockKey = lockManager.paymentLockKey(order.getId().toString());
-        
+    @Scheduled(fixedDelayString = "${ocean.shopping.checkout.recovery-interval-ms:60000}")
+    public void recoverStalledCheckouts() {
         try {
-            return lockManager.executeWithLockOrThrow(paymentLockKey, () -> {
-                // Process payment
-                PaymentProviderService.PaymentIntent paymentIntent = 
-                    paymentService.createPaymentIntent(order, PaymentProvider.STRIPE);
-
-                // Confirm payment
-                PaymentProviderService.PaymentResult paymentResult = 
-                    paymentService.confirmPayment(paymentIntent.getId(), request.getPaymentMethodId());
-
-                if (paymentResult.getStatus() != PaymentStatus.COMPLETED) {
-                    throw new BadRequestException("Payment failed: " + paymentResult.getFailureReason());
+            ZonedDateTime cutoff = ZonedDateTime.now().minusMinutes(checkoutStallTimeoutMinutes);
+            List<Order> stalled = orderRepository.findByCheckoutStageInAndCheckoutStageAtBefore(
+                List.of(CheckoutStage.ORDER_CREATED, CheckoutStage.PAYMENT_PENDING), cutoff,
+                PageRequest.of(0, checkoutRecoveryBatchSize));
+
+            int compensated = 0;
+            for (Order order : stalled) {
+                if (order.getPaymentIntentId() != null) {
+                    PaymentProviderService.PaymentResult cancel =
+                        paymentService.cancelPaymentIntent(order.getPaymentIntentId(), PaymentProvider.STRIPE);
+                    if (!cancel.success()) {
+                        log.warn("Could not cancel payment intent {} of stalled order {}: {}",
+                            order.getPaymentIntentId(), order.getOrderNumber(), cancel.failureReason());
+                        continue;
+                    }
                 }
-
-                // Update order status after successful payment
-                order.setStatus(OrderStatus.CONFIRMED);
-                order.setConfirmedAt(ZonedDateTime.now());
-                order = orderRepository.save(order);
-
-                // Clear cart after successful order
-                if (userId != null) {
-                    cartService.clearCart(userId);
-                } else {
-                    cartService.clearSessionCart(sessionId);
+                if (failCheckout(order, "Checkout abandoned before payment completed")) {
+                    compensated++;
                 }
+            }
 
-                // Send confirmation email asynchronously
-                CompletableFuture.runAsync(() -> sendOrderConfirmationEmail(order));
-
-                // Create shipment if needed
-                CompletableFuture.runAsync(() -> createShipmentForOrder(order));
-
-                log.info("Checkout completed successfully for order: {}", order.getOrderNumber());
+            if (compensated > 0) {
+                log.info("Compensated {} stalled checkouts", compensated);
+            }
 
-                return CheckoutResponse.success(
-                    order.getId(),
-                    order.getOrderNumber(),
-                    order.getTotalAmount(),
-                    order.getCurrency(),
-                    paymentIntent.getId(),
-                    order.getCustomerEmail()
-                );
-            });
         } catch (Exception e) {
-            log.error("Checkout failed: {}", e.getMessage(), e);
-            return CheckoutResponse.error("Checkout failed: " + e.getMessage());
+            log.error("Error recovering stalled checkouts", e);
         }
     }
 
@@ -231,6 +206,11 @@ public class OrderService {
             throw new BadRequestException("Order cannot be cancelled in its current state");
         }
 
+        if (!order.getCheckoutStage().isFinal()) {
+            cancelCheckout(order, reason);
+            return;
+        }
+
         order.setStatus(OrderStatus.CANCELLED);
         order.setCancelledAt(ZonedDateTime.now());
         order.setInternalNotes((order.getInternalNotes() != null ? order.getInternalNotes() + "\n" : "") 
@@ -239,14 +219,44 @@ public class OrderService {
         orderRepository.save(order);
 
         // Process refund if payment was completed
-        CompletableFuture.runAsync(() -> processOrderRefund(order, "Customer cancellation"));
+        publishOrderEvent(OutboxEventType.ORDER_REFUND, order,
+            Map.of(OrderEventHandler.REASON, "Customer cancellation"));
 
         // Send cancellation notification
-        CompletableFuture.runAsync(() -> sendOrderCancellationEmail(order));
+        publishOrderEvent(OutboxEventType.ORDER_CANCELLATION_EMAIL, order, Map.of());
 
         log.info("Order {} cancelled by user {}", order.getOrderNumber(), userId);
     }
 
+    /**
+     * Cancel an order whose checkout is still in flight: compensate it the way a failed payment
+     * would, so the reservation is returned and a payment that still completes is refunded by
+     * {@link #completeCheckout} instead of confirming the order
+     */
+    private void cancelCheckout(Order order, String reason) {
+        String internalNotes = (order.getInternalNotes() != null ? order.getInternalNotes() + "\n" : "")
+            + "Cancelled by customer: " + reason;
+        if (orderRepository.markCheckoutFailed(order.getId(), internalNotes, ZonedDateTime.now()) == 0) {
+            // The checkout settled between loading the order and cancelling it
+            throw new BadRequestException("Order cannot be cancelled in its current state, please retry");
+        }
+
+        String paymentIntentId = order.getPaymentIntentId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                inventoryReservationService.release(inventoryReservationService.orderReservationId(order.getId()));
+                if (paymentIntentId != null) {
+                    cancelAbandonedIntent(order, paymentIntentId);
+                }
+            }
+        });
+
+        publishOrderEvent(OutboxEventType.ORDER_CANCELLATION_EMAIL, order, Map.of());
+
+        log.info("Order {} cancelled by customer during checkout", order.getOrderNumber());
+    }
+
     /**
      * Update order status (for internal use)
      */
@@ -275,13 +285,218 @@ public class OrderService {
         orderRepository.save(order);
 
         // Send status update notification
-        CompletableFuture.runAsync(() -> sendOrderStatusUpdateEmail(order, oldStatus, newStatus));
+        publishOrderEvent(OutboxEventType.ORDER_STATUS_EMAIL, order, Map.of(
+            OrderEventHandler.OLD_STATUS, oldStatus.name(),
+            OrderEventHandler.NEW_STATUS, newStatus.name()));
 
         log.info("Order {} status updated from {} to {}", order.getOrderNumber(), oldStatus, newStatus);
     }
 
     // Private helper methods
 
+    private String checkoutKey(String userIdentifier, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            // Without a client key every request is a new checkout
+            idempotencyKey = UUID.randomUUID().toString();
+        } else if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency key must be at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        // Scoped to the customer, so keys chosen by different clients cannot collide
+        return userIdentifier + ":" + idempotencyKey;
+    }
+
+    /**
+     * Stage 1: find the order of a known checkout key, or validate the cart, reserve its
+     * inventory and commit a new PENDING order holding the reservation
+     */
+    private Order placePendingOrder(CheckoutRequest request, UUID userId, String sessionId, String checkoutKey) {
+        return checkoutTransaction.execute(status -> {
+            Optional<Order> existing = orderRepository.findByCheckoutIdempotencyKey(checkoutKey);
+            if (existing.isPresent()) {
+                log.info("Resuming checkout for order {} at stage {}",
+                    existing.get().getOrderNumber(), existing.get().getCheckoutStage());
+                return existing.get();
+            }
+
+            // Get cart
+            Cart cart = getCartForCheckout(userId, sessionId);
+            if (cart == null || cart.getCartItems().isEmpty()) {
+                throw new BadRequestException("Cart is empty");
+            }
+
+            // Validate cart items, update prices and reserve inventory atomically
+            validateAndUpdateCart(cart);
+
+            // Persist pending cart changes from the Redis cart store before ordering
+            cartService.flushCart(cart);
+
+            // Create order from cart
+            Order order = createOrderFromCart(cart, request, checkoutKey);
+
+            // The order holds the units from here on, so cart edits during payment cannot release them
+            String reservationId = inventoryReservationService.orderReservationId(order.getId());
+            if (!cartService.transferCartInventory(cart, reservationId)) {
+                throw new BadRequestException("Inventory reservation expired, please retry checkout");
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int completionStatus) {
+                    if (completionStatus != STATUS_COMMITTED) {
+                        inventoryReservationService.release(reservationId);
+                    }
+                }
+            });
+
+            return order;
+        });
+    }
+
+    /**
+     * Stages 2 and 3: pay for a committed order and confirm or compensate it
+     */
+    private CheckoutResponse settleCheckout(Order order, CheckoutRequest request, UUID userId, String sessionId) {
+        if (order.getCheckoutStage().isFinal()) {
+            return checkoutOutcome(order);
+        }
+
+        String paymentIntentId = order.getPaymentIntentId();
+        PaymentProviderService.PaymentResult paymentResult;
+        try {
+            if (paymentIntentId == null) {
+                String intentId = paymentService.createPaymentIntent(order, PaymentProvider.STRIPE).id();
+                Integer pending = checkoutTransaction.execute(status ->
+                    orderRepository.markPaymentPending(order.getId(), intentId, ZonedDateTime.now()));
+                if (pending == null || pending == 0) {
+                    // Recovery or another attempt of the same checkout moved the order on meanwhile
+                    Order current = findCheckoutOrder(order);
+                    if (current.getCheckoutStage().isFinal()) {
+                        if (current.getCheckoutStage() == CheckoutStage.FAILED) {
+                            cancelAbandonedIntent(current, intentId);
+                        }
+                        return checkoutOutcome(current);
+                    }
+                    // Still paying: the other attempt stored the same intent, which is idempotent per order
+                }
+                order.setPaymentIntentId(intentId);
+                paymentIntentId = intentId;
+            }
+
+            paymentResult = paymentService.confirmPaymentIntent(
+                order, paymentIntentId, request.getPaymentMethodId(), PaymentProvider.STRIPE);
+
+        } catch (Exception e) {
+            // Outcome unknown: the order keeps its stage for a retry with the same key or for recovery
+            log.error("Payment for order {} interrupted: {}", order.getOrderNumber(), e.getMessage(), e);
+            return CheckoutResponse.error("Checkout could not be completed, please retry: " + e.getMessage());
+        }
+
+        if (!paymentResult.success()) {
+            String reason = "Payment failed: " + paymentResult.failureReason();
+            failCheckout(order, reason);
+            return CheckoutResponse.error("Checkout failed: " + reason);
+        }
+
+        return completeCheckout(order, userId, sessionId);
+    }
+
+    private CheckoutResponse completeCheckout(Order order, UUID userId, String sessionId) {
+        ZonedDateTime now = ZonedDateTime.now();
+        Integer updated = checkoutTransaction.execute(status -> {
+            int completed = orderRepository.markCheckoutCompleted(order.getId(), now);
+            if (completed == 1) {
+                // Consume the reserved inventory, send the confirmation email and create the shipment
+                publishOrderEvent(OutboxEventType.ORDER_INVENTORY_COMMIT, order, Map.of());
+                publishOrderEvent(OutboxEventType.ORDER_CONFIRMATION_EMAIL, order, Map.of());
+                publishOrderEvent(OutboxEventType.ORDER_SHIPMENT, order, Map.of());
+            } else if (orderRepository.markCheckoutRefunded(order.getId(), now) == 1) {
+                // Recovery or the customer cancelled the order, but the payment went through anyway
+                publishOrderEvent(OutboxEventType.ORDER_REFUND, order,
+                    Map.of(OrderEventHandler.REASON, "Payment completed after checkout was cancelled"));
+            }
+            return completed;
+        });
+        if (updated == null || updated == 0) {
+            // Another attempt of the same checkout, or recovery, settled it first
+            Order current = findCheckoutOrder(order);
+            if (current.getCheckoutStage() == CheckoutStage.REFUNDED) {
+                log.warn("Payment {} succeeded for compensated order {}, refund scheduled",
+                    order.getPaymentIntentId(), order.getOrderNumber());
+                // Releasing is a no-op when the compensation already returned the units
+                inventoryReservationService.release(inventoryReservationService.orderReservationId(order.getId()));
+            }
+            return checkoutOutcome(current);
+        }
+
+        order.setStatus(OrderStatus.CONFIRMED);
+        order.setConfirmedAt(now);
+        order.setCheckoutStage(CheckoutStage.COMPLETED);
+        order.setCheckoutStageAt(now);
+
+        cartService.clearCart(userId, sessionId);
+
+        log.info("Checkout completed successfully for order: {}", order.getOrderNumber());
+
+        return checkoutOutcome(order);
+    }
+
+    /**
+     * Compensate a checkout: cancel the order and return its reserved units
+     * @return true if this call moved the order to FAILED
+     */
+    private boolean failCheckout(Order order, String reason) {
+        String internalNotes = (order.getInternalNotes() != null ? order.getInternalNotes() + "\n" : "") + reason;
+        Integer updated = checkoutTransaction.execute(status ->
+            orderRepository.markCheckoutFailed(order.getId(), internalNotes, ZonedDateTime.now()));
+        if (updated == null || updated == 0) {
+            return false;
+        }
+
+        inventoryReservationService.release(inventoryReservationService.orderReservationId(order.getId()));
+        log.info("Checkout for order {} compensated: {}", order.getOrderNumber(), reason);
+        return true;
+    }
+
+    private Order findCheckoutOrder(Order order) {
+        return orderRepository.findByCheckoutIdempotencyKey(order.getCheckoutIdempotencyKey())
+            .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+    }
+
+    /**
+     * Cancel an intent created after recovery compensated its order, so it can no longer be paid
+     */
+    private void cancelAbandonedIntent(Order order, String paymentIntentId) {
+        PaymentProviderService.PaymentResult cancel =
+            paymentService.cancelPaymentIntent(paymentIntentId, PaymentProvider.STRIPE);
+        if (!cancel.success()) {
+            log.warn("Could not cancel payment intent {} of compensated order {}: {}",
+                paymentIntentId, order.getOrderNumber(), cancel.failureReason());
+        }
+    }
+
+    /**
+     * Record a side effect of an order change in the outbox; it runs once the current
+     * transaction commits
+     */
+    private void publishOrderEvent(OutboxEventType type, Order order, Map<String, String> values) {
+        Map<String, String> payload = new HashMap<>(values);
+        payload.put(OrderEventHandler.ORDER_NUMBER, order.getOrderNumber());
+        outboxService.enqueue(type, order.getId(), payload);
+    }
+
+    private CheckoutResponse checkoutOutcome(Order order) {
+        if (order.getCheckoutStage() != CheckoutStage.COMPLETED) {
+            return CheckoutResponse.error("Checkout failed: payment was not completed");
+        }
+        return CheckoutResponse.success(
+            order.getId(),
+            order.getOrderNumber(),
+            order.getTotalAmount(),
+            order.getCurrency(),
+            order.getPaymentIntentId(),
+            order.getCustomerEmail()
+        );
+    }
+
     private Cart getCartForCheckout(UUID userId, String sessionId) {
         if (userId != null) {
             return cartService.getUserCart(userId);
@@ -301,11 +516,6 @@ public class OrderService {
                 throw new BadRequestException("Product " + product.getName() + " is no longer available");
             }
             
-            // Check stock availability
-            if (product.getStockQuantity() != null && product.getStockQuantity() < cartItem.getQuantity()) {
-                throw new BadRequestException("Insufficient stock for product " + product.getName());
-            }
-            
             // Update price if changed (optional - could also keep locked prices)
             BigDecimal currentPrice = product.getPrice();
             if (!cartItem.getUnitPrice().equals(currentPrice)) {
@@ -314,9 +524,21 @@ public class OrderService {
                 cartItem.setUnitPrice(currentPrice);
             }
         }
+
+        // Check stock availability by (re-)reserving every line in the inventory ledger
+        InventoryReservationService.ReservationResult reservation = cartService.reserveCartInventory(cart);
+        if (!reservation.isSuccess()) {
+            String productName = cart.getCartItems().stream()
+                .map(CartItem::getProduct)
+                .filter(product -> product.getId().equals(reservation.getShortProductId()))
+                .map(Product::getName)
+                .findFirst()
+                .orElse(String.valueOf(reservation.getShortProductId()));
+            throw new BadRequestException("Insufficient stock for product " + productName);
+        }
     }
 
-    private Order createOrderFromCart(Cart cart, CheckoutRequest request) {
+    private Order createOrderFromCart(Cart cart, CheckoutRequest request, String checkoutKey) {
         // Generate unique order number
         String orderNumber = generateOrderNumber();
 
@@ -353,6 +575,9 @@ public class OrderService {
             .discountAmount(discountAmount)
             .totalAmount(totalAmount)
             .notes(request.getNotes())
+            .checkoutStage(CheckoutStage.ORDER_CREATED)
+            .checkoutStageAt(ZonedDateTime.now())
+            .checkoutIdempotencyKey(checkoutKey)
             .build();
 
         order = orderRepository.save(order);
@@ -508,45 +733,4 @@ public class OrderService {
             case RETURNED -> "Returned";
         };
     }
-
-    // Async notification methods
-    private void sendOrderConfirmationEmail(Order order) {
-        try {
-            notificationService.sendOrderConfirmationEmail(order.getCustomerEmail(), order);
-        } catch (Exception e) {
-            log.error("Failed to send order confirmation email for order {}: {}", order.getOrderNumber(), e.getMessage());
-        }
-    }
-
-    private void sendOrderStatusUpdateEmail(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
-        try {
-            notificationService.sendOrderStatusUpdateEmail(order.getCustomerEmail(), order, oldStatus, newStatus);
-        } catch (Exception e) {
-            log.error("Failed to send order status update email for order {}: {}", order.getOrderNumber(), e.getMessage());
-        }
-    }
-
-    private void sendOrderCancellationEmail(Order order) {
-        try {
-            notificationService.sendOrderCancellationEmail(order.getCustomerEmail(), order);
-        } catch (Exception e) {
-            log.error("Failed to send order cancellation email for order {}: {}", order.getOrderNumber(), e.getMessage());
-        }
-    }
-
-    private void createShipmentForOrder(Order order) {
-        try {
-            shippingService.createShipmentForOrder(order.getId());
-        } catch (Exception e) {
-            log.error("Failed to create shipment for order {}: {}", order.getOrderNumber(), e.getMessage());
-        }
-    }
-
-    private void processOrderRefund(Order order, String reason) {
-        try {
-            paymentService.processRefund(order.getId(), order.getTotalAmount(), reason);
-        } catch (Exception e) {
-            log.error("Failed to process refund for order {}: {}", order.getOrderNumber(), e.getMessage());
-        }
-    }
-}
\ No newline at end of file
+}
@@ -34,16 +34,17 @@ public class PaymentService {
     private final List<PaymentProviderService> paymentProviders;
 
     /**
-     * Create a payment intent for an order
+     * Create a payment intent for an order. Only calls the gateway, so it runs without a
+     * transaction; the request is idempotent per order and repeating it returns the same intent.
      */
-    @Transactional
     public PaymentProviderService.PaymentIntent createPaymentIntent(Order order, PaymentProvider provider) {
         PaymentProviderService providerService = getPaymentProvider(provider);
         
         Map<String, String> metadata = Map.of(
             "order_id", order.getId().toString(),
             "order_number", order.getOrderNumber(),
-            "customer_email", order.getCustomerEmail()
+            "customer_email", order.getCustomerEmail(),
+            PaymentProviderService.IDEMPOTENCY_KEY, "order-" + order.getId() + "-intent"
         );
         
         return providerService.createPaymentIntent(
@@ -53,6 +54,47 @@ public class PaymentService {
         );
     }
 
+    /**
+     * Confirm an order's payment intent with the given payment method. Only calls the gateway,
+     * so it runs without a transaction; the request is idempotent per order.
+     */
+    public PaymentProviderService.PaymentResult confirmPaymentIntent(Order order, String paymentIntentId,
+                                                                     String paymentMethodId, PaymentProvider provider) {
+        PaymentProviderService providerService = getPaymentProvider(provider);
+
+        Map<String, String> metadata = Map.of(
+            "order_id", order.getId().toString(),
+            "order_number", order.getOrderNumber(),
+            PaymentProviderService.IDEMPOTENCY_KEY, "order-" + order.getId() + "-confirm"
+        );
+
+        return providerService.confirmPayment(paymentIntentId, paymentMethodId, metadata);
+    }
+
+    /**
+     * Cancel a payment intent that has no payment record yet, e.g. of an abandoned checkout
+     */
+    public PaymentProviderService.PaymentResult cancelPaymentIntent(String paymentIntentId, PaymentProvider provider) {
+        return getPaymentProvider(provider).cancelPayment(paymentIntentId);
+    }
+
+    /**
+     * Refund the full amount of an order paid through a payment intent. Only calls the
+     * gateway; a refund the gateway declines throws so the caller can retry it with the
+     * same idempotency key.
+     */
+    public PaymentProviderService.RefundResult refundPaymentIntent(Order order, String reason, String idempotencyKey,
+                                                                   PaymentProvider provider) {
+        PaymentProviderService.RefundResult result = getPaymentProvider(provider)
+            .refundPayment(order.getPaymentIntentId(), order.getTotalAmount(), reason,
+                Map.of(PaymentProviderService.IDEMPOTENCY_KEY, idempotencyKey));
+        if (!result.success()) {
+            throw new IllegalStateException("Refund of order " + order.getOrderNumber() + " failed: " + result.failureReason());
+        }
+        log.info("Refunded {} for order {}: {}", order.getTotalAmount(), order.getOrderNumber(), result.refundId());
+        return result;
+    }
+
     /**
      * Process payment for an order
      */
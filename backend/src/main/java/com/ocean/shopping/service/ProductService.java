@@ -1,13 +1,19 @@
 package com.ocean.shopping.service;
 
+import com.ocean.shopping.dto.common.CursorPage;
 import com.ocean.shopping.dto.product.ProductFilter;
 import com.ocean.shopping.dto.product.ProductRequest;
 import com.ocean.shopping.dto.product.ProductResponse;
+import com.ocean.shopping.dto.product.ProductSearchFacets;
 import com.ocean.shopping.exception.BadRequestException;
 import com.ocean.shopping.exception.ConflictException;
 import com.ocean.shopping.exception.ResourceNotFoundException;
 import com.ocean.shopping.model.entity.*;
 import com.ocean.shopping.repository.ProductRepository;
+import com.ocean.shopping.service.cache.ProductCatalogCache;
+import com.ocean.shopping.service.inventory.InventoryReservationService;
+import com.ocean.shopping.service.pagination.KeysetCursor;
+import com.ocean.shopping.service.search.ProductSearchIndex;
 import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,9 +26,13 @@ import org.springframework.util.StringUtils;
 import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +45,9 @@ public class ProductService {
 
     private final ProductRepository productRepository;
     private final UserService userService;
+    private final InventoryReservationService inventoryReservationService;
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductSearchIndex productSearchIndex;
 
     /**
      * Get all products with filtering and pagination
@@ -53,6 +66,33 @@ public class ProductService {
         return productPage.map(ProductResponse::summaryFromEntity);
     }
 
+    /**
+     * Get products with filtering using keyset (cursor) pagination.
+     * The total count is only computed when requested.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponse> scrollProducts(ProductFilter filter, String cursor, boolean includeCount) {
+        log.debug("Scrolling products with filter: {}, cursor: {}", filter, cursor);
+
+        filter.normalize();
+
+        Sort sort = createSort(filter.getSortBy(), filter.getSortDirection());
+        Map<String, Class<?>> keyTypes = keysetKeyTypes(sort);
+        KeysetScrollPosition position = KeysetCursor.decode(cursor, keyTypes);
+
+        Specification<Product> specification = filter.hasSearchQuery()
+                ? createSearchSpecification(filter)
+                : createSpecification(filter);
+
+        Window<Product> window = productRepository.findBy(specification, query -> query
+                .sortBy(sort.and(Sort.by(sort.iterator().next().getDirection(), "id")))
+                .limit(filter.getSize())
+                .scroll(position));
+
+        Long total = includeCount ? productRepository.count(specification) : null;
+        return KeysetCursor.toCursorPage(window, ProductResponse::summaryFromEntity, total);
+    }
+
     /**
      * Get product by ID
      */
@@ -60,14 +100,16 @@ public class ProductService {
     public ProductResponse getProductById(UUID id) {
         log.debug("Getting product by ID: {}", id);
 
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> ResourceNotFoundException.forEntity("Product", id));
+        return productCatalogCache.getProduct(id, () -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> ResourceNotFoundException.forEntity("Product", id));
 
-        if (!product.getIsActive()) {
-            throw new ResourceNotFoundException("Product not found or not active");
-        }
+            if (!product.getIsActive()) {
+                throw new ResourceNotFoundException("Product not found or not active");
+            }
 
-        return ProductResponse.fromEntity(product);
+            return ProductResponse.fromEntity(product);
+        });
     }
 
     /**
@@ -77,14 +119,16 @@ public class ProductService {
     public ProductResponse getProductBySlug(String slug, UUID storeId) {
         log.debug("Getting product by slug: {} and store ID: {}", slug, storeId);
 
-        Product product = productRepository.findBySlugAndStoreId(slug, storeId)
-                .orElseThrow(() -> ResourceNotFoundException.forField("Product", "slug", slug));
+        return productCatalogCache.getProductBySlug(storeId, slug, () -> {
+            Product product = productRepository.findBySlugAndStoreId(slug, storeId)
+                    .orElseThrow(() -> ResourceNotFoundException.forField("Product", "slug", slug));
 
-        if (!product.getIsActive()) {
-            throw new ResourceNotFoundException("Product not found or not active");
-        }
+            if (!product.getIsActive()) {
+                throw new ResourceNotFoundException("Product not found or not active");
+            }
 
-        return ProductResponse.fromEntity(product);
+            return ProductResponse.fromEntity(product);
+        });
     }
 
     /**
@@ -105,6 +149,7 @@ public class ProductService {
 
         // Save product
         Product savedProduct = productRepository.save(product);
+        productCatalogCache.invalidateProduct(savedProduct.getId());
 
         log.info("Product created successfully with ID: {}", savedProduct.getId());
         return ProductResponse.fromEntity(savedProduct);
@@ -126,11 +171,21 @@ public class ProductService {
         // Validate unique constraints (excluding current product)
         validateUniqueConstraints(request, id);
 
+        Integer previousQuantity = existingProduct.getInventoryQuantity();
+        boolean wasTracked = Boolean.TRUE.equals(existingProduct.getTrackInventory());
+
         // Update product fields
         updateProductFromRequest(existingProduct, request);
 
         // Save updated product
         Product updatedProduct = productRepository.save(existingProduct);
+        productCatalogCache.invalidateProduct(updatedProduct.getId());
+
+        // Stock was set to a new absolute value - resync the inventory ledger once committed
+        boolean stockChanged = !Objects.equals(previousQuantity, updatedProduct.getInventoryQuantity());
+        if (Boolean.TRUE.equals(updatedProduct.getTrackInventory()) && (stockChanged || !wasTracked)) {
+            inventoryReservationService.resetStock(updatedProduct.getId(), updatedProduct.getInventoryQuantity());
+        }
 
         log.info("Product updated successfully with ID: {}", updatedProduct.getId());
         return ProductResponse.fromEntity(updatedProduct);
@@ -152,6 +207,7 @@ public class ProductService {
         // Soft delete by setting active to false
         product.setIsActive(false);
         productRepository.save(product);
+        productCatalogCache.invalidateProduct(id);
 
         log.info("Product deleted successfully with ID: {}", id);
     }
@@ -169,6 +225,16 @@ public class ProductService {
             return getAllProducts(filter);
         }
 
+        if (productSearchIndex.supports(filter)) {
+            try {
+                ProductSearchIndex.SearchHits hits = productSearchIndex.search(filter);
+                return new PageImpl<>(loadInOrder(hits.getProductIds()),
+                        PageRequest.of(filter.getPage(), filter.getSize()), hits.getTotalHits());
+            } catch (RuntimeException e) {
+                log.warn("Search index query failed, falling back to database search: {}", e.getMessage());
+            }
+        }
+
         Specification<Product> specification = createSearchSpecification(filter);
         Pageable pageable = createPageable(filter);
         
@@ -177,6 +243,21 @@ public class ProductService {
         return productPage.map(ProductResponse::summaryFromEntity);
     }
 
+    /**
+     * Get facet counts for a product search
+     */
+    @Transactional(readOnly = true)
+    public ProductSearchFacets getSearchFacets(ProductFilter filter) {
+        log.debug("Getting search facets with filter: {}", filter);
+
+        filter.normalize();
+
+        if (!productSearchIndex.supports(filter)) {
+            return ProductSearchFacets.empty();
+        }
+        return productSearchIndex.facets(filter);
+    }
+
     /**
      * Get featured products
      */
@@ -184,12 +265,14 @@ public class ProductService {
     public List<ProductResponse> getFeaturedProducts(int limit) {
         log.debug("Getting featured products with limit: {}", limit);
 
-        Pageable pageable = PageRequest.of(0, limit, Sort.by("createdAt").descending());
-        Page<Product> featuredProducts = productRepository.findByIsFeaturedTrueAndIsActiveTrue(pageable);
+        return productCatalogCache.getList("featured:" + limit, () -> {
+            Pageable pageable = PageRequest.of(0, limit, Sort.by("createdAt").descending());
+            Page<Product> featuredProducts = productRepository.findByIsFeaturedTrueAndIsActiveTrue(pageable);
 
-        return featuredProducts.getContent().stream()
-                .map(ProductResponse::summaryFromEntity)
-                .collect(Collectors.toList());
+            return featuredProducts.getContent().stream()
+                    .map(ProductResponse::summaryFromEntity)
+                    .collect(Collectors.toList());
+        });
     }
 
     /**
@@ -225,20 +308,22 @@ public class ProductService {
     public List<ProductResponse> getRelatedProducts(UUID productId, int limit) {
         log.debug("Getting related products for product ID: {} with limit: {}", productId, limit);
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> ResourceNotFoundException.forEntity("Product", productId));
+        return productCatalogCache.getList("related:" + productId + ":" + limit, () -> {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> ResourceNotFoundException.forEntity("Product", productId));
 
-        if (product.getCategory() == null) {
-            return List.of();
-        }
+            if (product.getCategory() == null) {
+                return List.<ProductResponse>of();
+            }
 
-        Pageable pageable = PageRequest.of(0, limit);
-        List<Product> relatedProducts = productRepository.findRelatedProducts(
-                product.getCategory().getId(), productId, pageable);
+            Pageable pageable = PageRequest.of(0, limit);
+            List<Product> relatedProducts = productRepository.findRelatedProducts(
+                    product.getCategory().getId(), productId, pageable);
 
-        return relatedProducts.stream()
-                .map(ProductResponse::summaryFromEntity)
-                .collect(Collectors.toList());
+            return relatedProducts.stream()
+                    .map(ProductResponse::summaryFromEntity)
+                    .collect(Collectors.toList());
+        });
     }
 
     /**
@@ -293,6 +378,12 @@ public class ProductService {
             return true; // Infinite inventory
         }
 
+        // Prefer the ledger, which accounts for units reserved in carts
+        Integer available = inventoryReservationService.getAvailable(productId);
+        if (available != null) {
+            return available >= quantity;
+        }
+
         return product.getInventoryQuantity() >= quantity;
     }
 
@@ -311,15 +402,16 @@ public class ProductService {
             return;
         }
 
-        int newQuantity = product.getInventoryQuantity() + quantityChange;
-        if (newQuantity < 0) {
-            throw new BadRequestException("Insufficient inventory. Available: " + product.getInventoryQuantity());
+        // Atomic check-and-adjust in the ledger; the database is updated by the batched write-back
+        InventoryReservationService.ReservationResult result =
+                inventoryReservationService.adjustStock(productId, quantityChange);
+        if (!result.isSuccess()) {
+            throw new BadRequestException("Insufficient inventory. Available: " + result.getAvailable());
         }
 
-        product.setInventoryQuantity(newQuantity);
-        productRepository.save(product);
+        productCatalogCache.invalidateProduct(productId);
 
-        log.debug("Inventory updated for product ID: {}, new quantity: {}", productId, newQuantity);
+        log.debug("Inventory updated for product ID: {} with quantity change: {}", productId, quantityChange);
     }
 
     /**
@@ -343,6 +435,22 @@ public class ProductService {
 
     // Private helper methods
 
+    private List<ProductResponse> loadInOrder(List<UUID> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // Keep the index ranking; products deleted since indexing are skipped
+        return productIds.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .map(ProductResponse::summaryFromEntity)
+                .collect(Collectors.toList());
+    }
+
     private Specification<Product> createSpecification(ProductFilter filter) {
         return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
@@ -399,17 +507,12 @@ public class ProductService {
                 ));
             }
 
-            // Rating filter (requires join with reviews)
+            // Rating filter (precomputed aggregate, one row per product)
             if (filter.getMinRating() != null) {
-                Join<Product, Review> reviewJoin = root.join("reviews", JoinType.LEFT);
-                predicates.add(criteriaBuilder.equal(reviewJoin.get("isPublished"), true));
-                
-                // Group by product and filter by average rating
-                query.groupBy(root.get("id"));
-                query.having(criteriaBuilder.greaterThanOrEqualTo(
-                    criteriaBuilder.avg(reviewJoin.get("rating")).as(BigDecimal.class),
-                    filter.getMinRating()
-                ));
+                Join<Product, ProductRatingStats> statsJoin = root.join("ratingStats", JoinType.INNER);
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(
+                    statsJoin.get("averageRating"), filter.getMinRating()));
+                predicates.add(criteriaBuilder.greaterThan(statsJoin.get("reviewCount"), 0));
             }
 
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
@@ -460,12 +563,31 @@ public class ProductService {
             case "price" -> Sort.by(direction, "price");
             case "createdat" -> Sort.by(direction, "createdAt");
             case "updatedat" -> Sort.by(direction, "updatedAt");
-            case "rating" -> Sort.by(direction, "createdAt"); // Simplified for now
-            case "popularity" -> Sort.by(direction, "createdAt"); // Simplified for now
+            case "rating" -> Sort.by(direction, "ratingStats.averageRating", "ratingStats.reviewCount");
+            case "popularity" -> Sort.by(direction, "ratingStats.reviewCount", "ratingStats.averageRating");
             default -> Sort.by(Sort.Direction.DESC, "createdAt");
         };
     }
 
+    /**
+     * Cursor key types for a keyset sort; the product ID is the tie-breaker.
+     */
+    private Map<String, Class<?>> keysetKeyTypes(Sort sort) {
+        Map<String, Class<?>> keyTypes = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            Class<?> type = switch (order.getProperty()) {
+                case "name" -> String.class;
+                case "price" -> BigDecimal.class;
+                case "createdAt", "updatedAt" -> ZonedDateTime.class;
+                default -> throw new BadRequestException(
+                        "Cursor pagination supports sorting by name, price, createdAt or updatedAt");
+            };
+            keyTypes.put(order.getProperty(), type);
+        }
+        keyTypes.put("id", UUID.class);
+        return keyTypes;
+    }
+
     private void validateStoreAccess(UUID storeId, UUID userId) {
         // This is a simplified validation - in a real system, you would check:
         // 1. If user owns the store
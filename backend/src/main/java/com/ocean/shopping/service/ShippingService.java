@@ -1,11 +1,16 @@
 package com.ocean.shopping.service;
 
 import com.ocean.shopping.dto.shipping.*;
+import com.ocean.shopping.exception.ResourceNotFoundException;
 import com.ocean.shopping.model.entity.Order;
+import com.ocean.shopping.model.entity.OrderItem;
+import com.ocean.shopping.model.entity.Product;
 import com.ocean.shopping.model.entity.Shipment;
+import com.ocean.shopping.model.entity.Store;
 import com.ocean.shopping.model.entity.TrackingEvent;
 import com.ocean.shopping.model.entity.enums.CarrierType;
 import com.ocean.shopping.model.entity.enums.ShipmentStatus;
+import com.ocean.shopping.repository.OrderRepository;
 import com.ocean.shopping.repository.ShipmentRepository;
 import com.ocean.shopping.repository.TrackingEventRepository;
 import com.ocean.shopping.service.logistics.CarrierException;
@@ -32,9 +37,15 @@ import java.util.stream.Collectors;
 @Transactional
 public class ShippingService {
 
+    // Used for products without a weight or dimensions
+    private static final BigDecimal DEFAULT_ITEM_WEIGHT_KG = new BigDecimal("0.5");
+    private static final BigDecimal DEFAULT_PACKAGE_SIDE_CM = new BigDecimal("30");
+
     private final CarrierManager carrierManager;
+    private final OrderRepository orderRepository;
     private final ShipmentRepository shipmentRepository;
     private final TrackingEventRepository trackingEventRepository;
+    private final TrackingService trackingService;
 
     /**
      * Calculate shipping rates for an order
@@ -128,6 +139,45 @@ public class ShippingService {
         }
     }
 
+    /**
+     * Ship a paid order from its store with the cheapest available rate. Does nothing if the
+     * order already has a shipment, so the call can be repeated.
+     */
+    public Shipment createShipmentForOrder(String orderNumber) throws CarrierException {
+        Order order = orderRepository.findByOrderNumber(orderNumber)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderNumber));
+
+        List<Shipment> existing = shipmentRepository.findByOrder(order);
+        if (!existing.isEmpty()) {
+            log.debug("Order {} already has shipment {}", orderNumber, existing.get(0).getTrackingNumber());
+            return existing.get(0);
+        }
+
+        AddressDto shipperAddress = buildStoreAddress(order.getStore());
+        AddressDto recipientAddress = buildRecipientAddress(order);
+        List<PackageDto> packages = List.of(buildOrderPackage(order));
+
+        ShippingRateResponse rate = getCheapestRate(ShippingRateRequest.builder()
+                .originAddress(shipperAddress)
+                .destinationAddress(recipientAddress)
+                .packages(packages)
+                .declaredValue(order.getSubtotal())
+                .currency(order.getCurrency())
+                .build());
+
+        return createShipment(order, ShipmentRequest.builder()
+                .carrier(rate.getCarrier())
+                .serviceType(rate.getServiceType())
+                .rateId(rate.getRateId())
+                .shipperAddress(shipperAddress)
+                .recipientAddress(recipientAddress)
+                .packages(packages)
+                .orderNumber(orderNumber)
+                .declaredValue(order.getSubtotal())
+                .currency(order.getCurrency())
+                .build());
+    }
+
     /**
      * Get shipment by tracking number
      */
@@ -163,12 +213,7 @@ public class ShippingService {
             TrackingResponse trackingResponse = carrierManager.trackShipment(trackingNumber);
 
             // Update local shipment data
-            Optional<Shipment> shipmentOpt = shipmentRepository.findByTrackingNumber(trackingNumber);
-            if (shipmentOpt.isPresent()) {
-                updateShipmentFromTracking(shipmentOpt.get(), trackingResponse);
-            } else {
-                log.warn("Shipment not found in database for tracking number: {}", trackingNumber);
-            }
+            trackingService.applyTrackingUpdates(List.of(trackingResponse));
 
             return trackingResponse;
 
@@ -186,17 +231,11 @@ public class ShippingService {
         
         List<TrackingResponse> responses = carrierManager.trackMultipleShipments(trackingNumbers);
         
-        // Update database for each successful tracking response
-        for (TrackingResponse response : responses) {
-            try {
-                Optional<Shipment> shipmentOpt = shipmentRepository.findByTrackingNumber(response.getTrackingNumber());
-                if (shipmentOpt.isPresent()) {
-                    updateShipmentFromTracking(shipmentOpt.get(), response);
-                }
-            } catch (Exception e) {
-                log.warn("Failed to update shipment {} from tracking: {}", 
-                        response.getTrackingNumber(), e.getMessage());
-            }
+        // Update database for all successful tracking responses at once
+        try {
+            trackingService.applyTrackingUpdates(responses);
+        } catch (Exception e) {
+            log.warn("Failed to update {} shipments from tracking: {}", responses.size(), e.getMessage());
         }
         
         return responses;
@@ -387,75 +426,6 @@ public class ShippingService {
                 .build();
     }
 
-    /**
-     * Update shipment from tracking response
-     */
-    private void updateShipmentFromTracking(Shipment shipment, TrackingResponse trackingResponse) {
-        // Update shipment status
-        if (trackingResponse.getCurrentStatus() != null) {
-            shipment.setStatus(trackingResponse.getCurrentStatus());
-            shipment.setStatusDescription(trackingResponse.getStatusDescription());
-        }
-        
-        shipment.setCurrentLocation(trackingResponse.getCurrentLocation());
-        shipment.setLastTrackingUpdate(LocalDateTime.now());
-        
-        if (trackingResponse.getActualDeliveryDate() != null) {
-            shipment.setActualDeliveryDate(trackingResponse.getActualDeliveryDate());
-        }
-        
-        if (trackingResponse.getDeliveryTime() != null) {
-            shipment.setDeliveryTime(trackingResponse.getDeliveryTime());
-        }
-        
-        if (trackingResponse.getSignedBy() != null) {
-            shipment.setSignedBy(trackingResponse.getSignedBy());
-        }
-
-        shipmentRepository.save(shipment);
-
-        // Update tracking events
-        List<TrackingEventDto> newEvents = trackingResponse.getTrackingHistory();
-        if (newEvents != null) {
-            for (TrackingEventDto eventDto : newEvents) {
-                // Check if event already exists
-                Optional<TrackingEvent> existingEvent = trackingEventRepository
-                        .findByShipmentAndEventId(shipment, eventDto.getEventId());
-                        
-                if (existingEvent.isEmpty()) {
-                    // Create new tracking event
-                    TrackingEvent trackingEvent = TrackingEvent.builder()
-                            .shipment(shipment)
-                            .eventId(eventDto.getEventId())
-                            .status(eventDto.getStatus())
-                            .statusDescription(eventDto.getStatusDescription())
-                            .eventDescription(eventDto.getEventDescription())
-                            .eventTime(eventDto.getEventTime())
-                            .eventType(eventDto.getEventType())
-                            .eventCode(eventDto.getEventCode())
-                            .location(eventDto.getLocation())
-                            .city(eventDto.getCity())
-                            .state(eventDto.getState())
-                            .country(eventDto.getCountry())
-                            .postalCode(eventDto.getPostalCode())
-                            .facilityName(eventDto.getFacilityName())
-                            .reasonCode(eventDto.getReasonCode())
-                            .reasonDescription(eventDto.getReasonDescription())
-                            .nextAction(eventDto.getNextAction())
-                            .signedBy(eventDto.getSignedBy())
-                            .isDeliveryAttempt(eventDto.getIsDeliveryAttempt())
-                            .isException(eventDto.getIsException())
-                            .isFinalDelivery(eventDto.isTerminalEvent())
-                            .processedAt(LocalDateTime.now())
-                            .notificationSent(false)
-                            .build();
-
-                    trackingEventRepository.save(trackingEvent);
-                }
-            }
-        }
-    }
-
     /**
      * Calculate total weight from packages
      */
@@ -473,4 +443,63 @@ public class ShippingService {
                 .map(pkg -> pkg.getDescription() != null ? pkg.getDescription() : "Package")
                 .collect(Collectors.joining(", "));
     }
-}
\ No newline at end of file
+
+    private AddressDto buildStoreAddress(Store store) {
+        return AddressDto.builder()
+                .firstName(store.getOwner().getFirstName())
+                .lastName(store.getOwner().getLastName())
+                .company(store.getName())
+                .addressLine1(store.getAddressLine1())
+                .addressLine2(store.getAddressLine2())
+                .city(store.getCity())
+                .state(store.getStateProvince())
+                .postalCode(store.getPostalCode())
+                .country(store.getCountry())
+                .phone(store.getPhone())
+                .email(store.getEmail())
+                .build();
+    }
+
+    private AddressDto buildRecipientAddress(Order order) {
+        return AddressDto.builder()
+                .firstName(order.getShippingFirstName())
+                .lastName(order.getShippingLastName())
+                .addressLine1(order.getShippingAddressLine1())
+                .city(order.getShippingCity())
+                .postalCode(order.getShippingPostalCode())
+                .country(order.getShippingCountry())
+                .phone(order.getCustomerPhone())
+                .email(order.getCustomerEmail())
+                .build();
+    }
+
+    /**
+     * All items of an order in one box, sized to its largest item
+     */
+    private PackageDto buildOrderPackage(Order order) {
+        BigDecimal weight = BigDecimal.ZERO;
+        BigDecimal length = DEFAULT_PACKAGE_SIDE_CM;
+        BigDecimal width = DEFAULT_PACKAGE_SIDE_CM;
+        BigDecimal height = DEFAULT_PACKAGE_SIDE_CM;
+        for (OrderItem item : order.getOrderItems()) {
+            Product product = item.getProduct();
+            BigDecimal itemWeight = product.getWeight() != null ? product.getWeight() : DEFAULT_ITEM_WEIGHT_KG;
+            weight = weight.add(itemWeight.multiply(BigDecimal.valueOf(item.getQuantity())));
+            length = length.max(orDefault(product.getDimensionsLength()));
+            width = width.max(orDefault(product.getDimensionsWidth()));
+            height = height.max(orDefault(product.getDimensionsHeight()));
+        }
+        return PackageDto.builder()
+                .weight(weight.max(DEFAULT_ITEM_WEIGHT_KG))
+                .length(length)
+                .width(width)
+                .height(height)
+                .packageType("Box")
+                .description("Order " + order.getOrderNumber())
+                .build();
+    }
+
+    private static BigDecimal orDefault(BigDecimal dimension) {
+        return dimension != null ? dimension : BigDecimal.ZERO;
+    }
+}
@@ -9,6 +9,7 @@ import com.ocean.shopping.repository.ShipmentRepository;
 import com.ocean.shopping.repository.TrackingEventRepository;
 import com.ocean.shopping.service.logistics.CarrierException;
 import com.ocean.shopping.service.logistics.CarrierManager;
+import com.ocean.shopping.service.logistics.TrackingEventStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
@@ -17,8 +18,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -34,6 +40,7 @@ public class TrackingService {
     private final CarrierManager carrierManager;
     private final ShipmentRepository shipmentRepository;
     private final TrackingEventRepository trackingEventRepository;
+    private final TrackingEventStore trackingEventStore;
 
     /**
      * Get tracking information for a shipment
@@ -123,7 +130,7 @@ public class TrackingService {
             TrackingResponse trackingResponse = carrierManager.trackShipment(trackingNumber, shipment.getCarrier());
             
             // Update shipment and events
-            updateShipmentFromTracking(shipment, trackingResponse);
+            updateShipmentsFromTracking(List.of(shipment), Map.of(shipment.getTrackingNumber(), trackingResponse));
             
             log.debug("Successfully updated tracking info for: {}", trackingNumber);
             return CompletableFuture.completedFuture(true);
@@ -138,60 +145,38 @@ public class TrackingService {
     }
 
     /**
-     * Scheduled task to update all active shipments
+     * Apply a carrier tracking response to its shipment, in a transaction of its own
+     * @return false if the shipment is not known
      */
-    @Scheduled(fixedDelayString = "${tracking.update.interval:3600000}") // Default: 1 hour
     @Transactional
-    public void updateActiveShipments() {
-        log.info("Starting scheduled tracking update for active shipments");
-
-        List<ShipmentStatus> activeStatuses = List.of(
-            ShipmentStatus.PENDING,
-            ShipmentStatus.PICKED_UP,
-            ShipmentStatus.IN_TRANSIT,
-            ShipmentStatus.OUT_FOR_DELIVERY,
-            ShipmentStatus.DELAYED,
-            ShipmentStatus.EXCEPTION
-        );
-
-        // Find shipments that haven't been updated in the last 2 hours
-        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(2);
-        List<Shipment> shipmentsToUpdate = shipmentRepository
-                .findShipmentsNeedingUpdate(activeStatuses, cutoffTime);
-
-        log.info("Found {} shipments needing tracking updates", shipmentsToUpdate.size());
+    public boolean applyTrackingUpdate(TrackingResponse trackingResponse) {
+        return !applyTrackingUpdates(List.of(trackingResponse)).isEmpty();
+    }
 
-        if (shipmentsToUpdate.isEmpty()) {
-            return;
+    /**
+     * Apply carrier tracking responses to their shipments in one transaction, with one
+     * lookup of the shipments and one of their stored events; only new events are inserted
+     * and shipments the responses do not change are just marked as polled
+     * @return Tracking numbers of the shipments updated
+     */
+    @Transactional
+    public Set<String> applyTrackingUpdates(List<TrackingResponse> trackingResponses) {
+        Map<String, TrackingResponse> responses = new LinkedHashMap<>();
+        trackingResponses.forEach(response -> responses.put(response.getTrackingNumber(), response));
+        if (responses.isEmpty()) {
+            return Set.of();
         }
 
-        // Update in batches to avoid overwhelming carriers
-        List<String> trackingNumbers = shipmentsToUpdate.stream()
-                .map(Shipment::getTrackingNumber)
-                .collect(Collectors.toList());
-
-        // Process in batches of 10
-        int batchSize = 10;
-        for (int i = 0; i < trackingNumbers.size(); i += batchSize) {
-            int endIndex = Math.min(i + batchSize, trackingNumbers.size());
-            List<String> batch = trackingNumbers.subList(i, endIndex);
-            
-            log.debug("Processing tracking update batch: {} to {}", i, endIndex - 1);
-            
-            // Update batch asynchronously
-            batch.forEach(this::updateTrackingInfoAsync);
-            
-            // Small delay between batches to be respectful to carrier APIs
-            try {
-                Thread.sleep(1000); // 1 second delay
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("Tracking update interrupted");
-                break;
-            }
-        }
+        List<Shipment> shipments = shipmentRepository.findByTrackingNumbers(new ArrayList<>(responses.keySet()));
+        updateShipmentsFromTracking(shipments, responses);
 
-        log.info("Completed scheduled tracking update");
+        Set<String> updated = shipments.stream()
+                .map(Shipment::getTrackingNumber)
+                .collect(Collectors.toSet());
+        responses.keySet().stream()
+                .filter(trackingNumber -> !updated.contains(trackingNumber))
+                .forEach(trackingNumber -> log.warn("Shipment not found for tracking number: {}", trackingNumber));
+        return updated;
     }
 
     /**
@@ -297,9 +282,48 @@ public class TrackingService {
     }
 
     /**
-     * Update shipment from tracking response
+     * Update shipments from their tracking responses. Changed shipments are saved, the
+     * others only get their poll time, and events are diffed against the stored ones.
      */
-    private void updateShipmentFromTracking(Shipment shipment, TrackingResponse trackingResponse) {
+    private void updateShipmentsFromTracking(List<Shipment> shipments, Map<String, TrackingResponse> responses) {
+        LocalDateTime now = LocalDateTime.now();
+        List<TrackingEventStore.ShipmentEvent> events = new ArrayList<>();
+        List<UUID> unchanged = new ArrayList<>();
+
+        for (Shipment shipment : shipments) {
+            TrackingResponse trackingResponse = responses.get(shipment.getTrackingNumber());
+            if (applyShipmentChanges(shipment, trackingResponse)) {
+                shipment.setLastTrackingUpdate(now);
+                shipmentRepository.save(shipment);
+                log.debug("Updated shipment {} from tracking", shipment.getTrackingNumber());
+            } else {
+                unchanged.add(shipment.getId());
+            }
+
+            if (trackingResponse.getTrackingHistory() != null) {
+                // Keyed like webhook events, so a scan seen both ways is stored once
+                for (TrackingEventDto event : trackingResponse.getTrackingHistory()) {
+                    event.setEventId(TrackingEventStore.eventId(shipment.getCarrier(), shipment.getTrackingNumber(), event));
+                    events.add(new TrackingEventStore.ShipmentEvent(shipment.getId(), event));
+                }
+            }
+        }
+
+        if (!unchanged.isEmpty()) {
+            shipmentRepository.markTrackingPolled(unchanged, now);
+        }
+
+        List<TrackingEventStore.ShipmentEvent> inserted = trackingEventStore.insertNewEvents(events);
+        if (!inserted.isEmpty()) {
+            log.debug("Created {} new tracking events for {} shipments", inserted.size(), shipments.size());
+        }
+    }
+
+    /**
+     * Copy the shipment fields a tracking response changes
+     * @return true if any field changed
+     */
+    private boolean applyShipmentChanges(Shipment shipment, TrackingResponse trackingResponse) {
         boolean updated = false;
 
         // Update status if changed
@@ -336,55 +360,7 @@ public class TrackingService {
             updated = true;
         }
 
-        // Always update last tracking update time
-        shipment.setLastTrackingUpdate(LocalDateTime.now());
-        
-        if (updated) {
-            shipmentRepository.save(shipment);
-            log.debug("Updated shipment {} from tracking", shipment.getTrackingNumber());
-        }
-
-        // Process new tracking events
-        if (trackingResponse.getTrackingHistory() != null) {
-            for (TrackingEventDto eventDto : trackingResponse.getTrackingHistory()) {
-                // Check if event already exists
-                Optional<TrackingEvent> existingEvent = trackingEventRepository
-                        .findByShipmentAndEventId(shipment, eventDto.getEventId());
-
-                if (existingEvent.isEmpty()) {
-                    // Create new tracking event
-                    TrackingEvent trackingEvent = TrackingEvent.builder()
-                            .shipment(shipment)
-                            .eventId(eventDto.getEventId())
-                            .status(eventDto.getStatus())
-                            .statusDescription(eventDto.getStatusDescription())
-                            .eventDescription(eventDto.getEventDescription())
-                            .eventTime(eventDto.getEventTime())
-                            .eventType(eventDto.getEventType())
-                            .eventCode(eventDto.getEventCode())
-                            .location(eventDto.getLocation())
-                            .city(eventDto.getCity())
-                            .state(eventDto.getState())
-                            .country(eventDto.getCountry())
-                            .postalCode(eventDto.getPostalCode())
-                            .facilityName(eventDto.getFacilityName())
-                            .reasonCode(eventDto.getReasonCode())
-                            .reasonDescription(eventDto.getReasonDescription())
-                            .nextAction(eventDto.getNextAction())
-                            .signedBy(eventDto.getSignedBy())
-                            .isDeliveryAttempt(eventDto.getIsDeliveryAttempt())
-                            .isException(eventDto.getIsException())
-                            .isFinalDelivery(eventDto.isTerminalEvent())
-                            .processedAt(LocalDateTime.now())
-                            .notificationSent(false)
-                            .build();
-
-                    trackingEventRepository.save(trackingEvent);
-                    log.debug("Created new tracking event for shipment {}: {}", 
-                             shipment.getTrackingNumber(), eventDto.getStatus());
-                }
-            }
-        }
+        return updated;
     }
 
     /**
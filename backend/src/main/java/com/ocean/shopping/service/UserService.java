@@ -8,6 +8,7 @@ import com.ocean.shopping.model.entity.User;
 import com.ocean.shopping.model.entity.enums.UserRole;
 import com.ocean.shopping.model.entity.enums.UserStatus;
 import com.ocean.shopping.repository.UserRepository;
+import com.ocean.shopping.security.JwtAuthenticationCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -33,6 +34,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final JwtAuthenticationCache authenticationCache;
 
     /**
      * Get user profile by ID
@@ -75,6 +77,7 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        authenticationCache.invalidatePrincipal(userId);
         log.info("Successfully updated profile for user: {}", updatedUser.getEmail());
 
         return UserResponse.fromEntity(updatedUser);
@@ -119,6 +122,7 @@ public class UserService {
 
         user.setStatus(UserStatus.INACTIVE);
         userRepository.save(user);
+        authenticationCache.invalidatePrincipal(userId);
 
         log.info("Successfully deactivated account for user: {}", user.getEmail());
     }
@@ -177,6 +181,7 @@ public class UserService {
         UserRole oldRole = user.getRole();
         user.setRole(newRole);
         User updatedUser = userRepository.save(user);
+        authenticationCache.invalidatePrincipal(userId);
 
         log.info("Successfully updated user {} role from {} to {}", 
                 updatedUser.getEmail(), oldRole, newRole);
@@ -198,6 +203,7 @@ public class UserService {
         UserStatus oldStatus = user.getStatus();
         user.setStatus(newStatus);
         User updatedUser = userRepository.save(user);
+        authenticationCache.invalidatePrincipal(userId);
 
         log.info("Successfully updated user {} status from {} to {}", 
                 updatedUser.getEmail(), oldStatus, newStatus);
@@ -217,6 +223,7 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
 
         userRepository.delete(user);
+        authenticationCache.invalidatePrincipal(userId);
         log.info("Successfully deleted user: {}", user.getEmail());
     }
 
@@ -0,0 +1,140 @@
+package com.ocean.shopping.service.cache;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.util.TreeSet;
+
+/**
+ * Binary {@link RedisSerializer} for values of one declared type.
+ * <p>
+ * Values are encoded as Smile (binary JSON with back-referenced property names)
+ * against the declared type, so no class metadata is stored. Each value starts
+ * with a small header: magic byte, format version, flags and a fingerprint of the
+ * type's properties. Payloads above the compression threshold are LZ4-compressed.
+ * A value written by another format or an older shape of the type reads as null,
+ * which callers treat as a cache miss.
+ */
+public class CompactRedisSerializer<T> implements RedisSerializer<T> {
+
+    private static final byte MAGIC = (byte) 0xB1;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte FLAG_LZ4 = 0x01;
+
+    // magic + version + flags + schema fingerprint
+    private static final int HEADER_SIZE = 7;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final ObjectMapper smileMapper;
+    private final JavaType type;
+    private final int schemaFingerprint;
+    private final int compressionThreshold;
+
+    /**
+     * @param smileMapper Mapper backed by a Smile factory
+     * @param type Declared value type
+     * @param compressionThreshold Encoded size in bytes above which values are compressed; 0 disables compression
+     */
+    public CompactRedisSerializer(ObjectMapper smileMapper, JavaType type, int compressionThreshold) {
+        this.smileMapper = smileMapper;
+        this.type = type;
+        this.schemaFingerprint = fingerprint(smileMapper, type);
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        byte[] payload;
+        try {
+            payload = smileMapper.writerFor(type).writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new SerializationException("Could not write " + type + " as Smile", e);
+        }
+
+        boolean compress = compressionThreshold > 0 && payload.length > compressionThreshold;
+        if (!compress) {
+            return header(HEADER_SIZE + payload.length, (byte) 0).put(payload).array();
+        }
+
+        LZ4Compressor compressor = LZ4.fastCompressor();
+        byte[] compressed = new byte[compressor.maxCompressedLength(payload.length)];
+        int compressedLength = compressor.compress(payload, 0, payload.length, compressed, 0, compressed.length);
+
+        return header(HEADER_SIZE + 4 + compressedLength, FLAG_LZ4)
+                .putInt(payload.length)
+                .put(compressed, 0, compressedLength)
+                .array();
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length < HEADER_SIZE || bytes[0] != MAGIC || bytes[1] != FORMAT_VERSION) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(2);
+        byte flags = buffer.get();
+        if (buffer.getInt() != schemaFingerprint) {
+            return null;
+        }
+
+        try {
+            if ((flags & FLAG_LZ4) == 0) {
+                return smileMapper.readValue(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, type);
+            }
+
+            int length = buffer.getInt();
+            byte[] payload = new byte[length];
+            LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+            decompressor.decompress(bytes, HEADER_SIZE + 4, payload, 0, length);
+            return smileMapper.readValue(payload, type);
+        } catch (Exception e) {
+            throw new SerializationException("Could not read " + type + " from Smile", e);
+        }
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return type.getRawClass();
+    }
+
+    private ByteBuffer header(int size, byte flags) {
+        return ByteBuffer.allocate(size)
+                .put(MAGIC)
+                .put(FORMAT_VERSION)
+                .put(flags)
+                .putInt(schemaFingerprint);
+    }
+
+    /**
+     * Fingerprint of the serialized property names of the type (or of its element
+     * type for collections), so entries written before a shape change are ignored
+     */
+    private static int fingerprint(ObjectMapper mapper, JavaType type) {
+        JavaType beanType = type.isContainerType() ? type.getContentType() : type;
+
+        TreeSet<String> properties = new TreeSet<>();
+        BeanDescription description = mapper.getSerializationConfig().introspect(beanType);
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            properties.add(property.getName() + ":" + property.getPrimaryType().toCanonical());
+        }
+        return (type.toCanonical() + properties).hashCode();
+    }
+}
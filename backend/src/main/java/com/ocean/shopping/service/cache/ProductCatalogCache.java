@@ -0,0 +1,301 @@
+package com.ocean.shopping.service.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ocean.shopping.dto.product.ProductResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache for product catalog reads.
+ * <p>
+ * L1 is a bounded in-process Caffeine cache, L2 is a shared Redis copy of the
+ * serialized {@link ProductResponse}. Product writes evict L2 and publish an
+ * invalidation on Redis pub/sub after commit so every node drops its L1 entry.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCatalogCache {
+
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final RedisValueSerializers valueSerializers;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.cache.product-ttl:120}")
+    private long productTtlSeconds;
+
+    @Value("${ocean.shopping.cache.product-l1-max-size:10000}")
+    private long l1MaxSize;
+
+    @Value("${ocean.shopping.cache.product-l1-ttl:30}")
+    private long l1TtlSeconds;
+
+    // Redis key layout
+    private static final String PRODUCT_PREFIX = "catalog:product:";
+    private static final String SLUG_PREFIX = "catalog:slug:";
+    private static final String LIST_PREFIX = "catalog:list:";
+    private static final String LIST_INDEX_KEY = "catalog:lists";
+    public static final String INVALIDATION_CHANNEL = "catalog:invalidate";
+
+    // Cache names for value serialization settings
+    private static final String PRODUCT_CACHE = "catalog-product";
+    private static final String LIST_CACHE = "catalog-list";
+
+    private Cache<UUID, ProductResponse> productL1;
+    private Cache<String, UUID> slugL1;
+    private Cache<String, List<ProductResponse>> listL1;
+
+    private Counter l2HitCounter;
+    private Counter l2MissCounter;
+    private Counter invalidationCounter;
+
+    private RedisTemplate<String, ProductResponse> productTemplate;
+    private RedisTemplate<String, List<ProductResponse>> listTemplate;
+
+    @PostConstruct
+    public void initialize() {
+        productL1 = buildL1();
+        slugL1 = buildL1();
+        listL1 = buildL1();
+
+        // Hit, miss, eviction and size metrics for every L1 cache
+        CaffeineCacheMetrics.monitor(meterRegistry, productL1, "product.catalog.l1.product");
+        CaffeineCacheMetrics.monitor(meterRegistry, slugL1, "product.catalog.l1.slug");
+        CaffeineCacheMetrics.monitor(meterRegistry, listL1, "product.catalog.l1.list");
+
+        l2HitCounter = Counter.builder("product.catalog.l2.requests")
+                .description("Product catalog Redis cache lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        l2MissCounter = Counter.builder("product.catalog.l2.requests")
+                .description("Product catalog Redis cache lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        invalidationCounter = Counter.builder("product.catalog.invalidations")
+                .description("Product catalog invalidations received from the cluster")
+                .register(meterRegistry);
+
+        JavaType productType = objectMapper.getTypeFactory().constructType(ProductResponse.class);
+        JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, ProductResponse.class);
+        productTemplate = valueSerializers.templateFor(PRODUCT_CACHE, productType);
+        listTemplate = valueSerializers.templateFor(LIST_CACHE, listType);
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onInvalidation(message),
+                new ChannelTopic(INVALIDATION_CHANNEL));
+
+        log.info("Product catalog cache initialized - L1 max size: {}, L1 TTL: {}s, L2 TTL: {}s",
+                l1MaxSize, l1TtlSeconds, productTtlSeconds);
+    }
+
+    /**
+     * Get a product detail response, loading it on a miss in both tiers.
+     * Null results are not cached.
+     */
+    public ProductResponse getProduct(UUID productId, Supplier<ProductResponse> loader) {
+        ProductResponse cached = productL1.getIfPresent(productId);
+        if (cached != null) {
+            return cached;
+        }
+
+        String key = PRODUCT_PREFIX + productId;
+        ProductResponse response = readL2(productTemplate, key);
+        if (response == null) {
+            response = loader.get();
+            if (response == null) {
+                return null;
+            }
+            writeL2(productTemplate, key, response);
+        }
+
+        productL1.put(productId, response);
+        return response;
+    }
+
+    /**
+     * Get a product detail response by store and slug. The slug resolves to a product ID,
+     * so slug lookups share cache entries (and invalidation) with ID lookups.
+     */
+    public ProductResponse getProductBySlug(UUID storeId, String slug, Supplier<ProductResponse> loader) {
+        String slugKey = storeId + ":" + slug;
+
+        UUID productId = slugL1.getIfPresent(slugKey);
+        if (productId == null) {
+            String cachedId = readL2Raw(SLUG_PREFIX + slugKey);
+            productId = cachedId != null ? UUID.fromString(cachedId) : null;
+        }
+
+        if (productId != null) {
+            ProductResponse response = getProduct(productId, () -> null);
+            // A slug may have moved to another product since it was cached
+            if (response != null && slug.equals(response.getSlug())
+                    && response.getStore() != null && storeId.equals(response.getStore().getId())) {
+                slugL1.put(slugKey, productId);
+                return response;
+            }
+        }
+
+        ProductResponse response = loader.get();
+        if (response == null) {
+            return null;
+        }
+
+        writeL2(productTemplate, PRODUCT_PREFIX + response.getId(), response);
+        writeL2Raw(SLUG_PREFIX + slugKey, response.getId().toString());
+        productL1.put(response.getId(), response);
+        slugL1.put(slugKey, response.getId());
+        return response;
+    }
+
+    /**
+     * Get a cached product list (featured, related, ...). Lists are dropped on any product write.
+     */
+    public List<ProductResponse> getList(String listKey, Supplier<List<ProductResponse>> loader) {
+        List<ProductResponse> cached = listL1.getIfPresent(listKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        String key = LIST_PREFIX + listKey;
+        List<ProductResponse> list = readL2(listTemplate, key);
+        if (list == null) {
+            list = loader.get();
+            writeL2(listTemplate, key, list);
+            try {
+                stringRedisTemplate.opsForSet().add(LIST_INDEX_KEY, key);
+            } catch (Exception e) {
+                log.warn("Failed to index cached product list {}: {}", key, e.getMessage());
+            }
+        }
+
+        listL1.put(listKey, list);
+        return list;
+    }
+
+    /**
+     * Invalidate a product on every node. When called inside a transaction the
+     * invalidation is deferred until commit, so readers cannot re-cache stale rows.
+     */
+    public void invalidateProduct(UUID productId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishInvalidation(productId);
+                }
+            });
+        } else {
+            publishInvalidation(productId);
+        }
+    }
+
+    // Private helper methods
+
+    private void publishInvalidation(UUID productId) {
+        // Evict locally right away; other nodes follow via pub/sub
+        evictLocal(productId.toString());
+
+        try {
+            stringRedisTemplate.delete(PRODUCT_PREFIX + productId);
+
+            Set<String> listKeys = stringRedisTemplate.opsForSet().members(LIST_INDEX_KEY);
+            if (listKeys != null && !listKeys.isEmpty()) {
+                stringRedisTemplate.delete(listKeys);
+                stringRedisTemplate.opsForSet().remove(LIST_INDEX_KEY, listKeys.toArray());
+            }
+
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, productId.toString());
+        } catch (Exception e) {
+            log.error("Failed to publish catalog invalidation for product {}", productId, e);
+        }
+    }
+
+    private void onInvalidation(Message message) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        invalidationCounter.increment();
+        evictLocal(body);
+        log.debug("Catalog invalidation received for: {}", body);
+    }
+
+    private void evictLocal(String productId) {
+        try {
+            productL1.invalidate(UUID.fromString(productId));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed catalog invalidation: {}", productId);
+        }
+        listL1.invalidateAll();
+    }
+
+    private <K, V> Cache<K, V> buildL1() {
+        return Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(Duration.ofSeconds(l1TtlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    private <T> T readL2(RedisTemplate<String, T> template, String key) {
+        try {
+            // Entries in another format or an outdated shape read as null
+            T value = template.opsForValue().get(key);
+            (value != null ? l2HitCounter : l2MissCounter).increment();
+            return value;
+        } catch (Exception e) {
+            log.warn("Discarding unreadable catalog cache entry {}: {}", key, e.getMessage());
+            l2MissCounter.increment();
+            return null;
+        }
+    }
+
+    private String readL2Raw(String key) {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(key);
+            (value != null ? l2HitCounter : l2MissCounter).increment();
+            return value;
+        } catch (Exception e) {
+            log.warn("Catalog cache read failed for {}: {}", key, e.getMessage());
+            l2MissCounter.increment();
+            return null;
+        }
+    }
+
+    private <T> void writeL2(RedisTemplate<String, T> template, String key, T value) {
+        try {
+            template.opsForValue().set(key, value, Duration.ofSeconds(productTtlSeconds));
+        } catch (Exception e) {
+            log.warn("Catalog cache write failed for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void writeL2Raw(String key, String value) {
+        try {
+            stringRedisTemplate.opsForValue().set(key, value, Duration.ofSeconds(productTtlSeconds));
+        } catch (Exception e) {
+            log.warn("Catalog cache write failed for {}: {}", key, e.getMessage());
+        }
+    }
+}
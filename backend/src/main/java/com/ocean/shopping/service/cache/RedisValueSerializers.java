@@ -0,0 +1,64 @@
+package com.ocean.shopping.service.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.ocean.shopping.config.CacheSerializationProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Service;
+
+/**
+ * Builds value serializers and templates for Redis caches, using the format
+ * configured for each cache under {@code ocean.shopping.cache.serialization}.
+ */
+@Service
+@EnableConfigurationProperties(CacheSerializationProperties.class)
+@Slf4j
+public class RedisValueSerializers {
+
+    private final RedisConnectionFactory connectionFactory;
+    private final CacheSerializationProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper smileMapper;
+
+    public RedisValueSerializers(RedisConnectionFactory connectionFactory,
+                                 CacheSerializationProperties properties,
+                                 ObjectMapper objectMapper) {
+        this.connectionFactory = connectionFactory;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        // Same modules and features as the application mapper, binary encoding
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+    }
+
+    /**
+     * Value serializer for a cache holding values of the given type
+     */
+    public <T> RedisSerializer<T> forCache(String cacheName, JavaType type) {
+        CacheSerializationProperties.Format format = properties.formatFor(cacheName);
+        log.debug("Using {} serialization for cache {}", format, cacheName);
+
+        return switch (format) {
+            case JSON -> new Jackson2JsonRedisSerializer<>(objectMapper, type);
+            case COMPACT -> new CompactRedisSerializer<>(smileMapper, type, properties.getCompressionThresholdBytes());
+        };
+    }
+
+    /**
+     * Template with string keys and values serialized for the given cache
+     */
+    public <T> RedisTemplate<String, T> templateFor(String cacheName, JavaType type) {
+        RedisTemplate<String, T> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(StringRedisSerializer.UTF_8);
+        template.setValueSerializer(forCache(cacheName, type));
+        template.afterPropertiesSet();
+        return template;
+    }
+}
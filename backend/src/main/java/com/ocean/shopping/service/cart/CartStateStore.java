@@ -0,0 +1,937 @@
+package com.ocean.shopping.service.cart;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocean.shopping.exception.ResourceNotFoundException;
+import com.ocean.shopping.model.entity.Cart;
+import com.ocean.shopping.model.entity.CartItem;
+import com.ocean.shopping.model.entity.Product;
+import com.ocean.shopping.repository.CartRepository;
+import com.ocean.shopping.repository.ProductRepository;
+import com.ocean.shopping.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Redis-backed store for active carts with write-behind persistence.
+ * <p>
+ * Each active cart is one Redis hash: header fields ({@code h:*}) plus compact
+ * per-line fields - a descriptor ({@code l:<lineId>}), the quantity
+ * ({@code q:<lineId>}) and the saved-for-later flag ({@code s:<lineId>}) - and a
+ * merge index ({@code m:<product|variant|options>}) pointing at the line that
+ * repeated adds increment. Every mutation is a single script that also bumps the
+ * cart version and marks the cart dirty, so cart clicks no longer write to the
+ * database. Dirty carts are flushed to {@code carts} and {@code cart_items} in
+ * JDBC batches on an interval, and synchronously at checkout via {@link #flush(UUID)}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CartStateStore {
+
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    private final CartRepository cartRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.cart.state-ttl-days:30}")
+    private long stateTtlDays;
+
+    @Value("${ocean.shopping.cart.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    // Redis key layout
+    private static final String STATE_PREFIX = "cart:state:";
+    private static final String USER_OWNER_PREFIX = "cart:owner:user:";
+    private static final String SESSION_OWNER_PREFIX = "cart:owner:session:";
+    private static final String DIRTY_KEY = "cart:dirty";
+
+    // Hash fields
+    private static final String USER_FIELD = "h:user";
+    private static final String SESSION_FIELD = "h:session";
+    private static final String COUPON_FIELD = "h:coupon";
+    private static final String COUPON_DISCOUNT_FIELD = "h:couponDiscount";
+    private static final String EXPIRES_FIELD = "h:expires";
+    private static final String CREATED_FIELD = "h:created";
+    private static final String UPDATED_FIELD = "h:updated";
+    private static final String VERSION_FIELD = "h:version";
+    private static final String LINE_PREFIX = "l:";
+    private static final String QUANTITY_PREFIX = "q:";
+    private static final String SAVED_PREFIX = "s:";
+    private static final String MERGE_PREFIX = "m:";
+
+    private static final long NOT_LOADED = -2;
+    private static final long MISSING_LINE = -1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<TreeMap<String, String>> OPTIONS_TYPE = new TypeReference<>() {};
+
+    /*
+     * Load a cart into Redis unless it is already there.
+     * KEYS[1] = cart hash
+     * ARGV[1] = ttl seconds, ARGV[2..] = (field, value) pairs
+     */
+    private static final RedisScript<Long> HYDRATE_SCRIPT = RedisScript.of(
+        "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+        "for i=2,#ARGV,2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+        "redis.call('expire', KEYS[1], ARGV[1]) " +
+        "return 1", Long.class);
+
+    /*
+     * Apply field changes to a cart, bump its version and mark it dirty.
+     * KEYS[1] = cart hash, KEYS[2] = dirty zset
+     * ARGV[1] = cart id, ARGV[2] = now (ms), ARGV[3] = ttl seconds, ARGV[4] = field that must exist or ''
+     * ARGV[5..] = (field, value) pairs; an empty value deletes the field
+     * Returns the new version, -1 if the required field is missing, -2 if the cart is not loaded.
+     */
+    private static final RedisScript<Long> MUTATE_SCRIPT = RedisScript.of(
+        "if redis.call('exists', KEYS[1]) == 0 then return -2 end " +
+        "if ARGV[4] ~= '' and redis.call('hexists', KEYS[1], ARGV[4]) == 0 then return -1 end " +
+        "for i=5,#ARGV,2 do " +
+        "    if ARGV[i + 1] == '' then redis.call('hdel', KEYS[1], ARGV[i]) " +
+        "    else redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+        "end " +
+        "redis.call('hset', KEYS[1], '" + UPDATED_FIELD + "', ARGV[2]) " +
+        "local version = redis.call('hincrby', KEYS[1], '" + VERSION_FIELD + "', 1) " +
+        "redis.call('expire', KEYS[1], ARGV[3]) " +
+        "redis.call('zadd', KEYS[2], 'NX', ARGV[2], ARGV[1]) " +
+        "return version", Long.class);
+
+    /*
+     * Add units of a product to a cart, incrementing the matching line if there is one.
+     * KEYS[1] = cart hash, KEYS[2] = dirty zset
+     * ARGV[1] = cart id, ARGV[2] = now (ms), ARGV[3] = ttl seconds,
+     * ARGV[4] = merge field, ARGV[5] = new line id, ARGV[6] = line descriptor, ARGV[7] = quantity
+     * Returns the line id, or nil if the cart is not loaded.
+     */
+    private static final RedisScript<String> ADD_LINE_SCRIPT = RedisScript.of(
+        "if redis.call('exists', KEYS[1]) == 0 then return false end " +
+        "local lineId = redis.call('hget', KEYS[1], ARGV[4]) " +
+        "if lineId and redis.call('hexists', KEYS[1], '" + QUANTITY_PREFIX + "' .. lineId) == 1 then " +
+        "    redis.call('hincrby', KEYS[1], '" + QUANTITY_PREFIX + "' .. lineId, ARGV[7]) " +
+        "else " +
+        "    lineId = ARGV[5] " +
+        "    redis.call('hset', KEYS[1], ARGV[4], lineId, " +
+        "        '" + LINE_PREFIX + "' .. lineId, ARGV[6], " +
+        "        '" + QUANTITY_PREFIX + "' .. lineId, ARGV[7], " +
+        "        '" + SAVED_PREFIX + "' .. lineId, '0') " +
+        "end " +
+        "redis.call('hset', KEYS[1], '" + UPDATED_FIELD + "', ARGV[2]) " +
+        "redis.call('hincrby', KEYS[1], '" + VERSION_FIELD + "', 1) " +
+        "redis.call('expire', KEYS[1], ARGV[3]) " +
+        "redis.call('zadd', KEYS[2], 'NX', ARGV[2], ARGV[1]) " +
+        "return lineId", String.class);
+
+    /*
+     * Remove every line from a cart, keeping the header.
+     * KEYS[1] = cart hash, KEYS[2] = dirty zset
+     * ARGV[1] = cart id, ARGV[2] = now (ms), ARGV[3] = ttl seconds
+     */
+    private static final RedisScript<Long> CLEAR_SCRIPT = RedisScript.of(
+        "if redis.call('exists', KEYS[1]) == 0 then return -2 end " +
+        "for _, field in ipairs(redis.call('hkeys', KEYS[1])) do " +
+        "    if string.sub(field, 1, 2) ~= 'h:' then redis.call('hdel', KEYS[1], field) end " +
+        "end " +
+        "redis.call('hset', KEYS[1], '" + UPDATED_FIELD + "', ARGV[2]) " +
+        "local version = redis.call('hincrby', KEYS[1], '" + VERSION_FIELD + "', 1) " +
+        "redis.call('expire', KEYS[1], ARGV[3]) " +
+        "redis.call('zadd', KEYS[2], 'NX', ARGV[2], ARGV[1]) " +
+        "return version", Long.class);
+
+    /*
+     * Claim a dirty cart for flushing and snapshot it.
+     * KEYS[1] = dirty zset, KEYS[2] = cart hash
+     * ARGV[1] = cart id
+     * Returns the cart hash, or nil if another flusher claimed it first.
+     */
+    private static final RedisScript<List<String>> CLAIM_SCRIPT = stringListScript(
+        "if redis.call('zrem', KEYS[1], ARGV[1]) == 0 then return false end " +
+        "return redis.call('hgetall', KEYS[2])");
+
+    /*
+     * Drop a cart from Redis unless it changed since a cutoff or has unflushed changes.
+     * KEYS[1] = cart hash, KEYS[2] = dirty zset
+     * ARGV[1] = cart id, ARGV[2] = cutoff (ms)
+     * Returns {'1', user, session} if dropped, {'1'} if not loaded, {'0'} if still in use.
+     */
+    private static final RedisScript<List<String>> EVICT_IDLE_SCRIPT = stringListScript(
+        "if redis.call('exists', KEYS[1]) == 0 then return {'1'} end " +
+        "local header = redis.call('hmget', KEYS[1], '" + UPDATED_FIELD + "', '" + USER_FIELD + "', '" + SESSION_FIELD + "') " +
+        "if tonumber(header[1] or '0') >= tonumber(ARGV[2]) or redis.call('zscore', KEYS[2], ARGV[1]) then return {'0'} end " +
+        "redis.call('del', KEYS[1]) " +
+        "return {'1', header[2] or '', header[3] or ''}");
+
+    private static final String UPDATE_CART_SQL =
+        "UPDATE carts SET subtotal = ?, applied_coupon_code = ?, coupon_discount = ?, " +
+        "total = GREATEST(? + tax_amount + shipping_fee - discount_amount - ?, 0), " +
+        "state_version = ?, updated_at = ? " +
+        "WHERE id = ? AND status = 'ACTIVE' AND state_version < ?";
+
+    private static final String DELETE_REMOVED_OPTIONS_SQL =
+        "DELETE FROM cart_item_options WHERE cart_item_id IN " +
+        "(SELECT id FROM cart_items WHERE cart_id = ? AND NOT (id = ANY (?)))";
+
+    private static final String DELETE_REMOVED_ITEMS_SQL =
+        "DELETE FROM cart_items WHERE cart_id = ? AND NOT (id = ANY (?))";
+
+    private static final String UPSERT_ITEM_SQL =
+        "INSERT INTO cart_items (id, cart_id, product_id, product_variant_id, quantity, unit_price, item_total, " +
+        "original_unit_price, discount_amount, discount_percentage, is_gift, saved_for_later, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, 0, FALSE, ?, ?, ?) " +
+        "ON CONFLICT (id) DO UPDATE SET quantity = EXCLUDED.quantity, unit_price = EXCLUDED.unit_price, " +
+        "item_total = EXCLUDED.item_total, original_unit_price = EXCLUDED.original_unit_price, " +
+        "saved_for_later = EXCLUDED.saved_for_later, updated_at = EXCLUDED.updated_at";
+
+    // Line options never change after the line is created
+    private static final String INSERT_OPTION_SQL =
+        "INSERT INTO cart_item_options (cart_item_id, option_name, option_value) " +
+        "SELECT ?, ?, ? WHERE NOT EXISTS " +
+        "(SELECT 1 FROM cart_item_options WHERE cart_item_id = ? AND option_name = ?)";
+
+    private TransactionTemplate flushTransaction;
+    private Timer flushTimer;
+    private Counter flushedCarts;
+    private Counter flushFailures;
+
+    @PostConstruct
+    public void initialize() {
+        // Flushes commit on their own so a failed checkout cannot roll back a claimed snapshot
+        flushTransaction = new TransactionTemplate(transactionManager);
+        flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        flushTimer = Timer.builder("cart.writebehind.flush")
+                .description("Time taken to flush a batch of dirty carts to the database")
+                .register(meterRegistry);
+        flushedCarts = Counter.builder("cart.writebehind.flushed")
+                .description("Cart snapshots written to the database")
+                .register(meterRegistry);
+        flushFailures = Counter.builder("cart.writebehind.failures")
+                .description("Cart flush batches that failed and were re-queued")
+                .register(meterRegistry);
+    }
+
+    /**
+     * ID of the active cart bound to a user, or null if none is loaded
+     */
+    public UUID findUserCartId(UUID userId) {
+        return parseUuid(stringRedisTemplate.opsForValue().get(USER_OWNER_PREFIX + userId));
+    }
+
+    /**
+     * ID of the active cart bound to a guest session, or null if none is loaded
+     */
+    public UUID findSessionCartId(String sessionId) {
+        return parseUuid(stringRedisTemplate.opsForValue().get(SESSION_OWNER_PREFIX + sessionId));
+    }
+
+    /**
+     * Get a cart's state, loading it from the database if it is not in Redis.
+     * Empty if the cart does not exist or is no longer active.
+     */
+    public Optional<CartState> find(UUID cartId) {
+        Map<Object, Object> fields = stringRedisTemplate.opsForHash().entries(STATE_PREFIX + cartId);
+        if (!fields.isEmpty()) {
+            return Optional.of(parse(cartId, fields));
+        }
+
+        return cartRepository.findById(cartId)
+                .filter(cart -> cart.getStatus() == Cart.CartStatus.ACTIVE)
+                .map(this::load);
+    }
+
+    /**
+     * Get a cart's state, failing if the cart is not active
+     */
+    public CartState get(UUID cartId) {
+        return find(cartId).orElseThrow(() -> ResourceNotFoundException.forEntity("Cart", cartId));
+    }
+
+    /**
+     * Load an active cart entity into Redis (unless already loaded), bind it to its
+     * owner and return its state. Must run inside a transaction so the items can be read.
+     */
+    public CartState load(Cart cart) {
+        String key = STATE_PREFIX + cart.getId();
+
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(ttlSeconds()));
+        addField(args, USER_FIELD, cart.getUser() != null ? cart.getUser().getId() : null);
+        addField(args, SESSION_FIELD, cart.getSessionId());
+        addField(args, COUPON_FIELD, cart.getAppliedCouponCode());
+        addField(args, COUPON_DISCOUNT_FIELD, cart.getCouponDiscount() != null ? cart.getCouponDiscount().toPlainString() : null);
+        addField(args, EXPIRES_FIELD, toEpochMilli(cart.getExpiresAt()));
+        addField(args, CREATED_FIELD, toEpochMilli(cart.getCreatedAt()));
+        addField(args, UPDATED_FIELD, toEpochMilli(cart.getUpdatedAt()));
+        addField(args, VERSION_FIELD, cart.getStateVersion() != null ? cart.getStateVersion() : 0L);
+
+        for (CartItem item : cart.getItems()) {
+            CartLine line = CartLine.builder()
+                    .lineId(item.getId())
+                    .productId(item.getProduct().getId())
+                    .variantId(item.getProductVariant() != null ? item.getProductVariant().getId() : null)
+                    .quantity(item.getQuantity())
+                    .unitPrice(item.getUnitPrice())
+                    .originalUnitPrice(item.getOriginalUnitPrice())
+                    .savedForLater(Boolean.TRUE.equals(item.getSavedForLater()))
+                    .selectedOptions(item.getSelectedOptions() != null ? new TreeMap<>(item.getSelectedOptions()) : null)
+                    .createdAt(toEpochMilli(item.getCreatedAt()))
+                    .build();
+            addField(args, line.mergeField(), line.getLineId());
+            addField(args, LINE_PREFIX + line.getLineId(), encodeLine(line));
+            addField(args, QUANTITY_PREFIX + line.getLineId(), line.getQuantity());
+            addField(args, SAVED_PREFIX + line.getLineId(), line.isSavedForLater() ? "1" : "0");
+        }
+
+        Long loaded = stringRedisTemplate.execute(HYDRATE_SCRIPT, List.of(key), args.toArray());
+        if (loaded != null && loaded == 1) {
+            log.debug("Loaded cart {} into Redis with {} lines", cart.getId(), cart.getItems().size());
+        }
+
+        bindOwner(cart.getId(), cart.getUser() != null ? cart.getUser().getId() : null, cart.getSessionId());
+        return parse(cart.getId(), stringRedisTemplate.opsForHash().entries(key));
+    }
+
+    /**
+     * Add a line to a cart. If the cart already has a line for the same product,
+     * variant and options, its quantity is incremented instead.
+     * @return ID of the line that holds the units
+     */
+    public UUID addLine(UUID cartId, CartLine line) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            String lineId = stringRedisTemplate.execute(
+                    ADD_LINE_SCRIPT,
+                    List.of(STATE_PREFIX + cartId, DIRTY_KEY),
+                    cartId.toString(),
+                    String.valueOf(System.currentTimeMillis()),
+                    String.valueOf(ttlSeconds()),
+                    line.mergeField(),
+                    line.getLineId().toString(),
+                    encodeLine(line),
+                    String.valueOf(line.getQuantity()));
+
+            if (lineId != null) {
+                return UUID.fromString(lineId);
+            }
+            get(cartId);
+        }
+        throw new IllegalStateException("Cart " + cartId + " could not be loaded");
+    }
+
+    /**
+     * Set the quantity of a line
+     * @return false if the line is not in the cart
+     */
+    public boolean setQuantity(UUID cartId, UUID lineId, int quantity) {
+        return mutate(cartId, LINE_PREFIX + lineId, QUANTITY_PREFIX + lineId, String.valueOf(quantity));
+    }
+
+    /**
+     * Move a line to or from saved-for-later
+     * @return false if the line is not in the cart
+     */
+    public boolean setSavedForLater(UUID cartId, UUID lineId, boolean savedForLater) {
+        return mutate(cartId, LINE_PREFIX + lineId, SAVED_PREFIX + lineId, savedForLater ? "1" : "0");
+    }
+
+    /**
+     * Rewrite a line's prices
+     * @return false if the line is not in the cart
+     */
+    public boolean updatePrice(UUID cartId, CartLine line, BigDecimal unitPrice, BigDecimal originalUnitPrice) {
+        CartLine updated = line.toBuilder().unitPrice(unitPrice).originalUnitPrice(originalUnitPrice).build();
+        return mutate(cartId, LINE_PREFIX + line.getLineId(), LINE_PREFIX + line.getLineId(), encodeLine(updated));
+    }
+
+    /**
+     * Remove a line
+     * @return false if the line is not in the cart
+     */
+    public boolean removeLine(UUID cartId, CartLine line) {
+        UUID lineId = line.getLineId();
+        return mutate(cartId, LINE_PREFIX + lineId,
+                line.mergeField(), "",
+                LINE_PREFIX + lineId, "",
+                QUANTITY_PREFIX + lineId, "",
+                SAVED_PREFIX + lineId, "");
+    }
+
+    /**
+     * Set or clear (null code) the applied coupon
+     */
+    public void setCoupon(UUID cartId, String couponCode, BigDecimal discount) {
+        mutate(cartId, "",
+                COUPON_FIELD, couponCode != null ? couponCode : "",
+                COUPON_DISCOUNT_FIELD, discount != null ? discount.toPlainString() : BigDecimal.ZERO.toPlainString());
+    }
+
+    /**
+     * Remove every line from a cart
+     */
+    public void clear(UUID cartId) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long result = stringRedisTemplate.execute(
+                    CLEAR_SCRIPT,
+                    List.of(STATE_PREFIX + cartId, DIRTY_KEY),
+                    cartId.toString(),
+                    String.valueOf(System.currentTimeMillis()),
+                    String.valueOf(ttlSeconds()));
+
+            if (result != null && result != NOT_LOADED) {
+                return;
+            }
+            if (find(cartId).isEmpty()) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Cart " + cartId + " could not be loaded");
+    }
+
+    /**
+     * Drop a cart from Redis without flushing it, e.g. once it is converted or merged
+     */
+    public void evict(UUID cartId) {
+        String key = STATE_PREFIX + cartId;
+        List<Object> owner = stringRedisTemplate.opsForHash().multiGet(key, List.of(USER_FIELD, SESSION_FIELD));
+
+        unbindOwner(USER_OWNER_PREFIX + owner.get(0), cartId, owner.get(0));
+        unbindOwner(SESSION_OWNER_PREFIX + owner.get(1), cartId, owner.get(1));
+        stringRedisTemplate.opsForZSet().remove(DIRTY_KEY, cartId.toString());
+        stringRedisTemplate.delete(key);
+        log.debug("Evicted cart {} from Redis", cartId);
+    }
+
+    /**
+     * Drop a cart from Redis if it has not changed since a cutoff and has nothing left to
+     * flush, so it can be retired in the database without the store still serving it
+     * @return true if the cart is no longer held in Redis
+     */
+    public boolean evictIfIdle(UUID cartId, ZonedDateTime idleSince) {
+        List<String> result = stringRedisTemplate.execute(
+                EVICT_IDLE_SCRIPT,
+                List.of(STATE_PREFIX + cartId, DIRTY_KEY),
+                cartId.toString(),
+                String.valueOf(toEpochMilli(idleSince)));
+
+        if (result == null || result.isEmpty() || parseLong(result.get(0)) == 0) {
+            return false;
+        }
+        if (result.size() == 3) {
+            String userId = result.get(1);
+            String sessionId = result.get(2);
+            unbindOwner(USER_OWNER_PREFIX + userId, cartId, userId.isEmpty() ? null : userId);
+            unbindOwner(SESSION_OWNER_PREFIX + sessionId, cartId, sessionId.isEmpty() ? null : sessionId);
+            log.debug("Evicted idle cart {} from Redis", cartId);
+        }
+        return true;
+    }
+
+    /**
+     * Materialize a transient cart with its items for responses and checkout.
+     * Lines whose product no longer exists are left out.
+     */
+    public Cart toCart(CartState state) {
+        Map<UUID, Product> products = productRepository.findAllById(state.productIds()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        Cart cart = Cart.builder()
+                .user(state.getUserId() != null ? userRepository.getReferenceById(state.getUserId()) : null)
+                .sessionId(state.getSessionId())
+                .status(Cart.CartStatus.ACTIVE)
+                .appliedCouponCode(state.getCouponCode())
+                .couponDiscount(state.getCouponDiscount())
+                .expiresAt(toTime(state.getExpiresAt()))
+                .stateVersion(state.getVersion())
+                .build();
+        cart.setId(state.getCartId());
+        cart.setCreatedAt(toTime(state.getCreatedAt()));
+        cart.setUpdatedAt(toTime(state.getUpdatedAt()));
+
+        for (CartLine line : state.getLines()) {
+            Product product = products.get(line.getProductId());
+            if (product == null) {
+                continue;
+            }
+
+            CartItem item = CartItem.builder()
+                    .cart(cart)
+                    .product(product)
+                    .quantity(line.getQuantity())
+                    .unitPrice(line.getUnitPrice())
+                    .originalUnitPrice(line.getOriginalUnitPrice())
+                    .savedForLater(line.isSavedForLater())
+                    .selectedOptions(line.getSelectedOptions())
+                    .build();
+            item.setId(line.getLineId());
+            item.setCreatedAt(toTime(line.getCreatedAt()));
+            item.setUpdatedAt(cart.getUpdatedAt());
+            item.setItemTotal(item.calculateItemTotal());
+            cart.getItems().add(item);
+        }
+
+        cart.recalculateTotals();
+        return cart;
+    }
+
+    /**
+     * Flush one cart now if it has unflushed changes (used at checkout).
+     * Failures are logged and the cart stays queued for the background flusher.
+     */
+    public void flush(UUID cartId) {
+        CartState state = claim(cartId.toString());
+        if (state != null) {
+            write(List.of(state));
+        }
+    }
+
+    /**
+     * Flush dirty carts to the database in JDBC batches
+     * Runs every 5 seconds by default
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.cart.flush-interval-ms:5000}")
+    public void flushDirtyCarts() {
+        try {
+            Set<String> dirty;
+            do {
+                dirty = stringRedisTemplate.opsForZSet()
+                        .rangeByScore(DIRTY_KEY, 0, System.currentTimeMillis(), 0, flushBatchSize);
+                if (dirty == null || dirty.isEmpty()) {
+                    return;
+                }
+
+                List<CartState> batch = new ArrayList<>(dirty.size());
+                for (String cartId : dirty) {
+                    CartState state = claim(cartId);
+                    if (state != null) {
+                        batch.add(state);
+                    }
+                }
+                if (!batch.isEmpty() && !write(batch)) {
+                    return;
+                }
+            } while (dirty.size() == flushBatchSize);
+
+        } catch (Exception e) {
+            log.error("Error flushing dirty carts", e);
+        }
+    }
+
+    // Private helper methods
+
+    private boolean mutate(UUID cartId, String requiredField, String... fieldValues) {
+        List<String> args = new ArrayList<>(4 + fieldValues.length);
+        args.add(cartId.toString());
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(ttlSeconds()));
+        args.add(requiredField);
+        args.addAll(List.of(fieldValues));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long result = stringRedisTemplate.execute(
+                    MUTATE_SCRIPT,
+                    List.of(STATE_PREFIX + cartId, DIRTY_KEY),
+                    args.toArray());
+
+            if (result == null) {
+                throw new IllegalStateException("Empty response from cart store script");
+            }
+            if (result != NOT_LOADED) {
+                return result != MISSING_LINE;
+            }
+            // Expired from Redis between read and write; reload and retry once
+            get(cartId);
+        }
+        throw new IllegalStateException("Cart " + cartId + " could not be loaded");
+    }
+
+    /**
+     * Atomically take a cart off the dirty set and snapshot it. Returns null if it was
+     * not dirty or has since left Redis (converted, merged or expired).
+     */
+    private CartState claim(String cartId) {
+        List<String> raw = stringRedisTemplate.execute(
+                CLAIM_SCRIPT,
+                List.of(DIRTY_KEY, STATE_PREFIX + cartId),
+                cartId);
+
+        if (raw == null || raw.isEmpty()) {
+            return null;
+        }
+
+        Map<Object, Object> fields = new TreeMap<>();
+        for (int i = 0; i + 1 < raw.size(); i += 2) {
+            fields.put(raw.get(i), raw.get(i + 1));
+        }
+        return parse(UUID.fromString(cartId), fields);
+    }
+
+    /**
+     * Write cart snapshots in one transaction. A snapshot older than the stored version
+     * is skipped; a cart that is no longer active in the database is dropped from Redis.
+     * Failed batches are re-queued.
+     * @return whether the batch was written
+     */
+    private boolean write(List<CartState> states) {
+        long start = System.nanoTime();
+        List<CartState> rejected = new ArrayList<>();
+
+        try {
+            flushTransaction.executeWithoutResult(status -> {
+                List<CartState> accepted = updateCarts(states, rejected);
+                if (accepted.isEmpty()) {
+                    return;
+                }
+
+                List<Object[]> removedArgs = accepted.stream()
+                        .map(state -> new Object[] {state.getCartId(), state.lineIds()})
+                        .collect(Collectors.toList());
+                batchWithLineIds(DELETE_REMOVED_OPTIONS_SQL, removedArgs);
+                batchWithLineIds(DELETE_REMOVED_ITEMS_SQL, removedArgs);
+
+                List<Object[]> itemArgs = new ArrayList<>();
+                List<Object[]> optionArgs = new ArrayList<>();
+                for (CartState state : accepted) {
+                    Timestamp updatedAt = new Timestamp(state.getUpdatedAt());
+                    for (CartLine line : state.getLines()) {
+                        itemArgs.add(new Object[] {
+                                line.getLineId(), state.getCartId(), line.getProductId(), line.getVariantId(),
+                                line.getQuantity(), line.getUnitPrice(), line.itemTotal(), line.getOriginalUnitPrice(),
+                                line.isSavedForLater(), new Timestamp(line.getCreatedAt()), updatedAt
+                        });
+                        if (line.getSelectedOptions() != null) {
+                            line.getSelectedOptions().forEach((name, value) ->
+                                    optionArgs.add(new Object[] {line.getLineId(), name, value, line.getLineId(), name}));
+                        }
+                    }
+                }
+                jdbcTemplate.batchUpdate(UPSERT_ITEM_SQL, itemArgs);
+                if (!optionArgs.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_OPTION_SQL, optionArgs);
+                }
+            });
+
+            flushedCarts.increment(states.size() - rejected.size());
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.debug("Flushed {} carts ({} skipped)", states.size() - rejected.size(), rejected.size());
+
+        } catch (Exception e) {
+            log.error("Failed to flush {} carts, re-queueing", states.size(), e);
+            flushFailures.increment();
+            requeue(states);
+            return false;
+        }
+
+        rejected.forEach(this::evictIfInactive);
+        return true;
+    }
+
+    private List<CartState> updateCarts(List<CartState> states, List<CartState> rejected) {
+        List<Object[]> args = states.stream()
+                .map(state -> {
+                    BigDecimal subtotal = state.subtotal();
+                    return new Object[] {
+                            subtotal, state.getCouponCode(), state.getCouponDiscount(),
+                            subtotal, state.getCouponDiscount(),
+                            state.getVersion(), new Timestamp(state.getUpdatedAt()),
+                            state.getCartId(), state.getVersion()
+                    };
+                })
+                .collect(Collectors.toList());
+
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_CART_SQL, args);
+
+        List<CartState> accepted = new ArrayList<>(states.size());
+        for (int i = 0; i < states.size(); i++) {
+            if (updated[i] == 0) {
+                rejected.add(states.get(i));
+            } else {
+                accepted.add(states.get(i));
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Batch a statement taking (cart id, line id array) parameters
+     */
+    private void batchWithLineIds(String sql, List<Object[]> args) {
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setObject(1, args.get(i)[0]);
+                ps.setArray(2, ps.getConnection().createArrayOf("uuid", (Object[]) args.get(i)[1]));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return args.size();
+            }
+        });
+    }
+
+    /**
+     * A stale snapshot means a newer one was already written. A cart that was converted,
+     * merged or marked abandoned in the meantime is dropped so it is reloaded from the database.
+     */
+    private void evictIfInactive(CartState state) {
+        try {
+            List<String> status = jdbcTemplate.queryForList(
+                    "SELECT status FROM carts WHERE id = ?", String.class, state.getCartId());
+            if (status.isEmpty() || !Cart.CartStatus.ACTIVE.name().equals(status.get(0))) {
+                log.info("Dropping cart {} from Redis - no longer active in the database", state.getCartId());
+                evict(state.getCartId());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to check status of cart {}: {}", state.getCartId(), e.getMessage());
+        }
+    }
+
+    private void requeue(List<CartState> states) {
+        try {
+            long now = System.currentTimeMillis();
+            for (CartState state : states) {
+                stringRedisTemplate.opsForZSet().addIfAbsent(DIRTY_KEY, state.getCartId().toString(), now);
+            }
+        } catch (Exception e) {
+            log.error("Failed to re-queue {} dirty carts", states.size(), e);
+        }
+    }
+
+    private void bindOwner(UUID cartId, UUID userId, String sessionId) {
+        if (userId != null) {
+            stringRedisTemplate.opsForValue().set(USER_OWNER_PREFIX + userId, cartId.toString(), stateTtlDays, TimeUnit.DAYS);
+        }
+        if (sessionId != null) {
+            stringRedisTemplate.opsForValue().set(SESSION_OWNER_PREFIX + sessionId, cartId.toString(), stateTtlDays, TimeUnit.DAYS);
+        }
+    }
+
+    private void unbindOwner(String key, UUID cartId, Object owner) {
+        if (owner != null && cartId.toString().equals(stringRedisTemplate.opsForValue().get(key))) {
+            stringRedisTemplate.delete(key);
+        }
+    }
+
+    private CartState parse(UUID cartId, Map<Object, Object> fields) {
+        List<CartLine> lines = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : fields.entrySet()) {
+            String field = entry.getKey().toString();
+            if (!field.startsWith(LINE_PREFIX)) {
+                continue;
+            }
+            String lineId = field.substring(LINE_PREFIX.length());
+            lines.add(decodeLine(UUID.fromString(lineId), entry.getValue().toString(),
+                    fields.get(QUANTITY_PREFIX + lineId), fields.get(SAVED_PREFIX + lineId)));
+        }
+        lines.sort(Comparator.comparingLong(CartLine::getCreatedAt).thenComparing(CartLine::getLineId));
+
+        Object couponDiscount = fields.get(COUPON_DISCOUNT_FIELD);
+        return CartState.builder()
+                .cartId(cartId)
+                .userId(parseUuid(fields.get(USER_FIELD)))
+                .sessionId(stringValue(fields.get(SESSION_FIELD)))
+                .couponCode(stringValue(fields.get(COUPON_FIELD)))
+                .couponDiscount(couponDiscount != null ? new BigDecimal(couponDiscount.toString()) : BigDecimal.ZERO)
+                .expiresAt(parseLong(fields.get(EXPIRES_FIELD)))
+                .createdAt(parseLong(fields.get(CREATED_FIELD)))
+                .updatedAt(parseLong(fields.get(UPDATED_FIELD)))
+                .version(parseLong(fields.get(VERSION_FIELD)))
+                .lines(lines)
+                .build();
+    }
+
+    /**
+     * Line descriptor: productId|variantId|unitPrice|originalUnitPrice|createdAt|optionsJson
+     */
+    private static String encodeLine(CartLine line) {
+        return String.join("|",
+                line.getProductId().toString(),
+                line.getVariantId() != null ? line.getVariantId().toString() : "",
+                line.getUnitPrice().toPlainString(),
+                line.getOriginalUnitPrice() != null ? line.getOriginalUnitPrice().toPlainString() : "",
+                String.valueOf(line.getCreatedAt()),
+                encodeOptions(line.getSelectedOptions()));
+    }
+
+    private static CartLine decodeLine(UUID lineId, String descriptor, Object quantity, Object saved) {
+        String[] parts = descriptor.split("\\|", 6);
+        return CartLine.builder()
+                .lineId(lineId)
+                .productId(UUID.fromString(parts[0]))
+                .variantId(parts[1].isEmpty() ? null : UUID.fromString(parts[1]))
+                .unitPrice(new BigDecimal(parts[2]))
+                .originalUnitPrice(parts[3].isEmpty() ? null : new BigDecimal(parts[3]))
+                .createdAt(Long.parseLong(parts[4]))
+                .selectedOptions(decodeOptions(parts[5]))
+                .quantity(quantity != null ? Integer.parseInt(quantity.toString()) : 0)
+                .savedForLater("1".equals(saved))
+                .build();
+    }
+
+    private static String encodeOptions(Map<String, String> options) {
+        if (options == null || options.isEmpty()) {
+            return "";
+        }
+        try {
+            return MAPPER.writeValueAsString(new TreeMap<>(options));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cart item options", e);
+        }
+    }
+
+    private static TreeMap<String, String> decodeOptions(String json) {
+        if (json.isEmpty()) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(json, OPTIONS_TYPE);
+        } catch (Exception e) {
+            throw new IllegalStateException("Corrupt cart item options: " + json, e);
+        }
+    }
+
+    private static void addField(List<String> args, String field, Object value) {
+        if (value != null) {
+            args.add(field);
+            args.add(value.toString());
+        }
+    }
+
+    private long ttlSeconds() {
+        return TimeUnit.DAYS.toSeconds(stateTtlDays);
+    }
+
+    private static Long toEpochMilli(ZonedDateTime time) {
+        return time != null ? time.toInstant().toEpochMilli() : null;
+    }
+
+    private static ZonedDateTime toTime(long epochMilli) {
+        return epochMilli > 0 ? ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault()) : null;
+    }
+
+    private static UUID parseUuid(Object value) {
+        return value != null ? UUID.fromString(value.toString()) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisScript<List<String>> stringListScript(String source) {
+        DefaultRedisScript<List<String>> script = new DefaultRedisScript<>(source);
+        script.setResultType((Class<List<String>>) (Class<?>) List.class);
+        return script;
+    }
+
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static long parseLong(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    /**
+     * Snapshot of an active cart held in Redis
+     */
+    @lombok.Builder
+    @lombok.Data
+    public static class CartState {
+        private final UUID cartId;
+        private final UUID userId;
+        private final String sessionId;
+        private final String couponCode;
+        private final BigDecimal couponDiscount;
+        private final long expiresAt;
+        private final long createdAt;
+        private final long updatedAt;
+        private final long version;
+        private final List<CartLine> lines;
+
+        public CartLine findLine(UUID lineId) {
+            return lines.stream().filter(line -> line.getLineId().equals(lineId)).findFirst().orElse(null);
+        }
+
+        /**
+         * Line that an add of the given line would be merged into, if any
+         */
+        public CartLine findMatchingLine(CartLine candidate) {
+            String mergeField = candidate.mergeField();
+            return lines.stream().filter(line -> line.mergeField().equals(mergeField)).findFirst().orElse(null);
+        }
+
+        public Set<UUID> productIds() {
+            return lines.stream().map(CartLine::getProductId).collect(Collectors.toSet());
+        }
+
+        public UUID[] lineIds() {
+            return lines.stream().map(CartLine::getLineId).toArray(UUID[]::new);
+        }
+
+        public BigDecimal subtotal() {
+            return lines.stream().map(CartLine::itemTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+
+    /**
+     * One cart line
+     */
+    @lombok.Builder(toBuilder = true)
+    @lombok.Data
+    public static class CartLine {
+        private final UUID lineId;
+        private final UUID productId;
+        private final UUID variantId;
+        private final int quantity;
+        private final BigDecimal unitPrice;
+        private final BigDecimal originalUnitPrice;
+        private final boolean savedForLater;
+        private final Map<String, String> selectedOptions;
+        private final long createdAt;
+
+        public BigDecimal itemTotal() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        /**
+         * Merge index field: lines with the same product, variant and options are one line
+         */
+        String mergeField() {
+            return MERGE_PREFIX + productId + "|" + Objects.toString(variantId, "") + "|" + encodeOptions(selectedOptions);
+        }
+    }
+}
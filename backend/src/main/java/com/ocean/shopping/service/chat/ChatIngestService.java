@@ -0,0 +1,274 @@
+package com.ocean.shopping.service.chat;
+
+import com.ocean.shopping.dto.chat.ChatMessageResponse;
+import com.ocean.shopping.model.entity.ChatMessage;
+import com.ocean.shopping.model.entity.User;
+import com.ocean.shopping.service.unread.UnreadCounterService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest pipeline for chat messages.
+ * <p>
+ * Accepted messages wait in a bounded queue; a single writer thread drains whatever has
+ * queued up (up to the batch size) and persists it as one group commit: a JDBC batch into
+ * {@code chat_messages} and one into {@code conversation_inbox}, in one transaction. Only
+ * then are the senders' futures completed and the messages pushed to their receivers, so
+ * nothing is delivered that could still be lost. Delivery receipts go to
+ * {@link ChatReceiptBuffer} and are written in bulk.
+ * <p>
+ * Under light load a batch holds a single message and adds no latency; under peak load
+ * the number of commits per second stays roughly constant while batches grow. A full
+ * queue rejects new messages after a short wait instead of growing without bound.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChatIngestService {
+
+    private static final String INSERT_MESSAGE_SQL =
+        "INSERT INTO chat_messages (id, conversation_id, content, message_type, sender_id, receiver_id, " +
+        "attachment_url, attachment_name, delivery_status, is_read, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'SENT', FALSE, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ConversationInboxStore inboxStore;
+    private final ChatParticipantCache participantCache;
+    private final UnreadCounterService unreadCounters;
+    private final ChatReceiptBuffer receiptBuffer;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.chat.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${ocean.shopping.chat.ingest.batch-size:200}")
+    private int batchSize;
+
+    @Value("${ocean.shopping.chat.ingest.enqueue-timeout-ms:200}")
+    private long enqueueTimeoutMs;
+
+    private BlockingQueue<PendingMessage> queue;
+    private TransactionTemplate batchTransaction;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Timer commitTimer;
+    private DistributionSummary batchSizeSummary;
+    private Counter rejectedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void initialize() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchTransaction = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("chat.ingest.queue.size", queue, BlockingQueue::size)
+                .description("Chat messages waiting to be persisted")
+                .register(meterRegistry);
+        commitTimer = Timer.builder("chat.ingest.commit")
+                .description("Time taken to persist one batch of chat messages")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("chat.ingest.batch.size")
+                .description("Chat messages persisted per group commit")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("chat.ingest.messages")
+                .description("Chat messages not persisted")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("chat.ingest.messages")
+                .description("Chat messages not persisted")
+                .tag("result", "failed")
+                .register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::runWriter, "chat-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        log.info("Chat ingest pipeline started - queue capacity: {}, batch size: {}", queueCapacity, batchSize);
+    }
+
+    /**
+     * Stop accepting messages and persist what is already queued
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queue a validated message for persistence and delivery.
+     * <p>
+     * The message must carry its final ID and creation time.
+     * @return Future completed with the message once it has been committed
+     * @throws RejectedExecutionException if the queue stays full for longer than the enqueue timeout
+     */
+    public CompletableFuture<ChatMessageResponse> submit(ChatMessageResponse message) {
+        PendingMessage pending = new PendingMessage(message, new CompletableFuture<>());
+        boolean accepted;
+        try {
+            accepted = running && queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+
+        if (!accepted) {
+            rejectedCounter.increment();
+            throw new RejectedExecutionException("Chat is busy, please retry the message");
+        }
+        return pending.result();
+    }
+
+    // Private helper methods
+
+    private void runWriter() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                List<PendingMessage> abandoned = new ArrayList<>();
+                queue.drainTo(abandoned);
+                abandoned.forEach(pending -> fail(pending, e));
+                return;
+            } catch (Exception e) {
+                log.error("Chat ingest writer error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<PendingMessage> batch) {
+        try {
+            commitBatch(batch);
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+                return;
+            }
+            // One bad message must not fail the others: retry each on its own
+            log.warn("Chat batch of {} failed, retrying messages individually: {}", batch.size(), e.getMessage());
+            for (PendingMessage pending : batch) {
+                try {
+                    commitBatch(List.of(pending));
+                } catch (Exception single) {
+                    fail(pending, single);
+                }
+            }
+        }
+    }
+
+    private void commitBatch(List<PendingMessage> batch) {
+        List<ChatMessage> messages = batch.stream().map(pending -> toEntity(pending.message())).toList();
+
+        commitTimer.record(() -> batchTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_MESSAGE_SQL, messages, messages.size(), (ps, message) -> {
+                Timestamp createdAt = Timestamp.from(message.getCreatedAt().toInstant());
+                ps.setObject(1, message.getId());
+                ps.setObject(2, message.getConversationId());
+                ps.setString(3, message.getContent());
+                ps.setString(4, message.getMessageType().name());
+                ps.setObject(5, message.getSender().getId());
+                ps.setObject(6, message.getReceiver().getId());
+                ps.setString(7, message.getAttachmentUrl());
+                ps.setString(8, message.getAttachmentName());
+                ps.setTimestamp(9, createdAt);
+                ps.setTimestamp(10, createdAt);
+            });
+            inboxStore.recordMessages(messages);
+            messages.forEach(message ->
+                    unreadCounters.messageSent(message.getReceiver().getId(), message.getConversationId()));
+        }));
+        batchSizeSummary.record(batch.size());
+
+        for (PendingMessage pending : batch) {
+            ChatMessageResponse message = pending.message();
+            participantCache.recordParticipants(message.getConversationId(),
+                    message.getSender().getId(), message.getReceiver().getId());
+            pending.result().complete(message);
+            deliver(message);
+        }
+    }
+
+    private void deliver(ChatMessageResponse message) {
+        try {
+            messagingTemplate.convertAndSendToUser(
+                message.getReceiver().getId().toString(),
+                "/queue/chat",
+                message
+            );
+            receiptBuffer.delivered(message.getId(), message.getConversationId());
+        } catch (Exception e) {
+            log.error("Failed to send real-time message to user {}: {}", message.getReceiver().getId(), e.getMessage());
+        }
+    }
+
+    private void fail(PendingMessage pending, Exception e) {
+        failedCounter.increment();
+        log.error("Failed to persist chat message {}: {}", pending.message().getId(), e.getMessage());
+        pending.result().completeExceptionally(e);
+    }
+
+    private static ChatMessage toEntity(ChatMessageResponse response) {
+        ChatMessage message = ChatMessage.builder()
+                .conversationId(response.getConversationId())
+                .content(response.getContent())
+                .messageType(ChatMessage.MessageType.valueOf(response.getMessageType().name()))
+                .sender(userReference(response.getSender().getId()))
+                .receiver(userReference(response.getReceiver().getId()))
+                .attachmentUrl(response.getAttachmentUrl())
+                .attachmentName(response.getAttachmentName())
+                .deliveryStatus(ChatMessage.DeliveryStatus.SENT)
+                .isRead(false)
+                .build();
+        message.setId(response.getId());
+        message.setCreatedAt(response.getCreatedAt());
+        return message;
+    }
+
+    private static User userReference(UUID userId) {
+        User user = new User();
+        user.setId(userId);
+        return user;
+    }
+
+    private record PendingMessage(ChatMessageResponse message, CompletableFuture<ChatMessageResponse> result) {
+    }
+}
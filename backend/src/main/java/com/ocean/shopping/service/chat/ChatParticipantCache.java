@@ -0,0 +1,147 @@
+package com.ocean.shopping.service.chat;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ocean.shopping.dto.user.UserResponse;
+import com.ocean.shopping.repository.UserRepository;
+import com.ocean.shopping.security.JwtAuthenticationCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process cache of chat participants, so sending a message or checking access to
+ * a conversation does not read {@code users} or {@code chat_messages} every time.
+ * <p>
+ * Conversation participants only ever grow: a cached set is extended as messages are
+ * accepted on this node, and a user missing from it is looked up again before access
+ * is denied, so a new participant is never locked out by another node's stale entry.
+ * User snapshots are dropped when a principal invalidation is broadcast for the user.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChatParticipantCache {
+
+    private final ConversationInboxStore inboxStore;
+    private final UserRepository userRepository;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.chat.participants.max-conversations:50000}")
+    private long maxConversations;
+
+    @Value("${ocean.shopping.chat.participants.conversation-ttl-seconds:600}")
+    private long conversationTtlSeconds;
+
+    @Value("${ocean.shopping.chat.participants.max-users:20000}")
+    private long maxUsers;
+
+    @Value("${ocean.shopping.chat.participants.user-ttl-seconds:120}")
+    private long userTtlSeconds;
+
+    private Cache<UUID, Set<UUID>> conversations;
+    private Cache<UUID, UserResponse> users;
+
+    @PostConstruct
+    public void initialize() {
+        conversations = Caffeine.newBuilder()
+                .maximumSize(maxConversations)
+                .expireAfterWrite(Duration.ofSeconds(conversationTtlSeconds))
+                .recordStats()
+                .build();
+        users = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofSeconds(userTtlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, conversations, "chat.participants.conversations");
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "chat.participants.users");
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onUserInvalidation(message),
+                new ChannelTopic(JwtAuthenticationCache.PRINCIPAL_INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * Snapshot of a chat user, or null if the user does not exist
+     */
+    public UserResponse getUser(UUID userId) {
+        return users.get(userId, id -> userRepository.findById(id).map(UserResponse::fromEntity).orElse(null));
+    }
+
+    /**
+     * Whether the user has sent or received a message in the conversation
+     */
+    public boolean isParticipant(UUID conversationId, UUID userId) {
+        Set<UUID> participants = conversations.getIfPresent(conversationId);
+        if (participants != null && participants.contains(userId)) {
+            return true;
+        }
+
+        // Missing or possibly stale: read the current participants once
+        participants = loadParticipants(conversationId);
+        return participants.contains(userId);
+    }
+
+    /**
+     * Users that have sent or received a message in the conversation, from the cache when present
+     */
+    public Set<UUID> getParticipants(UUID conversationId) {
+        Set<UUID> participants = conversations.getIfPresent(conversationId);
+        return participants != null ? participants : loadParticipants(conversationId);
+    }
+
+    /**
+     * Extend the cached participants of a conversation with the users of an accepted message
+     */
+    public void recordParticipants(UUID conversationId, UUID senderId, UUID receiverId) {
+        Set<UUID> participants = conversations.getIfPresent(conversationId);
+        if (participants != null) {
+            participants.add(senderId);
+            participants.add(receiverId);
+        }
+    }
+
+    // Private helper methods
+
+    private Set<UUID> loadParticipants(UUID conversationId) {
+        Set<UUID> loaded = inboxStore.findParticipants(conversationId);
+        if (loaded.isEmpty()) {
+            // Unknown conversations are not cached, they may start with the next message
+            return Collections.emptySet();
+        }
+
+        Set<UUID> participants = ConcurrentHashMap.newKeySet();
+        participants.addAll(loaded);
+        Set<UUID> cached = conversations.asMap().merge(conversationId, participants, (current, fresh) -> {
+            current.addAll(fresh);
+            return current;
+        });
+        return cached;
+    }
+
+    private void onUserInvalidation(Message message) {
+        String userId = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            users.invalidate(UUID.fromString(userId));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed user invalidation: {}", userId);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.ocean.shopping.service.chat;
+
+import com.ocean.shopping.model.entity.ChatMessage;
+import com.ocean.shopping.model.entity.User;
+import com.ocean.shopping.service.unread.UnreadCounterService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Buffers chat delivery and read receipts and writes them in bulk.
+ * <p>
+ * Receipts are collected in memory and flushed on a short interval, each kind with one
+ * statement per flush ({@code WHERE id = ANY(?)} for deliveries, an {@code unnest} join
+ * for reads), instead of one read-modify-write of the message per receipt. A read only
+ * applies to messages the reader received; a read of a message that is not committed
+ * yet is retried on the next flush once. Receipts lost to a failed flush or a node
+ * that dies leave the message unread rather than wrong.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChatReceiptBuffer {
+
+    private static final String MARK_DELIVERED_SQL =
+        "UPDATE chat_messages SET delivery_status = 'DELIVERED', delivered_at = ?, updated_at = ? " +
+        "WHERE id = ANY(?) AND delivery_status = 'SENT'";
+
+    private static final String MARK_READ_SQL =
+        "UPDATE chat_messages m SET is_read = TRUE, read_at = ?, updated_at = ?, " +
+        "delivery_status = CASE WHEN m.delivery_status = 'DELIVERED' THEN 'READ' ELSE m.delivery_status END " +
+        "FROM unnest(?::uuid[], ?::uuid[]) AS r(message_id, reader_id) " +
+        "WHERE m.id = r.message_id AND m.receiver_id = r.reader_id AND m.is_read = FALSE " +
+        "RETURNING m.id, m.conversation_id, m.sender_id, m.receiver_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ConversationInboxStore inboxStore;
+    private final UnreadCounterService unreadCounters;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.chat.receipts.flush-batch-size:5000}")
+    private int flushBatchSize;
+
+    private final Queue<DeliveryReceipt> deliveries = new ConcurrentLinkedQueue<>();
+    private final Queue<ReadReceipt> reads = new ConcurrentLinkedQueue<>();
+
+    private TransactionTemplate flushTransaction;
+    private Counter deliveredCounter;
+    private Counter readCounter;
+
+    @PostConstruct
+    public void initialize() {
+        flushTransaction = new TransactionTemplate(transactionManager);
+        deliveredCounter = Counter.builder("chat.receipts.flushed")
+                .description("Chat receipts written to the database")
+                .tag("type", "delivered")
+                .register(meterRegistry);
+        readCounter = Counter.builder("chat.receipts.flushed")
+                .description("Chat receipts written to the database")
+                .tag("type", "read")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record that a message was handed to the broker for its receiver
+     */
+    public void delivered(UUID messageId, UUID conversationId) {
+        deliveries.add(new DeliveryReceipt(messageId, conversationId));
+    }
+
+    /**
+     * Record that a user read a message; ignored unless the user is its receiver
+     */
+    public void read(UUID readerId, UUID messageId) {
+        reads.add(new ReadReceipt(messageId, readerId, false));
+    }
+
+    /**
+     * Write buffered receipts. Deliveries go first, so a read message ends up READ.
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.chat.receipts.flush-interval-ms:250}")
+    public void flush() {
+        try {
+            flushDeliveries();
+            flushReads();
+        } catch (Exception e) {
+            log.error("Error flushing chat receipts: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Private helper methods
+
+    private void flushDeliveries() {
+        List<DeliveryReceipt> batch;
+        while (!(batch = drain(deliveries)).isEmpty()) {
+            Set<UUID> messageIds = batch.stream().map(DeliveryReceipt::messageId).collect(Collectors.toSet());
+            Set<UUID> conversationIds = batch.stream().map(DeliveryReceipt::conversationId).collect(Collectors.toSet());
+            Timestamp now = Timestamp.from(Instant.now());
+
+            flushTransaction.executeWithoutResult(status -> {
+                jdbcTemplate.update(MARK_DELIVERED_SQL, ps -> {
+                    ps.setTimestamp(1, now);
+                    ps.setTimestamp(2, now);
+                    ps.setArray(3, ps.getConnection().createArrayOf("uuid", messageIds.toArray()));
+                });
+                inboxStore.markDelivered(conversationIds, messageIds);
+            });
+            deliveredCounter.increment(messageIds.size());
+        }
+    }
+
+    private void flushReads() {
+        List<ReadReceipt> retries = new ArrayList<>();
+        List<ReadReceipt> batch;
+        while (!(batch = drain(reads)).isEmpty()) {
+            List<ReadReceipt> receipts = batch;
+            Timestamp now = Timestamp.from(Instant.now());
+
+            List<ChatMessage> read = flushTransaction.execute(status -> {
+                List<ChatMessage> updated = jdbcTemplate.query(MARK_READ_SQL, ps -> {
+                    ps.setTimestamp(1, now);
+                    ps.setTimestamp(2, now);
+                    ps.setArray(3, ps.getConnection().createArrayOf("uuid",
+                            receipts.stream().map(ReadReceipt::messageId).toArray()));
+                    ps.setArray(4, ps.getConnection().createArrayOf("uuid",
+                            receipts.stream().map(ReadReceipt::readerId).toArray()));
+                }, (rs, rowNum) -> readMessage(
+                        rs.getObject("id", UUID.class),
+                        rs.getObject("conversation_id", UUID.class),
+                        rs.getObject("sender_id", UUID.class),
+                        rs.getObject("receiver_id", UUID.class)));
+
+                if (!updated.isEmpty()) {
+                    inboxStore.markMessagesRead(updated);
+                    countPerConversation(updated).forEach((key, count) ->
+                            unreadCounters.messagesRead(key.userId(), key.conversationId(), count));
+                }
+                return updated;
+            });
+
+            readCounter.increment(read.size());
+            read.forEach(message -> sendReadReceipt(message.getSender().getId(), message.getId()));
+
+            Set<UUID> applied = read.stream().map(ChatMessage::getId).collect(Collectors.toCollection(HashSet::new));
+            receipts.stream()
+                    .filter(receipt -> !receipt.retried() && !applied.contains(receipt.messageId()))
+                    .forEach(receipt -> retries.add(new ReadReceipt(receipt.messageId(), receipt.readerId(), true)));
+        }
+        reads.addAll(retries);
+    }
+
+    private <T> List<T> drain(Queue<T> queue) {
+        List<T> batch = new ArrayList<>();
+        T next;
+        while (batch.size() < flushBatchSize && (next = queue.poll()) != null) {
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private static Map<ConversationReader, Long> countPerConversation(List<ChatMessage> messages) {
+        Map<ConversationReader, Long> counts = new LinkedHashMap<>();
+        messages.forEach(message -> counts.merge(
+                new ConversationReader(message.getReceiver().getId(), message.getConversationId()), 1L, Long::sum));
+        return counts;
+    }
+
+    private static ChatMessage readMessage(UUID id, UUID conversationId, UUID senderId, UUID receiverId) {
+        User sender = new User();
+        sender.setId(senderId);
+        User receiver = new User();
+        receiver.setId(receiverId);
+
+        ChatMessage message = ChatMessage.builder()
+                .conversationId(conversationId)
+                .sender(sender)
+                .receiver(receiver)
+                .isRead(true)
+                .build();
+        message.setId(id);
+        return message;
+    }
+
+    private void sendReadReceipt(UUID senderId, UUID messageId) {
+        try {
+            Map<String, Object> receipt = Map.of(
+                "type", "READ_RECEIPT",
+                "messageId", messageId,
+                "timestamp", ZonedDateTime.now()
+            );
+
+            messagingTemplate.convertAndSendToUser(
+                senderId.toString(),
+                "/queue/chat",
+                receipt
+            );
+        } catch (Exception e) {
+            log.error("Failed to send read receipt to user {}: {}", senderId, e.getMessage());
+        }
+    }
+
+    private record DeliveryReceipt(UUID messageId, UUID conversationId) {
+    }
+
+    private record ReadReceipt(UUID messageId, UUID readerId, boolean retried) {
+    }
+
+    private record ConversationReader(UUID userId, UUID conversationId) {
+    }
+}
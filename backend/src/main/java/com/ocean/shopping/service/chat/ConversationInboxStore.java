@@ -0,0 +1,243 @@
+package com.ocean.shopping.service.chat;
+
+import com.ocean.shopping.model.entity.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Read model of chat conversations, one row per participant ({@code conversation_inbox}).
+ * <p>
+ * Each row holds the conversation's participants, a snapshot of its latest message
+ * and the participant's unread count, so an inbox is one range read on
+ * {@code (user_id, last_activity_at)}. Rows are written with plain JDBC in the
+ * caller's transaction, so they commit or roll back together with the messages.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversationInboxStore {
+
+    // Snapshot columns follow the newest message, even if an older one commits last
+    private static final List<String> SNAPSHOT_COLUMNS = List.of(
+        "last_message_id", "last_sender_id", "last_receiver_id", "last_message_type", "last_content",
+        "last_attachment_url", "last_attachment_name", "last_delivery_status", "last_is_read", "last_activity_at");
+
+    private static final String RECORD_MESSAGE_SQL =
+        "INSERT INTO conversation_inbox (user_id, conversation_id, participant_ids, " +
+        String.join(", ", SNAPSHOT_COLUMNS) + ", unread_count, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (user_id, conversation_id) DO UPDATE SET " +
+        SNAPSHOT_COLUMNS.stream()
+            .map(column -> column + " = CASE WHEN EXCLUDED.last_activity_at >= conversation_inbox.last_activity_at " +
+                "THEN EXCLUDED." + column + " ELSE conversation_inbox." + column + " END")
+            .collect(Collectors.joining(", ")) + ", " +
+        "participant_ids = CASE WHEN conversation_inbox.participant_ids @> EXCLUDED.participant_ids " +
+        "THEN conversation_inbox.participant_ids " +
+        "ELSE ARRAY(SELECT DISTINCT unnest(conversation_inbox.participant_ids || EXCLUDED.participant_ids)) END, " +
+        "unread_count = conversation_inbox.unread_count + EXCLUDED.unread_count";
+
+    private static final String MARK_MESSAGE_READ_SQL =
+        "UPDATE conversation_inbox SET " +
+        "unread_count = CASE WHEN user_id = ? THEN GREATEST(unread_count - 1, 0) ELSE unread_count END, " +
+        "last_is_read = last_is_read OR last_message_id = ? " +
+        "WHERE conversation_id = ?";
+
+    private static final String MARK_CONVERSATION_READ_SQL =
+        "UPDATE conversation_inbox SET " +
+        "unread_count = CASE WHEN user_id = ? THEN 0 ELSE unread_count END, " +
+        "last_is_read = last_is_read OR last_receiver_id = ? " +
+        "WHERE conversation_id = ?";
+
+    private static final String MARK_DELIVERED_SQL =
+        "UPDATE conversation_inbox SET last_delivery_status = 'DELIVERED' " +
+        "WHERE conversation_id = ANY(?) AND last_message_id = ANY(?) AND last_delivery_status = 'SENT'";
+
+    private static final String REPLACE_CONTENT_SQL =
+        "UPDATE conversation_inbox SET last_message_type = ?, last_content = ?, " +
+        "last_attachment_url = ?, last_attachment_name = ? " +
+        "WHERE conversation_id = ? AND last_message_id = ?";
+
+    private static final String FIND_PARTICIPANTS_SQL =
+        "SELECT DISTINCT unnest(participant_ids) FROM conversation_inbox WHERE conversation_id = ?";
+
+    private static final String FIND_INBOX_SQL =
+        "SELECT conversation_id, participant_ids, " + String.join(", ", SNAPSHOT_COLUMNS) + ", unread_count, created_at " +
+        "FROM conversation_inbox WHERE user_id = ? ORDER BY last_activity_at DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Record a new message for both of its participants; it counts as unread for the receiver
+     */
+    public void recordMessage(ChatMessage message) {
+        recordMessages(List.of(message));
+    }
+
+    /**
+     * Record a batch of new messages in one JDBC batch, in the given order
+     */
+    public void recordMessages(List<ChatMessage> messages) {
+        List<InboxRow> rows = new ArrayList<>(messages.size() * 2);
+        for (ChatMessage message : messages) {
+            UUID senderId = message.getSender().getId();
+            UUID receiverId = message.getReceiver().getId();
+            if (!senderId.equals(receiverId)) {
+                rows.add(new InboxRow(senderId, message));
+            }
+            rows.add(new InboxRow(receiverId, message));
+        }
+
+        jdbcTemplate.batchUpdate(RECORD_MESSAGE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                UUID owner = rows.get(i).owner();
+                ChatMessage message = rows.get(i).message();
+                UUID senderId = message.getSender().getId();
+                UUID receiverId = message.getReceiver().getId();
+                Timestamp activityAt = Timestamp.from(
+                        (message.getCreatedAt() != null ? message.getCreatedAt() : ZonedDateTime.now()).toInstant());
+
+                ps.setObject(1, owner);
+                ps.setObject(2, message.getConversationId());
+                ps.setArray(3, ps.getConnection().createArrayOf("uuid", new Object[]{senderId, receiverId}));
+                ps.setObject(4, message.getId());
+                ps.setObject(5, senderId);
+                ps.setObject(6, receiverId);
+                ps.setString(7, message.getMessageType().name());
+                ps.setString(8, message.getContent());
+                ps.setString(9, message.getAttachmentUrl());
+                ps.setString(10, message.getAttachmentName());
+                ps.setString(11, message.getDeliveryStatus().name());
+                ps.setBoolean(12, Boolean.TRUE.equals(message.getIsRead()));
+                ps.setTimestamp(13, activityAt);
+                ps.setLong(14, owner.equals(receiverId) && !Boolean.TRUE.equals(message.getIsRead()) ? 1 : 0);
+                ps.setTimestamp(15, activityAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    /**
+     * Record that the receiver read one message
+     */
+    public void markMessageRead(ChatMessage message) {
+        jdbcTemplate.update(MARK_MESSAGE_READ_SQL,
+                message.getReceiver().getId(), message.getId(), message.getConversationId());
+    }
+
+    /**
+     * Record that the receivers read a batch of messages, in one JDBC batch
+     */
+    public void markMessagesRead(List<ChatMessage> messages) {
+        jdbcTemplate.batchUpdate(MARK_MESSAGE_READ_SQL, messages, messages.size(), (ps, message) -> {
+            ps.setObject(1, message.getReceiver().getId());
+            ps.setObject(2, message.getId());
+            ps.setObject(3, message.getConversationId());
+        });
+    }
+
+    /**
+     * Record delivery of messages that are still the latest of their conversations
+     */
+    public void markDelivered(Collection<UUID> conversationIds, Collection<UUID> messageIds) {
+        jdbcTemplate.update(MARK_DELIVERED_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", conversationIds.toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", messageIds.toArray()));
+        });
+    }
+
+    /**
+     * Record that a user read every message they received in a conversation
+     */
+    public void markConversationRead(UUID userId, UUID conversationId) {
+        jdbcTemplate.update(MARK_CONVERSATION_READ_SQL, userId, userId, conversationId);
+    }
+
+    /**
+     * Refresh the snapshot of a message whose content changed, if it is the latest one
+     */
+    public void replaceContent(ChatMessage message) {
+        jdbcTemplate.update(REPLACE_CONTENT_SQL,
+                message.getMessageType().name(), message.getContent(),
+                message.getAttachmentUrl(), message.getAttachmentName(),
+                message.getConversationId(), message.getId());
+    }
+
+    /**
+     * Users that have sent or received a message in a conversation
+     */
+    public Set<UUID> findParticipants(UUID conversationId) {
+        return new HashSet<>(jdbcTemplate.queryForList(FIND_PARTICIPANTS_SQL, UUID.class, conversationId));
+    }
+
+    /**
+     * Conversations of a user, most recently active first
+     */
+    public List<InboxEntry> findInbox(UUID userId) {
+        return jdbcTemplate.query(FIND_INBOX_SQL, (rs, rowNum) -> InboxEntry.builder()
+                .conversationId(rs.getObject("conversation_id", UUID.class))
+                .participantIds(new LinkedHashSet<>(Arrays.asList((UUID[]) rs.getArray("participant_ids").getArray())))
+                .lastMessageId(rs.getObject("last_message_id", UUID.class))
+                .lastSenderId(rs.getObject("last_sender_id", UUID.class))
+                .lastReceiverId(rs.getObject("last_receiver_id", UUID.class))
+                .lastMessageType(ChatMessage.MessageType.valueOf(rs.getString("last_message_type")))
+                .lastContent(rs.getString("last_content"))
+                .lastAttachmentUrl(rs.getString("last_attachment_url"))
+                .lastAttachmentName(rs.getString("last_attachment_name"))
+                .lastDeliveryStatus(ChatMessage.DeliveryStatus.valueOf(rs.getString("last_delivery_status")))
+                .lastIsRead(rs.getBoolean("last_is_read"))
+                .lastActivityAt(toZonedDateTime(rs.getTimestamp("last_activity_at")))
+                .unreadCount(rs.getLong("unread_count"))
+                .createdAt(toZonedDateTime(rs.getTimestamp("created_at")))
+                .build(), userId);
+    }
+
+    private static ZonedDateTime toZonedDateTime(Timestamp timestamp) {
+        return timestamp.toInstant().atZone(ZoneId.systemDefault());
+    }
+
+    private record InboxRow(UUID owner, ChatMessage message) {
+    }
+
+    /**
+     * One conversation in a user's inbox
+     */
+    @lombok.Builder
+    @lombok.Data
+    public static class InboxEntry {
+        private UUID conversationId;
+        private Set<UUID> participantIds;
+        private UUID lastMessageId;
+        private UUID lastSenderId;
+        private UUID lastReceiverId;
+        private ChatMessage.MessageType lastMessageType;
+        private String lastContent;
+        private String lastAttachmentUrl;
+        private String lastAttachmentName;
+        private ChatMessage.DeliveryStatus lastDeliveryStatus;
+        private boolean lastIsRead;
+        private ZonedDateTime lastActivityAt;
+        private long unreadCount;
+        private ZonedDateTime createdAt;
+    }
+}
@@ -0,0 +1,613 @@
+package com.ocean.shopping.service.inventory;
+
+import com.ocean.shopping.model.entity.Product;
+import com.ocean.shopping.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Redis-backed inventory reservation ledger.
+ * <p>
+ * Keeps per-product available and reserved counters in Redis and applies every
+ * reservation change for a cart or order with a single atomic script, so hot
+ * products no longer need a distributed lock plus a database read-compare-write.
+ * Committed stock changes are accumulated in a write-back hash and flushed to
+ * {@code products.inventory_quantity} in JDBC batches. A flush first moves the hash
+ * to a processing key and deletes it only once the database update committed, so
+ * deltas survive a failed update or a crash and are applied at least once.
+ * <p>
+ * Scripts build product keys from the reservation contents, so the ledger
+ * assumes a standalone or Sentinel-managed Redis rather than Redis Cluster.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryReservationService {
+
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${ocean.shopping.inventory.reservation-ttl-minutes:30}")
+    private long reservationTtlMinutes;
+
+    @Value("${ocean.shopping.inventory.writeback-batch-size:500}")
+    private int writeBackBatchSize;
+
+    @Value("${ocean.shopping.inventory.expiry-sweep-size:200}")
+    private int expirySweepSize;
+
+    @Value("${ocean.shopping.inventory.writeback-lease-ms:60000}")
+    private long writeBackLeaseMs;
+
+    private TransactionTemplate writeBackTransaction;
+
+    // Redis key layout
+    private static final String AVAILABLE_PREFIX = "inventory:available:";
+    private static final String RESERVED_PREFIX = "inventory:reserved:";
+    private static final String RESERVATION_PREFIX = "inventory:reservation:";
+    private static final String EXPIRY_KEY = "inventory:reservations:expiry";
+    private static final String WRITEBACK_KEY = "inventory:writeback";
+    private static final String WRITEBACK_PROCESSING_KEY = "inventory:writeback:processing";
+    private static final String WRITEBACK_LEASE_KEY = "inventory:writeback:lease";
+
+    private static final long INSUFFICIENT = -1;
+
+    /*
+     * Set the reservation to the target quantity for each product.
+     * KEYS[1] = reservation hash, KEYS[2] = expiry zset, KEYS[3..] = (available, reserved) pairs
+     * ARGV[1] = reservation id, ARGV[2] = expiry score, ARGV[3..] = (productId, target) pairs
+     * Returns {1} on success, {-2, i} if product i is not loaded, {-1, i, available} if short.
+     */
+    private static final String RESERVE_SCRIPT =
+        "local n = (#KEYS - 2) / 2 " +
+        "for i=1,n do " +
+        "    local avail = redis.call('get', KEYS[1 + 2*i]) " +
+        "    if not avail then return {-2, i} end " +
+        "    local held = tonumber(redis.call('hget', KEYS[1], ARGV[1 + 2*i]) or '0') " +
+        "    local delta = tonumber(ARGV[2 + 2*i]) - held " +
+        "    if delta > 0 and tonumber(avail) < delta then return {-1, i, tonumber(avail)} end " +
+        "end " +
+        "for i=1,n do " +
+        "    local pid = ARGV[1 + 2*i] " +
+        "    local target = tonumber(ARGV[2 + 2*i]) " +
+        "    local held = tonumber(redis.call('hget', KEYS[1], pid) or '0') " +
+        "    local delta = target - held " +
+        "    if delta ~= 0 then " +
+        "        redis.call('decrby', KEYS[1 + 2*i], delta) " +
+        "        redis.call('incrby', KEYS[2 + 2*i], delta) " +
+        "    end " +
+        "    if target > 0 then redis.call('hset', KEYS[1], pid, target) else redis.call('hdel', KEYS[1], pid) end " +
+        "end " +
+        "if redis.call('hlen', KEYS[1]) > 0 then " +
+        "    redis.call('zadd', KEYS[2], ARGV[2], ARGV[1]) " +
+        "else " +
+        "    redis.call('zrem', KEYS[2], ARGV[1]) " +
+        "end " +
+        "return {1}";
+
+    /*
+     * Release or commit a whole reservation.
+     * KEYS[1] = reservation hash, KEYS[2] = expiry zset, KEYS[3] = write-back hash
+     * ARGV[1] = reservation id, ARGV[2] = '1' to commit (consume stock) or '0' to release
+     * Returns the number of units affected.
+     */
+    private static final String SETTLE_SCRIPT =
+        "local items = redis.call('hgetall', KEYS[1]) " +
+        "local total = 0 " +
+        "for i=1,#items,2 do " +
+        "    local pid = items[i] " +
+        "    local qty = tonumber(items[i + 1]) " +
+        "    redis.call('decrby', '" + RESERVED_PREFIX + "' .. pid, qty) " +
+        "    if ARGV[2] == '1' then " +
+        "        redis.call('hincrby', KEYS[3], pid, -qty) " +
+        "    else " +
+        "        redis.call('incrby', '" + AVAILABLE_PREFIX + "' .. pid, qty) " +
+        "    end " +
+        "    total = total + qty " +
+        "end " +
+        "redis.call('del', KEYS[1]) " +
+        "redis.call('zrem', KEYS[2], ARGV[1]) " +
+        "return total";
+
+    /*
+     * Move a reservation to a new identifier.
+     * KEYS[1] = source hash, KEYS[2] = target hash, KEYS[3] = expiry zset
+     * ARGV[1] = source id, ARGV[2] = target id, ARGV[3] = expiry score
+     * Returns 1 if moved, 0 if the source is missing or the target already exists.
+     */
+    private static final String TRANSFER_SCRIPT =
+        "if redis.call('exists', KEYS[1]) == 0 or redis.call('exists', KEYS[2]) == 1 then return 0 end " +
+        "redis.call('rename', KEYS[1], KEYS[2]) " +
+        "redis.call('zrem', KEYS[3], ARGV[1]) " +
+        "redis.call('zadd', KEYS[3], ARGV[3], ARGV[2]) " +
+        "return 1";
+
+    /*
+     * Adjust on-hand stock outside of a reservation (restock, manual correction, direct sale).
+     * KEYS[1] = available counter, KEYS[2] = write-back hash
+     * ARGV[1] = product id, ARGV[2] = delta
+     * Returns {1, available} on success, {-2} if not loaded, {-1, available} if short.
+     */
+    private static final String ADJUST_SCRIPT =
+        "local avail = redis.call('get', KEYS[1]) " +
+        "if not avail then return {-2} end " +
+        "local delta = tonumber(ARGV[2]) " +
+        "if tonumber(avail) + delta < 0 then return {-1, tonumber(avail)} end " +
+        "local updated = redis.call('incrby', KEYS[1], delta) " +
+        "redis.call('hincrby', KEYS[2], ARGV[1], delta) " +
+        "return {1, updated}";
+
+    /*
+     * Set the available counter from an absolute stock level, keeping reserved units reserved.
+     * Pending write-back deltas are committed sales the database has not seen yet, so they stay
+     * queued and are applied on top of the new level.
+     * KEYS[1] = available counter, KEYS[2] = reserved counter, KEYS[3] = write-back hash,
+     * KEYS[4] = write-back hash being flushed
+     * ARGV[1] = product id, ARGV[2] = stock level
+     * Returns the reserved quantity.
+     */
+    private static final RedisScript<Long> RESET_SCRIPT = RedisScript.of(
+        "local pending = tonumber(redis.call('hget', KEYS[3], ARGV[1]) or '0') " +
+        "    + tonumber(redis.call('hget', KEYS[4], ARGV[1]) or '0') " +
+        "local reserved = tonumber(redis.call('get', KEYS[2]) or '0') " +
+        "redis.call('set', KEYS[1], tonumber(ARGV[2]) + pending - reserved) " +
+        "return reserved", Long.class);
+
+    /*
+     * Claim the pending write-back deltas for one flusher. Deltas left over by a failed or
+     * interrupted flush are returned again before new ones are moved over.
+     * KEYS[1] = write-back hash, KEYS[2] = processing hash, KEYS[3] = flush lease
+     * ARGV[1] = flusher token, ARGV[2] = lease in ms
+     * Returns the processing hash as field/value pairs, empty if there is nothing to flush
+     * or another flusher holds the lease.
+     */
+    private static final RedisScript<List<String>> CLAIM_WRITEBACK_SCRIPT = stringListScript(
+        "if not redis.call('set', KEYS[3], ARGV[1], 'NX', 'PX', ARGV[2]) then return {} end " +
+        "if redis.call('exists', KEYS[2]) == 0 and redis.call('exists', KEYS[1]) == 1 then " +
+        "    redis.call('rename', KEYS[1], KEYS[2]) " +
+        "end " +
+        "local deltas = redis.call('hgetall', KEYS[2]) " +
+        "if #deltas == 0 then redis.call('del', KEYS[3]) end " +
+        "return deltas");
+
+    /*
+     * Finish a flush: drop the applied deltas if it succeeded, and give up the lease.
+     * KEYS[1] = processing hash, KEYS[2] = flush lease
+     * ARGV[1] = flusher token, ARGV[2] = '1' if the deltas were written to the database
+     * Returns 1 if the lease was still held, 0 if it had expired.
+     */
+    private static final RedisScript<Long> COMPLETE_WRITEBACK_SCRIPT = RedisScript.of(
+        "if redis.call('get', KEYS[2]) ~= ARGV[1] then return 0 end " +
+        "if ARGV[2] == '1' then redis.call('del', KEYS[1]) end " +
+        "redis.call('del', KEYS[2]) " +
+        "return 1", Long.class);
+
+    @PostConstruct
+    public void initialize() {
+        writeBackTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Re-apply deltas a previous instance claimed but did not finish writing back
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverWriteBack() {
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(WRITEBACK_PROCESSING_KEY))) {
+            log.info("Re-applying inventory write-back left over from an interrupted flush");
+            flushWriteBack();
+        }
+    }
+
+    /**
+     * Set the quantities held by a reservation. Products not listed keep their current hold;
+     * a target of zero releases the product from the reservation. The reservation expiry is
+     * refreshed on every call.
+     * @param reservationId Reservation identifier, e.g. {@link #cartReservationId(UUID)}
+     * @param targetQuantities Target reserved quantity per product (inventory-tracked products only)
+     * @return Result describing success or the first product that is short
+     */
+    public ReservationResult reserve(String reservationId, Map<UUID, Integer> targetQuantities) {
+        if (targetQuantities.isEmpty()) {
+            return ReservationResult.success();
+        }
+
+        List<UUID> productIds = new ArrayList<>(targetQuantities.keySet());
+        List<String> keys = new ArrayList<>(2 + productIds.size() * 2);
+        keys.add(RESERVATION_PREFIX + reservationId);
+        keys.add(EXPIRY_KEY);
+
+        List<String> args = new ArrayList<>(2 + productIds.size() * 2);
+        args.add(reservationId);
+        args.add(String.valueOf(System.currentTimeMillis() + reservationTtlMinutes * 60_000L));
+
+        for (UUID productId : productIds) {
+            keys.add(AVAILABLE_PREFIX + productId);
+            keys.add(RESERVED_PREFIX + productId);
+            args.add(productId.toString());
+            args.add(String.valueOf(Math.max(0, targetQuantities.get(productId))));
+        }
+
+        // Loading a product can only be needed once per product, so one retry suffices
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Long> result = executeForList(RESERVE_SCRIPT, keys, args.toArray());
+            long status = result.get(0);
+
+            if (status == 1) {
+                log.debug("Reservation {} updated for {} products", reservationId, productIds.size());
+                return ReservationResult.success();
+            }
+
+            UUID productId = productIds.get(result.get(1).intValue() - 1);
+            if (status == INSUFFICIENT) {
+                log.debug("Reservation {} rejected - product {} has only {} available",
+                        reservationId, productId, result.get(2));
+                return ReservationResult.insufficient(productId, result.get(2).intValue());
+            }
+
+            loadProducts(productIds);
+        }
+
+        throw new IllegalStateException("Inventory ledger could not be loaded for reservation " + reservationId);
+    }
+
+    /**
+     * Release a reservation, returning all held units to available stock
+     * @return Number of units released
+     */
+    public long release(String reservationId) {
+        long released = settle(reservationId, false);
+        if (released > 0) {
+            log.debug("Released {} units held by reservation {}", released, reservationId);
+        }
+        return released;
+    }
+
+    /**
+     * Commit a reservation, consuming the held units. The stock decrement is written
+     * back to the database asynchronously by {@link #flushWriteBack()}.
+     * @return Number of units committed
+     */
+    public long commit(String reservationId) {
+        long committed = settle(reservationId, true);
+        log.debug("Committed {} units held by reservation {}", committed, reservationId);
+        return committed;
+    }
+
+    /**
+     * Move the units held by one reservation to another, e.g. from a cart to the order placed
+     * from it, so later changes to the cart no longer touch them. The expiry is refreshed.
+     * An existing target is left as is, which makes the move safe to repeat.
+     * @return true if the units were moved
+     */
+    public boolean transfer(String fromReservationId, String toReservationId) {
+        Long moved = stringRedisTemplate.execute(
+            RedisScript.of(TRANSFER_SCRIPT, Long.class),
+            List.of(RESERVATION_PREFIX + fromReservationId, RESERVATION_PREFIX + toReservationId, EXPIRY_KEY),
+            fromReservationId,
+            toReservationId,
+            String.valueOf(System.currentTimeMillis() + reservationTtlMinutes * 60_000L)
+        );
+        if (moved != null && moved == 1) {
+            log.debug("Moved reservation {} to {}", fromReservationId, toReservationId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adjust the on-hand stock of a product by a delta
+     * @param productId Product ID (must track inventory)
+     * @param quantityChange Positive to add stock, negative to remove it
+     * @return Result describing success or the available quantity when short
+     */
+    public ReservationResult adjustStock(UUID productId, int quantityChange) {
+        List<String> keys = List.of(AVAILABLE_PREFIX + productId, WRITEBACK_KEY);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<Long> result = executeForList(ADJUST_SCRIPT, keys, productId.toString(), String.valueOf(quantityChange));
+            long status = result.get(0);
+
+            if (status == 1) {
+                return ReservationResult.success();
+            }
+            if (status == INSUFFICIENT) {
+                return ReservationResult.insufficient(productId, result.get(1).intValue());
+            }
+
+            loadProducts(List.of(productId));
+        }
+
+        throw new IllegalStateException("Inventory ledger could not be loaded for product " + productId);
+    }
+
+    /**
+     * Reset the ledger for a product after its stock was set to an absolute value
+     * in the database (e.g. edited in the product form). Pending write-back deltas
+     * are kept and applied on top of the new value, and units currently reserved
+     * stay reserved. When called inside a transaction the reset is deferred until
+     * commit, so a rolled-back edit never reaches the ledger.
+     */
+    public void resetStock(UUID productId, int inventoryQuantity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyReset(productId, inventoryQuantity);
+                }
+            });
+        } else {
+            applyReset(productId, inventoryQuantity);
+        }
+    }
+
+    /**
+     * Get the quantity currently available to reserve, or null if the product is not in the ledger yet
+     */
+    public Integer getAvailable(UUID productId) {
+        String value = stringRedisTemplate.opsForValue().get(AVAILABLE_PREFIX + productId);
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    /**
+     * Get the quantity of a product held by a reservation
+     */
+    public int getReserved(String reservationId, UUID productId) {
+        Object value = stringRedisTemplate.opsForHash().get(RESERVATION_PREFIX + reservationId, productId.toString());
+        return value != null ? Integer.parseInt(value.toString()) : 0;
+    }
+
+    /**
+     * Reservation identifier for a cart
+     */
+    public String cartReservationId(UUID cartId) {
+        return "cart:" + cartId;
+    }
+
+    /**
+     * Reservation identifier for a placed order
+     */
+    public String orderReservationId(UUID orderId) {
+        return "order:" + orderId;
+    }
+
+    /**
+     * Release reservations whose TTL has passed
+     * Runs every minute
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.inventory.expiry-sweep-interval-ms:60000}")
+    public void releaseExpiredReservations() {
+        try {
+            Set<String> expired = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(EXPIRY_KEY, 0, System.currentTimeMillis(), 0, expirySweepSize);
+
+            if (expired == null || expired.isEmpty()) {
+                return;
+            }
+
+            long units = 0;
+            for (String reservationId : expired) {
+                units += settle(reservationId, false);
+            }
+
+            log.info("Released {} expired inventory reservations ({} units)", expired.size(), units);
+
+        } catch (Exception e) {
+            log.error("Error releasing expired inventory reservations", e);
+        }
+    }
+
+    /**
+     * Flush committed stock changes to products.inventory_quantity in JDBC batches.
+     * All batches commit together; the claimed deltas are deleted from Redis only after
+     * that, and are retried by the next flush if the update fails.
+     * Runs every 5 seconds by default
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.inventory.writeback-interval-ms:5000}")
+    public void flushWriteBack() {
+        String token = UUID.randomUUID().toString();
+        Map<String, Long> deltas;
+        try {
+            deltas = claimWriteBack(token);
+        } catch (Exception e) {
+            log.error("Error claiming inventory write-back queue", e);
+            return;
+        }
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<String, Long>> pending = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .collect(Collectors.toList());
+
+        boolean written = false;
+        try {
+            writeBackTransaction.executeWithoutResult(status -> {
+                for (int from = 0; from < pending.size(); from += writeBackBatchSize) {
+                    List<Map.Entry<String, Long>> batch =
+                            pending.subList(from, Math.min(from + writeBackBatchSize, pending.size()));
+                    jdbcTemplate.batchUpdate(
+                        "UPDATE products SET inventory_quantity = GREATEST(inventory_quantity + ?, 0), " +
+                        "updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+                        batch,
+                        batch.size(),
+                        (ps, entry) -> {
+                            ps.setLong(1, entry.getValue());
+                            ps.setObject(2, UUID.fromString(entry.getKey()));
+                        });
+                }
+            });
+            written = true;
+            log.debug("Flushed inventory write-back for {} products", pending.size());
+        } catch (Exception e) {
+            log.error("Failed to write back inventory for {} products, keeping them for the next flush",
+                    pending.size(), e);
+        } finally {
+            completeWriteBack(token, written);
+        }
+    }
+
+    // Private helper methods
+
+    private void applyReset(UUID productId, int inventoryQuantity) {
+        Long reserved = stringRedisTemplate.execute(
+            RESET_SCRIPT,
+            List.of(AVAILABLE_PREFIX + productId, RESERVED_PREFIX + productId, WRITEBACK_KEY, WRITEBACK_PROCESSING_KEY),
+            productId.toString(),
+            String.valueOf(inventoryQuantity)
+        );
+        log.debug("Inventory ledger reset for product {} to {} ({} reserved)", productId, inventoryQuantity, reserved);
+    }
+
+    private long settle(String reservationId, boolean commit) {
+        Long result = stringRedisTemplate.execute(
+            RedisScript.of(SETTLE_SCRIPT, Long.class),
+            List.of(RESERVATION_PREFIX + reservationId, EXPIRY_KEY, WRITEBACK_KEY),
+            reservationId,
+            commit ? "1" : "0"
+        );
+        return result != null ? result : 0;
+    }
+
+    /**
+     * Seed available counters from the database for products missing from Redis.
+     * Units already reserved and committed-but-unflushed deltas are accounted for.
+     */
+    private void loadProducts(Collection<UUID> productIds) {
+        List<Product> products = productRepository.findAllById(productIds);
+
+        for (Product product : products) {
+            String productId = product.getId().toString();
+            long reserved = parseLong(stringRedisTemplate.opsForValue().get(RESERVED_PREFIX + productId));
+            long pending = pendingDelta(WRITEBACK_KEY, productId) + pendingDelta(WRITEBACK_PROCESSING_KEY, productId);
+
+            long available = product.getInventoryQuantity() + pending - reserved;
+            Boolean loaded = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(AVAILABLE_PREFIX + productId, String.valueOf(available));
+
+            if (Boolean.TRUE.equals(loaded)) {
+                log.debug("Loaded product {} into inventory ledger with {} available", productId, available);
+            }
+        }
+
+        if (products.size() < productIds.size()) {
+            throw new IllegalArgumentException("Cannot reserve inventory for unknown products");
+        }
+    }
+
+    private Map<String, Long> claimWriteBack(String token) {
+        List<String> raw = stringRedisTemplate.execute(
+            CLAIM_WRITEBACK_SCRIPT,
+            List.of(WRITEBACK_KEY, WRITEBACK_PROCESSING_KEY, WRITEBACK_LEASE_KEY),
+            token,
+            String.valueOf(writeBackLeaseMs)
+        );
+
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < raw.size(); i += 2) {
+            deltas.put(raw.get(i), parseLong(raw.get(i + 1)));
+        }
+        return deltas;
+    }
+
+    private void completeWriteBack(String token, boolean written) {
+        try {
+            Long held = stringRedisTemplate.execute(
+                COMPLETE_WRITEBACK_SCRIPT,
+                List.of(WRITEBACK_PROCESSING_KEY, WRITEBACK_LEASE_KEY),
+                token,
+                written ? "1" : "0"
+            );
+            if (held == null || held == 0) {
+                log.warn("Inventory write-back lease expired before the flush finished, deltas may be applied again");
+            }
+        } catch (Exception e) {
+            // The lease expires on its own; committed deltas are then applied again by the next flush
+            log.error("Error completing inventory write-back flush", e);
+        }
+    }
+
+    private long pendingDelta(String hashKey, String productId) {
+        Object value = stringRedisTemplate.opsForHash().get(hashKey, productId);
+        return value != null ? parseLong(value.toString()) : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisScript<List<String>> stringListScript(String source) {
+        DefaultRedisScript<List<String>> script = new DefaultRedisScript<>(source);
+        script.setResultType((Class<List<String>>) (Class<?>) List.class);
+        return script;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> executeForList(String script, List<String> keys, Object... args) {
+        List<Object> result = stringRedisTemplate.execute(RedisScript.of(script, List.class), keys, args);
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("Empty response from inventory ledger script");
+        }
+
+        List<Long> values = new ArrayList<>(result.size());
+        for (Object value : result) {
+            values.add(value instanceof Number number ? number.longValue() : parseLong(String.valueOf(value)));
+        }
+        return values;
+    }
+
+    private long parseLong(String value) {
+        return value != null ? Long.parseLong(value) : 0;
+    }
+
+    /**
+     * Outcome of a reservation or stock adjustment
+     */
+    @lombok.Builder
+    @lombok.Data
+    public static class ReservationResult {
+        private final boolean success;
+        private final UUID shortProductId;
+        private final int available;
+
+        public static ReservationResult success() {
+            return ReservationResult.builder().success(true).build();
+        }
+
+        public static ReservationResult insufficient(UUID productId, int available) {
+            return ReservationResult.builder()
+                    .success(false)
+                    .shortProductId(productId)
+                    .available(Math.max(0, available))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ocean.shopping.service.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fair per-key in-JVM queues in front of the Redis locks.
+ * Threads on the same node contending for a key queue on it in FIFO order,
+ * so only the queue head talks to Redis and nobody sleeps-and-retries locally.
+ * Entries are reference counted and removed once no thread holds or waits for
+ * the key, so unrelated keys never share a queue.
+ * Semaphores are used instead of ReentrantLocks because a lock may be released
+ * from a different thread than the one that acquired it.
+ */
+@Service
+@Slf4j
+public class LocalLockQueues {
+
+    @Value("${app.lock.local.enabled:true}")
+    private boolean enabled;
+
+    private final ConcurrentHashMap<String, KeyQueue> queues = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Acquire the queues of the given keys, in ascending key order
+     * @param keys Lock keys
+     * @param timeoutMs Maximum total time to wait
+     * @return Acquired keys, or null if the timeout elapsed first
+     */
+    public List<String> acquire(Collection<String> keys, long timeoutMs) throws InterruptedException {
+        List<String> sortedKeys = new ArrayList<>(new TreeSet<>(keys));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        for (int i = 0; i < sortedKeys.size(); i++) {
+            String key = sortedKeys.get(i);
+            KeyQueue queue = join(key);
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            boolean acquired;
+            try {
+                acquired = queue.permit.tryAcquire(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                leave(key);
+                release(sortedKeys, i);
+                throw e;
+            }
+            if (!acquired) {
+                leave(key);
+                release(sortedKeys, i);
+                return null;
+            }
+        }
+        return sortedKeys;
+    }
+
+    /**
+     * Release previously acquired keys
+     */
+    public void release(List<String> keys) {
+        release(keys, keys.size());
+    }
+
+    /**
+     * Number of keys currently held or waited for on this node
+     */
+    public int size() {
+        return queues.size();
+    }
+
+    private void release(List<String> keys, int count) {
+        for (int i = 0; i < count; i++) {
+            String key = keys.get(i);
+            KeyQueue queue = queues.get(key);
+            if (queue != null) {
+                queue.permit.release();
+                leave(key);
+            }
+        }
+    }
+
+    /**
+     * Register interest in a key, creating its queue on first use
+     */
+    private KeyQueue join(String key) {
+        return queues.compute(key, (k, queue) -> {
+            KeyQueue joined = queue != null ? queue : new KeyQueue();
+            joined.users++;
+            return joined;
+        });
+    }
+
+    /**
+     * Drop interest in a key, removing its queue when nobody holds or waits for it
+     */
+    private void leave(String key) {
+        queues.computeIfPresent(key, (k, queue) -> --queue.users == 0 ? null : queue);
+    }
+
+    /**
+     * Fair single permit plus the number of threads holding or waiting for it.
+     * The count is only changed inside map compute calls, which serialize per key.
+     */
+    private static final class KeyQueue {
+        private final Semaphore permit = new Semaphore(1, true);
+        private int users;
+    }
+}
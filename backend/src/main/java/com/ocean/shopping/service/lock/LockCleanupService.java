@@ -4,14 +4,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.util.Collections;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service responsible for cleaning up orphaned locks and preventing deadlocks.
@@ -34,26 +35,29 @@ public class LockCleanupService {
     @Value("${app.lock.cleanup.enabled:true}")
     private boolean cleanupEnabled;
 
-    // Lua script for safe orphaned lock cleanup
-    private static final String CLEANUP_ORPHANED_SCRIPT = 
-        "local keys = redis.call('keys', ARGV[1]) " +
-        "local cleaned = 0 " +
-        "for i=1,#keys do " +
-        "    local ttl = redis.call('ttl', keys[i]) " +
+    @Value("${app.lock.cleanup.scan-batch-size:500}")
+    private int scanBatchSize;
+
+    // Lua script for safe orphaned lock cleanup of one scanned batch: TTL check and
+    // delete run in a single round trip and atomically per key. Returns removed keys.
+    private static final RedisScript<List<String>> CLEANUP_ORPHANED = stringListScript(
+        "local removed = {} " +
+        "local limit = tonumber(ARGV[1]) " +
+        "for i=1,#KEYS do " +
+        "    if #removed >= limit then break end " +
+        "    local ttl = redis.call('ttl', KEYS[i]) " +
         "    if ttl == -1 then " +  // Key exists but has no TTL (orphaned)
-        "        redis.call('del', keys[i]) " +
-        "        cleaned = cleaned + 1 " +
+        "        redis.call('del', KEYS[i]) " +
+        "        removed[#removed + 1] = KEYS[i] " +
         "    end " +
         "end " +
-        "return cleaned";
-
-    private static final String LOCK_PATTERN = "lock:*";
+        "return removed");
     
     @PostConstruct
     public void initialize() {
         if (cleanupEnabled) {
-            log.info("Lock cleanup service initialized - orphaned threshold: {}min, max per cleanup: {}", 
-                    orphanedThresholdMinutes, maxLocksPerCleanup);
+            log.info("Lock cleanup service initialized - orphaned threshold: {}min, max per cleanup: {}, scan batch: {}", 
+                    orphanedThresholdMinutes, maxLocksPerCleanup, scanBatchSize);
         } else {
             log.info("Lock cleanup service disabled");
         }
@@ -70,22 +74,14 @@ public class LockCleanupService {
         }
 
         try {
-            long startTime = System.currentTimeMillis();
+            SweepResult result = sweepOrphanedLocks("orphaned", Long.MAX_VALUE);
             
-            // Execute cleanup script
-            Long cleanedCount = stringRedisTemplate.execute(
-                RedisScript.of(CLEANUP_ORPHANED_SCRIPT, Long.class),
-                Collections.emptyList(),
-                LOCK_PATTERN
-            );
-
-            long duration = System.currentTimeMillis() - startTime;
-            
-            if (cleanedCount != null && cleanedCount > 0) {
-                log.info("Cleaned up {} orphaned locks in {}ms", cleanedCount, duration);
+            if (!result.getRemovedKeys().isEmpty()) {
+                log.info("Cleaned up {} orphaned locks from {} scanned keys in {}ms", 
+                        result.getRemovedKeys().size(), result.getKeysExamined(), result.getDurationMs());
                 
                 // Record cleanup metrics
-                for (int i = 0; i < cleanedCount; i++) {
+                for (int i = 0; i < result.getRemovedKeys().size(); i++) {
                     lockMetricsService.recordLockRelease("orphaned:cleanup:" + i);
                 }
             }
@@ -106,45 +102,17 @@ public class LockCleanupService {
         }
 
         try {
-            Set<String> lockKeys = stringRedisTemplate.keys(LOCK_PATTERN);
-            
-            if (lockKeys == null || lockKeys.isEmpty()) {
-                return;
-            }
+            SweepResult result = sweepOrphanedLocks("expired", maxLocksPerCleanup);
+            int cleanedCount = result.getRemovedKeys().size();
 
-            int cleanedCount = 0;
-            long startTime = System.currentTimeMillis();
-            
-            for (String key : lockKeys) {
-                if (cleanedCount >= maxLocksPerCleanup) {
-                    log.warn("Reached max locks per cleanup limit ({}), stopping cleanup", maxLocksPerCleanup);
-                    break;
-                }
-
-                try {
-                    Long ttl = stringRedisTemplate.getExpire(key, TimeUnit.SECONDS);
-                    
-                    // If TTL is -2, the key has already expired and been removed
-                    // If TTL is -1, the key exists but has no expiration (orphaned)
-                    if (ttl != null && ttl == -1) {
-                        // This is an orphaned lock - remove it
-                        Boolean deleted = stringRedisTemplate.delete(key);
-                        if (Boolean.TRUE.equals(deleted)) {
-                            cleanedCount++;
-                            log.debug("Removed orphaned lock: {}", key);
-                        }
-                    }
-                    
-                } catch (Exception e) {
-                    log.warn("Error checking lock expiration for key: {}", key, e);
-                }
+            if (cleanedCount >= maxLocksPerCleanup) {
+                log.warn("Reached max locks per cleanup limit ({}), stopping cleanup", maxLocksPerCleanup);
             }
-
-            long duration = System.currentTimeMillis() - startTime;
+            result.getRemovedKeys().forEach(key -> log.debug("Removed orphaned lock: {}", key));
             
             if (cleanedCount > 0) {
-                log.info("Cleaned up {} expired locks from {} total locks in {}ms", 
-                        cleanedCount, lockKeys.size(), duration);
+                log.info("Cleaned up {} expired locks from {} scanned locks in {}ms", 
+                        cleanedCount, result.getKeysExamined(), result.getDurationMs());
             }
             
         } catch (Exception e) {
@@ -196,14 +164,18 @@ public class LockCleanupService {
         }
 
         try {
-            Set<String> lockKeys = stringRedisTemplate.keys(LOCK_PATTERN);
-            
-            if (lockKeys == null || lockKeys.isEmpty()) {
-                return 0;
-            }
+            long startTime = System.currentTimeMillis();
+            AtomicLong deleted = new AtomicLong();
 
-            Long deleted = stringRedisTemplate.delete(lockKeys);
-            int deletedCount = deleted != null ? deleted.intValue() : 0;
+            long examined = LockKeyScanner.scan(stringRedisTemplate, scanBatchSize, batch -> {
+                Long unlinked = stringRedisTemplate.unlink(batch);
+                deleted.addAndGet(unlinked != null ? unlinked : 0);
+                return true;
+            });
+            int deletedCount = deleted.intValue();
+
+            lockMetricsService.recordCleanupSweep("force", examined, deletedCount, 
+                    System.currentTimeMillis() - startTime);
             
             log.warn("Force cleanup removed {} locks", deletedCount);
             
@@ -218,6 +190,41 @@ public class LockCleanupService {
         }
     }
 
+    /**
+     * Walk lock keys with SCAN and remove the ones without a TTL, one script call per batch
+     * @param sweep Sweep name used as metric tag
+     * @param maxRemoved Stop once this many keys were removed
+     */
+    private SweepResult sweepOrphanedLocks(String sweep, long maxRemoved) {
+        long startTime = System.currentTimeMillis();
+        List<String> removedKeys = new ArrayList<>();
+
+        long examined = LockKeyScanner.scan(stringRedisTemplate, scanBatchSize, batch -> {
+            long remaining = maxRemoved - removedKeys.size();
+            List<String> removed = stringRedisTemplate.execute(CLEANUP_ORPHANED, batch, String.valueOf(remaining));
+            if (removed != null) {
+                removedKeys.addAll(removed);
+            }
+            return removedKeys.size() < maxRemoved;
+        });
+
+        long duration = System.currentTimeMillis() - startTime;
+        lockMetricsService.recordCleanupSweep(sweep, examined, removedKeys.size(), duration);
+
+        return SweepResult.builder()
+                .keysExamined(examined)
+                .removedKeys(removedKeys)
+                .durationMs(duration)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisScript<List<String>> stringListScript(String source) {
+        DefaultRedisScript<List<String>> script = new DefaultRedisScript<>(source);
+        script.setResultType((Class<List<String>>) (Class<?>) List.class);
+        return script;
+    }
+
     /**
      * Get cleanup service status
      */
@@ -226,6 +233,7 @@ public class LockCleanupService {
                 .enabled(cleanupEnabled)
                 .orphanedThresholdMinutes(orphanedThresholdMinutes)
                 .maxLocksPerCleanup(maxLocksPerCleanup)
+                .scanBatchSize(scanBatchSize)
                 .actualLockCount(lockMetricsService.getActualActiveLockCount())
                 .trackedLockCount((long) lockMetricsService.getActiveLockCount())
                 .build();
@@ -240,6 +248,7 @@ public class LockCleanupService {
         private final boolean enabled;
         private final long orphanedThresholdMinutes;
         private final int maxLocksPerCleanup;
+        private final int scanBatchSize;
         private final long actualLockCount;
         private final long trackedLockCount;
         
@@ -247,4 +256,15 @@ public class LockCleanupService {
             return actualLockCount >= 0 && Math.abs(actualLockCount - trackedLockCount) > 5;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Outcome of a single cleanup sweep
+     */
+    @lombok.Builder
+    @lombok.Data
+    private static class SweepResult {
+        private final long keysExamined;
+        private final List<String> removedKeys;
+        private final long durationMs;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ocean.shopping.service.lock;
+
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Incremental SCAN over lock keys in fixed-size batches, so lock sweeps never
+ * block Redis for a whole keyspace walk the way KEYS does.
+ */
+final class LockKeyScanner {
+
+    static final String LOCK_PATTERN = "lock:*";
+
+    private LockKeyScanner() {
+    }
+
+    /**
+     * Scan all lock keys and hand them to the consumer in batches
+     * @param batchSize SCAN count hint and batch size
+     * @param batchConsumer Handles one batch; returns false to stop the scan early
+     * @return Number of keys examined
+     */
+    static long scan(RedisTemplate<String, String> template, int batchSize, Predicate<List<String>> batchConsumer) {
+        ScanOptions options = ScanOptions.scanOptions().match(LOCK_PATTERN).count(batchSize).build();
+
+        long examined = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        try (Cursor<String> cursor = template.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                examined++;
+
+                if (batch.size() >= batchSize) {
+                    boolean proceed = batchConsumer.test(batch);
+                    batch = new ArrayList<>(batchSize);
+                    if (!proceed) {
+                        return examined;
+                    }
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            batchConsumer.test(batch);
+        }
+        return examined;
+    }
+
+    /**
+     * Count lock keys without blocking Redis
+     */
+    static long count(RedisTemplate<String, String> template, int batchSize) {
+        return scan(template, batchSize, batch -> true);
+    }
+}
@@ -1,15 +1,18 @@
 package com.ocean.shopping.service.lock;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -36,6 +39,9 @@ public class LockMetricsService {
     private final AtomicLong activeLocks = new AtomicLong(0);
     private final ConcurrentHashMap<String, Long> lockAcquisitionTimes = new ConcurrentHashMap<>();
 
+    @Value("${app.lock.cleanup.scan-batch-size:500}")
+    private int scanBatchSize = 500;
+
     public LockMetricsService(MeterRegistry meterRegistry, RedisTemplate<String, String> stringRedisTemplate) {
         this.meterRegistry = meterRegistry;
         this.stringRedisTemplate = stringRedisTemplate;
@@ -76,7 +82,7 @@ public class LockMetricsService {
      */
     public void recordLockAcquisition(String key, long acquisitionTimeMs, int attemptCount) {
         lockAcquisitionCounter.increment();
-        lockAcquisitionTimer.record(acquisitionTimeMs, java.util.concurrent.TimeUnit.MILLISECONDS);
+        lockAcquisitionTimer.record(acquisitionTimeMs, TimeUnit.MILLISECONDS);
         
         activeLocks.incrementAndGet();
         lockAcquisitionTimes.put(key, System.currentTimeMillis());
@@ -88,6 +94,19 @@ public class LockMetricsService {
         log.debug("Lock acquisition recorded: key={}, time={}ms, attempts={}", key, acquisitionTimeMs, attemptCount);
     }
 
+    /**
+     * Record time spent waiting for a lock, either on the in-JVM key queue ("local")
+     * or on the Redis lock held by another node ("remote")
+     */
+    public void recordLockWait(String level, long waitTimeMs, boolean acquired) {
+        Timer.builder("lock.wait.time")
+                .description("Time spent waiting for locks by level")
+                .tag("level", level)
+                .tag("acquired", String.valueOf(acquired))
+                .register(meterRegistry)
+                .record(waitTimeMs, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Record failed lock acquisition
      */
@@ -112,7 +131,7 @@ public class LockMetricsService {
         if (acquisitionTime != null) {
             long holdDuration = System.currentTimeMillis() - acquisitionTime;
             meterRegistry.timer("lock.hold.duration")
-                    .record(holdDuration, java.util.concurrent.TimeUnit.MILLISECONDS);
+                    .record(holdDuration, TimeUnit.MILLISECONDS);
         }
         
         log.debug("Lock release recorded: key={}", key);
@@ -156,7 +175,7 @@ public class LockMetricsService {
                 .totalExtensions((long) lockExtensionCounter.count())
                 .totalErrors((long) lockErrorCounter.count())
                 .activeLocks(activeLocks.get())
-                .averageAcquisitionTime(lockAcquisitionTimer.mean(java.util.concurrent.TimeUnit.MILLISECONDS))
+                .averageAcquisitionTime(lockAcquisitionTimer.mean(TimeUnit.MILLISECONDS))
                 .build();
     }
 
@@ -169,12 +188,35 @@ public class LockMetricsService {
         log.info("Lock metrics reset");
     }
 
+    /**
+     * Record one cleanup sweep: its duration, how many lock keys it examined and how many it removed
+     */
+    public void recordCleanupSweep(String sweep, long keysExamined, long keysRemoved, long durationMs) {
+        Timer.builder("lock.cleanup.sweep.duration")
+                .description("Duration of lock cleanup sweeps")
+                .tag("sweep", sweep)
+                .register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+
+        DistributionSummary.builder("lock.cleanup.sweep.keys.examined")
+                .description("Lock keys examined per cleanup sweep")
+                .tag("sweep", sweep)
+                .register(meterRegistry)
+                .record(keysExamined);
+
+        Counter.builder("lock.cleanup.keys.removed")
+                .description("Lock keys removed by cleanup sweeps")
+                .tag("sweep", sweep)
+                .register(meterRegistry)
+                .increment(keysRemoved);
+    }
+
     /**
      * Get real-time active lock count from Redis
      */
     public long getActualActiveLockCount() {
         try {
-            return stringRedisTemplate.keys("lock:*").size();
+            return LockKeyScanner.count(stringRedisTemplate, scanBatchSize);
         } catch (Exception e) {
             log.error("Failed to get actual active lock count from Redis", e);
             return -1;
@@ -0,0 +1,100 @@
+package com.ocean.shopping.service.lock;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wakes up threads waiting for a Redis lock when any node releases it.
+ * Release scripts publish the released lock key on {@link #RELEASE_CHANNEL};
+ * waiters subscribe before their acquisition attempt so a release that lands
+ * between the attempt and the wait is never missed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LockReleaseNotifier {
+
+    public static final String RELEASE_CHANNEL = "lock:released";
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final ConcurrentHashMap<String, Set<Subscription>> waiters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onRelease(message),
+                new ChannelTopic(RELEASE_CHANNEL));
+    }
+
+    /**
+     * Start listening for the release of any of the given Redis lock keys
+     */
+    public Subscription subscribe(Collection<String> lockKeys) {
+        Subscription subscription = new Subscription(List.copyOf(lockKeys));
+        for (String lockKey : subscription.lockKeys) {
+            waiters.compute(lockKey, (key, set) -> {
+                Set<Subscription> subscriptions = set != null ? set : ConcurrentHashMap.newKeySet();
+                subscriptions.add(subscription);
+                return subscriptions;
+            });
+        }
+        return subscription;
+    }
+
+    private void onRelease(Message message) {
+        String lockKey = new String(message.getBody(), StandardCharsets.UTF_8);
+        Set<Subscription> subscriptions = waiters.get(lockKey);
+        if (subscriptions != null) {
+            subscriptions.forEach(Subscription::signal);
+        }
+    }
+
+    /**
+     * Pending wait for a lock release; close it once the acquisition attempt is done
+     */
+    public class Subscription implements AutoCloseable {
+
+        private final List<String> lockKeys;
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private Subscription(List<String> lockKeys) {
+            this.lockKeys = lockKeys;
+        }
+
+        /**
+         * Wait until one of the keys is released or the timeout elapses
+         * @return true if woken by a release
+         */
+        public boolean await(long timeoutMs) throws InterruptedException {
+            return released.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void signal() {
+            released.countDown();
+        }
+
+        @Override
+        public void close() {
+            for (String lockKey : lockKeys) {
+                waiters.computeIfPresent(lockKey, (key, set) -> {
+                    set.remove(this);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+        }
+    }
+}
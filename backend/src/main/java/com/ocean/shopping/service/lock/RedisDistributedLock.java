@@ -5,17 +5,26 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Redis-based distributed lock implementation with deadlock prevention
  * and automatic cleanup mechanisms.
+ * <p>
+ * Locks are two-level: same-node contenders first queue on a fair in-JVM per-key queue
+ * ({@link LocalLockQueues}), so only one thread per key and node talks to Redis.
+ * The local and the Redis wait share one deadline.
+ * A thread waiting on a lock held by another node is woken by the release
+ * notification ({@link LockReleaseNotifier}) instead of sleeping out its backoff.
  */
 @Service
 @RequiredArgsConstructor
@@ -24,6 +33,11 @@ public class RedisDistributedLock implements DistributedLock {
 
     private final RedisTemplate<String, String> stringRedisTemplate;
     private final LockMetricsService lockMetricsService;
+    private final LocalLockQueues localQueues;
+    private final LockReleaseNotifier releaseNotifier;
+
+    // Local queue keys held per lock token, released together with the Redis lock
+    private final ConcurrentHashMap<String, LocalHold> localHolds = new ConcurrentHashMap<>();
 
     // Configuration properties
     @Value("${app.lock.default-ttl-seconds:30}")
@@ -40,6 +54,8 @@ public class RedisDistributedLock implements DistributedLock {
 
     // Lock key prefix
     private static final String LOCK_PREFIX = "lock:";
+
+    private static final List<String> NO_KEYS = List.of();
     
     // Lua script for atomic lock acquisition
     private static final String ACQUIRE_SCRIPT = 
@@ -49,10 +65,12 @@ public class RedisDistributedLock implements DistributedLock {
         "    return nil " +
         "end";
 
-    // Lua script for atomic lock release
+    // Lua script for atomic lock release, notifying waiting nodes
     private static final String RELEASE_SCRIPT = 
         "if redis.call('get', KEYS[1]) == ARGV[1] then " +
-        "    return redis.call('del', KEYS[1]) " +
+        "    redis.call('del', KEYS[1]) " +
+        "    redis.call('publish', ARGV[2], KEYS[1]) " +
+        "    return 1 " +
         "else " +
         "    return 0 " +
         "end";
@@ -86,38 +104,59 @@ public class RedisDistributedLock implements DistributedLock {
         log.debug("Attempting to acquire lock: {} with TTL: {}s, maxRetries: {}", lockKey, ttlSeconds, maxRetries);
         
         long startTime = System.currentTimeMillis();
+        long deadline = startTime + maxRetryWait(maxRetries);
+        
+        // Queue behind same-node contenders first
+        List<String> localKeys = acquireLocal(Collections.singletonList(key), deadline);
+        if (localKeys == null) {
+            lockMetricsService.recordLockFailure(key, 0);
+            log.warn("Failed to acquire local lock queue for: {}", lockKey);
+            return null;
+        }
+
+        long remoteStartTime = System.currentTimeMillis();
         
         try {
             for (int attempt = 0; attempt <= maxRetries; attempt++) {
-                // Try to acquire the lock
-                String result = stringRedisTemplate.execute(
-                    RedisScript.of(ACQUIRE_SCRIPT, String.class),
-                    Collections.singletonList(lockKey),
-                    token,
-                    String.valueOf(ttlSeconds)
-                );
-                
-                if ("OK".equals(result)) {
-                    long acquisitionTime = System.currentTimeMillis() - startTime;
-                    lockMetricsService.recordLockAcquisition(key, acquisitionTime, attempt);
-                    log.debug("Lock acquired successfully: {} with token: {} after {} attempts", lockKey, token, attempt + 1);
-                    return token;
-                }
-                
-                // If not the last attempt, wait before retrying
-                if (attempt < maxRetries) {
-                    long delay = calculateRetryDelay(attempt);
-                    try {
-                        Thread.sleep(delay);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        log.warn("Lock acquisition interrupted for key: {}", lockKey);
-                        break;
+                try (LockReleaseNotifier.Subscription released = releaseNotifier.subscribe(Collections.singletonList(lockKey))) {
+                    // Try to acquire the lock
+                    String result = stringRedisTemplate.execute(
+                        RedisScript.of(ACQUIRE_SCRIPT, String.class),
+                        Collections.singletonList(lockKey),
+                        token,
+                        String.valueOf(ttlSeconds)
+                    );
+                    
+                    if ("OK".equals(result)) {
+                        long acquisitionTime = System.currentTimeMillis() - startTime;
+                        lockMetricsService.recordLockWait("remote", System.currentTimeMillis() - remoteStartTime, true);
+                        lockMetricsService.recordLockAcquisition(key, acquisitionTime, attempt);
+                        holdLocal(token, localKeys, timeUnit.toMillis(ttl));
+                        localKeys = NO_KEYS;
+                        log.debug("Lock acquired successfully: {} with token: {} after {} attempts", lockKey, token, attempt + 1);
+                        return token;
+                    }
+                    
+                    // If not the last attempt, wait for the holder to release; the backoff
+                    // delay only bounds the wait for locks that expire instead
+                    if (attempt < maxRetries) {
+                        long delay = retryDelayBefore(attempt, deadline);
+                        if (delay <= 0) {
+                            break;
+                        }
+                        try {
+                            released.await(delay);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            log.warn("Lock acquisition interrupted for key: {}", lockKey);
+                            break;
+                        }
                     }
                 }
             }
             
             // Failed to acquire lock
+            lockMetricsService.recordLockWait("remote", System.currentTimeMillis() - remoteStartTime, false);
             lockMetricsService.recordLockFailure(key, maxRetries + 1);
             log.warn("Failed to acquire lock: {} after {} attempts", lockKey, maxRetries + 1);
             return null;
@@ -126,6 +165,8 @@ public class RedisDistributedLock implements DistributedLock {
             lockMetricsService.recordLockError(key, e);
             log.error("Error acquiring lock: {}", lockKey, e);
             return null;
+        } finally {
+            localQueues.release(localKeys);
         }
     }
 
@@ -145,7 +186,8 @@ public class RedisDistributedLock implements DistributedLock {
             Long result = stringRedisTemplate.execute(
                 RedisScript.of(RELEASE_SCRIPT, Long.class),
                 Collections.singletonList(lockKey),
-                token
+                token,
+                LockReleaseNotifier.RELEASE_CHANNEL
             );
             
             boolean released = result != null && result == 1;
@@ -162,6 +204,8 @@ public class RedisDistributedLock implements DistributedLock {
             lockMetricsService.recordLockError(key, e);
             log.error("Error releasing lock: {}", lockKey, e);
             return false;
+        } finally {
+            releaseLocal(token);
         }
     }
 
@@ -188,6 +232,8 @@ public class RedisDistributedLock implements DistributedLock {
             
             boolean extended = result != null && result == 1;
             if (extended) {
+                long expiresAt = System.currentTimeMillis() + timeUnit.toMillis(ttl);
+                localHolds.computeIfPresent(token, (t, hold) -> new LocalHold(hold.keys(), expiresAt));
                 lockMetricsService.recordLockExtension(key);
                 log.debug("Lock extended successfully: {}", lockKey);
             } else {
@@ -243,6 +289,67 @@ public class RedisDistributedLock implements DistributedLock {
         }
     }
 
+    /**
+     * Release local queues whose Redis lock has expired without being released,
+     * so a leaked token cannot block its keys on this node forever
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void releaseExpiredLocalHolds() {
+        long now = System.currentTimeMillis();
+        localHolds.forEach((token, hold) -> {
+            if (hold.expiresAt() < now && localHolds.remove(token, hold)) {
+                localQueues.release(hold.keys());
+                log.warn("Released local lock queues of expired lock token: {}", token);
+            }
+        });
+    }
+
+    /**
+     * Wait for the local queues of the keys; time spent here counts against the Redis retries
+     * @param deadline Epoch millis by which the whole acquisition must finish
+     * @return Acquired keys, or null if they could not be acquired in time
+     */
+    private List<String> acquireLocal(List<String> keys, long deadline) {
+        if (!localQueues.isEnabled()) {
+            return NO_KEYS;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<String> acquired = null;
+        try {
+            acquired = localQueues.acquire(keys, Math.max(0, deadline - startTime));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Local lock acquisition interrupted for keys: {}", keys);
+        }
+        lockMetricsService.recordLockWait("local", System.currentTimeMillis() - startTime, acquired != null);
+        return acquired;
+    }
+
+    private void holdLocal(String token, List<String> keys, long ttlMs) {
+        if (!keys.isEmpty()) {
+            localHolds.put(token, new LocalHold(keys, System.currentTimeMillis() + ttlMs));
+        }
+    }
+
+    private void releaseLocal(String token) {
+        LocalHold hold = localHolds.remove(token);
+        if (hold != null) {
+            localQueues.release(hold.keys());
+        }
+    }
+
+    /**
+     * Upper bound of the total backoff over all retries, without jitter
+     */
+    private long maxRetryWait(int maxRetries) {
+        long total = 0;
+        for (int attempt = 0; attempt < maxRetries; attempt++) {
+            total += Math.min(retryBaseDelayMs * (1L << Math.min(attempt, 30)), retryMaxDelayMs);
+        }
+        return total;
+    }
+
     /**
      * Generate a unique token for the lock
      */
@@ -250,6 +357,15 @@ public class RedisDistributedLock implements DistributedLock {
         return UUID.randomUUID().toString() + ":" + Instant.now().toEpochMilli();
     }
 
+    /**
+     * Backoff before the next attempt, cut short at the acquisition deadline
+     * @return Delay in millis, or 0 if the deadline has passed
+     */
+    private long retryDelayBefore(int attemptNumber, long deadline) {
+        long remaining = deadline - System.currentTimeMillis();
+        return remaining > 0 ? Math.min(calculateRetryDelay(attemptNumber), remaining) : 0;
+    }
+
     /**
      * Calculate retry delay using exponential backoff with jitter
      */
@@ -283,4 +399,10 @@ public class RedisDistributedLock implements DistributedLock {
             log.warn("Lock key '{}' does not follow recommended pattern 'service:resource:id'", key);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Local queue keys held for a lock token until release or Redis expiry
+     */
+    private record LocalHold(List<String> keys, long expiresAt) {
+    }
+}
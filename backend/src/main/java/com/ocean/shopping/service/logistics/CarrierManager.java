@@ -14,6 +14,8 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -30,6 +32,9 @@ import java.util.stream.Collectors;
 public class CarrierManager {
 
     private final Map<CarrierType, CarrierService> carrierServices;
+    private final RateShoppingEngine rateShoppingEngine;
+    private final TrackingNumberClassifier trackingNumberClassifier;
+    // Rate requests run on the rate shopping engine; this pool only tracks shipments
     private final ExecutorService executorService = Executors.newFixedThreadPool(10);
 
     /**
@@ -57,7 +62,7 @@ public class CarrierManager {
     }
 
     /**
-     * Rate shopping - get rates from all available carriers
+     * Rate shopping - get rates from all available carriers within the rate shopping deadline
      */
     public List<ShippingRateResponse> getRatesFromAllCarriers(ShippingRateRequest request) {
         List<CarrierType> preferredCarriers = request.getPreferredCarriers();
@@ -67,51 +72,38 @@ public class CarrierManager {
             ? preferredCarriers 
             : getAvailableCarriers();
 
-        List<CompletableFuture<List<ShippingRateResponse>>> futures = carriersToQuery.stream()
-                .map(carrierType -> CompletableFuture.supplyAsync(() -> {
-                    try {
-                        CarrierService service = getCarrierService(carrierType);
-                        return service.calculateRates(request);
-                    } catch (CarrierException e) {
-                        log.warn("Failed to get rates from carrier {}: {}", carrierType, e.getMessage());
-                        return new ArrayList<ShippingRateResponse>();
-                    }
-                }, executorService))
-                .collect(Collectors.toList());
-
-        // Wait for all futures to complete and combine results
-        List<ShippingRateResponse> allRates = futures.stream()
-                .map(CompletableFuture::join)
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
-
-        // Sort by total cost (cheapest first)
-        allRates.sort(Comparator.comparing(ShippingRateResponse::getTotalCost));
-
-        log.info("Rate shopping completed. Found {} rates from {} carriers", 
-                allRates.size(), carriersToQuery.size());
-
-        return allRates;
+        return rateShoppingEngine.getRates(request, carriersToQuery);
     }
 
     /**
      * Get best rate (cheapest) from all carriers
      */
     public ShippingRateResponse getBestRate(ShippingRateRequest request) {
-        List<ShippingRateResponse> rates = getRatesFromAllCarriers(request);
-        return rates.isEmpty() ? null : rates.get(0);
+        return selectCheapest(getRatesFromAllCarriers(request));
     }
 
     /**
      * Get fastest delivery option from all carriers
      */
     public ShippingRateResponse getFastestDelivery(ShippingRateRequest request) {
-        List<ShippingRateResponse> rates = getRatesFromAllCarriers(request);
-        
+        return selectFastest(getRatesFromAllCarriers(request));
+    }
+
+    /**
+     * Cheapest rate of a rate shopping result, which is sorted by total cost
+     */
+    public ShippingRateResponse selectCheapest(List<ShippingRateResponse> rates) {
+        return rates.isEmpty() ? null : rates.get(0);
+    }
+
+    /**
+     * Fastest rate of a rate shopping result, the cheapest one if no carrier gave transit days
+     */
+    public ShippingRateResponse selectFastest(List<ShippingRateResponse> rates) {
         return rates.stream()
                 .filter(rate -> rate.getTransitDays() != null)
                 .min(Comparator.comparing(ShippingRateResponse::getTransitDays))
-                .orElse(rates.isEmpty() ? null : rates.get(0));
+                .orElse(selectCheapest(rates));
     }
 
     /**
@@ -143,7 +135,8 @@ public class CarrierManager {
     }
 
     /**
-     * Track shipment with specific carrier
+     * Track shipment with specific carrier. Without one, the carrier is classified from the
+     * tracking number and the other carriers are only tried if that fails.
      */
     public TrackingResponse trackShipment(String trackingNumber, CarrierType carrierType) throws CarrierException {
         if (carrierType != null) {
@@ -152,17 +145,34 @@ public class CarrierManager {
             return service.trackShipment(trackingNumber);
         }
 
-        // Try all carriers to find the tracking number
-        List<CarrierType> availableCarriers = getAvailableCarriers();
         CarrierException lastException = null;
+        CarrierType classified = trackingNumberClassifier.classify(trackingNumber);
+        if (classified != null && carrierServices.containsKey(classified)) {
+            try {
+                TrackingResponse response = getCarrierService(classified).trackShipment(trackingNumber);
+                if (response != null) {
+                    return response;
+                }
+            } catch (CarrierException e) {
+                log.debug("Carrier {} could not track {}: {}", classified, trackingNumber, e.getMessage());
+                lastException = e;
+            }
+        }
+
+        // Unknown format: try the other carriers to find the tracking number
+        List<CarrierType> availableCarriers = getAvailableCarriers();
 
         for (CarrierType carrier : availableCarriers) {
+            if (carrier == classified) {
+                continue;
+            }
             try {
                 CarrierService service = getCarrierService(carrier);
                 TrackingResponse response = service.trackShipment(trackingNumber);
                 if (response != null) {
                     log.info("Found tracking information for {} with carrier {}", 
                             trackingNumber, carrier);
+                    trackingNumberClassifier.remember(trackingNumber, carrier);
                     return response;
                 }
             } catch (CarrierException e) {
@@ -176,22 +186,62 @@ public class CarrierManager {
     }
 
     /**
-     * Track multiple shipments in parallel
+     * Track shipments of one carrier with a single carrier request
+     */
+    public List<TrackingResponse> trackShipments(List<String> trackingNumbers, CarrierType carrierType) throws CarrierException {
+        return getCarrierService(carrierType).trackShipments(trackingNumbers);
+    }
+
+    /**
+     * Largest number of tracking numbers a carrier accepts in one tracking request
+     */
+    public int getTrackingBatchSize(CarrierType carrierType) throws CarrierException {
+        return getCarrierService(carrierType).getMaxTrackingBatchSize();
+    }
+
+    /**
+     * Track multiple shipments in parallel: one batch request per carrier for numbers whose
+     * carrier is known, one lookup across carriers for each of the others
      */
     public List<TrackingResponse> trackMultipleShipments(List<String> trackingNumbers) {
-        List<CompletableFuture<TrackingResponse>> futures = trackingNumbers.stream()
-                .map(trackingNumber -> CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return trackShipment(trackingNumber);
-                    } catch (CarrierException e) {
-                        log.warn("Failed to track shipment {}: {}", trackingNumber, e.getMessage());
-                        return null;
-                    }
-                }, executorService))
-                .collect(Collectors.toList());
+        Map<String, CarrierType> classified = trackingNumberClassifier.classifyAll(trackingNumbers);
+
+        Map<CarrierType, List<String>> byCarrier = new EnumMap<>(CarrierType.class);
+        List<String> unclassified = new ArrayList<>();
+        for (String trackingNumber : new LinkedHashSet<>(trackingNumbers)) {
+            CarrierType carrier = classified.get(TrackingNumberClassifier.normalize(trackingNumber));
+            if (carrier != null && carrierServices.containsKey(carrier)) {
+                byCarrier.computeIfAbsent(carrier, key -> new ArrayList<>()).add(trackingNumber);
+            } else {
+                unclassified.add(trackingNumber);
+            }
+        }
+
+        List<CompletableFuture<List<TrackingResponse>>> futures = new ArrayList<>();
+        byCarrier.forEach((carrier, numbers) -> {
+            int batchSize = Math.max(1, carrierServices.get(carrier).getMaxTrackingBatchSize());
+            for (int from = 0; from < numbers.size(); from += batchSize) {
+                List<String> batch = numbers.subList(from, Math.min(from + batchSize, numbers.size()));
+                futures.add(CompletableFuture.supplyAsync(() -> trackBatch(batch, carrier), executorService));
+            }
+        });
+        unclassified.forEach(trackingNumber -> futures.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                return List.of(trackShipment(trackingNumber));
+            } catch (CarrierException e) {
+                log.warn("Failed to track shipment {}: {}", trackingNumber, e.getMessage());
+                return List.<TrackingResponse>of();
+            }
+        }, executorService)));
+
+        if (!unclassified.isEmpty()) {
+            log.info("Tracking {} shipments in {} carrier batches, {} with unknown carrier",
+                    trackingNumbers.size(), futures.size() - unclassified.size(), unclassified.size());
+        }
 
         return futures.stream()
                 .map(CompletableFuture::join)
+                .flatMap(List::stream)
                 .filter(response -> response != null)
                 .collect(Collectors.toList());
     }
@@ -282,4 +332,15 @@ public class CarrierManager {
             executorService.shutdown();
         }
     }
-}
\ No newline at end of file
+
+    // Private helper methods
+
+    private List<TrackingResponse> trackBatch(List<String> trackingNumbers, CarrierType carrier) {
+        try {
+            return trackShipments(trackingNumbers, carrier);
+        } catch (CarrierException e) {
+            log.warn("Failed to track {} shipments with carrier {}: {}", trackingNumbers.size(), carrier, e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.ocean.shopping.dto.shipping.ShipmentResponse;
 import com.ocean.shopping.dto.shipping.TrackingResponse;
 import com.ocean.shopping.model.entity.enums.CarrierType;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -56,6 +57,31 @@ public interface CarrierService {
      */
     TrackingResponse trackShipment(String trackingNumber) throws CarrierException;
     
+    /**
+     * Largest number of tracking numbers one tracking request may carry.
+     * Carriers with a batch tracking API override this together with {@link #trackShipments(List)}.
+     * 
+     * @return Maximum tracking numbers per request
+     */
+    default int getMaxTrackingBatchSize() {
+        return 1;
+    }
+    
+    /**
+     * Track several shipments with one carrier request
+     * 
+     * @param trackingNumbers At most {@link #getMaxTrackingBatchSize()} tracking numbers
+     * @return Tracking status and history of the shipments the carrier found
+     * @throws CarrierException if tracking fails
+     */
+    default List<TrackingResponse> trackShipments(List<String> trackingNumbers) throws CarrierException {
+        List<TrackingResponse> responses = new ArrayList<>(trackingNumbers.size());
+        for (String trackingNumber : trackingNumbers) {
+            responses.add(trackShipment(trackingNumber));
+        }
+        return responses;
+    }
+    
     /**
      * Cancel a shipment
      * 
@@ -0,0 +1,314 @@
+package com.ocean.shopping.service.logistics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocean.shopping.config.LogisticsProperties;
+import com.ocean.shopping.dto.shipping.TrackingEventDto;
+import com.ocean.shopping.model.entity.enums.CarrierType;
+import com.ocean.shopping.model.entity.enums.ShipmentStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Verifies and normalizes carrier tracking webhooks.
+ * <p>
+ * Every carrier is configured to sign the raw request body with HMAC-SHA256 and send the
+ * digest, hex or Base64, in the configured signature header. Payloads are normalized into
+ * {@link TrackingEventDto}s keyed by tracking number. Carriers do not send a stable event
+ * ID, so one is derived from the event's content ({@link TrackingEventStore#eventId}, as
+ * for polled events); a redelivered webhook then maps onto the same
+ * {@code (shipment, eventId)} row.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CarrierWebhookParser {
+
+    private static final DateTimeFormatter UPS_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter UPS_TIME = DateTimeFormatter.ofPattern("HHmmss");
+
+    private static final Map<String, ShipmentStatus> DHL_STATUS = Map.of(
+        "pre-transit", ShipmentStatus.PENDING,
+        "transit", ShipmentStatus.IN_TRANSIT,
+        "delivered", ShipmentStatus.DELIVERED,
+        "failure", ShipmentStatus.EXCEPTION
+    );
+
+    private static final Map<String, ShipmentStatus> FEDEX_STATUS = Map.of(
+        "OC", ShipmentStatus.PENDING,
+        "PU", ShipmentStatus.PICKED_UP,
+        "IT", ShipmentStatus.IN_TRANSIT,
+        "OD", ShipmentStatus.OUT_FOR_DELIVERY,
+        "DL", ShipmentStatus.DELIVERED,
+        "DY", ShipmentStatus.DELAYED,
+        "DE", ShipmentStatus.EXCEPTION,
+        "RS", ShipmentStatus.RETURNED,
+        "CA", ShipmentStatus.CANCELLED
+    );
+
+    private static final Map<String, ShipmentStatus> UPS_STATUS = Map.of(
+        "M", ShipmentStatus.PENDING,
+        "P", ShipmentStatus.PICKED_UP,
+        "I", ShipmentStatus.IN_TRANSIT,
+        "O", ShipmentStatus.OUT_FOR_DELIVERY,
+        "D", ShipmentStatus.DELIVERED,
+        "X", ShipmentStatus.EXCEPTION,
+        "RS", ShipmentStatus.RETURNED
+    );
+
+    private final LogisticsProperties properties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Check the webhook signature of a carrier's raw payload
+     */
+    public boolean verifySignature(CarrierType carrier, String payload, String signature) {
+        LogisticsProperties.WebhookProperties webhook = properties.getWebhook();
+        if (!webhook.isValidateSignature()) {
+            return true;
+        }
+        if (!StringUtils.hasText(signature)) {
+            return false;
+        }
+
+        String secret = webhook.getCarrierSecrets().getOrDefault(carrier.getCode(), webhook.getSecretKey());
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] expected = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+
+            byte[] provided = decodeSignature(signature.trim());
+            return provided != null && MessageDigest.isEqual(expected, provided);
+        } catch (Exception e) {
+            log.error("Failed to verify {} webhook signature", carrier.getDisplayName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Normalize a carrier webhook payload into tracking events
+     * @throws IllegalArgumentException if the payload is not valid JSON of the carrier's format
+     */
+    public List<CarrierEvent> parse(CarrierType carrier, String payload) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(payload);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Malformed " + carrier.getDisplayName() + " webhook payload", e);
+        }
+
+        List<CarrierEvent> events = new ArrayList<>();
+        switch (carrier) {
+            case DHL -> parseDhl(root, events);
+            case FEDEX -> parseFedex(root, events);
+            case UPS -> parseUps(root, events);
+            case USPS -> parseUsps(root, events);
+        }
+
+        events.removeIf(event -> event.trackingNumber() == null || event.event().getEventTime() == null);
+        events.forEach(event -> event.event().setEventId(
+                TrackingEventStore.eventId(carrier, event.trackingNumber(), event.event())));
+        return events;
+    }
+
+    // Carrier formats
+
+    // {"shipments": [{"id": "...", "events": [{"timestamp", "statusCode", "status", "description", "location": {"address": {...}}}]}]}
+    private void parseDhl(JsonNode root, List<CarrierEvent> events) {
+        for (JsonNode shipment : root.path("shipments")) {
+            String trackingNumber = text(shipment, "id");
+            for (JsonNode event : shipment.path("events")) {
+                JsonNode address = event.path("location").path("address");
+                String code = text(event, "statusCode");
+                String description = firstText(event, "description", "status");
+                ShipmentStatus status = classify(DHL_STATUS.get(code), description);
+
+                events.add(new CarrierEvent(trackingNumber, TrackingEventDto.builder()
+                        .status(status)
+                        .statusDescription(text(event, "status"))
+                        .eventDescription(description)
+                        .eventTime(parseTimestamp(text(event, "timestamp")))
+                        .eventCode(code)
+                        .city(text(address, "addressLocality"))
+                        .country(text(address, "countryCode"))
+                        .postalCode(text(address, "postalCode"))
+                        .build()));
+            }
+        }
+    }
+
+    // {"trackingNumber": "...", "scanEvents": [{"date", "eventType", "eventDescription", "derivedStatusCode", "scanLocation": {...}}]}
+    private void parseFedex(JsonNode root, List<CarrierEvent> events) {
+        String trackingNumber = text(root, "trackingNumber");
+        for (JsonNode event : root.path("scanEvents")) {
+            JsonNode location = event.path("scanLocation");
+            String code = text(event, "derivedStatusCode");
+            String description = text(event, "eventDescription");
+
+            events.add(new CarrierEvent(trackingNumber, TrackingEventDto.builder()
+                    .status(classify(FEDEX_STATUS.get(code), description))
+                    .statusDescription(text(event, "derivedStatus"))
+                    .eventDescription(description)
+                    .eventTime(parseTimestamp(text(event, "date")))
+                    .eventType(text(event, "eventType"))
+                    .eventCode(code)
+                    .city(text(location, "city"))
+                    .state(text(location, "stateOrProvinceCode"))
+                    .country(text(location, "countryCode"))
+                    .postalCode(text(location, "postalCode"))
+                    .reasonCode(text(event, "exceptionCode"))
+                    .reasonDescription(text(event, "exceptionDescription"))
+                    .build()));
+        }
+    }
+
+    // One activity per notification: {"trackingNumber", "localActivityDate", "localActivityTime", "activityLocation", "activityStatus"}
+    private void parseUps(JsonNode root, List<CarrierEvent> events) {
+        JsonNode location = root.path("activityLocation");
+        JsonNode activity = root.path("activityStatus");
+        String type = text(activity, "type");
+        String description = text(activity, "description");
+
+        LocalDateTime eventTime = null;
+        String date = text(root, "localActivityDate");
+        if (date != null) {
+            String time = text(root, "localActivityTime");
+            eventTime = LocalDateTime.of(LocalDate.parse(date, UPS_DATE),
+                    time != null ? LocalTime.parse(time, UPS_TIME) : LocalTime.MIDNIGHT);
+        }
+
+        events.add(new CarrierEvent(text(root, "trackingNumber"), TrackingEventDto.builder()
+                .status(classify(UPS_STATUS.get(type), description))
+                .statusDescription(description)
+                .eventDescription(description)
+                .eventTime(eventTime)
+                .eventType(type)
+                .eventCode(text(activity, "code"))
+                .city(text(location, "city"))
+                .state(text(location, "stateProvince"))
+                .country(text(location, "countryCode"))
+                .postalCode(text(location, "postalCode"))
+                .signedBy(text(root, "signedBy"))
+                .build()));
+    }
+
+    // {"trackingNumber": "...", "trackingEvents": [{"eventType", "eventTimestamp", "eventCode", "eventCity", "eventState", "eventZIP", "eventCountry"}]}
+    private void parseUsps(JsonNode root, List<CarrierEvent> events) {
+        String trackingNumber = text(root, "trackingNumber");
+        for (JsonNode event : root.path("trackingEvents")) {
+            String description = text(event, "eventType");
+
+            events.add(new CarrierEvent(trackingNumber, TrackingEventDto.builder()
+                    .status(classify(null, description))
+                    .statusDescription(description)
+                    .eventDescription(description)
+                    .eventTime(parseTimestamp(text(event, "eventTimestamp")))
+                    .eventCode(text(event, "eventCode"))
+                    .city(text(event, "eventCity"))
+                    .state(text(event, "eventState"))
+                    .country(text(event, "eventCountry"))
+                    .postalCode(text(event, "eventZIP"))
+                    .signedBy(text(event, "name"))
+                    .build()));
+        }
+    }
+
+    // Private helper methods
+
+    /**
+     * Carrier code mapping first, then keywords of the description; anything else is in transit
+     */
+    private static ShipmentStatus classify(ShipmentStatus mapped, String description) {
+        if (mapped != null) {
+            return mapped;
+        }
+        String text = description != null ? description.toLowerCase(Locale.ROOT) : "";
+        if (text.contains("out for delivery")) {
+            return ShipmentStatus.OUT_FOR_DELIVERY;
+        }
+        if (text.contains("delivered")) {
+            return ShipmentStatus.DELIVERED;
+        }
+        if (text.contains("return")) {
+            return ShipmentStatus.RETURNED;
+        }
+        if (text.contains("picked up") || text.contains("acceptance") || text.contains("accepted")) {
+            return ShipmentStatus.PICKED_UP;
+        }
+        if (text.contains("delay")) {
+            return ShipmentStatus.DELAYED;
+        }
+        if (text.contains("exception") || text.contains("undeliverable") || text.contains("alert")) {
+            return ShipmentStatus.EXCEPTION;
+        }
+        if (text.contains("label created") || text.contains("pre-shipment") || text.contains("shipping label")) {
+            return ShipmentStatus.PENDING;
+        }
+        return ShipmentStatus.IN_TRANSIT;
+    }
+
+    private static LocalDateTime parseTimestamp(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(value);
+            } catch (DateTimeParseException invalid) {
+                throw new IllegalArgumentException("Invalid event timestamp: " + value, invalid);
+            }
+        }
+    }
+
+    private static byte[] decodeSignature(String signature) {
+        String value = signature.startsWith("sha256=") ? signature.substring("sha256=".length()) : signature;
+        try {
+            return value.length() == 64 ? HexFormat.of().parseHex(value) : Base64.getDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isValueNode() && StringUtils.hasText(value.asText()) ? value.asText() : null;
+    }
+
+    private static String firstText(JsonNode node, String... fields) {
+        for (String field : fields) {
+            String value = text(node, field);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A tracking event for one tracking number
+     */
+    public record CarrierEvent(String trackingNumber, TrackingEventDto event) {
+    }
+}
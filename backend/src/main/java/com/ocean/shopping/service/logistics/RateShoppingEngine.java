@@ -0,0 +1,410 @@
+package com.ocean.shopping.service.logistics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ocean.shopping.config.LogisticsProperties;
+import com.ocean.shopping.dto.shipping.AddressDto;
+import com.ocean.shopping.dto.shipping.PackageDto;
+import com.ocean.shopping.dto.shipping.ShippingRateRequest;
+import com.ocean.shopping.dto.shipping.ShippingRateResponse;
+import com.ocean.shopping.model.entity.enums.CarrierType;
+import com.ocean.shopping.model.entity.enums.ServiceType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parallel rate shopping across carriers.
+ * <p>
+ * Carriers are queried concurrently and the answer is whatever arrived before the global
+ * deadline; a carrier that is slow or down only drops its own rates. Each carrier has a
+ * bulkhead (concurrent calls sized from its rate limit) and a circuit breaker that skips
+ * it for a while after consecutive failures, so one bad carrier can neither hold up
+ * checkout nor take all the threads. Complete answers are cached per normalized shipment
+ * (origin and destination zone, weight bucket, dimensions, services and options), so
+ * cheapest and fastest selection for the same shipment share one fan-out.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RateShoppingEngine {
+
+    // Carriers price by the first three postal code characters (US ZIP3 sectional centers)
+    private static final int ZONE_POSTAL_PREFIX = 3;
+
+    // Weights are rounded up to half kilograms and dimensions up to whole centimeters
+    private static final BigDecimal WEIGHT_BUCKET_KG = new BigDecimal("0.5");
+    private static final BigDecimal KG_PER_LB = new BigDecimal("0.45359237");
+    private static final BigDecimal CM_PER_IN = new BigDecimal("2.54");
+
+    // Each concurrent rate call is budgeted this share of a carrier's per-minute limit
+    private static final int RATE_LIMIT_PER_CONCURRENT_CALL = 20;
+
+    private final Map<CarrierType, CarrierService> carrierServices;
+    private final LogisticsProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<CarrierType, Semaphore> bulkheads = new EnumMap<>(CarrierType.class);
+    private final Map<CarrierType, CircuitBreaker> circuitBreakers = new EnumMap<>(CarrierType.class);
+    private final Map<CarrierType, Map<String, Counter>> callCounters = new EnumMap<>(CarrierType.class);
+
+    private Cache<QuoteKey, List<ShippingRateResponse>> quoteCache;
+    private ThreadPoolExecutor rateExecutor;
+
+    private Timer shoppingTimer;
+
+    @PostConstruct
+    public void initialize() {
+        LogisticsProperties.RateShoppingProperties rateShopping = properties.getRateShopping();
+
+        int threads = 0;
+        for (CarrierType carrier : carrierServices.keySet()) {
+            int permits = Math.max(1, Math.min(rateShopping.getMaxConcurrentCallsPerCarrier(),
+                    properties.getRateLimitPerMinute(carrier) / RATE_LIMIT_PER_CONCURRENT_CALL));
+            bulkheads.put(carrier, new Semaphore(permits));
+            circuitBreakers.put(carrier, new CircuitBreaker(rateShopping.getCircuitFailureThreshold(),
+                    TimeUnit.SECONDS.toMillis(rateShopping.getCircuitOpenSeconds())));
+            threads += permits;
+
+            Map<String, Counter> counters = new LinkedHashMap<>();
+            for (String result : List.of("success", "failure", "timeout", "circuit_open", "bulkhead_full")) {
+                counters.put(result, Counter.builder("rate.shopping.carrier.calls")
+                        .description("Carrier rate requests by outcome")
+                        .tag("carrier", carrier.getCode())
+                        .tag("result", result)
+                        .register(meterRegistry));
+            }
+            callCounters.put(carrier, counters);
+            Gauge.builder("rate.shopping.circuit.open", circuitBreakers.get(carrier), breaker -> breaker.isOpen() ? 1 : 0)
+                    .description("Whether rate requests to the carrier are suspended")
+                    .tag("carrier", carrier.getCode())
+                    .register(meterRegistry);
+        }
+
+        // Bulkheads admit at most one call per thread, so the pool never has to queue or reject
+        rateExecutor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), namedThreads("rate-shopping-"), new ThreadPoolExecutor.AbortPolicy());
+        rateExecutor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(rateExecutor, "rate.shopping", Tags.empty()).bindTo(meterRegistry);
+
+        quoteCache = Caffeine.newBuilder()
+                .maximumSize(rateShopping.getCacheMaxEntries())
+                .expireAfterWrite(Duration.ofMinutes(rateShopping.getCacheExpiryMinutes()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, quoteCache, "rate.shopping.quotes");
+
+        shoppingTimer = Timer.builder("rate.shopping.request")
+                .description("Time taken to collect rates from all carriers")
+                .register(meterRegistry);
+
+        log.info("Rate shopping started - carriers: {}, threads: {}, deadline: {}ms",
+                carrierServices.keySet(), threads, rateShopping.getDeadlineMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rateExecutor.shutdownNow();
+    }
+
+    /**
+     * Rates from the given carriers, cheapest first. Carriers that fail, are suspended or
+     * do not answer within the deadline contribute no rates.
+     */
+    public List<ShippingRateResponse> getRates(ShippingRateRequest request, List<CarrierType> carriers) {
+        boolean cacheRates = properties.getRateShopping().isCacheRates();
+        QuoteKey key = cacheRates ? QuoteKey.of(request, carriers) : null;
+        if (key != null) {
+            List<ShippingRateResponse> cached = quoteCache.getIfPresent(key);
+            if (cached != null) {
+                return new ArrayList<>(cached);
+            }
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<CarrierType, CompletableFuture<List<ShippingRateResponse>>> calls = new EnumMap<>(CarrierType.class);
+        boolean complete = true;
+        for (CarrierType carrier : carriers) {
+            CompletableFuture<List<ShippingRateResponse>> call = startCall(carrier, request);
+            if (call != null) {
+                calls.put(carrier, call);
+            } else {
+                complete = false;
+            }
+        }
+
+        awaitDeadline(calls.values());
+
+        List<ShippingRateResponse> rates = new ArrayList<>();
+        for (Map.Entry<CarrierType, CompletableFuture<List<ShippingRateResponse>>> entry : calls.entrySet()) {
+            List<ShippingRateResponse> carrierRates = collect(entry.getKey(), entry.getValue());
+            if (carrierRates == null) {
+                complete = false;
+            } else {
+                rates.addAll(carrierRates);
+            }
+        }
+        rates.sort(Comparator.comparing(ShippingRateResponse::getTotalCost,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        sample.stop(shoppingTimer);
+
+        // A partial answer is not cached, so the missing carriers are asked again next time
+        if (key != null && complete) {
+            quoteCache.put(key, List.copyOf(rates));
+        }
+
+        log.info("Rate shopping completed. Found {} rates from {} of {} carriers",
+                rates.size(), calls.size(), carriers.size());
+        return rates;
+    }
+
+    // Private helper methods
+
+    private CompletableFuture<List<ShippingRateResponse>> startCall(CarrierType carrier, ShippingRateRequest request) {
+        CarrierService service = carrierServices.get(carrier);
+        if (service == null || !service.isAvailable()) {
+            log.debug("Carrier {} is not available for rate shopping", carrier);
+            return null;
+        }
+
+        CircuitBreaker breaker = circuitBreakers.get(carrier);
+        if (!breaker.tryAcquire()) {
+            callCounters.get(carrier).get("circuit_open").increment();
+            return null;
+        }
+
+        Semaphore bulkhead = bulkheads.get(carrier);
+        if (!bulkhead.tryAcquire()) {
+            breaker.release();
+            callCounters.get(carrier).get("bulkhead_full").increment();
+            log.warn("Skipping carrier {} - too many rate requests in flight", carrier);
+            return null;
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return service.calculateRates(request);
+                } catch (CarrierException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }, rateExecutor).whenComplete((rates, error) -> bulkhead.release());
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            breaker.release();
+            throw e;
+        }
+    }
+
+    private void awaitDeadline(Iterable<CompletableFuture<List<ShippingRateResponse>>> calls) {
+        List<CompletableFuture<List<ShippingRateResponse>>> pending = new ArrayList<>();
+        calls.forEach(pending::add);
+        CompletableFuture<?>[] all = pending.toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(all)
+                    .get(properties.getRateShopping().getDeadlineMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Outcomes are read per carrier
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Rates of one finished call, or null if it failed or missed the deadline
+     */
+    private List<ShippingRateResponse> collect(CarrierType carrier, CompletableFuture<List<ShippingRateResponse>> call) {
+        CircuitBreaker breaker = circuitBreakers.get(carrier);
+        if (!call.isDone()) {
+            // The call keeps its bulkhead permit until it returns
+            breaker.recordFailure();
+            callCounters.get(carrier).get("timeout").increment();
+            log.warn("Carrier {} did not return rates within {}ms", carrier, properties.getRateShopping().getDeadlineMillis());
+            return null;
+        }
+
+        try {
+            List<ShippingRateResponse> rates = call.join();
+            breaker.recordSuccess();
+            callCounters.get(carrier).get("success").increment();
+            return rates != null ? rates : List.of();
+        } catch (RuntimeException e) {
+            breaker.recordFailure();
+            callCounters.get(carrier).get("failure").increment();
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.warn("Failed to get rates from carrier {}: {}", carrier, cause.getMessage());
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Consecutive-failure circuit breaker. After the threshold the circuit opens for a fixed
+     * time; then a single trial call decides whether it closes again or stays open.
+     */
+    private static class CircuitBreaker {
+        private final int failureThreshold;
+        private final long openMillis;
+
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean trialInFlight;
+
+        CircuitBreaker(int failureThreshold, long openMillis) {
+            this.failureThreshold = failureThreshold;
+            this.openMillis = openMillis;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (consecutiveFailures < failureThreshold) {
+                return true;
+            }
+            if (System.currentTimeMillis() < openUntil || trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+
+        /**
+         * Give back an acquired call that was never made
+         */
+        synchronized void release() {
+            trialInFlight = false;
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void recordFailure() {
+            consecutiveFailures++;
+            trialInFlight = false;
+            if (consecutiveFailures >= failureThreshold) {
+                openUntil = System.currentTimeMillis() + openMillis;
+            }
+        }
+
+        synchronized boolean isOpen() {
+            return consecutiveFailures >= failureThreshold && System.currentTimeMillis() < openUntil;
+        }
+    }
+
+    /**
+     * Normalized shipment a set of quotes applies to
+     */
+    private record QuoteKey(String originZone, String destinationZone, BigDecimal weightBucket,
+                            List<String> dimensions, Set<ServiceType> services, Set<CarrierType> carriers,
+                            LocalDate shipDate, String options) {
+
+        static QuoteKey of(ShippingRateRequest request, List<CarrierType> carriers) {
+            BigDecimal totalKg = BigDecimal.ZERO;
+            List<String> dimensions = new ArrayList<>();
+            for (PackageDto pkg : request.getPackages()) {
+                totalKg = totalKg.add(toKilograms(pkg.getWeight(), pkg.getWeightUnit()));
+                dimensions.add(dimensionKey(pkg));
+            }
+            dimensions.sort(Comparator.naturalOrder());
+
+            Set<ServiceType> services = request.getPreferredServices() == null || request.getPreferredServices().isEmpty()
+                    ? EnumSet.allOf(ServiceType.class)
+                    : EnumSet.copyOf(request.getPreferredServices());
+
+            return new QuoteKey(
+                    zone(request.getOriginAddress()),
+                    zone(request.getDestinationAddress()),
+                    roundUp(totalKg, WEIGHT_BUCKET_KG),
+                    dimensions,
+                    services,
+                    carriers.isEmpty() ? EnumSet.noneOf(CarrierType.class) : EnumSet.copyOf(carriers),
+                    request.getShipDate() != null ? request.getShipDate() : LocalDate.now(),
+                    options(request));
+        }
+
+        private static String zone(AddressDto address) {
+            String postal = address.getPostalCode() == null ? ""
+                    : address.getPostalCode().replaceAll("[^A-Za-z0-9]", "").toUpperCase(Locale.ROOT);
+            return address.getCountry().toUpperCase(Locale.ROOT) + ":"
+                    + postal.substring(0, Math.min(ZONE_POSTAL_PREFIX, postal.length()));
+        }
+
+        private static String dimensionKey(PackageDto pkg) {
+            if (pkg.getLength() == null || pkg.getWidth() == null || pkg.getHeight() == null) {
+                return "-";
+            }
+            // Orientation does not change the price
+            return Stream.of(pkg.getLength(), pkg.getWidth(), pkg.getHeight())
+                    .map(value -> toCentimeters(value, pkg.getDimensionUnit()).setScale(0, RoundingMode.CEILING))
+                    .sorted()
+                    .map(BigDecimal::toPlainString)
+                    .collect(Collectors.joining("x"));
+        }
+
+        private static String options(ShippingRateRequest request) {
+            String insured = request.isIncludeInsurance() && request.getDeclaredValue() != null
+                    ? request.getDeclaredValue().setScale(0, RoundingMode.CEILING).toPlainString()
+                    : "-";
+            return String.join("|",
+                    String.valueOf(request.isIncludeDuties()),
+                    String.valueOf(request.isSignatureRequired()),
+                    String.valueOf(request.isSaturdayDelivery()),
+                    insured,
+                    request.getCurrency() != null ? request.getCurrency().toUpperCase(Locale.ROOT) : "USD");
+        }
+
+        private static BigDecimal toKilograms(BigDecimal weight, String unit) {
+            return "lb".equalsIgnoreCase(unit) ? weight.multiply(KG_PER_LB) : weight;
+        }
+
+        private static BigDecimal toCentimeters(BigDecimal length, String unit) {
+            return "in".equalsIgnoreCase(unit) ? length.multiply(CM_PER_IN) : length;
+        }
+
+        private static BigDecimal roundUp(BigDecimal value, BigDecimal bucket) {
+            return value.divide(bucket, 0, RoundingMode.CEILING).multiply(bucket);
+        }
+    }
+}
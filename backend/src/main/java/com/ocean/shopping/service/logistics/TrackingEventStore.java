@@ -0,0 +1,178 @@
+package com.ocean.shopping.service.logistics;
+
+import com.ocean.shopping.dto.shipping.TrackingEventDto;
+import com.ocean.shopping.model.entity.enums.CarrierType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Batched writes of carrier tracking events ({@code tracking_events}).
+ * <p>
+ * Events are keyed by {@code (shipment_id, event_id)}: a batch is one upsert that
+ * inserts new events and refreshes the descriptive columns of known ones only when
+ * the carrier changed them, so redelivered events cost no write. Polled tracking
+ * histories, which repeat every known event on each poll, are instead diffed against the
+ * stored event IDs and only new events are inserted. Rows are written with plain JDBC in
+ * the caller's transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class TrackingEventStore {
+
+    // Columns a carrier may correct on a redelivered event
+    private static final List<String> EVENT_COLUMNS = List.of(
+        "status", "status_description", "event_description", "event_time", "event_type", "event_code",
+        "location", "city", "state", "country", "postal_code", "facility_name", "reason_code",
+        "reason_description", "next_action", "signed_by", "is_delivery_attempt", "is_exception", "is_final_delivery");
+
+    private static final String UPSERT_EVENT_SQL =
+        "INSERT INTO tracking_events (id, shipment_id, event_id, " + String.join(", ", EVENT_COLUMNS) + ", " +
+        "notification_sent, processed_at, created_at, updated_at) " +
+        "VALUES (?, ?, ?, " + EVENT_COLUMNS.stream().map(column -> "?").collect(Collectors.joining(", ")) +
+        ", FALSE, ?, ?, ?) " +
+        "ON CONFLICT (shipment_id, event_id) DO UPDATE SET " +
+        EVENT_COLUMNS.stream().map(column -> column + " = EXCLUDED." + column).collect(Collectors.joining(", ")) +
+        ", processed_at = EXCLUDED.processed_at, updated_at = EXCLUDED.updated_at " +
+        "WHERE (" + EVENT_COLUMNS.stream().map(column -> "tracking_events." + column).collect(Collectors.joining(", ")) +
+        ") IS DISTINCT FROM (" + EVENT_COLUMNS.stream().map(column -> "EXCLUDED." + column).collect(Collectors.joining(", ")) + ")";
+
+    private static final String INSERT_EVENT_SQL =
+        "INSERT INTO tracking_events (id, shipment_id, event_id, " + String.join(", ", EVENT_COLUMNS) + ", " +
+        "notification_sent, processed_at, created_at, updated_at) " +
+        "VALUES (?, ?, ?, " + EVENT_COLUMNS.stream().map(column -> "?").collect(Collectors.joining(", ")) +
+        ", FALSE, ?, ?, ?) " +
+        "ON CONFLICT (shipment_id, event_id) DO NOTHING";
+
+    private static final String FIND_EVENT_IDS_SQL =
+        "SELECT shipment_id, event_id FROM tracking_events WHERE shipment_id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert or refresh a batch of events in one JDBC batch. An event repeated within the
+     * batch is written once, the last occurrence winning.
+     */
+    public void upsertEvents(List<ShipmentEvent> events) {
+        // Batched inserts are rewritten into one multi-row statement, which may not touch a key twice
+        Map<EventKey, ShipmentEvent> unique = new LinkedHashMap<>();
+        events.forEach(event -> unique.put(new EventKey(event.shipmentId(), event.event().getEventId()), event));
+        List<ShipmentEvent> rows = new ArrayList<>(unique.values());
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        write(UPSERT_EVENT_SQL, rows);
+    }
+
+    /**
+     * Insert the events not stored yet, with one lookup of the stored event IDs of all
+     * shipments in the batch and one insert of the new events; known events are not
+     * written at all
+     * @return The events inserted
+     */
+    public List<ShipmentEvent> insertNewEvents(List<ShipmentEvent> events) {
+        if (events.isEmpty()) {
+            return List.of();
+        }
+
+        Set<UUID> shipmentIds = new HashSet<>();
+        events.forEach(event -> shipmentIds.add(event.shipmentId()));
+        Set<EventKey> known = new HashSet<>();
+        jdbcTemplate.query(FIND_EVENT_IDS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", shipmentIds.toArray())),
+                rs -> {
+                    known.add(new EventKey(rs.getObject("shipment_id", UUID.class), rs.getString("event_id")));
+                });
+
+        Map<EventKey, ShipmentEvent> fresh = new LinkedHashMap<>();
+        for (ShipmentEvent event : events) {
+            EventKey key = new EventKey(event.shipmentId(), event.event().getEventId());
+            if (!known.contains(key)) {
+                fresh.putIfAbsent(key, event);
+            }
+        }
+        List<ShipmentEvent> rows = new ArrayList<>(fresh.values());
+        if (!rows.isEmpty()) {
+            // A concurrent writer (webhook) may have stored one meanwhile; that row stays as it is
+            write(INSERT_EVENT_SQL, rows);
+        }
+        return rows;
+    }
+
+    // Private helper methods
+
+    private void write(String sql, List<ShipmentEvent> rows) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, row) -> {
+            TrackingEventDto event = row.event();
+            int i = 1;
+            ps.setObject(i++, UUID.randomUUID());
+            ps.setObject(i++, row.shipmentId());
+            ps.setString(i++, event.getEventId());
+            ps.setString(i++, event.getStatus().name());
+            ps.setString(i++, event.getStatusDescription());
+            ps.setString(i++, event.getEventDescription());
+            ps.setTimestamp(i++, Timestamp.valueOf(event.getEventTime()));
+            ps.setString(i++, event.getEventType());
+            ps.setString(i++, event.getEventCode());
+            ps.setString(i++, event.getLocation());
+            ps.setString(i++, event.getCity());
+            ps.setString(i++, event.getState());
+            ps.setString(i++, event.getCountry());
+            ps.setString(i++, event.getPostalCode());
+            ps.setString(i++, event.getFacilityName());
+            ps.setString(i++, event.getReasonCode());
+            ps.setString(i++, event.getReasonDescription());
+            ps.setString(i++, event.getNextAction());
+            ps.setString(i++, event.getSignedBy());
+            ps.setBoolean(i++, Boolean.TRUE.equals(event.getIsDeliveryAttempt()));
+            ps.setBoolean(i++, Boolean.TRUE.equals(event.getIsException()));
+            ps.setBoolean(i++, event.isTerminalEvent());
+            ps.setTimestamp(i++, now);
+            ps.setTimestamp(i++, now);
+            ps.setTimestamp(i, now);
+        });
+    }
+
+    /**
+     * Event ID derived from the event's content. Webhook payloads carry no carrier event ID,
+     * so polled and pushed events are both keyed this way and the same scan maps onto one row.
+     */
+    public static String eventId(CarrierType carrier, String trackingNumber, TrackingEventDto event) {
+        String key = String.join("|", TrackingNumberClassifier.normalize(trackingNumber),
+                String.valueOf(event.getEventTime()), String.valueOf(event.getEventCode()),
+                String.valueOf(event.getEventDescription()), String.valueOf(event.getCity()),
+                String.valueOf(event.getPostalCode()));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return carrier.getCode() + ":" + HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * A normalized carrier event for a known shipment
+     */
+    public record ShipmentEvent(UUID shipmentId, TrackingEventDto event) {
+    }
+
+    private record EventKey(UUID shipmentId, String eventId) {
+    }
+}
@@ -0,0 +1,249 @@
+package com.ocean.shopping.service.logistics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ocean.shopping.config.LogisticsProperties;
+import com.ocean.shopping.model.entity.enums.CarrierType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Works out which carrier a tracking number belongs to, so tracking goes straight to that
+ * carrier instead of asking each one in turn.
+ * <p>
+ * The carrier is looked up in this order: numbers seen recently (in memory), our own
+ * shipments (the {@code shipments} table is the persistent tracking number to carrier
+ * map), then the carriers' number formats, validated by their check digits. Numbers that
+ * match no format, or more than one, stay unclassified.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TrackingNumberClassifier {
+
+    private static final String FIND_CARRIERS_SQL =
+        "SELECT tracking_number, carrier FROM shipments WHERE tracking_number = ANY(?)";
+
+    // UPS: 1Z, 6 character shipper number, 2 digit service, 7 digit package, check digit
+    private static final Pattern UPS_1Z = Pattern.compile("1Z[0-9A-Z]{16}");
+
+    // FedEx Express (12 digits) and Ground (15 digits)
+    private static final Pattern FEDEX_EXPRESS = Pattern.compile("\\d{12}");
+    private static final Pattern FEDEX_GROUND = Pattern.compile("\\d{15}");
+
+    // DHL Express waybill
+    private static final Pattern DHL_EXPRESS = Pattern.compile("\\d{10}");
+
+    // USPS Intelligent Mail package barcode and UPU S10 international items posted in the US
+    private static final Pattern USPS_IMPB = Pattern.compile("9[2-5]\\d{20}");
+    private static final Pattern USPS_S10 = Pattern.compile("[A-Z]{2}\\d{9}US");
+
+    private static final int[] FEDEX_EXPRESS_WEIGHTS = {3, 1, 7, 3, 1, 7, 3, 1, 7, 3, 1};
+    private static final int[] S10_WEIGHTS = {8, 6, 4, 2, 3, 5, 9, 7};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LogisticsProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, CarrierType> knownCarriers;
+
+    private Counter cacheCounter;
+    private Counter shipmentCounter;
+    private Counter formatCounter;
+    private Counter unknownCounter;
+
+    @PostConstruct
+    public void initialize() {
+        knownCarriers = Caffeine.newBuilder()
+                .maximumSize(properties.getTracking().getCarrierCacheMaxEntries())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, knownCarriers, "tracking.carriers");
+
+        cacheCounter = classifications("cache");
+        shipmentCounter = classifications("shipment");
+        formatCounter = classifications("format");
+        unknownCounter = classifications("unknown");
+    }
+
+    /**
+     * Carrier of a tracking number, or null if it cannot be told
+     */
+    public CarrierType classify(String trackingNumber) {
+        return classifyAll(List.of(trackingNumber)).get(normalize(trackingNumber));
+    }
+
+    /**
+     * Carriers of several tracking numbers, with one shipments lookup for all numbers not
+     * seen recently. Unclassified numbers are left out of the result.
+     *
+     * @return Carrier by normalized tracking number
+     */
+    public Map<String, CarrierType> classifyAll(Collection<String> trackingNumbers) {
+        Map<String, CarrierType> carriers = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String trackingNumber : trackingNumbers) {
+            String normalized = normalize(trackingNumber);
+            CarrierType carrier = knownCarriers.getIfPresent(normalized);
+            if (carrier != null) {
+                carriers.put(normalized, carrier);
+                cacheCounter.increment();
+            } else if (!normalized.isEmpty()) {
+                missing.add(normalized);
+            }
+        }
+        if (missing.isEmpty()) {
+            return carriers;
+        }
+
+        Map<String, CarrierType> stored = findShipmentCarriers(missing);
+        for (String trackingNumber : missing) {
+            CarrierType carrier = stored.get(trackingNumber);
+            Counter source = shipmentCounter;
+            if (carrier == null) {
+                carrier = matchFormat(trackingNumber);
+                source = formatCounter;
+            }
+            if (carrier == null) {
+                unknownCounter.increment();
+                continue;
+            }
+            source.increment();
+            carriers.put(trackingNumber, carrier);
+            knownCarriers.put(trackingNumber, carrier);
+        }
+        return carriers;
+    }
+
+    /**
+     * Remember the carrier that answered for a tracking number
+     */
+    public void remember(String trackingNumber, CarrierType carrier) {
+        knownCarriers.put(normalize(trackingNumber), carrier);
+    }
+
+    /**
+     * Tracking numbers as carriers print them: upper case, without spaces or dashes
+     */
+    public static String normalize(String trackingNumber) {
+        return trackingNumber == null ? "" : trackingNumber.replaceAll("[\\s-]", "").toUpperCase(Locale.ROOT);
+    }
+
+    // Private helper methods
+
+    private Map<String, CarrierType> findShipmentCarriers(Set<String> trackingNumbers) {
+        Map<String, CarrierType> carriers = new HashMap<>();
+        try {
+            jdbcTemplate.query(FIND_CARRIERS_SQL,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", trackingNumbers.toArray())),
+                    rs -> {
+                        carriers.put(normalize(rs.getString("tracking_number")), CarrierType.valueOf(rs.getString("carrier")));
+                    });
+        } catch (Exception e) {
+            // Formats still classify most numbers
+            log.warn("Failed to look up carriers of {} tracking numbers: {}", trackingNumbers.size(), e.getMessage());
+        }
+        return carriers;
+    }
+
+    private CarrierType matchFormat(String trackingNumber) {
+        Set<CarrierType> matches = EnumSet.noneOf(CarrierType.class);
+        if (UPS_1Z.matcher(trackingNumber).matches() && isValidUps(trackingNumber)) {
+            matches.add(CarrierType.UPS);
+        }
+        if ((FEDEX_EXPRESS.matcher(trackingNumber).matches() && isValidFedexExpress(trackingNumber))
+                || (FEDEX_GROUND.matcher(trackingNumber).matches() && isValidMod10(trackingNumber))) {
+            matches.add(CarrierType.FEDEX);
+        }
+        if (DHL_EXPRESS.matcher(trackingNumber).matches() && isValidDhlExpress(trackingNumber)) {
+            matches.add(CarrierType.DHL);
+        }
+        if ((USPS_IMPB.matcher(trackingNumber).matches() && isValidMod10(trackingNumber))
+                || (USPS_S10.matcher(trackingNumber).matches() && isValidS10(trackingNumber))) {
+            matches.add(CarrierType.USPS);
+        }
+        return matches.size() == 1 ? matches.iterator().next() : null;
+    }
+
+    /**
+     * UPS: letters count as (position in alphabet + 1) mod 10, every second character doubles
+     */
+    private static boolean isValidUps(String trackingNumber) {
+        int sum = 0;
+        for (int i = 2; i < trackingNumber.length() - 1; i++) {
+            char c = trackingNumber.charAt(i);
+            int value = Character.isDigit(c) ? c - '0' : (c - 'A' + 2) % 10;
+            sum += (i % 2 == 1) ? value * 2 : value;
+        }
+        return (10 - sum % 10) % 10 == checkDigit(trackingNumber);
+    }
+
+    private static boolean isValidFedexExpress(String trackingNumber) {
+        int sum = 0;
+        for (int i = 0; i < FEDEX_EXPRESS_WEIGHTS.length; i++) {
+            sum += (trackingNumber.charAt(i) - '0') * FEDEX_EXPRESS_WEIGHTS[i];
+        }
+        return sum % 11 % 10 == checkDigit(trackingNumber);
+    }
+
+    private static boolean isValidDhlExpress(String trackingNumber) {
+        return Long.parseLong(trackingNumber.substring(0, 9)) % 7 == checkDigit(trackingNumber);
+    }
+
+    /**
+     * GS1 mod 10: weights 3 and 1 alternating from the digit next to the check digit
+     */
+    private static boolean isValidMod10(String trackingNumber) {
+        int sum = 0;
+        int weight = 3;
+        for (int i = trackingNumber.length() - 2; i >= 0; i--) {
+            sum += (trackingNumber.charAt(i) - '0') * weight;
+            weight = weight == 3 ? 1 : 3;
+        }
+        return (10 - sum % 10) % 10 == checkDigit(trackingNumber);
+    }
+
+    /**
+     * UPU S10: mod 11 over the 8 digit serial number
+     */
+    private static boolean isValidS10(String trackingNumber) {
+        int sum = 0;
+        for (int i = 0; i < S10_WEIGHTS.length; i++) {
+            sum += (trackingNumber.charAt(i + 2) - '0') * S10_WEIGHTS[i];
+        }
+        int check = 11 - sum % 11;
+        if (check == 10) {
+            check = 0;
+        } else if (check == 11) {
+            check = 5;
+        }
+        return check == trackingNumber.charAt(10) - '0';
+    }
+
+    private static int checkDigit(String trackingNumber) {
+        return trackingNumber.charAt(trackingNumber.length() - 1) - '0';
+    }
+
+    private Counter classifications(String source) {
+        return Counter.builder("tracking.classifier.lookups")
+                .description("Tracking number carrier lookups by where the carrier was found")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,435 @@
+package com.ocean.shopping.service.logistics;
+
+import com.ocean.shopping.config.LogisticsProperties;
+import com.ocean.shopping.dto.shipping.TrackingResponse;
+import com.ocean.shopping.model.entity.enums.CarrierType;
+import com.ocean.shopping.model.entity.enums.ShipmentStatus;
+import com.ocean.shopping.service.TrackingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Polls carriers for tracking updates of active shipments, within each carrier's rate limit.
+ * <p>
+ * Every few minutes the active shipments are read in pages, without a transaction, and
+ * those due before the next refill are queued per carrier, ordered by due time. A shipment
+ * is due one poll interval after its last poll; the interval depends on its status (an
+ * out-for-delivery shipment is polled far more often than a pending one) and doubles for
+ * every day without a new event. Shipments with recent webhook activity are not polled.
+ * <p>
+ * A dispatcher hands due shipments to a small worker pool, one carrier request at a time,
+ * each request taking a token from the carrier's bucket (refilled at its
+ * {@code rate-limit-per-minute}, with a burst of five seconds' worth). Carriers with a
+ * batch tracking API get several shipments per request. Each response is applied in a
+ * transaction of its own.
+ * <p>
+ * Queues and buckets live in memory, so only one application instance polls at a time:
+ * the one holding the leader lease in Redis, renewed on every dispatch pass. The other
+ * instances stay idle and take over, with a fresh refill, once the lease runs out. The
+ * carrier rate limits therefore hold for the whole deployment.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrackingPollScheduler {
+
+    private static final String FIND_ACTIVE_SHIPMENTS_SQL =
+        "SELECT s.id, s.tracking_number, s.carrier, s.status, s.last_tracking_update, " +
+        "(SELECT MAX(e.event_time) FROM tracking_events e WHERE e.shipment_id = s.id) AS last_event_at " +
+        "FROM shipments s " +
+        "WHERE s.status = ANY(?) AND s.carrier = ANY(?) " +
+        "AND (s.last_webhook_at IS NULL OR s.last_webhook_at < ?) AND s.id > ? " +
+        "ORDER BY s.id LIMIT ?";
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int MAX_QUIET_DAY_DOUBLINGS = 4;
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(15);
+
+    private static final String LEADER_KEY = "tracking:poll:leader";
+    private static final Duration LEADER_LEASE = Duration.ofSeconds(30);
+
+    // Take the lease if it is free, renew it if we hold it
+    private static final RedisScript<Long> LEAD_SCRIPT = RedisScript.of(
+        "local holder = redis.call('get', KEYS[1]) " +
+        "if holder == ARGV[1] then " +
+        "    redis.call('pexpire', KEYS[1], ARGV[2]) " +
+        "    return 1 " +
+        "elseif not holder then " +
+        "    redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+        "    return 1 " +
+        "end " +
+        "return 0", Long.class);
+
+    private static final RedisScript<Long> RESIGN_SCRIPT = RedisScript.of(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+        "    return redis.call('del', KEYS[1]) " +
+        "end " +
+        "return 0", Long.class);
+
+    private final CarrierManager carrierManager;
+    private final TrackingService trackingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    private final LogisticsProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<CarrierType, CarrierQueue> queues = new EnumMap<>(CarrierType.class);
+    private final Map<CarrierType, Timer> requestTimers = new EnumMap<>(CarrierType.class);
+    // Shipments queued or being polled
+    private final Set<UUID> scheduled = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, LocalDateTime> retryAfter = new ConcurrentHashMap<>();
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private volatile boolean leader;
+
+    private ExecutorService pollers;
+    private Semaphore pollSlots;
+
+    private Counter updatedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void initialize() {
+        LogisticsProperties.TrackingProperties tracking = properties.getTracking();
+        pollers = Executors.newFixedThreadPool(tracking.getPollConcurrency());
+        pollSlots = new Semaphore(tracking.getPollConcurrency());
+
+        for (CarrierType carrier : CarrierType.values()) {
+            CarrierQueue queue = new CarrierQueue(new TokenBucket(properties.getRateLimitPerMinute(carrier)));
+            queues.put(carrier, queue);
+
+            Gauge.builder("tracking.poll.queue.depth", queue.tasks(), PriorityBlockingQueue::size)
+                    .description("Shipments queued for a tracking poll")
+                    .tag("carrier", carrier.getCode())
+                    .register(meterRegistry);
+            Gauge.builder("tracking.poll.staleness", queue, CarrierQueue::overdueSeconds)
+                    .description("Seconds the most overdue queued shipment has been waiting")
+                    .baseUnit("seconds")
+                    .tag("carrier", carrier.getCode())
+                    .register(meterRegistry);
+            requestTimers.put(carrier, Timer.builder("tracking.poll.request")
+                    .description("Carrier tracking requests")
+                    .tag("carrier", carrier.getCode())
+                    .register(meterRegistry));
+        }
+
+        updatedCounter = Counter.builder("tracking.poll.shipments")
+                .description("Shipments polled from carriers")
+                .tag("result", "updated")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("tracking.poll.shipments")
+                .description("Shipments polled from carriers")
+                .tag("result", "failed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pollers.shutdownNow();
+        if (leader) {
+            try {
+                // Let another instance take over without waiting out the lease
+                stringRedisTemplate.execute(RESIGN_SCRIPT, List.of(LEADER_KEY), instanceId);
+            } catch (Exception e) {
+                log.warn("Failed to resign tracking poll leadership: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queue active shipments that become due before the next refill
+     */
+    @Scheduled(fixedDelayString = "${logistics.tracking.refill-interval-minutes:5}", timeUnit = TimeUnit.MINUTES)
+    public void refill() {
+        LogisticsProperties.TrackingProperties tracking = properties.getTracking();
+        if (!tracking.isEnabled() || !tracking.isEnableScheduledUpdates() || !leader) {
+            return;
+        }
+        List<CarrierType> carriers = carrierManager.getAvailableCarriers();
+        if (carriers.isEmpty()) {
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime horizon = now.plusMinutes(tracking.getRefillIntervalMinutes());
+            Timestamp webhookCutoff = Timestamp.valueOf(
+                    now.minusMinutes(properties.getWebhook().getPollSuppressionMinutes()));
+            Object[] statuses = Arrays.stream(ShipmentStatus.values())
+                    .filter(status -> !status.isTerminal())
+                    .map(Enum::name)
+                    .toArray();
+            Object[] carrierNames = carriers.stream().map(Enum::name).toArray();
+
+            retryAfter.values().removeIf(retryAt -> retryAt.isBefore(now));
+
+            int queued = 0;
+            UUID after = new UUID(0, 0);
+            List<PollTask> page;
+            do {
+                UUID lastId = after;
+                page = jdbcTemplate.query(FIND_ACTIVE_SHIPMENTS_SQL, ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("varchar", statuses));
+                    ps.setArray(2, ps.getConnection().createArrayOf("varchar", carrierNames));
+                    ps.setTimestamp(3, webhookCutoff);
+                    ps.setObject(4, lastId);
+                    ps.setInt(5, PAGE_SIZE);
+                }, (rs, rowNum) -> {
+                    Timestamp lastPolled = rs.getTimestamp("last_tracking_update");
+                    Timestamp lastEvent = rs.getTimestamp("last_event_at");
+                    return new PollTask(
+                        rs.getObject("id", UUID.class),
+                        rs.getString("tracking_number"),
+                        CarrierType.valueOf(rs.getString("carrier")),
+                        dueAt(ShipmentStatus.valueOf(rs.getString("status")),
+                              lastPolled != null ? lastPolled.toLocalDateTime() : null,
+                              lastEvent != null ? lastEvent.toLocalDateTime() : null,
+                              now));
+                });
+
+                for (PollTask task : page) {
+                    if (task.dueAt().isAfter(horizon) || retryAfter.containsKey(task.shipmentId())) {
+                        continue;
+                    }
+                    if (scheduled.add(task.shipmentId())) {
+                        queues.get(task.carrier()).tasks().add(task);
+                        queued++;
+                    }
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).shipmentId();
+                }
+            } while (page.size() == PAGE_SIZE);
+
+            log.info("Queued {} shipments for tracking polls", queued);
+        } catch (Exception e) {
+            log.error("Error queueing shipments for tracking polls: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hand due shipments to the pollers while carrier tokens and poll slots last
+     */
+    @Scheduled(fixedDelayString = "${logistics.tracking.dispatch-interval-ms:1000}")
+    public void dispatch() {
+        LogisticsProperties.TrackingProperties tracking = properties.getTracking();
+        if (!tracking.isEnabled() || !tracking.isEnableScheduledUpdates() || !holdLeadership()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        boolean dispatched = true;
+        // One request per carrier per pass, so a busy carrier does not take every slot
+        while (dispatched) {
+            dispatched = false;
+            for (Map.Entry<CarrierType, CarrierQueue> entry : queues.entrySet()) {
+                if (!pollSlots.tryAcquire()) {
+                    return;
+                }
+                List<PollTask> batch = takeBatch(entry.getKey(), entry.getValue(), now);
+                if (batch.isEmpty()) {
+                    pollSlots.release();
+                    continue;
+                }
+                dispatched = true;
+                pollers.execute(() -> {
+                    try {
+                        poll(entry.getKey(), batch);
+                    } finally {
+                        pollSlots.release();
+                    }
+                });
+            }
+        }
+    }
+
+    // Private helper methods
+
+    /**
+     * Take or renew the leader lease. A newly elected instance refills straight away, one
+     * that lost the lease drops its queues to the new leader.
+     */
+    private boolean holdLeadership() {
+        boolean held;
+        try {
+            Long result = stringRedisTemplate.execute(LEAD_SCRIPT, List.of(LEADER_KEY),
+                    instanceId, String.valueOf(LEADER_LEASE.toMillis()));
+            held = result != null && result == 1L;
+        } catch (Exception e) {
+            // Without Redis no instance can tell it is alone, so none polls
+            log.warn("Failed to renew tracking poll leadership: {}", e.getMessage());
+            held = false;
+        }
+
+        if (held && !leader) {
+            log.info("Tracking poll leadership taken by instance {}", instanceId);
+            leader = true;
+            refill();
+        } else if (!held && leader) {
+            log.info("Tracking poll leadership lost by instance {}", instanceId);
+            leader = false;
+            queues.values().forEach(queue -> queue.tasks().clear());
+            scheduled.clear();
+        }
+        return held;
+    }
+
+    private List<PollTask> takeBatch(CarrierType carrier, CarrierQueue queue, LocalDateTime now) {
+        PollTask head = queue.tasks().peek();
+        if (head == null || head.dueAt().isAfter(now) || !queue.bucket().tryAcquire()) {
+            return List.of();
+        }
+
+        int batchSize;
+        try {
+            batchSize = Math.min(carrierManager.getTrackingBatchSize(carrier), properties.getTracking().getBatchSize());
+        } catch (CarrierException e) {
+            // Carrier went away: drop its shipments, the next refill queues them again if it is back
+            List<PollTask> dropped = new ArrayList<>();
+            queue.tasks().drainTo(dropped);
+            dropped.forEach(task -> scheduled.remove(task.shipmentId()));
+            return List.of();
+        }
+
+        List<PollTask> batch = new ArrayList<>(batchSize);
+        PollTask next;
+        while (batch.size() < batchSize && (next = queue.tasks().peek()) != null && !next.dueAt().isAfter(now)) {
+            batch.add(queue.tasks().poll());
+        }
+        return batch;
+    }
+
+    private void poll(CarrierType carrier, List<PollTask> batch) {
+        Set<String> pending = new HashSet<>();
+        batch.forEach(task -> pending.add(task.trackingNumber()));
+        try {
+            List<TrackingResponse> responses = requestTimers.get(carrier).recordCallable(() -> carrierManager.trackShipments(new ArrayList<>(pending), carrier));
+
+            List<TrackingResponse> answered = responses.stream()
+                    .filter(response -> response != null && pending.contains(response.getTrackingNumber()))
+                    .collect(Collectors.toList());
+            try {
+                // One transaction per carrier batch; a failed batch is polled again as a whole
+                Set<String> updated = trackingService.applyTrackingUpdates(answered);
+                answered.forEach(response -> pending.remove(response.getTrackingNumber()));
+                updatedCounter.increment(updated.size());
+            } catch (Exception e) {
+                log.error("Failed to apply tracking updates for {} shipments: {}", answered.size(), e.getMessage());
+            }
+        } catch (Exception e) {
+            log.warn("Tracking request to {} for {} shipments failed: {}", carrier, batch.size(), e.getMessage());
+        } finally {
+            LocalDateTime retryAt = LocalDateTime.now().plus(RETRY_DELAY);
+            for (PollTask task : batch) {
+                if (pending.contains(task.trackingNumber())) {
+                    failedCounter.increment();
+                    retryAfter.put(task.shipmentId(), retryAt);
+                }
+                scheduled.remove(task.shipmentId());
+            }
+        }
+    }
+
+    /**
+     * When a shipment should be polled next: one interval after its last poll
+     */
+    private LocalDateTime dueAt(ShipmentStatus status, LocalDateTime lastPolled,
+                                LocalDateTime lastEvent, LocalDateTime now) {
+        if (lastPolled == null) {
+            return now;
+        }
+        LogisticsProperties.TrackingProperties tracking = properties.getTracking();
+        long interval = switch (status) {
+            case OUT_FOR_DELIVERY -> tracking.getUpdateIntervalMinutes() / 4;
+            case DELAYED, EXCEPTION -> tracking.getUpdateIntervalMinutes() / 2;
+            case PENDING -> tracking.getUpdateIntervalMinutes() * 4L;
+            default -> tracking.getUpdateIntervalMinutes();
+        };
+
+        // Shipments that have not moved for days are polled less and less often
+        if (lastEvent != null) {
+            long quietDays = Duration.between(lastEvent, now).toDays();
+            interval <<= Math.min(Math.max(quietDays, 0), MAX_QUIET_DAY_DOUBLINGS);
+        }
+        interval = Math.max(1, Math.min(interval, tracking.getMaxPollIntervalMinutes()));
+        return lastPolled.plusMinutes(interval);
+    }
+
+    private record PollTask(UUID shipmentId, String trackingNumber, CarrierType carrier, LocalDateTime dueAt) {
+    }
+
+    private record CarrierQueue(PriorityBlockingQueue<PollTask> tasks, TokenBucket bucket) {
+
+        CarrierQueue(TokenBucket bucket) {
+            this(new PriorityBlockingQueue<>(64, Comparator.comparing(PollTask::dueAt)), bucket);
+        }
+
+        double overdueSeconds() {
+            PollTask head = tasks.peek();
+            if (head == null) {
+                return 0;
+            }
+            return Math.max(0, Duration.between(head.dueAt(), LocalDateTime.now()).toSeconds());
+        }
+    }
+
+    /**
+     * Carrier request budget: refills continuously at the carrier's rate limit
+     */
+    private static final class TokenBucket {
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(int requestsPerMinute) {
+            capacity = Math.max(1, requestsPerMinute / 12.0);
+            tokensPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            tokens = capacity;
+            refilledAt = System.nanoTime();
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
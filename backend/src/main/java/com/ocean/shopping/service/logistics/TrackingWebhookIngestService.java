@@ -0,0 +1,282 @@
+package com.ocean.shopping.service.logistics;
+
+import com.ocean.shopping.config.LogisticsProperties;
+import com.ocean.shopping.dto.shipping.TrackingEventDto;
+import com.ocean.shopping.model.entity.enums.ShipmentStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Ingest pipeline for carrier tracking webhooks.
+ * <p>
+ * Normalized events of each accepted webhook wait in a bounded queue; a single writer
+ * thread drains whatever has queued up and persists it as one group commit: one lookup of
+ * the tracking numbers, one upsert of the events and one batch of shipment updates, in one
+ * transaction. A webhook's future completes only after the commit, so a carrier is not
+ * acknowledged before its events are durable and a failed batch is retried by the carrier.
+ * <p>
+ * A shipment's status follows its newest event; an event older than one already stored
+ * does not move it back. Shipments touched here get {@code last_webhook_at}, which the
+ * tracking poller uses to skip them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrackingWebhookIngestService {
+
+    private static final String FIND_SHIPMENTS_SQL =
+        "SELECT id, tracking_number FROM shipments WHERE tracking_number = ANY(?)";
+
+    private static final String TOUCH_SHIPMENTS_SQL =
+        "UPDATE shipments SET last_webhook_at = ?, last_tracking_update = ?, updated_at = ? WHERE id = ANY(?)";
+
+    // Only the newest stored event may set the status
+    private static final String APPLY_LATEST_EVENT_SQL =
+        "UPDATE shipments SET status = ?, status_description = ?, current_location = COALESCE(?, current_location), " +
+        "actual_delivery_date = COALESCE(?, actual_delivery_date), delivery_time = COALESCE(?, delivery_time), " +
+        "signed_by = COALESCE(?, signed_by) " +
+        "WHERE id = ? AND NOT EXISTS (" +
+        "SELECT 1 FROM tracking_events e WHERE e.shipment_id = shipments.id AND e.event_time > ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final TrackingEventStore eventStore;
+    private final LogisticsProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private BlockingQueue<PendingWebhook> queue;
+    private TransactionTemplate batchTransaction;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Timer commitTimer;
+    private DistributionSummary batchSizeSummary;
+    private Counter unknownCounter;
+    private Counter rejectedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void initialize() {
+        LogisticsProperties.WebhookProperties webhook = properties.getWebhook();
+        queue = new ArrayBlockingQueue<>(webhook.getIngestQueueCapacity());
+        batchTransaction = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("tracking.webhook.queue.size", queue, BlockingQueue::size)
+                .description("Tracking webhooks waiting to be persisted")
+                .register(meterRegistry);
+        commitTimer = Timer.builder("tracking.webhook.commit")
+                .description("Time taken to persist one batch of tracking webhooks")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("tracking.webhook.batch.size")
+                .description("Tracking events persisted per group commit")
+                .register(meterRegistry);
+        unknownCounter = Counter.builder("tracking.webhook.events")
+                .description("Tracking webhook events not persisted")
+                .tag("result", "unknown_shipment")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("tracking.webhook.events")
+                .description("Tracking webhook events not persisted")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("tracking.webhook.events")
+                .description("Tracking webhook events not persisted")
+                .tag("result", "failed")
+                .register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::runWriter, "tracking-webhook-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        log.info("Tracking webhook pipeline started - queue capacity: {}, batch size: {}",
+                webhook.getIngestQueueCapacity(), webhook.getIngestBatchSize());
+    }
+
+    /**
+     * Stop accepting webhooks and persist what is already queued
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queue the events of one webhook for persistence
+     * @return Future completed with the number of events of known shipments once they are committed
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<Integer> submit(List<CarrierWebhookParser.CarrierEvent> events) {
+        PendingWebhook pending = new PendingWebhook(events, new CompletableFuture<>());
+        if (events.isEmpty()) {
+            pending.result().complete(0);
+            return pending.result();
+        }
+        if (!running || !queue.offer(pending)) {
+            rejectedCounter.increment(events.size());
+            throw new RejectedExecutionException("Tracking webhook queue is full");
+        }
+        return pending.result();
+    }
+
+    // Private helper methods
+
+    private void runWriter() {
+        int batchSize = properties.getWebhook().getIngestBatchSize();
+        List<PendingWebhook> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWebhook first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                List<PendingWebhook> abandoned = new ArrayList<>();
+                queue.drainTo(abandoned);
+                abandoned.forEach(pending -> fail(pending, e));
+                return;
+            } catch (Exception e) {
+                log.error("Tracking webhook writer error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<PendingWebhook> batch) {
+        try {
+            commitBatch(batch);
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+                return;
+            }
+            // One bad webhook must not fail the others: retry each on its own
+            log.warn("Tracking webhook batch of {} failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (PendingWebhook pending : batch) {
+                try {
+                    commitBatch(List.of(pending));
+                } catch (Exception single) {
+                    fail(pending, single);
+                }
+            }
+        }
+    }
+
+    private void commitBatch(List<PendingWebhook> batch) {
+        Set<String> trackingNumbers = batch.stream()
+                .flatMap(pending -> pending.events().stream())
+                .map(CarrierWebhookParser.CarrierEvent::trackingNumber)
+                .collect(Collectors.toSet());
+        Map<String, UUID> shipmentIds = findShipmentIds(trackingNumbers);
+
+        List<TrackingEventStore.ShipmentEvent> events = new ArrayList<>();
+        Map<UUID, TrackingEventDto> latest = new LinkedHashMap<>();
+        Map<PendingWebhook, Integer> accepted = new HashMap<>();
+        for (PendingWebhook pending : batch) {
+            int count = 0;
+            for (CarrierWebhookParser.CarrierEvent carrierEvent : pending.events()) {
+                UUID shipmentId = shipmentIds.get(carrierEvent.trackingNumber());
+                if (shipmentId == null) {
+                    unknownCounter.increment();
+                    continue;
+                }
+                TrackingEventDto event = carrierEvent.event();
+                events.add(new TrackingEventStore.ShipmentEvent(shipmentId, event));
+                latest.merge(shipmentId, event, (current, candidate) ->
+                        candidate.getEventTime().isAfter(current.getEventTime()) ? candidate : current);
+                count++;
+            }
+            accepted.put(pending, count);
+        }
+
+        if (!events.isEmpty()) {
+            Timestamp now = Timestamp.from(Instant.now());
+            commitTimer.record(() -> batchTransaction.executeWithoutResult(status -> {
+                eventStore.upsertEvents(events);
+                jdbcTemplate.update(TOUCH_SHIPMENTS_SQL, ps -> {
+                    ps.setTimestamp(1, now);
+                    ps.setTimestamp(2, now);
+                    ps.setTimestamp(3, now);
+                    ps.setArray(4, ps.getConnection().createArrayOf("uuid", latest.keySet().toArray()));
+                });
+                applyLatestEvents(latest);
+            }));
+            batchSizeSummary.record(events.size());
+        }
+
+        batch.forEach(pending -> pending.result().complete(accepted.get(pending)));
+    }
+
+    private Map<String, UUID> findShipmentIds(Set<String> trackingNumbers) {
+        Map<String, UUID> shipmentIds = new HashMap<>();
+        jdbcTemplate.query(FIND_SHIPMENTS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", trackingNumbers.toArray())),
+                rs -> {
+                    shipmentIds.put(rs.getString("tracking_number"), rs.getObject("id", UUID.class));
+                });
+        return shipmentIds;
+    }
+
+    private void applyLatestEvents(Map<UUID, TrackingEventDto> latest) {
+        List<Map.Entry<UUID, TrackingEventDto>> rows = new ArrayList<>(latest.entrySet());
+        jdbcTemplate.batchUpdate(APPLY_LATEST_EVENT_SQL, rows, rows.size(), (ps, row) -> {
+            TrackingEventDto event = row.getValue();
+            boolean delivered = event.getStatus() == ShipmentStatus.DELIVERED;
+            String location = event.getFormattedLocation();
+
+            ps.setString(1, event.getStatus().name());
+            ps.setString(2, event.getStatusDescription() != null
+                    ? event.getStatusDescription() : event.getEventDescription());
+            ps.setString(3, location == null || location.isBlank() ? null : location);
+            ps.setDate(4, delivered ? Date.valueOf(event.getEventTime().toLocalDate()) : null);
+            ps.setTimestamp(5, delivered ? Timestamp.valueOf(event.getEventTime()) : null);
+            ps.setString(6, delivered ? event.getSignedBy() : null);
+            ps.setObject(7, row.getKey());
+            ps.setTimestamp(8, Timestamp.valueOf(event.getEventTime()));
+        });
+    }
+
+    private void fail(PendingWebhook pending, Exception e) {
+        failedCounter.increment(pending.events().size());
+        log.error("Failed to persist tracking webhook with {} events: {}", pending.events().size(), e.getMessage());
+        pending.result().completeExceptionally(e);
+    }
+
+    private record PendingWebhook(List<CarrierWebhookParser.CarrierEvent> events, CompletableFuture<Integer> result) {
+    }
+}
@@ -0,0 +1,461 @@
+package com.ocean.shopping.service.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocean.shopping.dto.chat.NotificationRequest;
+import com.ocean.shopping.dto.chat.NotificationResponse;
+import com.ocean.shopping.dto.user.UserResponse;
+import com.ocean.shopping.model.entity.User;
+import com.ocean.shopping.service.unread.UnreadCounterService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batched notification fan-out.
+ * <p>
+ * Announcements run as jobs recorded in {@code notification_fanout_jobs}. A job walks
+ * user IDs with keyset paging; each page of notifications is inserted with JDBC batches
+ * in one short transaction that also advances the job cursor, then delivered over STOMP
+ * on a bounded executor. The next page is only read once the current one is delivered,
+ * so memory and connections stay bounded however many users there are. Jobs whose
+ * heartbeat stops (node failure) are taken over and resume after the last committed page.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationFanoutService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final UnreadCounterService unreadCounters;
+
+    @Value("${ocean.shopping.notification.fanout.page-size:1000}")
+    private int pageSize;
+
+    @Value("${ocean.shopping.notification.fanout.delivery-threads:8}")
+    private int deliveryThreads;
+
+    @Value("${ocean.shopping.notification.fanout.delivery-queue-capacity:2000}")
+    private int deliveryQueueCapacity;
+
+    @Value("${ocean.shopping.notification.fanout.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${ocean.shopping.notification.fanout.stall-timeout-seconds:120}")
+    private long stallTimeoutSeconds;
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    private static final String NEXT_USERS_SQL =
+        "SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String INSERT_NOTIFICATION_SQL =
+        "INSERT INTO notifications (id, title, message, type, priority, target_user_id, is_read, " +
+        "action_url, icon_url, delivery_status, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, FALSE, ?, ?, 'PENDING', ?, ?)";
+
+    private static final String INSERT_DATA_SQL =
+        "INSERT INTO notification_data (notification_id, data_key, data_value) VALUES (?, ?, ?)";
+
+    private static final String MARK_DELIVERY_SQL =
+        "UPDATE notifications SET delivery_status = ?, delivered_at = ?, updated_at = ? WHERE id = ANY(?)";
+
+    private static final String INSERT_JOB_SQL =
+        "INSERT INTO notification_fanout_jobs (id, title, status, request_payload) VALUES (?, ?, 'PENDING', ?)";
+
+    private static final String START_JOB_SQL =
+        "UPDATE notification_fanout_jobs SET status = 'RUNNING', updated_at = NOW() WHERE id = ?";
+
+    // Only the runner that read the current cursor may advance it
+    private static final String ADVANCE_JOB_SQL =
+        "UPDATE notification_fanout_jobs SET last_user_id = ?, processed_count = processed_count + ?, " +
+        "updated_at = NOW() WHERE id = ? AND status = 'RUNNING' AND last_user_id IS NOT DISTINCT FROM ?::uuid";
+
+    private static final String RECORD_DELIVERY_SQL =
+        "UPDATE notification_fanout_jobs SET delivered_count = delivered_count + ?, " +
+        "failed_count = failed_count + ?, updated_at = NOW() WHERE id = ?";
+
+    private static final String FINISH_JOB_SQL =
+        "UPDATE notification_fanout_jobs SET status = ?, error = ?, updated_at = NOW(), completed_at = NOW() WHERE id = ?";
+
+    private static final String CLAIM_STALLED_JOB_SQL =
+        "UPDATE notification_fanout_jobs SET status = 'RUNNING', updated_at = NOW() " +
+        "WHERE id = ? AND status IN ('PENDING', 'RUNNING') AND updated_at < NOW() - make_interval(secs => ?)";
+
+    private TransactionTemplate pageTransaction;
+    private ThreadPoolExecutor jobExecutor;
+    private ThreadPoolExecutor deliveryExecutor;
+
+    private Timer pageTimer;
+    private Counter deliveredCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void initialize() {
+        // Each page commits on its own, even when the caller has a transaction open
+        pageTransaction = new TransactionTemplate(transactionManager);
+        pageTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // Jobs beyond the limit are rejected and left PENDING for the stalled-job sweep
+        jobExecutor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxConcurrentJobs), namedThreads("notification-fanout-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // A full delivery queue makes the submitting thread deliver itself, throttling the producer
+        deliveryExecutor = new ThreadPoolExecutor(deliveryThreads, deliveryThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(deliveryQueueCapacity), namedThreads("notification-delivery-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        pageTimer = Timer.builder("notification.fanout.page")
+                .description("Time taken to insert and deliver one page of notifications")
+                .register(meterRegistry);
+        deliveredCounter = Counter.builder("notification.fanout.deliveries")
+                .description("Fan-out notification deliveries")
+                .tag("result", "delivered")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("notification.fanout.deliveries")
+                .description("Fan-out notification deliveries")
+                .tag("result", "failed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        deliveryExecutor.shutdown();
+    }
+
+    /**
+     * Start an announcement to every user in the background
+     * @return ID of the fan-out job tracking its progress
+     */
+    public UUID startAnnouncement(NotificationRequest request) {
+        UUID jobId = UUID.randomUUID();
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize announcement", e);
+        }
+
+        jdbcTemplate.update(INSERT_JOB_SQL, jobId, request.getTitle(), payload);
+
+        // Inside a transaction the worker must not look for the job row before it is committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(jobId);
+                }
+            });
+        } else {
+            submit(jobId);
+        }
+
+        log.info("Announcement '{}' queued as fan-out job {}", request.getTitle(), jobId);
+        return jobId;
+    }
+
+    /**
+     * Send a notification to the given users in batches and wait for delivery
+     */
+    public List<NotificationResponse> sendToUsers(NotificationRequest request, List<User> users) {
+        List<NotificationResponse> responses = new ArrayList<>(users.size());
+
+        for (int from = 0; from < users.size(); from += pageSize) {
+            List<UserResponse> recipients = users.subList(from, Math.min(from + pageSize, users.size())).stream()
+                    .map(UserResponse::fromEntity)
+                    .toList();
+
+            List<NotificationResponse> page = pageTransaction.execute(status -> insertNotifications(request, recipients));
+            deliver(page);
+            responses.addAll(page);
+        }
+        return responses;
+    }
+
+    /**
+     * Current state of a fan-out job
+     */
+    public Optional<FanoutJob> getJob(UUID jobId) {
+        return jdbcTemplate.query(
+                "SELECT id, title, status, processed_count, delivered_count, failed_count, error, created_at, completed_at " +
+                "FROM notification_fanout_jobs WHERE id = ?",
+                (rs, rowNum) -> FanoutJob.builder()
+                        .id(rs.getObject("id", UUID.class))
+                        .title(rs.getString("title"))
+                        .status(rs.getString("status"))
+                        .processedCount(rs.getLong("processed_count"))
+                        .deliveredCount(rs.getLong("delivered_count"))
+                        .failedCount(rs.getLong("failed_count"))
+                        .error(rs.getString("error"))
+                        .createdAt(rs.getTimestamp("created_at").toInstant())
+                        .completedAt(rs.getTimestamp("completed_at") != null ? rs.getTimestamp("completed_at").toInstant() : null)
+                        .build(),
+                jobId).stream().findFirst();
+    }
+
+    /**
+     * Take over jobs that were never started or whose runner stopped sending heartbeats
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.notification.fanout.resume-interval-ms:60000}")
+    public void resumeStalledJobs() {
+        try {
+            List<UUID> candidates = jdbcTemplate.queryForList(
+                    "SELECT id FROM notification_fanout_jobs WHERE status IN ('PENDING', 'RUNNING') " +
+                    "AND updated_at < NOW() - make_interval(secs => ?) ORDER BY created_at",
+                    UUID.class, stallTimeoutSeconds);
+
+            for (UUID jobId : candidates) {
+                if (jdbcTemplate.update(CLAIM_STALLED_JOB_SQL, jobId, stallTimeoutSeconds) == 1) {
+                    log.warn("Resuming stalled notification fan-out job {}", jobId);
+                    submit(jobId);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error resuming stalled notification fan-out jobs", e);
+        }
+    }
+
+    // Private helper methods
+
+    private void submit(UUID jobId) {
+        try {
+            jobExecutor.execute(() -> runJob(jobId));
+        } catch (RejectedExecutionException e) {
+            log.warn("Fan-out executor busy, job {} will be picked up by the stalled-job sweep", jobId);
+        }
+    }
+
+    private void runJob(UUID jobId) {
+        NotificationRequest request;
+        UUID cursor;
+        try {
+            Map<String, Object> job = jdbcTemplate.queryForMap(
+                    "SELECT request_payload, last_user_id FROM notification_fanout_jobs WHERE id = ?", jobId);
+            request = objectMapper.readValue((String) job.get("request_payload"), NotificationRequest.class);
+            cursor = (UUID) job.get("last_user_id");
+            jdbcTemplate.update(START_JOB_SQL, jobId);
+        } catch (Exception e) {
+            log.error("Could not start notification fan-out job {}", jobId, e);
+            jdbcTemplate.update(FINISH_JOB_SQL, "FAILED", e.getMessage(), jobId);
+            return;
+        }
+
+        long processed = 0;
+        try {
+            while (true) {
+                long start = System.nanoTime();
+                List<UUID> userIds = jdbcTemplate.queryForList(
+                        NEXT_USERS_SQL, UUID.class, cursor != null ? cursor : MIN_UUID, pageSize);
+                if (userIds.isEmpty()) {
+                    break;
+                }
+
+                UUID previousCursor = cursor;
+                UUID nextCursor = userIds.get(userIds.size() - 1);
+                List<UserResponse> recipients = userIds.stream()
+                        .map(id -> UserResponse.builder().id(id).build())
+                        .toList();
+
+                // Notifications and cursor commit together, so a resumed job never repeats a page
+                List<NotificationResponse> page = pageTransaction.execute(status -> {
+                    int advanced = jdbcTemplate.update(ADVANCE_JOB_SQL, nextCursor, userIds.size(), jobId, previousCursor);
+                    if (advanced == 0) {
+                        throw new JobTakenOverException();
+                    }
+                    return insertNotifications(request, recipients);
+                });
+
+                int delivered = deliver(page);
+                jdbcTemplate.update(RECORD_DELIVERY_SQL, delivered, page.size() - delivered, jobId);
+                pageTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                processed += userIds.size();
+                cursor = nextCursor;
+                if (userIds.size() < pageSize) {
+                    break;
+                }
+            }
+
+            jdbcTemplate.update(FINISH_JOB_SQL, "COMPLETED", null, jobId);
+            log.info("Notification fan-out job {} completed - {} notifications in this run", jobId, processed);
+
+        } catch (JobTakenOverException e) {
+            log.warn("Notification fan-out job {} was taken over by another runner", jobId);
+        } catch (Exception e) {
+            log.error("Notification fan-out job {} failed after {} notifications", jobId, processed, e);
+            jdbcTemplate.update(FINISH_JOB_SQL, "FAILED", e.getMessage(), jobId);
+        }
+    }
+
+    /**
+     * Insert one page of notifications with JDBC batches
+     * @return Pending notifications, ready for delivery
+     */
+    private List<NotificationResponse> insertNotifications(NotificationRequest request, List<UserResponse> recipients) {
+        ZonedDateTime now = ZonedDateTime.now();
+        Timestamp timestamp = Timestamp.from(now.toInstant());
+
+        List<NotificationResponse> page = new ArrayList<>(recipients.size());
+        List<Object[]> notificationArgs = new ArrayList<>(recipients.size());
+        List<Object[]> dataArgs = new ArrayList<>();
+
+        for (UserResponse recipient : recipients) {
+            UUID id = UUID.randomUUID();
+            notificationArgs.add(new Object[]{
+                    id, request.getTitle(), request.getMessage(), request.getType().name(),
+                    request.getPriority().name(), recipient.getId(), request.getActionUrl(), request.getIconUrl(),
+                    timestamp, timestamp});
+
+            if (request.getData() != null) {
+                request.getData().forEach((key, value) ->
+                        dataArgs.add(new Object[]{id, key, value != null ? value.toString() : null}));
+            }
+
+            page.add(NotificationResponse.builder()
+                    .id(id)
+                    .title(request.getTitle())
+                    .message(request.getMessage())
+                    .type(request.getType())
+                    .priority(request.getPriority())
+                    .targetUser(recipient)
+                    .isRead(false)
+                    .data(request.getData())
+                    .actionUrl(request.getActionUrl())
+                    .iconUrl(request.getIconUrl())
+                    .deliveryStatus(NotificationResponse.DeliveryStatus.PENDING)
+                    .createdAt(now)
+                    .build());
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_SQL, notificationArgs);
+        if (!dataArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_DATA_SQL, dataArgs);
+        }
+        unreadCounters.notificationsCreated(recipients.stream().map(UserResponse::getId).toList());
+        return page;
+    }
+
+    /**
+     * Deliver a page over STOMP on the bounded executor and record the outcome
+     * @return Number of delivered notifications
+     */
+    private int deliver(List<NotificationResponse> page) {
+        Set<UUID> delivered = ConcurrentHashMap.newKeySet();
+        Set<UUID> failed = ConcurrentHashMap.newKeySet();
+
+        CompletableFuture<?>[] deliveries = page.stream()
+                .map(notification -> CompletableFuture.runAsync(() -> {
+                    try {
+                        messagingTemplate.convertAndSendToUser(
+                                notification.getTargetUser().getId().toString(),
+                                "/queue/notifications",
+                                notification);
+                        delivered.add(notification.getId());
+                    } catch (Exception e) {
+                        log.error("Failed to deliver notification {}: {}", notification.getId(), e.getMessage());
+                        failed.add(notification.getId());
+                    }
+                }, deliveryExecutor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(deliveries).join();
+
+        ZonedDateTime now = ZonedDateTime.now();
+        for (NotificationResponse notification : page) {
+            boolean ok = !failed.contains(notification.getId());
+            notification.setDeliveryStatus(ok ? NotificationResponse.DeliveryStatus.DELIVERED : NotificationResponse.DeliveryStatus.FAILED);
+            notification.setDeliveredAt(ok ? now : null);
+        }
+
+        markDelivery(delivered, "DELIVERED", Timestamp.from(now.toInstant()));
+        markDelivery(failed, "FAILED", null);
+
+        deliveredCounter.increment(delivered.size());
+        failedCounter.increment(failed.size());
+        return delivered.size();
+    }
+
+    private void markDelivery(Collection<UUID> ids, String status, Timestamp deliveredAt) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update(MARK_DELIVERY_SQL, ps -> {
+            ps.setString(1, status);
+            ps.setTimestamp(2, deliveredAt);
+            ps.setTimestamp(3, now);
+            ps.setArray(4, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+        });
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Raised when another runner advanced the job cursor first
+     */
+    private static class JobTakenOverException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Progress of a fan-out job
+     */
+    @lombok.Builder
+    @lombok.Data
+    public static class FanoutJob {
+        private final UUID id;
+        private final String title;
+        private final String status;
+        private final long processedCount;
+        private final long deliveredCount;
+        private final long failedCount;
+        private final String error;
+        private final Instant createdAt;
+        private final Instant completedAt;
+    }
+}
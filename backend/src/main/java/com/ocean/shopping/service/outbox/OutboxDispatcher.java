@@ -0,0 +1,310 @@
+package com.ocean.shopping.service.outbox;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocean.shopping.model.entity.enums.OutboxEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the side effects recorded in the transactional outbox.
+ * <p>
+ * Each poll claims as many due events as the handler pool can queue, with one
+ * {@code UPDATE ... FOR UPDATE SKIP LOCKED} that also leases them by moving their
+ * {@code available_at} forward, so concurrent nodes never claim the same event and events
+ * of a node that dies become due again when the lease ends. Handled events are deleted;
+ * failed ones are retried with exponential backoff until {@code max-attempts}, then kept
+ * as FAILED for inspection.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxDispatcher {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final List<OutboxEventHandler> handlers;
+
+    @Value("${ocean.shopping.outbox.handler-threads:4}")
+    private int handlerThreads;
+
+    @Value("${ocean.shopping.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${ocean.shopping.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${ocean.shopping.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${ocean.shopping.outbox.retry-base-seconds:10}")
+    private long retryBaseSeconds;
+
+    @Value("${ocean.shopping.outbox.retry-max-seconds:3600}")
+    private long retryMaxSeconds;
+
+    // One statement, so the claim commits on its own and holds no locks afterwards
+    private static final String CLAIM_EVENTS_SQL =
+        "UPDATE outbox_events SET available_at = NOW() + make_interval(secs => ?), attempts = attempts + 1 " +
+        "WHERE id IN (SELECT id FROM outbox_events WHERE status = 'PENDING' AND available_at <= NOW() " +
+        "ORDER BY available_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+        "RETURNING id, event_type, aggregate_id, payload, attempts, created_at";
+
+    private static final String DELETE_EVENT_SQL =
+        "DELETE FROM outbox_events WHERE id = ?";
+
+    private static final String RETRY_EVENT_SQL =
+        "UPDATE outbox_events SET available_at = NOW() + make_interval(secs => ?), last_error = ? WHERE id = ?";
+
+    private static final String FAIL_EVENT_SQL =
+        "UPDATE outbox_events SET status = 'FAILED', last_error = ?, failed_at = NOW() WHERE id = ?";
+
+    private static final String BACKLOG_SQL =
+        "SELECT COUNT(*) AS pending, COALESCE(EXTRACT(EPOCH FROM NOW() - MIN(created_at)), 0) AS oldest " +
+        "FROM outbox_events WHERE status = 'PENDING'";
+
+    private final Map<OutboxEventType, OutboxEventHandler> handlersByType = new EnumMap<>(OutboxEventType.class);
+    private final Map<OutboxEventType, Timer> handleTimers = new EnumMap<>(OutboxEventType.class);
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong backlogAgeSeconds = new AtomicLong();
+
+    private ThreadPoolExecutor handlerExecutor;
+
+    private Timer lagTimer;
+    private Counter handledCounter;
+    private Counter retriedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void initialize() {
+        for (OutboxEventHandler handler : handlers) {
+            for (OutboxEventType type : handler.getEventTypes()) {
+                OutboxEventHandler previous = handlersByType.put(type, handler);
+                if (previous != null) {
+                    throw new IllegalStateException("Outbox event type " + type + " has more than one handler");
+                }
+            }
+        }
+
+        // Only the dispatcher submits, and never more than the queue has room for
+        handlerExecutor = new ThreadPoolExecutor(handlerThreads, handlerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize), namedThreads("outbox-handler-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(handlerExecutor, "outbox.handlers", Tags.empty()).bindTo(meterRegistry);
+
+        for (OutboxEventType type : OutboxEventType.values()) {
+            handleTimers.put(type, Timer.builder("outbox.handle")
+                    .description("Time taken to run one outbox event handler")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+        lagTimer = Timer.builder("outbox.lag")
+                .description("Time from recording an outbox event to completing its side effect")
+                .register(meterRegistry);
+        Gauge.builder("outbox.backlog", backlog, AtomicLong::get)
+                .description("Outbox events waiting to be handled")
+                .register(meterRegistry);
+        Gauge.builder("outbox.backlog.age", backlogAgeSeconds, AtomicLong::get)
+                .description("Age in seconds of the oldest outbox event waiting to be handled")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        handledCounter = Counter.builder("outbox.events")
+                .description("Outbox event handling outcomes")
+                .tag("result", "handled")
+                .register(meterRegistry);
+        retriedCounter = Counter.builder("outbox.events")
+                .description("Outbox event handling outcomes")
+                .tag("result", "retried")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("outbox.events")
+                .description("Outbox event handling outcomes")
+                .tag("result", "failed")
+                .register(meterRegistry);
+
+        log.info("Outbox dispatcher started - handler threads: {}, batch size: {}", handlerThreads, batchSize);
+    }
+
+    /**
+     * Stop claiming events and give queued handlers time to finish; events left unfinished
+     * are claimed again by any node once their lease ends
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        handlerExecutor.shutdown();
+        handlerExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Claim due events and hand them to the handler pool
+     * Runs every 500 ms by default
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        int capacity = Math.min(batchSize, handlerExecutor.getQueue().remainingCapacity());
+        if (capacity == 0 || handlerExecutor.isShutdown()) {
+            return;
+        }
+
+        List<OutboxEvent> events;
+        try {
+            events = claim(capacity);
+        } catch (Exception e) {
+            log.error("Error claiming outbox events", e);
+            return;
+        }
+
+        for (OutboxEvent event : events) {
+            try {
+                handlerExecutor.execute(() -> handle(event));
+            } catch (RejectedExecutionException e) {
+                // Shutting down: the lease runs out and the event is claimed again
+                log.debug("Outbox event {} not run, handler pool is shut down", event.id());
+            }
+        }
+    }
+
+    /**
+     * Refresh the backlog gauges
+     * Runs every 15 seconds by default
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.outbox.backlog-refresh-interval-ms:15000}")
+    public void refreshBacklog() {
+        try {
+            jdbcTemplate.query(BACKLOG_SQL, rs -> {
+                backlog.set(rs.getLong("pending"));
+                backlogAgeSeconds.set(rs.getLong("oldest"));
+            });
+        } catch (Exception e) {
+            log.error("Error reading outbox backlog", e);
+        }
+    }
+
+    // Private helper methods
+
+    private List<OutboxEvent> claim(int limit) {
+        return jdbcTemplate.query(CLAIM_EVENTS_SQL,
+                ps -> {
+                    ps.setLong(1, leaseSeconds);
+                    ps.setInt(2, limit);
+                },
+                (rs, rowNum) -> new OutboxEvent(
+                        rs.getObject("id", UUID.class),
+                        OutboxEventType.valueOf(rs.getString("event_type")),
+                        rs.getObject("aggregate_id", UUID.class),
+                        readPayload(rs.getString("payload")),
+                        rs.getInt("attempts"),
+                        rs.getTimestamp("created_at").toInstant()));
+    }
+
+    private void handle(OutboxEvent event) {
+        OutboxEventHandler handler = handlersByType.get(event.type());
+        if (handler == null) {
+            fail(event, new IllegalStateException("No handler for outbox event type " + event.type()));
+            return;
+        }
+        if (event.payload() == null) {
+            fail(event, new IllegalStateException("Unreadable outbox payload"));
+            return;
+        }
+
+        try {
+            handleTimers.get(event.type()).recordCallable(() -> {
+                handler.handle(event);
+                return null;
+            });
+        } catch (Exception e) {
+            retryOrFail(event, e);
+            return;
+        }
+
+        try {
+            jdbcTemplate.update(DELETE_EVENT_SQL, event.id());
+        } catch (Exception e) {
+            // The side effect already ran; the event is handled once more when its lease ends
+            log.error("Failed to remove handled outbox event {}: {}", event.id(), e.getMessage());
+            return;
+        }
+        lagTimer.record(Duration.between(event.createdAt(), Instant.now()));
+        handledCounter.increment();
+    }
+
+    private void retryOrFail(OutboxEvent event, Exception e) {
+        if (event.attempts() >= maxAttempts) {
+            fail(event, e);
+            return;
+        }
+
+        // Exponential backoff: base, 2x base, 4x base ... capped
+        long delaySeconds = Math.min(retryMaxSeconds, retryBaseSeconds << Math.min(event.attempts() - 1, 20));
+        try {
+            jdbcTemplate.update(RETRY_EVENT_SQL, delaySeconds, describe(e), event.id());
+        } catch (Exception updateError) {
+            log.error("Failed to reschedule outbox event {}: {}", event.id(), updateError.getMessage());
+        }
+        retriedCounter.increment();
+        log.warn("Outbox event {} {} failed (attempt {}), retrying in {}s: {}",
+                event.type(), event.id(), event.attempts(), delaySeconds, describe(e));
+    }
+
+    private void fail(OutboxEvent event, Exception e) {
+        try {
+            jdbcTemplate.update(FAIL_EVENT_SQL, describe(e), event.id());
+        } catch (Exception updateError) {
+            log.error("Failed to mark outbox event {} as failed: {}", event.id(), updateError.getMessage());
+        }
+        failedCounter.increment();
+        log.error("Outbox event {} {} for {} failed after {} attempts: {}",
+                event.type(), event.id(), event.aggregateId(), event.attempts(), describe(e));
+    }
+
+    private Map<String, String> readPayload(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, String>>() { });
+        } catch (IOException e) {
+            // Failing the claim would block every event behind this one
+            log.error("Unreadable outbox payload: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String describe(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
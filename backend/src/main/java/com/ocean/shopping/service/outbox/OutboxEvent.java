@@ -0,0 +1,16 @@
+package com.ocean.shopping.service.outbox;
+
+import com.ocean.shopping.model.entity.enums.OutboxEventType;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An outbox event claimed for handling
+ * @param aggregateId ID of the entity the event is about, e.g. the order
+ * @param attempts Number of times the event has been claimed, including this one
+ */
+public record OutboxEvent(UUID id, OutboxEventType type, UUID aggregateId, Map<String, String> payload,
+                          int attempts, Instant createdAt) {
+}
@@ -0,0 +1,22 @@
+package com.ocean.shopping.service.outbox;
+
+import com.ocean.shopping.model.entity.enums.OutboxEventType;
+
+import java.util.Set;
+
+/**
+ * Performs the side effects of outbox events
+ */
+public interface OutboxEventHandler {
+
+    /**
+     * Event types this handler performs
+     */
+    Set<OutboxEventType> getEventTypes();
+
+    /**
+     * Perform the side effect of an event. Delivery is at least once: an event whose handler
+     * throws is retried with backoff, and one running on a node that dies is handled again.
+     */
+    void handle(OutboxEvent event) throws Exception;
+}
@@ -0,0 +1,50 @@
+package com.ocean.shopping.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocean.shopping.model.entity.enums.OutboxEventType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records side effects in the transactional outbox ({@code outbox_events}).
+ * <p>
+ * Events are inserted in the caller's transaction, so they exist exactly when the change
+ * that caused them commits; {@link OutboxDispatcher} runs them afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxService {
+
+    private static final String INSERT_EVENT_SQL =
+        "INSERT INTO outbox_events (id, event_type, aggregate_id, payload) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Record a side effect to run once the current transaction commits
+     * @param aggregateId ID of the entity the event is about
+     * @param payload Values the handler needs besides the aggregate ID
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(OutboxEventType type, UUID aggregateId, Map<String, String> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize outbox payload", e);
+        }
+
+        jdbcTemplate.update(INSERT_EVENT_SQL, UUID.randomUUID(), type.name(), aggregateId, json);
+        log.debug("Recorded outbox event {} for {}", type, aggregateId);
+    }
+}
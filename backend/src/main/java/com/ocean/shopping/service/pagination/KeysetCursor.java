@@ -0,0 +1,161 @@
+package com.ocean.shopping.service.pagination;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocean.shopping.dto.common.CursorPage;
+import com.ocean.shopping.exception.BadRequestException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Opaque cursor codec for keyset (seek) pagination.
+ * <p>
+ * A cursor is the URL-safe Base64 of the last row's sort key values, e.g.
+ * {@code {"createdAt": "...", "id": "..."}}. Values are decoded back to the
+ * declared key types, so a cursor can only seek on the keys its endpoint sorts by.
+ */
+public final class KeysetCursor {
+
+    /**
+     * Keys for the common "newest first" ordering: creation time with the ID as tie-breaker.
+     */
+    public static final Map<String, Class<?>> CREATED_AT_KEYS = createdAtKeys();
+
+    // Upper bound for a single slice, large enough for export batches
+    private static final int MAX_SLICE_SIZE = 500;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> KEYS_TYPE = new TypeReference<>() {};
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Decode a cursor into a forward keyset position; a blank cursor starts from the beginning.
+     *
+     * @param keyTypes sort key properties in sort order, mapped to their Java types
+     */
+    public static KeysetScrollPosition decode(String cursor, Map<String, Class<?>> keyTypes) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        Map<String, String> raw;
+        try {
+            raw = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), KEYS_TYPE);
+        } catch (Exception e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+
+        if (!raw.keySet().equals(keyTypes.keySet())) {
+            throw new BadRequestException("Cursor does not match the requested sort order");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            keyTypes.forEach((property, type) -> keys.put(property, parse(raw.get(property), type)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * Slice size limit, clamped to a sane range.
+     */
+    public static Limit limit(int size) {
+        return Limit.of(Math.min(Math.max(size, 1), MAX_SLICE_SIZE));
+    }
+
+    /**
+     * Encode the position after the last element of a window, or null when it is the last slice.
+     */
+    public static String encodeNext(Window<?> window) {
+        if (window.isEmpty() || !window.hasNext()) {
+            return null;
+        }
+
+        ScrollPosition position = window.positionAt(window.size() - 1);
+        if (!(position instanceof KeysetScrollPosition keyset)) {
+            throw new IllegalStateException("Window was not scrolled by keyset");
+        }
+
+        Map<String, String> raw = new LinkedHashMap<>();
+        keyset.getKeys().forEach((property, value) -> raw.put(property, format(value)));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(raw));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode cursor", e);
+        }
+    }
+
+    /**
+     * Map a window to the cursor page response.
+     */
+    public static <E, T> CursorPage<T> toCursorPage(Window<E> window, Function<E, T> mapper, Long totalElements) {
+        List<T> content = window.getContent().stream().map(mapper).toList();
+        return CursorPage.<T>builder()
+                .content(content)
+                .size(content.size())
+                .hasNext(window.hasNext())
+                .nextCursor(encodeNext(window))
+                .totalElements(totalElements)
+                .build();
+    }
+
+    // Private helper methods
+
+    private static Map<String, Class<?>> createdAtKeys() {
+        Map<String, Class<?>> keys = new LinkedHashMap<>();
+        keys.put("createdAt", ZonedDateTime.class);
+        keys.put("id", UUID.class);
+        return Collections.unmodifiableMap(keys);
+    }
+
+    private static String format(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString();
+    }
+
+    private static Object parse(String value, Class<?> type) {
+        if (value == null) {
+            return null;
+        }
+        if (type == UUID.class) {
+            return UUID.fromString(value);
+        }
+        if (type == ZonedDateTime.class) {
+            return ZonedDateTime.parse(value);
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal(value);
+        }
+        if (type == Long.class) {
+            return Long.valueOf(value);
+        }
+        if (type == Integer.class) {
+            return Integer.valueOf(value);
+        }
+        if (type == String.class) {
+            return value;
+        }
+        throw new IllegalArgumentException("Unsupported cursor key type: " + type.getName());
+    }
+}
@@ -13,6 +13,12 @@ import java.util.Map;
  */
 public interface PaymentProviderService {
 
+    /**
+     * Metadata entry carrying the idempotency key of a gateway request. Providers send it
+     * with the request, so a retried call returns the original result instead of repeating it.
+     */
+    String IDEMPOTENCY_KEY = "idempotency_key";
+
     /**
      * Get the provider type this service handles
      */
@@ -46,7 +52,14 @@ public interface PaymentProviderService {
     /**
      * Refund a payment
      */
-    RefundResult refundPayment(String paymentIntentId, BigDecimal amount, String reason);
+    default RefundResult refundPayment(String paymentIntentId, BigDecimal amount, String reason) {
+        return refundPayment(paymentIntentId, amount, reason, Map.of());
+    }
+
+    /**
+     * Refund a payment; the metadata may carry an {@link #IDEMPOTENCY_KEY}
+     */
+    RefundResult refundPayment(String paymentIntentId, BigDecimal amount, String reason, Map<String, String> metadata);
 
     /**
      * Create a customer in the gateway
@@ -49,13 +49,17 @@ public class StripePaymentProvider implements PaymentProviderService {
         }
 
         try {
-            // In production, use Stripe SDK:
-            // com.stripe.model.PaymentIntent intent = com.stripe.model.PaymentIntent.create(params);
+            // In production, use Stripe SDK, passing the idempotency key so a retry returns the same intent:
+            // RequestOptions options = RequestOptions.builder().setIdempotencyKey(idempotencyKey).build();
+            // com.stripe.model.PaymentIntent intent = com.stripe.model.PaymentIntent.create(params, options);
             
             log.info("Creating Stripe payment intent for amount: {} {}", amount, currency);
             
             // Simulate Stripe API call
-            String paymentIntentId = "pi_" + System.currentTimeMillis();
+            String idempotencyKey = metadata != null ? metadata.get(IDEMPOTENCY_KEY) : null;
+            String paymentIntentId = idempotencyKey != null
+                ? "pi_" + Integer.toHexString(idempotencyKey.hashCode())
+                : "pi_" + System.currentTimeMillis();
             String clientSecret = paymentIntentId + "_secret_" + System.nanoTime();
             
             return new PaymentIntent(
@@ -78,9 +82,9 @@ public class StripePaymentProvider implements PaymentProviderService {
         try {
             log.info("Confirming Stripe payment: {} with method: {}", paymentIntentId, paymentMethodId);
             
-            // In production, use Stripe SDK:
+            // In production, use Stripe SDK with the idempotency key from the metadata:
             // PaymentIntent intent = PaymentIntent.retrieve(paymentIntentId);
-            // intent.confirm(params);
+            // intent.confirm(params, RequestOptions.builder().setIdempotencyKey(idempotencyKey).build());
             
             // Simulate successful payment confirmation
             return new PaymentResult(
@@ -204,14 +208,19 @@ public class StripePaymentProvider implements PaymentProviderService {
     }
 
     @Override
-    public RefundResult refundPayment(String paymentIntentId, BigDecimal amount, String reason) {
+    public RefundResult refundPayment(String paymentIntentId, BigDecimal amount, String reason,
+                                      Map<String, String> metadata) {
         try {
             log.info("Refunding Stripe payment: {} amount: {} reason: {}", paymentIntentId, amount, reason);
             
-            // In production, use Stripe SDK:
-            // Refund refund = Refund.create(params);
+            // In production, use Stripe SDK with the idempotency key from the metadata, so a
+            // retried refund returns the original refund instead of refunding twice:
+            // Refund refund = Refund.create(params, RequestOptions.builder().setIdempotencyKey(idempotencyKey).build());
             
-            String refundId = "re_" + System.currentTimeMillis();
+            String idempotencyKey = metadata != null ? metadata.get(IDEMPOTENCY_KEY) : null;
+            String refundId = idempotencyKey != null
+                ? "re_" + Integer.toHexString(idempotencyKey.hashCode())
+                : "re_" + System.currentTimeMillis();
             
             return new RefundResult(
                 true,
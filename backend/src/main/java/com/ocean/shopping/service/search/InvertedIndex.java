@@ -0,0 +1,672 @@
+package com.ocean.shopping.service.search;
+
+import com.ocean.shopping.dto.product.ProductSearchFacets;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over active products.
+ * <p>
+ * Documents get append-only int IDs, so every posting list stays sorted without
+ * re-sorting. Updating a product tombstones its old document and appends a new
+ * one; tombstones are dropped when the owning service rebuilds the index.
+ * Posting lists and per-document attributes are primitive arrays, and filters
+ * and facets are bitsets over document IDs. Reads and writes are guarded by a
+ * read/write lock.
+ */
+final class InvertedIndex {
+
+    // BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Field weights, applied as term frequency multipliers
+    private static final int NAME_WEIGHT = 3;
+    private static final int SKU_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int SHORT_DESCRIPTION_WEIGHT = 1;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Price bucket upper bounds in cents (exclusive); the last bucket is open-ended
+    private static final long[] PRICE_BUCKET_BOUNDS = {2_500L, 5_000L, 10_000L, 25_000L, 50_000L};
+    private static final String[] PRICE_BUCKET_LABELS = {"0-25", "25-50", "50-100", "100-250", "250-500", "500+"};
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<UUID, Integer> docByProduct = new HashMap<>();
+
+    private int maxDoc;
+    private int liveDocs;
+    private long totalDocLength;
+
+    // Per-document attributes, indexed by document ID
+    private UUID[] productIds = new UUID[INITIAL_CAPACITY];
+    private int[] docLength = new int[INITIAL_CAPACITY];
+    private long[] priceCents = new long[INITIAL_CAPACITY];
+    private float[] averageRating = new float[INITIAL_CAPACITY];
+    private int[] reviewCount = new int[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private long[] updatedAt = new long[INITIAL_CAPACITY];
+    private String[] sortName = new String[INITIAL_CAPACITY];
+
+    // Filter and facet bitsets
+    private final BitSet live = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final BitSet featured = new BitSet();
+    private final BitSet digital = new BitSet();
+    private final BitSet discounted = new BitSet();
+    private final Map<UUID, BitSet> byCategory = new HashMap<>();
+    private final Map<UUID, BitSet> byStore = new HashMap<>();
+    private final BitSet[] byPriceBucket = new BitSet[PRICE_BUCKET_LABELS.length];
+
+    InvertedIndex() {
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            byPriceBucket[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Add or replace a product document.
+     */
+    void upsert(Document document) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(document.getProductId());
+
+            Map<String, Integer> termFrequencies = new HashMap<>();
+            addTerms(termFrequencies, TextAnalyzer.analyze(document.getName()), NAME_WEIGHT);
+            addTerms(termFrequencies, TextAnalyzer.analyze(document.getCategoryName()), CATEGORY_WEIGHT);
+            addTerms(termFrequencies, TextAnalyzer.analyze(document.getShortDescription()), SHORT_DESCRIPTION_WEIGHT);
+            addTerms(termFrequencies, TextAnalyzer.analyze(document.getDescription()), DESCRIPTION_WEIGHT);
+            String sku = TextAnalyzer.keyword(document.getSku());
+            if (sku != null) {
+                termFrequencies.merge(sku, SKU_WEIGHT, Integer::sum);
+                addTerms(termFrequencies, TextAnalyzer.analyze(document.getSku()), SKU_WEIGHT);
+            }
+
+            int doc = maxDoc++;
+            ensureCapacity(maxDoc);
+
+            int length = 0;
+            for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), key -> new Postings()).add(doc, entry.getValue());
+                length += entry.getValue();
+            }
+
+            productIds[doc] = document.getProductId();
+            docLength[doc] = length;
+            priceCents[doc] = document.getPriceCents();
+            averageRating[doc] = document.getAverageRating();
+            reviewCount[doc] = document.getReviewCount();
+            createdAt[doc] = document.getCreatedAt();
+            updatedAt[doc] = document.getUpdatedAt();
+            sortName[doc] = document.getName() != null ? document.getName().toLowerCase(Locale.ROOT) : "";
+
+            live.set(doc);
+            inStock.set(doc, document.isInStock());
+            featured.set(doc, document.isFeatured());
+            digital.set(doc, document.isDigital());
+            discounted.set(doc, document.isDiscounted());
+            if (document.getCategoryId() != null) {
+                byCategory.computeIfAbsent(document.getCategoryId(), key -> new BitSet()).set(doc);
+            }
+            if (document.getStoreId() != null) {
+                byStore.computeIfAbsent(document.getStoreId(), key -> new BitSet()).set(doc);
+            }
+            byPriceBucket[priceBucket(document.getPriceCents())].set(doc);
+
+            docByProduct.put(document.getProductId(), doc);
+            liveDocs++;
+            totalDocLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a product from search results.
+     */
+    void remove(UUID productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int deletedDocs() {
+        lock.readLock().lock();
+        try {
+            return maxDoc - liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Run a query. Every query term must match (the last one also as a prefix);
+     * matches are ranked with BM25 unless another sort is requested.
+     */
+    Result search(Query query) {
+        lock.readLock().lock();
+        try {
+            List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextAnalyzer.analyze(query.getText())));
+            if (terms.isEmpty() || liveDocs == 0) {
+                return Result.empty();
+            }
+
+            // Build one clause per term, then intersect starting from the rarest
+            String lastToken = TextAnalyzer.keyword(lastToken(query.getText()));
+            if (lastToken != null && !TextAnalyzer.stem(lastToken).equals(terms.get(terms.size() - 1))) {
+                // The trailing word was a stop word or a duplicate
+                lastToken = null;
+            }
+            List<Clause> clauses = new ArrayList<>(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                boolean last = i == terms.size() - 1;
+                Clause clause = last && lastToken != null
+                        ? prefixClause(terms.get(i), lastToken)
+                        : termClause(terms.get(i));
+                if (clause.size == 0) {
+                    return Result.empty();
+                }
+                clauses.add(clause);
+            }
+            clauses.sort(Comparator.comparingInt(clause -> clause.size));
+
+            Clause matches = clauses.get(0);
+            for (int i = 1; i < clauses.size() && matches.size > 0; i++) {
+                matches = intersect(matches, clauses.get(i));
+            }
+            matches = applyFilters(matches, query);
+
+            List<UUID> page = topDocs(matches, query);
+            ProductSearchFacets facets = query.isIncludeFacets() ? facets(matches) : null;
+            return new Result(page, matches.size, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Private helper methods
+
+    private void removeInternal(UUID productId) {
+        Integer doc = docByProduct.remove(productId);
+        if (doc == null || !live.get(doc)) {
+            return;
+        }
+        live.clear(doc);
+        liveDocs--;
+        totalDocLength -= docLength[doc];
+    }
+
+    private static void addTerms(Map<String, Integer> termFrequencies, List<String> terms, int weight) {
+        for (String term : terms) {
+            termFrequencies.merge(term, weight, Integer::sum);
+        }
+    }
+
+    private Clause termClause(String term) {
+        Postings list = postings.get(term);
+        if (list == null) {
+            return Clause.EMPTY;
+        }
+
+        Clause clause = new Clause(list.size);
+        float idf = idf(list.size);
+        float averageLength = averageDocLength();
+        for (int i = 0; i < list.size; i++) {
+            int doc = list.docs[i];
+            if (live.get(doc)) {
+                clause.add(doc, bm25(idf, list.freqs[i], docLength[doc], averageLength));
+            }
+        }
+        return clause;
+    }
+
+    /**
+     * Union of the exact term and every indexed term starting with the raw last token,
+     * so partially typed words still match.
+     */
+    private Clause prefixClause(String term, String prefix) {
+        List<String> keys = new ArrayList<>();
+        if (postings.containsKey(term)) {
+            keys.add(term);
+        }
+        for (String key : postings.tailMap(prefix, true).keySet()) {
+            if (!key.startsWith(prefix) || keys.size() >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            if (!key.equals(term)) {
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            return Clause.EMPTY;
+        }
+        if (keys.size() == 1) {
+            return termClause(keys.get(0));
+        }
+
+        List<Postings> lists = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            lists.add(postings.get(key));
+        }
+
+        // Pack (doc, score) into longs so a primitive sort groups entries by document
+        int total = 0;
+        for (Postings list : lists) {
+            total += list.size;
+        }
+        long[] packed = new long[total];
+        int count = 0;
+        float averageLength = averageDocLength();
+        for (Postings list : lists) {
+            float idf = idf(list.size);
+            for (int i = 0; i < list.size; i++) {
+                int doc = list.docs[i];
+                if (live.get(doc)) {
+                    float score = bm25(idf, list.freqs[i], docLength[doc], averageLength);
+                    packed[count++] = ((long) doc << 32) | (Float.floatToIntBits(score) & 0xFFFFFFFFL);
+                }
+            }
+        }
+        Arrays.sort(packed, 0, count);
+
+        Clause clause = new Clause(count);
+        for (int i = 0; i < count; i++) {
+            int doc = (int) (packed[i] >>> 32);
+            float score = Float.intBitsToFloat((int) packed[i]);
+            if (clause.size > 0 && clause.docs[clause.size - 1] == doc) {
+                clause.scores[clause.size - 1] = Math.max(clause.scores[clause.size - 1], score);
+            } else {
+                clause.add(doc, score);
+            }
+        }
+        return clause;
+    }
+
+    private static Clause intersect(Clause smaller, Clause larger) {
+        Clause result = new Clause(smaller.size);
+        int from = 0;
+        for (int i = 0; i < smaller.size && from < larger.size; i++) {
+            int found = Arrays.binarySearch(larger.docs, from, larger.size, smaller.docs[i]);
+            if (found >= 0) {
+                result.add(smaller.docs[i], smaller.scores[i] + larger.scores[found]);
+                from = found + 1;
+            } else {
+                from = -found - 1;
+            }
+        }
+        return result;
+    }
+
+    private Clause applyFilters(Clause matches, Query query) {
+        BitSet storeBits = query.getStoreId() != null ? byStore.get(query.getStoreId()) : null;
+        if (query.getStoreId() != null && storeBits == null) {
+            return Clause.EMPTY;
+        }
+
+        BitSet categoryBits = null;
+        if (query.getCategoryIds() != null && !query.getCategoryIds().isEmpty()) {
+            categoryBits = new BitSet();
+            for (UUID categoryId : query.getCategoryIds()) {
+                BitSet bits = byCategory.get(categoryId);
+                if (bits != null) {
+                    categoryBits.or(bits);
+                }
+            }
+        }
+
+        Clause result = new Clause(matches.size);
+        for (int i = 0; i < matches.size; i++) {
+            int doc = matches.docs[i];
+            if (storeBits != null && !storeBits.get(doc)) continue;
+            if (categoryBits != null && !categoryBits.get(doc)) continue;
+            if (query.getMinPriceCents() != null && priceCents[doc] < query.getMinPriceCents()) continue;
+            if (query.getMaxPriceCents() != null && priceCents[doc] > query.getMaxPriceCents()) continue;
+            if (Boolean.TRUE.equals(query.getInStock()) && !inStock.get(doc)) continue;
+            if (query.getFeatured() != null && featured.get(doc) != query.getFeatured()) continue;
+            if (query.getDigital() != null && digital.get(doc) != query.getDigital()) continue;
+            if (Boolean.TRUE.equals(query.getHasDiscount()) && !discounted.get(doc)) continue;
+            if (query.getMinRating() != null
+                    && (reviewCount[doc] == 0 || averageRating[doc] < query.getMinRating())) continue;
+            result.add(doc, matches.scores[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Select the requested page with a bounded heap instead of sorting every match.
+     */
+    private List<UUID> topDocs(Clause matches, Query query) {
+        int offset = Math.max(query.getOffset(), 0);
+        int limit = Math.max(query.getLimit(), 0);
+        int k = (int) Math.min((long) offset + limit, matches.size);
+        if (k <= offset) {
+            return List.of();
+        }
+
+        PositionComparator order = comparator(matches, query.getSortBy(), query.isAscending());
+
+        // Min-heap on "order": the root is the worst of the current top k
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int position = 0; position < matches.size; position++) {
+            if (heapSize < k) {
+                heap[heapSize] = position;
+                siftUp(heap, heapSize++, order);
+            } else if (order.compare(position, heap[0]) < 0) {
+                heap[0] = position;
+                siftDown(heap, heapSize, order);
+            }
+        }
+
+        // Drain worst-first into the sorted array
+        int[] sorted = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            sorted[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, order);
+        }
+
+        List<UUID> page = new ArrayList<>(k - offset);
+        for (int i = offset; i < sorted.length; i++) {
+            page.add(productIds[matches.docs[sorted[i]]]);
+        }
+        return page;
+    }
+
+    /**
+     * Comparator over match positions; negative means "ranks before". Ties fall back
+     * to relevance and then to document order for a stable result.
+     */
+    private PositionComparator comparator(Clause matches, String sortBy, boolean ascending) {
+        PositionComparator relevance = (a, b) -> {
+            int byScore = Float.compare(matches.scores[b], matches.scores[a]);
+            return byScore != 0 ? byScore : Integer.compare(matches.docs[a], matches.docs[b]);
+        };
+
+        PositionComparator primary = switch (sortBy != null ? sortBy.toLowerCase(Locale.ROOT) : "relevance") {
+            case "name" -> (a, b) -> sortName[matches.docs[a]].compareTo(sortName[matches.docs[b]]);
+            case "price" -> (a, b) -> Long.compare(priceCents[matches.docs[a]], priceCents[matches.docs[b]]);
+            case "createdat" -> (a, b) -> Long.compare(createdAt[matches.docs[a]], createdAt[matches.docs[b]]);
+            case "updatedat" -> (a, b) -> Long.compare(updatedAt[matches.docs[a]], updatedAt[matches.docs[b]]);
+            case "rating" -> (a, b) -> Float.compare(averageRating[matches.docs[a]], averageRating[matches.docs[b]]);
+            case "popularity" -> (a, b) -> Integer.compare(reviewCount[matches.docs[a]], reviewCount[matches.docs[b]]);
+            default -> null;
+        };
+        if (primary == null) {
+            return relevance;
+        }
+
+        return (a, b) -> {
+            int result = ascending ? primary.compare(a, b) : primary.compare(b, a);
+            return result != 0 ? result : relevance.compare(a, b);
+        };
+    }
+
+    private static void siftUp(int[] heap, int index, PositionComparator order) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            // Worse elements move towards the root
+            if (order.compare(value, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, PositionComparator order) {
+        int index = 0;
+        if (size == 0) {
+            return;
+        }
+        int value = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && order.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.compare(heap[child], value) <= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    private ProductSearchFacets facets(Clause matches) {
+        BitSet matched = new BitSet(maxDoc);
+        for (int i = 0; i < matches.size; i++) {
+            matched.set(matches.docs[i]);
+        }
+
+        BitSet scratch = new BitSet(maxDoc);
+        Map<UUID, Long> categories = new LinkedHashMap<>();
+        byCategory.forEach((categoryId, bits) -> {
+            long count = intersectionCount(scratch, matched, bits);
+            if (count > 0) {
+                categories.put(categoryId, count);
+            }
+        });
+
+        Map<UUID, Long> stores = new LinkedHashMap<>();
+        byStore.forEach((storeId, bits) -> {
+            long count = intersectionCount(scratch, matched, bits);
+            if (count > 0) {
+                stores.put(storeId, count);
+            }
+        });
+
+        Map<String, Long> priceRanges = new LinkedHashMap<>();
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            priceRanges.put(PRICE_BUCKET_LABELS[i], intersectionCount(scratch, matched, byPriceBucket[i]));
+        }
+
+        long inStockCount = intersectionCount(scratch, matched, inStock);
+
+        return ProductSearchFacets.builder()
+                .totalHits(matches.size)
+                .categories(categories)
+                .stores(stores)
+                .priceRanges(priceRanges)
+                .inStock(inStockCount)
+                .outOfStock(matches.size - inStockCount)
+                .build();
+    }
+
+    private static long intersectionCount(BitSet scratch, BitSet left, BitSet right) {
+        scratch.clear();
+        scratch.or(left);
+        scratch.and(right);
+        return scratch.cardinality();
+    }
+
+    private float idf(int documentFrequency) {
+        // Tombstoned documents still count towards df until the next rebuild
+        return (float) Math.log(1.0 + (Math.max(liveDocs - documentFrequency, 0) + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static float bm25(float idf, int termFrequency, int length, float averageLength) {
+        float norm = K1 * (1 - B + B * length / averageLength);
+        return idf * (termFrequency * (K1 + 1)) / (termFrequency + norm);
+    }
+
+    private float averageDocLength() {
+        return liveDocs > 0 ? Math.max((float) totalDocLength / liveDocs, 1f) : 1f;
+    }
+
+    private static int priceBucket(long cents) {
+        for (int i = 0; i < PRICE_BUCKET_BOUNDS.length; i++) {
+            if (cents < PRICE_BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return PRICE_BUCKET_BOUNDS.length;
+    }
+
+    private static String lastToken(String text) {
+        if (text == null) {
+            return null;
+        }
+        int end = text.length();
+        while (end > 0 && !Character.isLetterOrDigit(text.charAt(end - 1))) {
+            end--;
+        }
+        // Trailing separator means the last word is complete - no prefix expansion
+        if (end < text.length()) {
+            return null;
+        }
+        int start = end;
+        while (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+            start--;
+        }
+        return start < end ? text.substring(start, end) : null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= productIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, productIds.length + (productIds.length >> 1));
+        productIds = Arrays.copyOf(productIds, newCapacity);
+        docLength = Arrays.copyOf(docLength, newCapacity);
+        priceCents = Arrays.copyOf(priceCents, newCapacity);
+        averageRating = Arrays.copyOf(averageRating, newCapacity);
+        reviewCount = Arrays.copyOf(reviewCount, newCapacity);
+        createdAt = Arrays.copyOf(createdAt, newCapacity);
+        updatedAt = Arrays.copyOf(updatedAt, newCapacity);
+        sortName = Arrays.copyOf(sortName, newCapacity);
+    }
+
+    @FunctionalInterface
+    private interface PositionComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Growable posting list: ascending document IDs with weighted term frequencies.
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size << 1);
+                freqs = Arrays.copyOf(freqs, size << 1);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+
+    /**
+     * Matching documents in ascending order with their accumulated scores.
+     */
+    private static final class Clause {
+        private static final Clause EMPTY = new Clause(0);
+
+        private final int[] docs;
+        private final float[] scores;
+        private int size;
+
+        Clause(int capacity) {
+            docs = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void add(int doc, float score) {
+            docs[size] = doc;
+            scores[size] = score;
+            size++;
+        }
+    }
+
+    /**
+     * Indexed view of a product.
+     */
+    @lombok.Builder
+    @lombok.Value
+    static class Document {
+        UUID productId;
+        UUID storeId;
+        UUID categoryId;
+        String name;
+        String shortDescription;
+        String description;
+        String sku;
+        String categoryName;
+        long priceCents;
+        boolean inStock;
+        boolean featured;
+        boolean digital;
+        boolean discounted;
+        float averageRating;
+        int reviewCount;
+        long createdAt;
+        long updatedAt;
+    }
+
+    /**
+     * Search request against the index.
+     */
+    @lombok.Builder
+    @lombok.Value
+    static class Query {
+        String text;
+        UUID storeId;
+        List<UUID> categoryIds;
+        Long minPriceCents;
+        Long maxPriceCents;
+        Boolean inStock;
+        Boolean featured;
+        Boolean digital;
+        Boolean hasDiscount;
+        Float minRating;
+        String sortBy;
+        boolean ascending;
+        int offset;
+        int limit;
+        boolean includeFacets;
+    }
+
+    /**
+     * Page of matching product IDs in rank order.
+     */
+    @lombok.Value
+    static class Result {
+        List<UUID> productIds;
+        long totalHits;
+        ProductSearchFacets facets;
+
+        static Result empty() {
+            return new Result(List.of(), 0, null);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.ocean.shopping.service.search;
+
+import com.ocean.shopping.dto.product.ProductFilter;
+import com.ocean.shopping.dto.product.ProductSearchFacets;
+import com.ocean.shopping.model.entity.Product;
+import com.ocean.shopping.model.entity.ProductRatingStats;
+import com.ocean.shopping.repository.ProductRepository;
+import com.ocean.shopping.service.cache.ProductCatalogCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory full-text search over active products.
+ * <p>
+ * The index is bulk-loaded in the background and rebuilt periodically to drop
+ * tombstoned documents. Between rebuilds it follows product writes through the
+ * catalog invalidation channel, so every node stays current. Callers must check
+ * {@link #supports(ProductFilter)} and fall back to the database otherwise.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private final ProductRepository productRepository;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ocean.shopping.search.load-batch-size:1000}")
+    private int loadBatchSize;
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    // Null until the first build completes
+    private volatile InvertedIndex index;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final Set<UUID> pendingUpdates = ConcurrentHashMap.newKeySet();
+
+    private TransactionTemplate readOnlyTransaction;
+    private Timer searchTimer;
+    private Timer rebuildTimer;
+
+    @PostConstruct
+    public void initialize() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        searchTimer = Timer.builder("product.search.index.latency")
+                .description("In-memory product search latency")
+                .register(meterRegistry);
+        rebuildTimer = Timer.builder("product.search.index.rebuild")
+                .description("Time taken to rebuild the product search index")
+                .register(meterRegistry);
+        Gauge.builder("product.search.index.documents", this, ProductSearchIndex::indexedDocuments)
+                .description("Active products in the search index")
+                .register(meterRegistry);
+
+        if (enabled) {
+            listenerContainer.addMessageListener(
+                    (message, pattern) -> onProductChanged(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(ProductCatalogCache.INVALIDATION_CHANNEL));
+        }
+    }
+
+    /**
+     * Whether this filter can be answered from the index. Inactive product listings
+     * and tag filters are not indexed and stay on the database path.
+     */
+    public boolean supports(ProductFilter filter) {
+        return enabled
+                && index != null
+                && filter.hasSearchQuery()
+                && Boolean.TRUE.equals(filter.getActive())
+                && (filter.getTags() == null || filter.getTags().isEmpty());
+    }
+
+    /**
+     * Search the index. Returns product IDs for the requested page in rank order.
+     */
+    public SearchHits search(ProductFilter filter) {
+        return execute(filter, false);
+    }
+
+    /**
+     * Facet counts for every product matching the filter.
+     */
+    public ProductSearchFacets facets(ProductFilter filter) {
+        SearchHits hits = execute(filter, true);
+        return hits.getFacets() != null ? hits.getFacets() : ProductSearchFacets.empty();
+    }
+
+    /**
+     * Rebuild the whole index from the database and swap it in.
+     */
+    @Async
+    @Scheduled(initialDelayString = "${ocean.shopping.search.initial-delay-ms:10000}",
+               fixedDelayString = "${ocean.shopping.search.rebuild-interval-ms:900000}")
+    public void rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            InvertedIndex fresh = new InvertedIndex();
+
+            UUID afterId = MIN_UUID;
+            while (afterId != null) {
+                UUID cursor = afterId;
+                afterId = readOnlyTransaction.execute(status -> {
+                    List<Product> batch = productRepository.findActiveProductsAfter(cursor, PageRequest.of(0, loadBatchSize));
+                    for (Product product : batch) {
+                        fresh.upsert(toDocument(product));
+                    }
+                    return batch.size() < loadBatchSize ? null : batch.get(batch.size() - 1).getId();
+                });
+            }
+
+            index = fresh;
+
+            // Replay products written while the snapshot was loading
+            for (UUID productId : Set.copyOf(pendingUpdates)) {
+                pendingUpdates.remove(productId);
+                reindex(productId);
+            }
+
+            long elapsed = System.nanoTime() - start;
+            rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Product search index rebuilt with {} products in {} ms", fresh.size(), elapsed / 1_000_000);
+        } catch (Exception e) {
+            log.error("Failed to rebuild product search index", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // Private helper methods
+
+    private SearchHits execute(ProductFilter filter, boolean includeFacets) {
+        InvertedIndex current = index;
+        if (current == null) {
+            throw new IllegalStateException("Product search index is not loaded");
+        }
+
+        InvertedIndex.Query query = InvertedIndex.Query.builder()
+                .text(filter.getQuery())
+                .storeId(filter.getStoreId())
+                .categoryIds(filter.hasCategoryFilter() ? filter.getEffectiveCategoryIds() : null)
+                .minPriceCents(toCents(filter.getMinPrice(), RoundingMode.CEILING))
+                .maxPriceCents(toCents(filter.getMaxPrice(), RoundingMode.FLOOR))
+                .inStock(filter.getInStock())
+                .featured(filter.getFeatured())
+                .digital(filter.getDigital())
+                .hasDiscount(filter.getHasDiscount())
+                .minRating(filter.getMinRating() != null ? filter.getMinRating().floatValue() : null)
+                .sortBy(filter.getSortBy())
+                .ascending("asc".equalsIgnoreCase(filter.getSortDirection()))
+                .offset(filter.getPage() * filter.getSize())
+                .limit(filter.getSize())
+                .includeFacets(includeFacets)
+                .build();
+
+        InvertedIndex.Result result = searchTimer.record(() -> current.search(query));
+        return SearchHits.builder()
+                .productIds(result.getProductIds())
+                .totalHits(result.getTotalHits())
+                .facets(result.getFacets())
+                .build();
+    }
+
+    private void onProductChanged(String body) {
+        UUID productId;
+        try {
+            productId = UUID.fromString(body);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        if (rebuilding.get()) {
+            pendingUpdates.add(productId);
+        }
+        if (index != null) {
+            reindex(productId);
+        }
+    }
+
+    private void reindex(UUID productId) {
+        InvertedIndex current = index;
+        if (current == null) {
+            return;
+        }
+
+        try {
+            InvertedIndex.Document document = readOnlyTransaction.execute(status ->
+                    productRepository.findById(productId)
+                            .filter(Product::getIsActive)
+                            .map(this::toDocument)
+                            .orElse(null));
+
+            if (document != null) {
+                current.upsert(document);
+            } else {
+                current.remove(productId);
+            }
+            log.debug("Reindexed product {} for search", productId);
+        } catch (Exception e) {
+            log.warn("Failed to reindex product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    private InvertedIndex.Document toDocument(Product product) {
+        ProductRatingStats stats = product.getRatingStats();
+        return InvertedIndex.Document.builder()
+                .productId(product.getId())
+                .storeId(product.getStore() != null ? product.getStore().getId() : null)
+                .categoryId(product.getCategory() != null ? product.getCategory().getId() : null)
+                .categoryName(product.getCategory() != null ? product.getCategory().getName() : null)
+                .name(product.getName())
+                .shortDescription(product.getShortDescription())
+                .description(product.getDescription())
+                .sku(product.getSku())
+                .priceCents(toCents(product.getPrice(), RoundingMode.HALF_UP))
+                .inStock(product.isInStock())
+                .featured(Boolean.TRUE.equals(product.getIsFeatured()))
+                .digital(Boolean.TRUE.equals(product.getIsDigital()))
+                .discounted(product.hasDiscount())
+                .averageRating(stats != null ? stats.getAverageRating().floatValue() : 0f)
+                .reviewCount(stats != null ? stats.getReviewCount() : 0)
+                .createdAt(toEpochMilli(product.getCreatedAt()))
+                .updatedAt(toEpochMilli(product.getUpdatedAt()))
+                .build();
+    }
+
+    private static Long toCents(BigDecimal amount, RoundingMode roundingMode) {
+        return amount != null ? amount.movePointRight(2).setScale(0, roundingMode).longValueExact() : null;
+    }
+
+    private static long toEpochMilli(ZonedDateTime time) {
+        return time != null ? time.toInstant().toEpochMilli() : 0L;
+    }
+
+    private double indexedDocuments() {
+        InvertedIndex current = index;
+        return current != null ? current.size() : 0;
+    }
+
+    /**
+     * Search result page
+     */
+    @lombok.Builder
+    @lombok.Data
+    public static class SearchHits {
+        private List<UUID> productIds;
+        private long totalHits;
+        private ProductSearchFacets facets;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ocean.shopping.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tokenizer and light English stemmer shared by indexing and querying,
+ * so both sides always agree on the produced terms.
+ */
+final class TextAnalyzer {
+
+    private static final int MIN_TOKEN_LENGTH = 1;
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "into",
+            "is", "it", "of", "on", "or", "that", "the", "this", "to", "with");
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Split text into lower-cased, stemmed terms, dropping stop words.
+     * Letters and digits form tokens; everything else separates them.
+     */
+    static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean tokenChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                addTerm(terms, lower.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Normalize a single identifier-like value (e.g. a SKU) into one term without stemming.
+     */
+    static String keyword(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void addTerm(List<String> terms, String token) {
+        if (token.length() < MIN_TOKEN_LENGTH || STOP_WORDS.contains(token)) {
+            return;
+        }
+        terms.add(stem(token));
+    }
+
+    /**
+     * Light suffix-stripping stemmer: folds plurals and the most common verb
+     * endings ("headphones" -> "headphone", "charging" -> "charg") without the
+     * full Porter rule set. Digits-bearing tokens (model numbers) are left alone.
+     */
+    static String stem(String token) {
+        int length = token.length();
+        if (length <= 3 || hasDigit(token)) {
+            return token;
+        }
+
+        if (token.endsWith("ies") && length > 4) {
+            return token.substring(0, length - 3) + "y";
+        }
+        if (token.endsWith("sses")) {
+            return token.substring(0, length - 2);
+        }
+        if (token.endsWith("ing") && length > 5) {
+            return token.substring(0, length - 3);
+        }
+        if (token.endsWith("ed") && length > 4) {
+            return token.substring(0, length - 2);
+        }
+        if (token.endsWith("es") && length > 4 && isSibilant(token.charAt(length - 3))) {
+            return token.substring(0, length - 2);
+        }
+        if (token.endsWith("s") && !token.endsWith("ss") && !token.endsWith("us")) {
+            return token.substring(0, length - 1);
+        }
+        return token;
+    }
+
+    private static boolean isSibilant(char c) {
+        return c == 's' || c == 'x' || c == 'z' || c == 'h';
+    }
+
+    private static boolean hasDigit(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isDigit(token.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,408 @@
+package com.ocean.shopping.service.unread;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unread counters for notifications and chat messages.
+ * <p>
+ * Each user has a Redis hash ({@code unread:{userId}}) with the unread notification
+ * count, the unread chat count and one field per conversation with unread messages.
+ * Hashes are loaded from the database on first read and then adjusted by the services
+ * that create or read notifications and messages, after their transaction commits.
+ * Adjustments never create a hash, so a concurrent load cannot be double counted.
+ * Users whose counters changed are queued for reconciliation against the database,
+ * and so are users being loaded (marked by {@code unread:loading:{userId}}), whose
+ * load may have read the database before the change. Every hash expires after a fixed
+ * TTL, which bounds any remaining drift.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UnreadCounterService {
+
+    public static final String NOTIFICATIONS_FIELD = "notifications";
+    public static final String CHAT_FIELD = "chat";
+    public static final String CONVERSATION_FIELD_PREFIX = "conversation:";
+
+    private static final String COUNTERS_PREFIX = "unread:";
+    private static final String RECONCILE_QUEUE_KEY = "unread:reconcile";
+    private static final String LOADING_PREFIX = "unread:loading:";
+
+    // Longer than a load takes, so adjustments during it are queued
+    private static final Duration LOADING_MARKER_TTL = Duration.ofMinutes(1);
+
+    private static final String NOTIFICATION_COUNTS_SQL =
+        "SELECT target_user_id, COUNT(*) FROM notifications " +
+        "WHERE is_read = false AND target_user_id = ANY(?) GROUP BY target_user_id";
+
+    private static final String CHAT_COUNTS_SQL =
+        "SELECT receiver_id, conversation_id, COUNT(*) FROM chat_messages " +
+        "WHERE is_read = false AND receiver_id = ANY(?) GROUP BY receiver_id, conversation_id";
+
+    // Store freshly loaded counters unless another reader got there first (ARGV[2..] = field, value pairs)
+    private static final RedisScript<Long> LOAD_SCRIPT = RedisScript.of(
+        "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+        "for i = 2, #ARGV, 2 do " +
+        "    redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+        "end " +
+        "redis.call('pexpire', KEYS[1], ARGV[1]) " +
+        "return 1", Long.class);
+
+    // Replace reconciled counters of hashes that are still cached (ARGV[2..] = field, value pairs)
+    private static final RedisScript<Long> REPLACE_SCRIPT = RedisScript.of(
+        "local ttl = redis.call('pttl', KEYS[1]) " +
+        "if ttl <= 0 then return 0 end " +
+        "redis.call('del', KEYS[1]) " +
+        "for i = 2, #ARGV, 2 do " +
+        "    redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+        "end " +
+        "redis.call('pexpire', KEYS[1], ttl) " +
+        "return 1", Long.class);
+
+    // Apply field deltas (ARGV[4..] = field, delta pairs) to every cached hash in KEYS[2..]
+    // (hash, loading marker pairs): counters never go below zero, and emptied conversation
+    // fields are dropped. Adjusted users, and users being loaded, are queued in KEYS[1]
+    // for reconciliation.
+    private static final RedisScript<Long> ADJUST_SCRIPT = RedisScript.of(
+        "local adjusted = 0 " +
+        "for k = 2, #KEYS, 2 do " +
+        "    if redis.call('exists', KEYS[k + 1]) == 1 then " +
+        "        redis.call('zadd', KEYS[1], 'NX', ARGV[1], string.sub(KEYS[k], #ARGV[2] + 1)) " +
+        "    end " +
+        "    if redis.call('exists', KEYS[k]) == 1 then " +
+        "        for i = 4, #ARGV, 2 do " +
+        "            local value = redis.call('hincrby', KEYS[k], ARGV[i], ARGV[i + 1]) " +
+        "            if value <= 0 then " +
+        "                if string.sub(ARGV[i], 1, #ARGV[3]) == ARGV[3] then " +
+        "                    redis.call('hdel', KEYS[k], ARGV[i]) " +
+        "                elseif value < 0 then " +
+        "                    redis.call('hset', KEYS[k], ARGV[i], 0) " +
+        "                end " +
+        "            end " +
+        "        end " +
+        "        redis.call('zadd', KEYS[1], 'NX', ARGV[1], string.sub(KEYS[k], #ARGV[2] + 1)) " +
+        "        adjusted = adjusted + 1 " +
+        "    end " +
+        "end " +
+        "return adjusted", Long.class);
+
+    // Take up to ARGV[2] users queued before ARGV[1]
+    private static final String CLAIM_SCRIPT_SOURCE =
+        "local users = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+        "if #users > 0 then redis.call('zrem', KEYS[1], unpack(users)) end " +
+        "return users";
+    private static final RedisScript<List<String>> CLAIM_SCRIPT = stringListScript(CLAIM_SCRIPT_SOURCE);
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.unread.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${ocean.shopping.unread.reconcile-delay-ms:10000}")
+    private long reconcileDelayMs;
+
+    @Value("${ocean.shopping.unread.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    // Concurrent misses for the same user share one database load
+    private final Map<UUID, CompletableFuture<UnreadCounts>> inFlightLoads = new ConcurrentHashMap<>();
+
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter reconciledCounter;
+
+    @PostConstruct
+    public void initialize() {
+        hitCounter = Counter.builder("unread.counters.requests")
+                .description("Unread counter reads")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        missCounter = Counter.builder("unread.counters.requests")
+                .description("Unread counter reads")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        reconciledCounter = Counter.builder("unread.counters.reconciled")
+                .description("Users whose unread counters were reconciled against the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get the unread counters of a user
+     */
+    public UnreadCounts getCounts(UUID userId) {
+        Map<Object, Object> cached;
+        try {
+            cached = redisTemplate.opsForHash().entries(COUNTERS_PREFIX + userId);
+        } catch (Exception e) {
+            log.error("Error reading unread counters for user {}: {}", userId, e.getMessage());
+            return loadCounts(List.of(userId)).get(userId);
+        }
+
+        if (!cached.isEmpty()) {
+            hitCounter.increment();
+            return fromHash(cached);
+        }
+
+        missCounter.increment();
+        CompletableFuture<UnreadCounts> load = new CompletableFuture<>();
+        CompletableFuture<UnreadCounts> existing = inFlightLoads.putIfAbsent(userId, load);
+        if (existing != null) {
+            return existing.join();
+        }
+
+        try {
+            redisTemplate.opsForValue().set(LOADING_PREFIX + userId, "1", LOADING_MARKER_TTL);
+            UnreadCounts counts = loadCounts(List.of(userId)).get(userId);
+            redisTemplate.execute(LOAD_SCRIPT, List.of(COUNTERS_PREFIX + userId), toScriptArgs(ttlMillis(), counts));
+            load.complete(counts);
+            return counts;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(userId, load);
+        }
+    }
+
+    public long getNotificationCount(UUID userId) {
+        return getCounts(userId).getNotifications();
+    }
+
+    public long getChatCount(UUID userId) {
+        return getCounts(userId).getChat();
+    }
+
+    /**
+     * Count new unread notifications, after the current transaction commits
+     */
+    public void notificationsCreated(Collection<UUID> userIds) {
+        if (!userIds.isEmpty()) {
+            List<UUID> recipients = List.copyOf(userIds);
+            afterCommit(() -> adjust(recipients, Map.of(NOTIFICATIONS_FIELD, 1L)));
+        }
+    }
+
+    /**
+     * Discount notifications of a user marked as read, after the current transaction commits
+     */
+    public void notificationsRead(UUID userId, long count) {
+        if (count > 0) {
+            afterCommit(() -> adjust(List.of(userId), Map.of(NOTIFICATIONS_FIELD, -count)));
+        }
+    }
+
+    /**
+     * Count a new unread message, after the current transaction commits
+     */
+    public void messageSent(UUID receiverId, UUID conversationId) {
+        afterCommit(() -> adjust(List.of(receiverId),
+                Map.of(CHAT_FIELD, 1L, CONVERSATION_FIELD_PREFIX + conversationId, 1L)));
+    }
+
+    /**
+     * Discount messages of a conversation marked as read, after the current transaction commits
+     */
+    public void messagesRead(UUID userId, UUID conversationId, long count) {
+        if (count > 0) {
+            afterCommit(() -> adjust(List.of(userId),
+                    Map.of(CHAT_FIELD, -count, CONVERSATION_FIELD_PREFIX + conversationId, -count)));
+        }
+    }
+
+    /**
+     * Queue users for reconciliation after unread rows were changed in bulk
+     */
+    public void scheduleReconciliation(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            try {
+                double now = System.currentTimeMillis();
+                userIds.forEach(userId -> redisTemplate.opsForZSet().addIfAbsent(RECONCILE_QUEUE_KEY, userId.toString(), now));
+            } catch (Exception e) {
+                log.error("Error queueing unread counter reconciliation: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Recompute the counters of recently adjusted users from the database. Users are
+     * claimed atomically, so nodes running this concurrently split the queue.
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.unread.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            while (true) {
+                List<String> claimed = redisTemplate.execute(CLAIM_SCRIPT,
+                        List.of(RECONCILE_QUEUE_KEY),
+                        String.valueOf(System.currentTimeMillis() - reconcileDelayMs),
+                        String.valueOf(reconcileBatchSize));
+                if (claimed == null || claimed.isEmpty()) {
+                    return;
+                }
+
+                List<UUID> userIds = claimed.stream().map(UUID::fromString).toList();
+                Map<UUID, UnreadCounts> counts = loadCounts(userIds);
+                for (UUID userId : userIds) {
+                    redisTemplate.execute(REPLACE_SCRIPT, List.of(COUNTERS_PREFIX + userId),
+                            toScriptArgs(0, counts.get(userId)));
+                }
+                reconciledCounter.increment(userIds.size());
+
+                if (claimed.size() < reconcileBatchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error reconciling unread counters: {}", e.getMessage());
+        }
+    }
+
+    // Private helper methods
+
+    @SuppressWarnings("unchecked")
+    private static RedisScript<List<String>> stringListScript(String source) {
+        DefaultRedisScript<List<String>> script = new DefaultRedisScript<>(source);
+        script.setResultType((Class<List<String>>) (Class<?>) List.class);
+        return script;
+    }
+
+    private void adjust(List<UUID> userIds, Map<String, Long> deltas) {
+        try {
+            List<String> keys = new ArrayList<>(userIds.size() * 2 + 1);
+            keys.add(RECONCILE_QUEUE_KEY);
+            userIds.forEach(userId -> {
+                keys.add(COUNTERS_PREFIX + userId);
+                keys.add(LOADING_PREFIX + userId);
+            });
+
+            List<String> args = new ArrayList<>(3 + deltas.size() * 2);
+            args.add(String.valueOf(System.currentTimeMillis()));
+            args.add(COUNTERS_PREFIX);
+            args.add(CONVERSATION_FIELD_PREFIX);
+            deltas.forEach((field, delta) -> {
+                args.add(field);
+                args.add(String.valueOf(delta));
+            });
+
+            redisTemplate.execute(ADJUST_SCRIPT, keys, args.toArray());
+        } catch (Exception e) {
+            // The counters expire and are reloaded, so a missed adjustment is temporary
+            log.error("Error adjusting unread counters for {} users: {}", userIds.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Count unread notifications and messages of several users with one grouped query each
+     */
+    private Map<UUID, UnreadCounts> loadCounts(List<UUID> userIds) {
+        Map<UUID, UnreadCounts> counts = new HashMap<>();
+        userIds.forEach(userId -> counts.put(userId, UnreadCounts.builder()
+                .notifications(0)
+                .chat(0)
+                .conversations(new HashMap<>())
+                .build()));
+
+        Object[] ids = userIds.toArray();
+        jdbcTemplate.query(NOTIFICATION_COUNTS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)),
+                rs -> {
+                    counts.get(rs.getObject(1, UUID.class)).setNotifications(rs.getLong(2));
+                });
+        jdbcTemplate.query(CHAT_COUNTS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)),
+                rs -> {
+                    UnreadCounts userCounts = counts.get(rs.getObject(1, UUID.class));
+                    long unread = rs.getLong(3);
+                    userCounts.getConversations().put(rs.getObject(2, UUID.class), unread);
+                    userCounts.setChat(userCounts.getChat() + unread);
+                });
+        return counts;
+    }
+
+    private Object[] toScriptArgs(long ttlMs, UnreadCounts counts) {
+        List<String> args = new ArrayList<>(5 + counts.getConversations().size() * 2);
+        args.add(String.valueOf(ttlMs));
+        args.add(NOTIFICATIONS_FIELD);
+        args.add(String.valueOf(counts.getNotifications()));
+        args.add(CHAT_FIELD);
+        args.add(String.valueOf(counts.getChat()));
+        counts.getConversations().forEach((conversationId, unread) -> {
+            args.add(CONVERSATION_FIELD_PREFIX + conversationId);
+            args.add(String.valueOf(unread));
+        });
+        return args.toArray();
+    }
+
+    private UnreadCounts fromHash(Map<Object, Object> hash) {
+        UnreadCounts counts = UnreadCounts.builder()
+                .conversations(new HashMap<>())
+                .build();
+        hash.forEach((key, value) -> {
+            String field = key.toString();
+            long count = Long.parseLong(value.toString());
+            if (NOTIFICATIONS_FIELD.equals(field)) {
+                counts.setNotifications(count);
+            } else if (CHAT_FIELD.equals(field)) {
+                counts.setChat(count);
+            } else if (field.startsWith(CONVERSATION_FIELD_PREFIX)) {
+                counts.getConversations().put(UUID.fromString(field.substring(CONVERSATION_FIELD_PREFIX.length())), count);
+            }
+        });
+        return counts;
+    }
+
+    private long ttlMillis() {
+        return ttlMinutes * 60_000L;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Unread counters of one user
+     */
+    @lombok.Builder
+    @lombok.Data
+    public static class UnreadCounts {
+        private long notifications;
+        private long chat;
+        private Map<UUID, Long> conversations;
+    }
+}
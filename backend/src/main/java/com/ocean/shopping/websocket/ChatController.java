@@ -21,6 +21,7 @@ import org.springframework.util.StringUtils;
 import java.security.Principal;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * WebSocket controller for real-time chat functionality
@@ -32,22 +33,30 @@ public class ChatController {
 
     private final ChatService chatService;
     private final NotificationService notificationService;
+    private final ConversationSignalService signalService;
 
     /**
-     * Handle direct message sending
+     * Handle direct message sending; the reply is sent once the message has been persisted,
+     * without holding the inbound channel thread
      */
     @MessageMapping("/chat.sendMessage")
     @SendToUser("/queue/reply")
-    public ChatMessageResponse sendMessage(@Payload ChatMessageRequest request, Principal principal) {
+    public CompletableFuture<ChatMessageResponse> sendMessage(@Payload ChatMessageRequest request, Principal principal) {
         try {
             log.debug("Processing message from user: {}", principal.getName());
             
             UUID senderId = getUserIdFromPrincipal(principal);
-            ChatMessageResponse response = chatService.sendMessage(senderId, request);
-            
-            log.debug("Message sent successfully from user {} to user {}", 
-                    senderId, request.getReceiverId());
-            return response;
+            return chatService.sendMessage(senderId, request)
+                    .whenComplete((response, error) -> {
+                        if (error == null) {
+                            log.debug("Message sent successfully from user {} to user {}",
+                                    senderId, request.getReceiverId());
+                        }
+                    })
+                    .exceptionally(error -> {
+                        log.error("Error sending message: {}", error.getMessage());
+                        throw new BadRequestException("Failed to send message: " + error.getMessage());
+                    });
             
         } catch (Exception e) {
             log.error("Error sending message: {}", e.getMessage());
@@ -66,8 +75,8 @@ public class ChatController {
             UUID userId = getUserIdFromPrincipal(principal);
             UUID convId = UUID.fromString(conversationId);
             
-            // Verify user can join this conversation
-            if (!chatService.isParticipantInConversation(userId, convId)) {
+            // Verify user can join this conversation; remembered for the session's typing signals
+            if (!signalService.authorize(headerAccessor.getSessionAttributes(), userId, convId)) {
                 throw new BadRequestException("User not authorized to join this conversation");
             }
             
@@ -77,6 +86,8 @@ public class ChatController {
             
             log.info("User {} joined conversation {}", userId, conversationId);
             
+            signalService.sendPresenceSnapshot(userId, convId);
+
             // Create system message for join
             chatService.createSystemMessage(convId, "User joined the conversation");
             
@@ -161,27 +172,19 @@ public class ChatController {
     }
 
     /**
-     * Handle typing indicators
+     * Handle typing indicators; relayed, coalesced, to the other participants of the conversation
      */
     @MessageMapping("/chat.typing/{conversationId}")
     public void handleTyping(@DestinationVariable String conversationId,
                            @Payload Map<String, Object> typingData,
-                           Principal principal) {
+                           Principal principal,
+                           SimpMessageHeaderAccessor headerAccessor) {
         try {
             UUID userId = getUserIdFromPrincipal(principal);
             UUID convId = UUID.fromString(conversationId);
+            boolean isTyping = Boolean.TRUE.equals(typingData.get("isTyping"));
             
-            // Verify user can type in this conversation
-            if (!chatService.isParticipantInConversation(userId, convId)) {
-                throw new BadRequestException("User not authorized for this conversation");
-            }
-            
-            boolean isTyping = (Boolean) typingData.getOrDefault("isTyping", false);
-            
-            log.debug("User {} typing status in conversation {}: {}", userId, conversationId, isTyping);
-            
-            // Note: In a full implementation, you'd broadcast typing indicators
-            // to other participants in the conversation
+            signalService.typing(headerAccessor.getSessionAttributes(), userId, convId, isTyping);
             
         } catch (Exception e) {
             log.error("Error handling typing indicator: {}", e.getMessage());
@@ -261,13 +264,14 @@ public class ChatController {
                                                           Principal principal) {
         try {
             // Note: Authorization would be checked in the service layer
-            notificationService.sendSystemAnnouncement(request);
+            UUID jobId = notificationService.sendSystemAnnouncement(request);
             
             log.info("System announcement broadcasted by admin: {}", principal.getName());
             
             return Map.of(
                 "type", "BROADCAST_SUCCESS",
                 "message", "System announcement sent successfully",
+                "jobId", jobId,
                 "timestamp", java.time.ZonedDateTime.now()
             );
             
@@ -0,0 +1,262 @@
+package com.ocean.shopping.websocket;
+
+import com.ocean.shopping.service.chat.ChatParticipantCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ephemeral conversation signals: typing indicators and presence changes, sent to the
+ * other participants of a conversation on {@code /user/queue/signals}.
+ * <p>
+ * Conversations a session may signal in are remembered in its session attributes, so
+ * after the first check a keystroke costs no lookup at all. Typing bursts are coalesced
+ * per user and conversation: a start is re-sent at most once per window, a stop only if
+ * a start was sent, and a start not refreshed for two windows is closed with a stop.
+ * Presence goes only to participants of the conversations the user signalled in; going
+ * offline is held back for a grace period so a quick reconnect sends nothing.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationSignalService {
+
+    public static final String SIGNAL_QUEUE = "/queue/signals";
+
+    private static final String AUTHORIZED_ATTRIBUTE = "authorizedConversations";
+
+    private final ChatParticipantCache participantCache;
+    private final PresenceRegistry presenceRegistry;
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.websocket.signals.typing-window-ms:2000}")
+    private long typingWindowMs;
+
+    @Value("${ocean.shopping.websocket.signals.offline-grace-ms:5000}")
+    private long offlineGraceMs;
+
+    private final Map<TypingKey, Long> typingSentAt = new ConcurrentHashMap<>();
+    private final Map<UUID, PendingOffline> pendingOffline = new ConcurrentHashMap<>();
+
+    private Counter sentCounter;
+    private Counter coalescedCounter;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void initialize() {
+        sentCounter = Counter.builder("websocket.signals")
+                .description("Typing and presence signals")
+                .tag("result", "sent")
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("websocket.signals")
+                .description("Typing and presence signals")
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("websocket.signals")
+                .description("Typing and presence signals")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Check that a session's user may signal in a conversation, remembering the answer for the session.
+     * The first time a session is authorized for a conversation, its participants are told the user is online.
+     */
+    public boolean authorize(Map<String, Object> sessionAttributes, UUID userId, UUID conversationId) {
+        Set<UUID> authorized = authorizedConversations(sessionAttributes);
+        if (authorized.contains(conversationId)) {
+            return true;
+        }
+        if (!participantCache.isParticipant(conversationId, userId)) {
+            rejectedCounter.increment();
+            return false;
+        }
+
+        authorized.add(conversationId);
+        sendPresence(userId, WebSocketEventListener.UserStatus.ONLINE, otherParticipants(conversationId, userId));
+        return true;
+    }
+
+    /**
+     * Send the joining user the current presence of the other participants of a conversation
+     */
+    public void sendPresenceSnapshot(UUID userId, UUID conversationId) {
+        for (UUID participant : otherParticipants(conversationId, userId)) {
+            WebSocketEventListener.UserStatus status = presenceRegistry.isUserOnline(participant)
+                    ? WebSocketEventListener.UserStatus.ONLINE
+                    : WebSocketEventListener.UserStatus.OFFLINE;
+            send(userId, presencePayload(participant, status));
+        }
+    }
+
+    /**
+     * Relay a typing change to the other participants, coalescing repeats within the typing window
+     */
+    public void typing(Map<String, Object> sessionAttributes, UUID userId, UUID conversationId, boolean isTyping) {
+        if (!authorize(sessionAttributes, userId, conversationId)) {
+            return;
+        }
+
+        TypingKey key = new TypingKey(userId, conversationId);
+        long now = System.currentTimeMillis();
+        boolean[] emit = {false};
+        typingSentAt.compute(key, (k, sentAt) -> {
+            if (isTyping) {
+                if (sentAt == null || now - sentAt >= typingWindowMs) {
+                    emit[0] = true;
+                    return now;
+                }
+                return sentAt;
+            }
+            emit[0] = sentAt != null;
+            return null;
+        });
+
+        if (emit[0]) {
+            sendTyping(userId, conversationId, isTyping);
+        } else {
+            coalescedCounter.increment();
+        }
+    }
+
+    /**
+     * A user has a live session again; cancels a pending offline signal
+     */
+    public void userOnline(UUID userId) {
+        if (pendingOffline.remove(userId) != null) {
+            coalescedCounter.increment();
+        }
+    }
+
+    /**
+     * A session closed; once the user's last session is gone, the participants of the
+     * conversations the session signalled in are told after the grace period
+     */
+    public void sessionClosed(UUID userId, Map<String, Object> sessionAttributes, long remainingSessions) {
+        Set<UUID> conversations = sessionAttributes != null
+                ? authorizedConversations(sessionAttributes)
+                : Set.of();
+        for (UUID conversationId : conversations) {
+            if (typingSentAt.remove(new TypingKey(userId, conversationId)) != null) {
+                sendTyping(userId, conversationId, false);
+            }
+        }
+
+        if (remainingSessions > 0 || conversations.isEmpty()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + offlineGraceMs;
+        pendingOffline.merge(userId, new PendingOffline(deadline, new HashSet<>(conversations)),
+                (current, added) -> {
+                    current.conversations().addAll(added.conversations());
+                    return new PendingOffline(added.deadline(), current.conversations());
+                });
+    }
+
+    /**
+     * Close typing indicators that were not refreshed and send offline signals whose grace period passed
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.websocket.signals.sweep-interval-ms:1000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        try {
+            for (Map.Entry<TypingKey, Long> entry : typingSentAt.entrySet()) {
+                TypingKey key = entry.getKey();
+                if (now - entry.getValue() >= typingWindowMs * 2 && typingSentAt.remove(key, entry.getValue())) {
+                    sendTyping(key.userId(), key.conversationId(), false);
+                }
+            }
+
+            for (Map.Entry<UUID, PendingOffline> entry : pendingOffline.entrySet()) {
+                PendingOffline pending = entry.getValue();
+                if (pending.deadline() > now || !pendingOffline.remove(entry.getKey(), pending)) {
+                    continue;
+                }
+                // The user may have come back on another node
+                if (presenceRegistry.isUserOnline(entry.getKey())) {
+                    coalescedCounter.increment();
+                    continue;
+                }
+                Set<UUID> recipients = new HashSet<>();
+                pending.conversations().forEach(conversationId ->
+                        recipients.addAll(otherParticipants(conversationId, entry.getKey())));
+                sendPresence(entry.getKey(), WebSocketEventListener.UserStatus.OFFLINE, recipients);
+            }
+        } catch (Exception e) {
+            log.error("Error sweeping conversation signals: {}", e.getMessage());
+        }
+    }
+
+    // Private helper methods
+
+    @SuppressWarnings("unchecked")
+    private static Set<UUID> authorizedConversations(Map<String, Object> sessionAttributes) {
+        return (Set<UUID>) sessionAttributes.computeIfAbsent(AUTHORIZED_ATTRIBUTE,
+                name -> ConcurrentHashMap.newKeySet());
+    }
+
+    private Set<UUID> otherParticipants(UUID conversationId, UUID userId) {
+        Set<UUID> others = new HashSet<>(participantCache.getParticipants(conversationId));
+        others.remove(userId);
+        return others;
+    }
+
+    private void sendTyping(UUID userId, UUID conversationId, boolean isTyping) {
+        Map<String, Object> payload = Map.of(
+            "type", "TYPING",
+            "conversationId", conversationId,
+            "userId", userId,
+            "isTyping", isTyping,
+            "timestamp", ZonedDateTime.now()
+        );
+        otherParticipants(conversationId, userId).forEach(participant -> send(participant, payload));
+    }
+
+    private void sendPresence(UUID userId, WebSocketEventListener.UserStatus status, Collection<UUID> recipients) {
+        if (recipients.isEmpty()) {
+            return;
+        }
+        Map<String, Object> payload = presencePayload(userId, status);
+        recipients.forEach(recipient -> send(recipient, payload));
+        log.debug("Sent presence {} of user {} to {} participants", status, userId, recipients.size());
+    }
+
+    private static Map<String, Object> presencePayload(UUID userId, WebSocketEventListener.UserStatus status) {
+        return Map.of(
+            "type", "PRESENCE_UPDATE",
+            "userId", userId,
+            "status", status.name(),
+            "timestamp", ZonedDateTime.now()
+        );
+    }
+
+    private void send(UUID recipient, Map<String, Object> payload) {
+        try {
+            messagingTemplate.convertAndSendToUser(recipient.toString(), SIGNAL_QUEUE, payload);
+            sentCounter.increment();
+        } catch (Exception e) {
+            log.error("Failed to send signal to user {}: {}", recipient, e.getMessage());
+        }
+    }
+
+    private record TypingKey(UUID userId, UUID conversationId) {
+    }
+
+    private record PendingOffline(long deadline, Set<UUID> conversations) {
+    }
+}
@@ -0,0 +1,290 @@
+package com.ocean.shopping.websocket;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cluster-wide registry of WebSocket sessions and user presence.
+ * <p>
+ * Each session is recorded in Redis with the node that owns it
+ * ({@code ws:session:{sessionId}}) and indexed per user in a sorted set scored by
+ * expiry ({@code ws:user-sessions:{userId}}); {@code ws:online} indexes users the
+ * same way. Nodes refresh the expiry of their own sessions on a heartbeat, so the
+ * sessions of a node that dies drop out once the session TTL passes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceRegistry {
+
+    private static final String SESSION_PREFIX = "ws:session:";
+    private static final String USER_SESSIONS_PREFIX = "ws:user-sessions:";
+    private static final String LAST_SEEN_PREFIX = "ws:last-seen:";
+    private static final String ONLINE_KEY = "ws:online";
+
+    // Record a session and return the user's live session count
+    private static final RedisScript<Long> REGISTER_SCRIPT = RedisScript.of(
+        "local expiry = tonumber(ARGV[4]) + tonumber(ARGV[5]) " +
+        "redis.call('hset', KEYS[1], 'user', ARGV[2], 'node', ARGV[3]) " +
+        "redis.call('pexpire', KEYS[1], ARGV[5]) " +
+        "redis.call('zremrangebyscore', KEYS[2], '-inf', ARGV[4]) " +
+        "redis.call('zadd', KEYS[2], expiry, ARGV[1]) " +
+        "redis.call('pexpire', KEYS[2], ARGV[5]) " +
+        "redis.call('zadd', KEYS[3], expiry, ARGV[2]) " +
+        "return redis.call('zcard', KEYS[2])", Long.class);
+
+    // Remove a session and return the user's remaining live session count;
+    // the user's last-seen time is recorded when the last one goes
+    private static final RedisScript<Long> UNREGISTER_SCRIPT = RedisScript.of(
+        "redis.call('del', KEYS[1]) " +
+        "redis.call('zrem', KEYS[2], ARGV[1]) " +
+        "redis.call('zremrangebyscore', KEYS[2], '-inf', ARGV[3]) " +
+        "local remaining = redis.call('zcard', KEYS[2]) " +
+        "if remaining == 0 then " +
+        "    redis.call('zrem', KEYS[3], ARGV[2]) " +
+        "    redis.call('set', KEYS[4], ARGV[3], 'PX', ARGV[4]) " +
+        "end " +
+        "return remaining", Long.class);
+
+    // Refresh a batch of this node's sessions (ARGV[6..] = sessionId, userId pairs) and trim
+    // expired users from the online index. Session keys are built here to keep the call to one
+    // round-trip; all keys live on the same (Sentinel-managed) master.
+    private static final RedisScript<Long> HEARTBEAT_SCRIPT = RedisScript.of(
+        "local now = tonumber(ARGV[1]) " +
+        "local expiry = now + tonumber(ARGV[2]) " +
+        "for i = 6, #ARGV, 2 do " +
+        "    local sessionKey = ARGV[3] .. ARGV[i] " +
+        "    local userKey = ARGV[4] .. ARGV[i + 1] " +
+        "    redis.call('hset', sessionKey, 'user', ARGV[i + 1], 'node', ARGV[5]) " +
+        "    redis.call('pexpire', sessionKey, ARGV[2]) " +
+        "    redis.call('zadd', userKey, expiry, ARGV[i]) " +
+        "    redis.call('pexpire', userKey, ARGV[2]) " +
+        "    redis.call('zadd', KEYS[1], expiry, ARGV[i + 1]) " +
+        "end " +
+        "redis.call('zremrangebyscore', KEYS[1], '-inf', now) " +
+        "return (#ARGV - 5) / 2", Long.class);
+
+    // Distinct owning nodes of a user's live sessions
+    private static final String ROUTE_SCRIPT_SOURCE =
+        "local sessions = redis.call('zrangebyscore', KEYS[1], ARGV[1], '+inf') " +
+        "local seen = {} " +
+        "local nodes = {} " +
+        "for _, session in ipairs(sessions) do " +
+        "    local node = redis.call('hget', ARGV[2] .. session, 'node') " +
+        "    if node and not seen[node] then " +
+        "        seen[node] = true " +
+        "        table.insert(nodes, node) " +
+        "    end " +
+        "end " +
+        "return nodes";
+    private static final RedisScript<List<String>> ROUTE_SCRIPT = stringListScript(ROUTE_SCRIPT_SOURCE);
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ocean.shopping.websocket.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${ocean.shopping.websocket.presence.session-ttl-ms:45000}")
+    private long sessionTtlMs;
+
+    @Value("${ocean.shopping.websocket.presence.heartbeat-batch-size:500}")
+    private int heartbeatBatchSize;
+
+    @Value("${ocean.shopping.websocket.presence.last-seen-ttl-hours:168}")
+    private long lastSeenTtlHours;
+
+    // Sessions connected to this node: sessionId -> userId
+    private final Map<String, UUID> localSessions = new ConcurrentHashMap<>();
+
+    private String nodeId;
+
+    @PostConstruct
+    public void initialize() {
+        nodeId = StringUtils.hasText(configuredNodeId) ? configuredNodeId : UUID.randomUUID().toString();
+
+        Gauge.builder("websocket.sessions.local", localSessions, Map::size)
+                .description("WebSocket sessions connected to this node")
+                .register(meterRegistry);
+
+        log.info("Presence registry initialized - node: {}, session TTL: {}ms", nodeId, sessionTtlMs);
+    }
+
+    /**
+     * ID of this node, used to route messages to its sessions
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Register a session connected to this node
+     * @return Number of live sessions of the user across the cluster, including this one
+     */
+    public long registerSession(String sessionId, UUID userId) {
+        localSessions.put(sessionId, userId);
+        Long count = redisTemplate.execute(REGISTER_SCRIPT,
+                List.of(SESSION_PREFIX + sessionId, USER_SESSIONS_PREFIX + userId, ONLINE_KEY),
+                sessionId,
+                userId.toString(),
+                nodeId,
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(sessionTtlMs));
+        return count != null ? count : 1;
+    }
+
+    /**
+     * Unregister a session of this node
+     * @return User of the session and its remaining live sessions, or null if the session is unknown
+     */
+    public SessionRemoval unregisterSession(String sessionId) {
+        UUID userId = localSessions.remove(sessionId);
+        if (userId == null) {
+            return null;
+        }
+
+        Long remaining = redisTemplate.execute(UNREGISTER_SCRIPT,
+                List.of(SESSION_PREFIX + sessionId, USER_SESSIONS_PREFIX + userId, ONLINE_KEY, LAST_SEEN_PREFIX + userId),
+                sessionId,
+                userId.toString(),
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(lastSeenTtlHours * 3_600_000L));
+        return new SessionRemoval(userId, remaining != null ? remaining : 0);
+    }
+
+    /**
+     * User of a session connected to this node
+     */
+    public UUID getLocalSessionUser(String sessionId) {
+        return localSessions.get(sessionId);
+    }
+
+    /**
+     * Nodes that own at least one live session of the user
+     */
+    public List<String> findUserNodes(String user) {
+        List<String> nodes = redisTemplate.execute(ROUTE_SCRIPT,
+                List.of(USER_SESSIONS_PREFIX + user),
+                String.valueOf(System.currentTimeMillis()),
+                SESSION_PREFIX);
+        return nodes != null ? nodes : Collections.emptyList();
+    }
+
+    /**
+     * Live session IDs of a user across the cluster
+     */
+    public Set<String> getUserSessions(UUID userId) {
+        Set<String> sessions = redisTemplate.opsForZSet()
+                .rangeByScore(USER_SESSIONS_PREFIX + userId, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+        return sessions != null ? sessions : Collections.emptySet();
+    }
+
+    /**
+     * Last time the user's final session disconnected, or null if unknown
+     */
+    public Long getLastSeen(UUID userId) {
+        String value = redisTemplate.opsForValue().get(LAST_SEEN_PREFIX + userId);
+        return value != null ? Long.parseLong(value) : null;
+    }
+
+    public boolean isUserOnline(UUID userId) {
+        Double expiry = redisTemplate.opsForZSet().score(ONLINE_KEY, userId.toString());
+        return expiry != null && expiry > System.currentTimeMillis();
+    }
+
+    /**
+     * Users with at least one live session across the cluster
+     */
+    public Set<String> getOnlineUsers() {
+        Set<String> users = redisTemplate.opsForZSet()
+                .rangeByScore(ONLINE_KEY, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+        return users != null ? users : Collections.emptySet();
+    }
+
+    /**
+     * Refresh the expiry of this node's sessions
+     */
+    @Scheduled(fixedDelayString = "${ocean.shopping.websocket.presence.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        if (localSessions.isEmpty()) {
+            return;
+        }
+
+        List<String> args = new ArrayList<>();
+        try {
+            for (Map.Entry<String, UUID> entry : localSessions.entrySet()) {
+                args.add(entry.getKey());
+                args.add(entry.getValue().toString());
+                if (args.size() >= heartbeatBatchSize * 2) {
+                    executeHeartbeat(args);
+                    args.clear();
+                }
+            }
+            if (!args.isEmpty()) {
+                executeHeartbeat(args);
+            }
+        } catch (Exception e) {
+            log.error("Error refreshing WebSocket presence: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drop this node's sessions on shutdown instead of waiting for them to expire
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (String sessionId : new ArrayList<>(localSessions.keySet())) {
+            try {
+                unregisterSession(sessionId);
+            } catch (Exception e) {
+                log.warn("Could not unregister session {} on shutdown: {}", sessionId, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // Private helper methods
+
+    @SuppressWarnings("unchecked")
+    private static RedisScript<List<String>> stringListScript(String source) {
+        DefaultRedisScript<List<String>> script = new DefaultRedisScript<>(source);
+        script.setResultType((Class<List<String>>) (Class<?>) List.class);
+        return script;
+    }
+
+    private void executeHeartbeat(List<String> sessionArgs) {
+        List<String> args = new ArrayList<>(sessionArgs.size() + 5);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(sessionTtlMs));
+        args.add(SESSION_PREFIX);
+        args.add(USER_SESSIONS_PREFIX);
+        args.add(nodeId);
+        args.addAll(sessionArgs);
+        redisTemplate.execute(HEARTBEAT_SCRIPT, List.of(ONLINE_KEY), args.toArray());
+    }
+
+    /**
+     * Result of unregistering a session
+     */
+    public record SessionRemoval(UUID userId, long remainingSessions) {
+    }
+}
@@ -0,0 +1,171 @@
+package com.ocean.shopping.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.util.List;
+
+/**
+ * Relays messages sent through the in-memory broker to the other nodes of the cluster.
+ * <p>
+ * Installed on the broker channel: a user-destination message ({@code /user/{user}/...})
+ * is published to the node channel of every other node that owns a live session of
+ * the user, according to {@link PresenceRegistry}; a {@code /topic/...} message is
+ * published once on the broadcast channel. Receiving nodes inject the message into their
+ * own broker channel, so the local simple broker delivers it as if it had been sent there.
+ * Messages are relayed with their serialized payload and content type only.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserDestinationRelay implements ChannelInterceptor {
+
+    public static final String NODE_CHANNEL_PREFIX = "ws:relay:node:";
+    public static final String BROADCAST_CHANNEL = "ws:relay:broadcast";
+
+    private static final String RELAYED_HEADER = "oceanRelayed";
+    private static final String USER_PREFIX = "/user/";
+    private static final String TOPIC_PREFIX = "/topic/";
+
+    private final PresenceRegistry presenceRegistry;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    // Resolved lazily: the broker template is created by the configuration this interceptor is part of
+    private final ObjectProvider<SimpMessageSendingOperations> messagingTemplate;
+
+    private Counter userRelayedCounter;
+    private Counter broadcastRelayedCounter;
+    private Counter receivedCounter;
+
+    @PostConstruct
+    public void initialize() {
+        userRelayedCounter = Counter.builder("websocket.relay.messages")
+                .description("Broker messages relayed to or from other nodes")
+                .tag("type", "user")
+                .tag("direction", "out")
+                .register(meterRegistry);
+        broadcastRelayedCounter = Counter.builder("websocket.relay.messages")
+                .description("Broker messages relayed to or from other nodes")
+                .tag("type", "broadcast")
+                .tag("direction", "out")
+                .register(meterRegistry);
+        receivedCounter = Counter.builder("websocket.relay.messages")
+                .description("Broker messages relayed to or from other nodes")
+                .tag("type", "any")
+                .tag("direction", "in")
+                .register(meterRegistry);
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onRelayedMessage(message),
+                List.of(new ChannelTopic(NODE_CHANNEL_PREFIX + presenceRegistry.getNodeId()),
+                        new ChannelTopic(BROADCAST_CHANNEL)));
+    }
+
+    @Override
+    public org.springframework.messaging.Message<?> preSend(org.springframework.messaging.Message<?> message,
+                                                            MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || headers.containsKey(RELAYED_HEADER)
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null) {
+            return message;
+        }
+
+        try {
+            if (destination.startsWith(USER_PREFIX)) {
+                // Messages addressed to one session were sent in reply to that (local) session
+                if (SimpMessageHeaderAccessor.getSessionId(headers) == null) {
+                    relayToUser(destination, headers, payload);
+                }
+            } else if (destination.startsWith(TOPIC_PREFIX)) {
+                publish(BROADCAST_CHANNEL, destination, headers, payload);
+                broadcastRelayedCounter.increment();
+            }
+        } catch (Exception e) {
+            // Local delivery still goes ahead
+            log.error("Failed to relay message for {}: {}", destination, e.getMessage());
+        }
+        return message;
+    }
+
+    // Private helper methods
+
+    private void relayToUser(String destination, MessageHeaders headers, byte[] payload) throws Exception {
+        int userEnd = destination.indexOf('/', USER_PREFIX.length());
+        if (userEnd < 0) {
+            return;
+        }
+        String user = destination.substring(USER_PREFIX.length(), userEnd);
+
+        String localNode = presenceRegistry.getNodeId();
+        for (String node : presenceRegistry.findUserNodes(user)) {
+            if (!node.equals(localNode)) {
+                publish(NODE_CHANNEL_PREFIX + node, destination, headers, payload);
+                userRelayedCounter.increment();
+            }
+        }
+    }
+
+    private void publish(String channel, String destination, MessageHeaders headers, byte[] payload) throws Exception {
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        RelayEnvelope envelope = new RelayEnvelope(
+                presenceRegistry.getNodeId(),
+                destination,
+                contentType != null ? contentType.toString() : null,
+                payload);
+        redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(envelope));
+    }
+
+    private void onRelayedMessage(Message message) {
+        try {
+            RelayEnvelope envelope = objectMapper.readValue(message.getBody(), RelayEnvelope.class);
+            if (presenceRegistry.getNodeId().equals(envelope.origin())) {
+                return;
+            }
+
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            if (envelope.contentType() != null) {
+                accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+            }
+            accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+            accessor.setLeaveMutable(true);
+
+            messagingTemplate.getObject().send(envelope.destination(),
+                    MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders()));
+            receivedCounter.increment();
+        } catch (Exception e) {
+            log.error("Failed to deliver relayed WebSocket message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Wire format of a relayed broker message
+     */
+    record RelayEnvelope(String origin, String destination, String contentType, byte[] payload) {
+    }
+}
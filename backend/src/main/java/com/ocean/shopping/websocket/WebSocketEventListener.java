@@ -17,12 +17,15 @@ import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
 import java.security.Principal;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * WebSocket event listener for managing connections, subscriptions, and user presence
+ * WebSocket event listener for managing connections, subscriptions, and user presence.
+ * Sessions and presence are tracked cluster-wide in {@link PresenceRegistry}.
  */
 @Component
 @RequiredArgsConstructor
@@ -32,12 +35,8 @@ public class WebSocketEventListener {
     private final SimpMessageSendingOperations messagingTemplate;
     private final ChatService chatService;
     private final NotificationService notificationService;
-    
-    // Store active connections: sessionId -> userId
-    private final Map<String, UUID> activeConnections = new ConcurrentHashMap<>();
-    
-    // Store user presence: userId -> status
-    private final Map<UUID, UserPresence> userPresenceMap = new ConcurrentHashMap<>();
+    private final PresenceRegistry presenceRegistry;
+    private final ConversationSignalService signalService;
 
     /**
      * Handle WebSocket connection established
@@ -53,20 +52,16 @@ public class WebSocketEventListener {
                 UUID userId = extractUserIdFromPrincipal(principal);
                 
                 if (userId != null) {
-                    // Store active connection
-                    activeConnections.put(sessionId, userId);
-                    
-                    // Update user presence
-                    UserPresence presence = userPresenceMap.computeIfAbsent(userId, 
-                        k -> new UserPresence(userId, UserStatus.ONLINE));
-                    presence.setStatus(UserStatus.ONLINE);
-                    presence.setLastSeen(java.time.ZonedDateTime.now());
-                    presence.addSession(sessionId);
+                    // Register the session cluster-wide
+                    long liveSessions = presenceRegistry.registerSession(sessionId, userId);
                     
                     log.info("WebSocket connection established for user {} with session {}", userId, sessionId);
                     
-                    // Send presence update to user's contacts
-                    broadcastPresenceUpdate(userId, UserStatus.ONLINE);
+                    // A quick reconnect cancels the pending offline signal; participants are told
+                    // the user is online as the new session authorizes for their conversations
+                    if (liveSessions == 1) {
+                        signalService.userOnline(userId);
+                    }
                     
                     // Send pending notifications
                     sendPendingNotifications(userId);
@@ -93,33 +88,24 @@ public class WebSocketEventListener {
             StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
             String sessionId = headerAccessor.getSessionId();
             
-            UUID userId = activeConnections.remove(sessionId);
+            PresenceRegistry.SessionRemoval removal = presenceRegistry.unregisterSession(sessionId);
             
-            if (userId != null) {
-                UserPresence presence = userPresenceMap.get(userId);
-                if (presence != null) {
-                    presence.removeSession(sessionId);
-                    
-                    // If no more active sessions, mark as offline
-                    if (presence.getActiveSessions().isEmpty()) {
-                        presence.setStatus(UserStatus.OFFLINE);
-                        presence.setLastSeen(java.time.ZonedDateTime.now());
-                        
-                        // Send presence update to user's contacts
-                        broadcastPresenceUpdate(userId, UserStatus.OFFLINE);
-                        
-                        log.info("User {} went offline (session: {})", userId, sessionId);
-                    } else {
-                        log.info("User {} disconnected session {} but still has active sessions", userId, sessionId);
-                    }
+            if (removal != null) {
+                UUID userId = removal.userId();
+                
+                // Participants of the session's conversations hear about it once no session is left
+                signalService.sessionClosed(userId, headerAccessor.getSessionAttributes(), removal.remainingSessions());
+                
+                if (removal.remainingSessions() == 0) {
+                    log.info("User {} went offline (session: {})", userId, sessionId);
                 } else {
-                    log.warn("No presence record found for user {} during disconnect", userId);
+                    log.info("User {} disconnected session {} but still has active sessions", userId, sessionId);
                 }
                 
                 log.info("WebSocket connection closed for user {} with session {}", userId, sessionId);
                 
                 // Handle conversation cleanup if needed
-                handleConversationCleanup(sessionId, headerAccessor);
+                handleConversationCleanup(userId, sessionId, headerAccessor);
                 
             } else {
                 log.warn("WebSocket connection closed but no user ID found for session: {}", sessionId);
@@ -169,7 +155,7 @@ public class WebSocketEventListener {
         try {
             StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
             String sessionId = headerAccessor.getSessionId();
-            UUID userId = activeConnections.get(sessionId);
+            UUID userId = presenceRegistry.getLocalSessionUser(sessionId);
             
             if (userId != null) {
                 log.debug("User {} unsubscribed (session: {})", userId, sessionId);
@@ -184,18 +170,31 @@ public class WebSocketEventListener {
      * Get user presence status
      */
     public UserPresence getUserPresence(UUID userId) {
-        return userPresenceMap.get(userId);
+        Set<String> sessions = presenceRegistry.getUserSessions(userId);
+        if (!sessions.isEmpty()) {
+            UserPresence presence = new UserPresence(userId, UserStatus.ONLINE);
+            sessions.forEach(presence::addSession);
+            return presence;
+        }
+
+        Long lastSeen = presenceRegistry.getLastSeen(userId);
+        if (lastSeen == null) {
+            return null;
+        }
+        UserPresence presence = new UserPresence(userId, UserStatus.OFFLINE);
+        presence.setLastSeen(Instant.ofEpochMilli(lastSeen).atZone(ZoneId.systemDefault()));
+        return presence;
     }
 
     /**
      * Get all online users
      */
     public Map<UUID, UserPresence> getOnlineUsers() {
-        return userPresenceMap.entrySet().stream()
-                .filter(entry -> entry.getValue().getStatus() == UserStatus.ONLINE)
+        return presenceRegistry.getOnlineUsers().stream()
+                .map(UUID::fromString)
                 .collect(java.util.stream.Collectors.toMap(
-                    Map.Entry::getKey, 
-                    Map.Entry::getValue
+                    userId -> userId,
+                    userId -> new UserPresence(userId, UserStatus.ONLINE)
                 ));
     }
 
@@ -203,8 +202,7 @@ public class WebSocketEventListener {
      * Check if user is online
      */
     public boolean isUserOnline(UUID userId) {
-        UserPresence presence = userPresenceMap.get(userId);
-        return presence != null && presence.getStatus() == UserStatus.ONLINE;
+        return presenceRegistry.isUserOnline(userId);
     }
 
     // Private helper methods
@@ -229,26 +227,6 @@ public class WebSocketEventListener {
         }
     }
 
-    private void broadcastPresenceUpdate(UUID userId, UserStatus status) {
-        try {
-            Map<String, Object> presenceUpdate = Map.of(
-                "type", "PRESENCE_UPDATE",
-                "userId", userId,
-                "status", status.name(),
-                "timestamp", java.time.ZonedDateTime.now()
-            );
-
-            // Broadcast to user's contacts (this is a simplified implementation)
-            // In a real application, you'd need to determine who should receive these updates
-            messagingTemplate.convertAndSend("/topic/presence", presenceUpdate);
-            
-            log.debug("Broadcasted presence update for user {}: {}", userId, status);
-            
-        } catch (Exception e) {
-            log.error("Error broadcasting presence update for user {}: {}", userId, e.getMessage());
-        }
-    }
-
     private void sendPendingNotifications(UUID userId) {
         try {
             // Trigger async processing of pending notifications for this user
@@ -259,21 +237,18 @@ public class WebSocketEventListener {
         }
     }
 
-    private void handleConversationCleanup(String sessionId, StompHeaderAccessor headerAccessor) {
+    private void handleConversationCleanup(UUID userId, String sessionId, StompHeaderAccessor headerAccessor) {
         try {
             Object conversationIdObj = headerAccessor.getSessionAttributes().get("conversationId");
             if (conversationIdObj != null) {
                 String conversationId = conversationIdObj.toString();
-                UUID userId = activeConnections.get(sessionId);
                 
-                if (userId != null) {
-                    log.debug("Cleaning up conversation {} for user {} (session: {})", 
-                            conversationId, userId, sessionId);
-                    
-                    // Create system message for leave if needed
-                    UUID convId = UUID.fromString(conversationId);
-                    chatService.createSystemMessage(convId, "User disconnected");
-                }
+                log.debug("Cleaning up conversation {} for user {} (session: {})", 
+                        conversationId, userId, sessionId);
+                
+                // Create system message for leave if needed
+                UUID convId = UUID.fromString(conversationId);
+                chatService.createSystemMessage(convId, "User disconnected");
             }
         } catch (Exception e) {
             log.error("Error during conversation cleanup: {}", e.getMessage());
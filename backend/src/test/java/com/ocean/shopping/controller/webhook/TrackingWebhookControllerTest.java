@@ -0,0 +1,118 @@
+package com.ocean.shopping.controller.webhook;
+
+import com.ocean.shopping.config.LogisticsProperties;
+import com.ocean.shopping.config.SecurityConfig;
+import com.ocean.shopping.security.JwtAuthenticationCache;
+import com.ocean.shopping.service.logistics.CarrierWebhookParser;
+import com.ocean.shopping.service.logistics.TrackingWebhookIngestService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.mapping.JpaMetamodelMappingContext;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Tracking webhooks pass the security chain without a JWT and are authenticated by
+ * their HMAC signature alone
+ */
+@WebMvcTest(TrackingWebhookController.class)
+@Import({SecurityConfig.class, CarrierWebhookParser.class, TrackingWebhookControllerTest.WebhookTestConfig.class})
+@TestPropertySource(properties = "WEBHOOK_SECRET=" + TrackingWebhookControllerTest.SECRET)
+class TrackingWebhookControllerTest {
+
+    static final String SECRET = "test-webhook-secret";
+
+    private static final String UPS_PAYLOAD = """
+        {"trackingNumber": "1Z999AA10123456784",
+         "localActivityDate": "20240301", "localActivityTime": "143000",
+         "activityLocation": {"city": "Seattle", "countryCode": "US", "postalCode": "98101"},
+         "activityStatus": {"type": "D", "code": "KB", "description": "Delivered"}}
+        """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TrackingWebhookIngestService ingestService;
+
+    @MockBean
+    private JwtAuthenticationCache authenticationCache;
+
+    @MockBean
+    private UserDetailsService userDetailsService;
+
+    @MockBean
+    private JpaMetamodelMappingContext jpaMetamodelMappingContext;
+
+    @Test
+    void upsWebhook_WithoutSignature_ShouldBeRejectedBySignatureCheck() throws Exception {
+        mockMvc.perform(post("/api/webhooks/tracking/ups")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPS_PAYLOAD))
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().string("Invalid signature"));
+
+        verifyNoInteractions(ingestService);
+    }
+
+    @Test
+    void upsWebhook_WithWrongSignature_ShouldBeRejectedBySignatureCheck() throws Exception {
+        mockMvc.perform(post("/api/webhooks/tracking/ups")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-Webhook-Signature", sign("another-secret", UPS_PAYLOAD))
+                        .content(UPS_PAYLOAD))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(ingestService);
+    }
+
+    @Test
+    void upsWebhook_WithValidSignature_ShouldBeAccepted() throws Exception {
+        when(ingestService.submit(anyList())).thenReturn(CompletableFuture.completedFuture(1));
+
+        mockMvc.perform(post("/api/webhooks/tracking/ups")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-Webhook-Signature", sign(SECRET, UPS_PAYLOAD))
+                        .content(UPS_PAYLOAD))
+                .andExpect(status().isAccepted());
+
+        verify(ingestService).submit(anyList());
+    }
+
+    @Test
+    void testWebhook_WithoutAuthentication_ShouldBeForbidden() throws Exception {
+        mockMvc.perform(post("/api/webhooks/tracking/test")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isForbidden());
+    }
+
+    private static String sign(String secret, String payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @TestConfiguration
+    @EnableConfigurationProperties(LogisticsProperties.class)
+    static class WebhookTestConfig {
+    }
+}
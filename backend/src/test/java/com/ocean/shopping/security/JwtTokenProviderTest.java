@@ -34,6 +34,9 @@ class JwtTokenProviderTest {
     @Mock
     private ValueOperations<String, String> valueOperations;
 
+    @Mock
+    private TokenRevocationStore revocationStore;
+
     private JwtTokenProvider jwtTokenProvider;
 
     private User testUser;
@@ -46,7 +49,8 @@ class JwtTokenProviderTest {
                 testSecret,
                 3600000, // 1 hour
                 86400000, // 1 day
-                redisTemplate
+                redisTemplate,
+                revocationStore
         );
 
         // Mock Redis template operations
@@ -101,10 +105,10 @@ class JwtTokenProviderTest {
         assertNotNull(refreshToken);
         assertTrue(refreshToken.length() > 50);
         
-        // Verify Redis storage
+        // Verify Redis storage of the token ID rather than the token itself
         verify(valueOperations).set(
                 eq("refresh_token:" + testUser.getId()),
-                eq(refreshToken),
+                eq(jwtTokenProvider.parseClaims(refreshToken).tokenId()),
                 eq(86400000L),
                 eq(TimeUnit.MILLISECONDS)
         );
@@ -159,6 +163,21 @@ class JwtTokenProviderTest {
         assertTrue(expirationDate.after(new Date()));
     }
 
+    @Test
+    void parseClaims_WithValidToken_ShouldReturnAllClaims() {
+        // Given
+        String token = jwtTokenProvider.generateAccessToken(testUser);
+
+        // When
+        JwtClaims claims = jwtTokenProvider.parseClaims(token);
+
+        // Then
+        assertEquals(testUser.getId(), claims.userId());
+        assertEquals(testUser.getEmail(), claims.email());
+        assertEquals(testUser.getRole().name(), claims.role());
+        assertFalse(claims.isExpired());
+    }
+
     @Test
     void validateToken_WithValidToken_ShouldReturnTrue() {
         // Given
@@ -201,7 +220,8 @@ class JwtTokenProviderTest {
         // Given
         String refreshToken = jwtTokenProvider.generateRefreshToken(testUser);
         String userId = testUser.getId().toString();
-        when(valueOperations.get("refresh_token:" + userId)).thenReturn(refreshToken);
+        when(valueOperations.get("refresh_token:" + userId))
+                .thenReturn(jwtTokenProvider.parseClaims(refreshToken).tokenId());
 
         // When
         boolean isValid = jwtTokenProvider.validateRefreshToken(refreshToken, userId);
@@ -210,6 +230,19 @@ class JwtTokenProviderTest {
         assertTrue(isValid);
     }
 
+    @Test
+    void validateToken_WithRevokedToken_ShouldReturnFalse() {
+        // Given
+        String token = jwtTokenProvider.generateAccessToken(testUser);
+        when(revocationStore.isRevoked(any(JwtClaims.class))).thenReturn(true);
+
+        // When
+        boolean isValid = jwtTokenProvider.validateToken(token);
+
+        // Then
+        assertFalse(isValid);
+    }
+
     @Test
     void validateRefreshToken_WithTokenNotInRedis_ShouldReturnFalse() {
         // Given
@@ -237,7 +270,7 @@ class JwtTokenProviderTest {
     }
 
     @Test
-    void blacklistToken_WithValidToken_ShouldStoreInRedisWithTtl() {
+    void blacklistToken_WithValidToken_ShouldRevokeByTokenId() {
         // Given
         String token = jwtTokenProvider.generateAccessToken(testUser);
 
@@ -245,12 +278,9 @@ class JwtTokenProviderTest {
         jwtTokenProvider.blacklistToken(token);
 
         // Then
-        verify(valueOperations).set(
-                eq("blacklist:" + token),
-                eq("true"),
-                anyLong(),
-                eq(TimeUnit.MILLISECONDS)
-        );
+        JwtClaims claims = jwtTokenProvider.parseClaims(token);
+        verify(revocationStore).revoke(eq(claims.tokenId()), eq(claims.expiresAtMs()));
+        verify(valueOperations, never()).set(anyString(), anyString(), anyLong(), any(TimeUnit.class));
     }
 
     @Test
@@ -3,12 +3,18 @@ package com.ocean.shopping.service;
 import com.ocean.shopping.dto.chat.ChatMessageRequest;
 import com.ocean.shopping.dto.chat.ChatMessageResponse;
 import com.ocean.shopping.dto.chat.ConversationResponse;
+import com.ocean.shopping.dto.user.UserResponse;
 import com.ocean.shopping.model.entity.ChatMessage;
 import com.ocean.shopping.model.entity.User;
 import com.ocean.shopping.model.entity.enums.UserRole;
 import com.ocean.shopping.model.entity.enums.UserStatus;
 import com.ocean.shopping.repository.ChatMessageRepository;
 import com.ocean.shopping.repository.UserRepository;
+import com.ocean.shopping.service.chat.ChatIngestService;
+import com.ocean.shopping.service.chat.ChatParticipantCache;
+import com.ocean.shopping.service.chat.ChatReceiptBuffer;
+import com.ocean.shopping.service.chat.ConversationInboxStore;
+import com.ocean.shopping.service.unread.UnreadCounterService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -24,6 +30,7 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -45,6 +52,21 @@ class ChatServiceTest {
     @Mock
     private SimpMessagingTemplate messagingTemplate;
 
+    @Mock
+    private UnreadCounterService unreadCounters;
+
+    @Mock
+    private ConversationInboxStore inboxStore;
+
+    @Mock
+    private ChatIngestService ingestService;
+
+    @Mock
+    private ChatReceiptBuffer receiptBuffer;
+
+    @Mock
+    private ChatParticipantCache participantCache;
+
     @InjectMocks
     private ChatService chatService;
 
@@ -89,28 +111,26 @@ class ChatServiceTest {
     @DisplayName("Should send message successfully")
     void shouldSendMessageSuccessfully() {
         // Given
-        when(userRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
-        when(userRepository.findById(receiver.getId())).thenReturn(Optional.of(receiver));
-
-        ChatMessage savedMessage = createTestChatMessage();
-        when(chatMessageRepository.save(any(ChatMessage.class))).thenReturn(savedMessage);
+        when(participantCache.getUser(sender.getId())).thenReturn(UserResponse.fromEntity(sender));
+        when(participantCache.getUser(receiver.getId())).thenReturn(UserResponse.fromEntity(receiver));
+        when(ingestService.submit(any(ChatMessageResponse.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
 
         // When
-        ChatMessageResponse result = chatService.sendMessage(sender.getId(), messageRequest);
+        ChatMessageResponse result = chatService.sendMessage(sender.getId(), messageRequest).join();
 
         // Then
         assertThat(result).isNotNull();
+        assertThat(result.getId()).isNotNull();
         assertThat(result.getContent()).isEqualTo(messageRequest.getContent());
         assertThat(result.getSender().getId()).isEqualTo(sender.getId());
         assertThat(result.getReceiver().getId()).isEqualTo(receiver.getId());
         assertThat(result.getConversationId()).isEqualTo(conversationId);
 
-        verify(chatMessageRepository, times(2)).save(any(ChatMessage.class)); // Initial save + mark as delivered
-        verify(messagingTemplate).convertAndSendToUser(
-                eq(receiver.getId().toString()),
-                eq("/queue/chat"),
-                any(ChatMessageResponse.class)
-        );
+        // Persistence, delivery and participant tracking are left to the ingest pipeline
+        verify(ingestService).submit(result);
+        verify(participantCache, never()).recordParticipants(any(), any(), any());
+        verifyNoInteractions(chatMessageRepository, userRepository, messagingTemplate);
     }
 
     @Test
@@ -118,26 +138,25 @@ class ChatServiceTest {
     void shouldGenerateConversationIdWhenNotProvided() {
         // Given
         messageRequest.setConversationId(null);
-        when(userRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
-        when(userRepository.findById(receiver.getId())).thenReturn(Optional.of(receiver));
-
-        ChatMessage savedMessage = createTestChatMessage();
-        when(chatMessageRepository.save(any(ChatMessage.class))).thenReturn(savedMessage);
+        when(participantCache.getUser(sender.getId())).thenReturn(UserResponse.fromEntity(sender));
+        when(participantCache.getUser(receiver.getId())).thenReturn(UserResponse.fromEntity(receiver));
+        when(ingestService.submit(any(ChatMessageResponse.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
 
         // When
-        ChatMessageResponse result = chatService.sendMessage(sender.getId(), messageRequest);
+        ChatMessageResponse result = chatService.sendMessage(sender.getId(), messageRequest).join();
 
         // Then
         assertThat(result).isNotNull();
         assertThat(result.getConversationId()).isNotNull();
-        verify(chatMessageRepository, times(2)).save(any(ChatMessage.class));
+        verify(ingestService).submit(any(ChatMessageResponse.class));
     }
 
     @Test
     @DisplayName("Should throw exception when sender not found")
     void shouldThrowExceptionWhenSenderNotFound() {
         // Given
-        when(userRepository.findById(sender.getId())).thenReturn(Optional.empty());
+        when(participantCache.getUser(sender.getId())).thenReturn(null);
 
         // When & Then
         assertThatThrownBy(() -> chatService.sendMessage(sender.getId(), messageRequest))
@@ -149,8 +168,8 @@ class ChatServiceTest {
     @DisplayName("Should throw exception when receiver not found")
     void shouldThrowExceptionWhenReceiverNotFound() {
         // Given
-        when(userRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
-        when(userRepository.findById(receiver.getId())).thenReturn(Optional.empty());
+        when(participantCache.getUser(sender.getId())).thenReturn(UserResponse.fromEntity(sender));
+        when(participantCache.getUser(receiver.getId())).thenReturn(null);
 
         // When & Then
         assertThatThrownBy(() -> chatService.sendMessage(sender.getId(), messageRequest))
@@ -163,13 +182,14 @@ class ChatServiceTest {
     void shouldThrowExceptionForEmptyMessageContent() {
         // Given
         messageRequest.setContent("   "); // Empty/whitespace content
-        when(userRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
-        when(userRepository.findById(receiver.getId())).thenReturn(Optional.of(receiver));
+        when(participantCache.getUser(sender.getId())).thenReturn(UserResponse.fromEntity(sender));
+        when(participantCache.getUser(receiver.getId())).thenReturn(UserResponse.fromEntity(receiver));
 
         // When & Then
         assertThatThrownBy(() -> chatService.sendMessage(sender.getId(), messageRequest))
                 .isInstanceOf(com.ocean.shopping.exception.BadRequestException.class)
                 .hasMessageContaining("Message content cannot be empty");
+        verifyNoInteractions(ingestService);
     }
 
     @Test
@@ -205,16 +225,21 @@ class ChatServiceTest {
     @DisplayName("Should get user conversations successfully")
     void shouldGetUserConversationsSuccessfully() {
         // Given
-        when(userRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
-        when(chatMessageRepository.findConversationsByUser(sender)).thenReturn(Arrays.asList(conversationId));
-        when(chatMessageRepository.findConversationParticipants(conversationId))
-                .thenReturn(Arrays.asList(sender, receiver));
-
-        ChatMessage latestMessage = createTestChatMessage();
-        when(chatMessageRepository.findLatestMessageInConversation(eq(conversationId), any(PageRequest.class)))
-                .thenReturn(Arrays.asList(latestMessage));
-        when(chatMessageRepository.countUnreadMessagesInConversation(conversationId, sender))
-                .thenReturn(0L);
+        ConversationInboxStore.InboxEntry entry = ConversationInboxStore.InboxEntry.builder()
+                .conversationId(conversationId)
+                .participantIds(new LinkedHashSet<>(Arrays.asList(sender.getId(), receiver.getId())))
+                .lastMessageId(UUID.randomUUID())
+                .lastSenderId(sender.getId())
+                .lastReceiverId(receiver.getId())
+                .lastMessageType(ChatMessage.MessageType.TEXT)
+                .lastContent(messageRequest.getContent())
+                .lastDeliveryStatus(ChatMessage.DeliveryStatus.DELIVERED)
+                .lastActivityAt(ZonedDateTime.now())
+                .unreadCount(0)
+                .createdAt(ZonedDateTime.now())
+                .build();
+        when(inboxStore.findInbox(sender.getId())).thenReturn(Arrays.asList(entry));
+        when(userRepository.findAllById(anyCollection())).thenReturn(Arrays.asList(sender, receiver));
 
         // When
         List<ConversationResponse> result = chatService.getUserConversations(sender.getId());
@@ -228,34 +253,22 @@ class ChatServiceTest {
         assertThat(conversation.getParticipants()).hasSize(2);
         assertThat(conversation.getLastMessage()).isNotNull();
         assertThat(conversation.getUnreadCount()).isEqualTo(0L);
+        assertThat(conversation.getLastMessage().getSender().getId()).isEqualTo(sender.getId());
+        verify(chatMessageRepository, never()).findConversationParticipants(any());
     }
 
     @Test
-    @DisplayName("Should mark message as read successfully")
+    @DisplayName("Should buffer read receipt when marking message as read")
     void shouldMarkMessageAsReadSuccessfully() {
         // Given
-        ChatMessage message = createTestChatMessage();
-        message.setReceiver(sender); // sender is receiving the message
-        message.setIsRead(false);
-
-        when(chatMessageRepository.findById(message.getId())).thenReturn(Optional.of(message));
-
-        // Mock security check
-        when(chatMessageRepository.findById(message.getId())).thenReturn(Optional.of(message));
+        UUID messageId = UUID.randomUUID();
 
         // When
-        chatService.markMessageAsRead(sender.getId(), message.getId());
+        chatService.markMessageAsRead(sender.getId(), messageId);
 
         // Then
-        assertThat(message.getIsRead()).isTrue();
-        assertThat(message.getReadAt()).isNotNull();
-
-        verify(chatMessageRepository).save(message);
-        verify(messagingTemplate).convertAndSendToUser(
-                eq(message.getSender().getId().toString()),
-                eq("/queue/chat"),
-                any(Map.class)
-        );
+        verify(receiptBuffer).read(sender.getId(), messageId);
+        verifyNoInteractions(chatMessageRepository, messagingTemplate);
     }
 
     @Test
@@ -280,6 +293,8 @@ class ChatServiceTest {
 
         // Then
         verify(chatMessageRepository).saveAll(anyList());
+        verify(unreadCounters).messagesRead(sender.getId(), conversationId, 2);
+        verify(inboxStore).markConversationRead(sender.getId(), conversationId);
         
         // Verify all messages were marked as read
         unreadMessages.forEach(message -> {
@@ -292,15 +307,14 @@ class ChatServiceTest {
     @DisplayName("Should get unread message count successfully")
     void shouldGetUnreadMessageCountSuccessfully() {
         // Given
-        when(userRepository.findById(sender.getId())).thenReturn(Optional.of(sender));
-        when(chatMessageRepository.countUnreadMessagesByReceiver(sender)).thenReturn(5L);
+        when(unreadCounters.getChatCount(sender.getId())).thenReturn(5L);
 
         // When
         long result = chatService.getUnreadMessageCount(sender.getId());
 
         // Then
         assertThat(result).isEqualTo(5L);
-        verify(chatMessageRepository).countUnreadMessagesByReceiver(sender);
+        verify(chatMessageRepository, never()).countUnreadMessagesByReceiver(any());
     }
 
     @Test
@@ -366,8 +380,7 @@ class ChatServiceTest {
     @DisplayName("Should validate security - user is participant in conversation")
     void shouldValidateSecurityUserIsParticipant() {
         // Given
-        when(chatMessageRepository.findConversationParticipants(conversationId))
-                .thenReturn(Arrays.asList(sender, receiver));
+        when(participantCache.isParticipant(conversationId, sender.getId())).thenReturn(true);
 
         // When
         boolean result = chatService.isParticipantInConversation(sender.getId(), conversationId);
@@ -381,8 +394,7 @@ class ChatServiceTest {
     void shouldValidateSecurityUserIsNotParticipant() {
         // Given
         User otherUser = User.builder().id(UUID.randomUUID()).build();
-        when(chatMessageRepository.findConversationParticipants(conversationId))
-                .thenReturn(Arrays.asList(sender, receiver));
+        when(participantCache.isParticipant(conversationId, otherUser.getId())).thenReturn(false);
 
         // When
         boolean result = chatService.isParticipantInConversation(otherUser.getId(), conversationId);
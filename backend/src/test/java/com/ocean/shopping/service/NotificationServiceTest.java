@@ -8,6 +8,8 @@ import com.ocean.shopping.model.entity.enums.UserRole;
 import com.ocean.shopping.model.entity.enums.UserStatus;
 import com.ocean.shopping.repository.NotificationRepository;
 import com.ocean.shopping.repository.UserRepository;
+import com.ocean.shopping.service.notification.NotificationFanoutService;
+import com.ocean.shopping.service.unread.UnreadCounterService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -44,6 +46,12 @@ class NotificationServiceTest {
     @Mock
     private SimpMessagingTemplate messagingTemplate;
 
+    @Mock
+    private NotificationFanoutService fanoutService;
+
+    @Mock
+    private UnreadCounterService unreadCounters;
+
     @InjectMocks
     private NotificationService notificationService;
 
@@ -111,12 +119,13 @@ class NotificationServiceTest {
         
         notificationRequest.setTargetUserIds(targetUserIds);
         
-        when(userRepository.findAllById(targetUserIds)).thenReturn(Arrays.asList(user1, user2));
+        List<User> targetUsers = Arrays.asList(user1, user2);
+        when(userRepository.findAllById(targetUserIds)).thenReturn(targetUsers);
 
-        Notification savedNotification1 = createTestNotificationForUser(user1);
-        Notification savedNotification2 = createTestNotificationForUser(user2);
-        when(notificationRepository.save(any(Notification.class)))
-                .thenReturn(savedNotification1, savedNotification1, savedNotification2, savedNotification2);
+        List<NotificationResponse> sent = Arrays.asList(
+                NotificationResponse.fromEntity(createTestNotificationForUser(user1)),
+                NotificationResponse.fromEntity(createTestNotificationForUser(user2)));
+        when(fanoutService.sendToUsers(notificationRequest, targetUsers)).thenReturn(sent);
 
         // When
         List<NotificationResponse> result = notificationService.sendBulkNotification(notificationRequest);
@@ -125,12 +134,9 @@ class NotificationServiceTest {
         assertThat(result).isNotNull();
         assertThat(result).hasSize(2);
         
-        verify(notificationRepository, times(4)).save(any(Notification.class)); // 2 users * 2 saves each
-        verify(messagingTemplate, times(2)).convertAndSendToUser(
-                anyString(),
-                eq("/queue/notifications"),
-                any(NotificationResponse.class)
-        );
+        // Inserted and delivered in batches rather than saved row by row
+        verify(fanoutService).sendToUsers(notificationRequest, targetUsers);
+        verify(notificationRepository, never()).save(any(Notification.class));
     }
 
     @Test
@@ -198,15 +204,14 @@ class NotificationServiceTest {
     @DisplayName("Should get unread notification count successfully")
     void shouldGetUnreadNotificationCountSuccessfully() {
         // Given
-        when(userRepository.findById(targetUser.getId())).thenReturn(Optional.of(targetUser));
-        when(notificationRepository.countUnreadByTargetUser(targetUser)).thenReturn(7L);
+        when(unreadCounters.getNotificationCount(targetUser.getId())).thenReturn(7L);
 
         // When
         long result = notificationService.getUnreadNotificationCount(targetUser.getId());
 
         // Then
         assertThat(result).isEqualTo(7L);
-        verify(notificationRepository).countUnreadByTargetUser(targetUser);
+        verify(notificationRepository, never()).countUnreadByTargetUser(any());
     }
 
     @Test
@@ -9,6 +9,9 @@ import com.ocean.shopping.exception.ResourceNotFoundException;
 import com.ocean.shopping.model.entity.*;
 import com.ocean.shopping.model.entity.enums.UserRole;
 import com.ocean.shopping.repository.ProductRepository;
+import com.ocean.shopping.service.cache.ProductCatalogCache;
+import com.ocean.shopping.service.inventory.InventoryReservationService;
+import com.ocean.shopping.service.search.ProductSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -24,6 +27,7 @@ import org.springframework.data.jpa.domain.Specification;
 import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -41,6 +45,15 @@ class ProductServiceTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private InventoryReservationService inventoryReservationService;
+
+    @Mock
+    private ProductCatalogCache productCatalogCache;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
     @InjectMocks
     private ProductService productService;
 
@@ -56,6 +69,14 @@ class ProductServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Catalog cache always misses and delegates to the loader
+        lenient().when(productCatalogCache.getProduct(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(productCatalogCache.getProductBySlug(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+        lenient().when(productCatalogCache.getList(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+
         testProductId = UUID.randomUUID();
         testStoreId = UUID.randomUUID();
         testCategoryId = UUID.randomUUID();
@@ -496,14 +517,16 @@ class ProductServiceTest {
     void updateInventory_ShouldUpdateQuantity_WhenValidChange() {
         // Given
         when(productRepository.findById(testProductId)).thenReturn(Optional.of(testProduct));
-        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        when(inventoryReservationService.adjustStock(testProductId, -5))
+                .thenReturn(InventoryReservationService.ReservationResult.success());
 
         // When
         productService.updateInventory(testProductId, -5);
 
         // Then
         verify(productRepository).findById(testProductId);
-        verify(productRepository).save(argThat(product -> product.getInventoryQuantity() == 95));
+        verify(inventoryReservationService).adjustStock(testProductId, -5);
+        verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
@@ -512,6 +535,8 @@ class ProductServiceTest {
         // Given
         testProduct.setInventoryQuantity(5);
         when(productRepository.findById(testProductId)).thenReturn(Optional.of(testProduct));
+        when(inventoryReservationService.adjustStock(testProductId, -10))
+                .thenReturn(InventoryReservationService.ReservationResult.insufficient(testProductId, 5));
 
         // When & Then
         assertThatThrownBy(() -> productService.updateInventory(testProductId, -10))
@@ -535,6 +560,7 @@ class ProductServiceTest {
         // Then
         verify(productRepository).findById(testProductId);
         verify(productRepository, never()).save(any(Product.class));
+        verify(inventoryReservationService, never()).adjustStock(any(), anyInt());
     }
 
     @Test
@@ -0,0 +1,143 @@
+package com.ocean.shopping.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.ocean.shopping.dto.product.ProductResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of {@link CompactRedisSerializer} against the
+ * {@link GenericJackson2JsonRedisSerializer} it replaces, for a single product and for
+ * a 50-product catalog page. Encoded sizes are printed once per trial, as JMH only
+ * reports times. Run with:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.ocean.shopping.service.cache.CompactRedisSerializerBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompactRedisSerializerBenchmark {
+
+    // Default of ocean.shopping.cache.serialization.compression-threshold-bytes
+    private static final int COMPRESSION_THRESHOLD = 1024;
+
+    @Param({"1", "50"})
+    private int products;
+
+    private CompactRedisSerializer<List<ProductResponse>> compact;
+    private GenericJackson2JsonRedisSerializer json;
+
+    private List<ProductResponse> value;
+    private byte[] compactBytes;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        compact = new CompactRedisSerializer<>(objectMapper.copyWith(new SmileFactory()),
+                objectMapper.getTypeFactory().constructCollectionType(List.class, ProductResponse.class),
+                COMPRESSION_THRESHOLD);
+        json = new GenericJackson2JsonRedisSerializer();
+
+        value = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            value.add(product(i));
+        }
+        compactBytes = compact.serialize(value);
+        jsonBytes = json.serialize(value);
+        System.out.printf("%n%d products: compact %d bytes, json %d bytes%n",
+                products, compactBytes.length, jsonBytes.length);
+    }
+
+    @Benchmark
+    public byte[] compactEncode() {
+        return compact.serialize(value);
+    }
+
+    @Benchmark
+    public List<ProductResponse> compactDecode() {
+        return compact.deserialize(compactBytes);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return json.serialize(value);
+    }
+
+    @Benchmark
+    public Object jsonDecode() {
+        return json.deserialize(jsonBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompactRedisSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static ProductResponse product(int i) {
+        return ProductResponse.builder()
+                .id(UUID.randomUUID())
+                .store(ProductResponse.StoreInfo.builder()
+                        .id(UUID.randomUUID())
+                        .name("Ocean Audio")
+                        .slug("ocean-audio")
+                        .build())
+                .category(ProductResponse.CategoryInfo.builder()
+                        .id(UUID.randomUUID())
+                        .name("Headphones")
+                        .slug("headphones")
+                        .build())
+                .name("Wireless Bluetooth Headphones " + i)
+                .slug("wireless-bluetooth-headphones-" + i)
+                .shortDescription("Noise cancelling over-ear headphones with 30 hour battery life")
+                .description("Over-ear headphones with active noise cancelling, a 30 hour battery, "
+                        + "fast charging over USB-C and a foldable design with a hard travel case.")
+                .sku("WBH-" + i)
+                .price(new BigDecimal("149.99"))
+                .compareAtPrice(new BigDecimal("199.99"))
+                .inventoryQuantity(25)
+                .lowStockThreshold(5)
+                .trackInventory(true)
+                .requiresShipping(true)
+                .isDigital(false)
+                .isFeatured(i % 10 == 0)
+                .isActive(true)
+                .inStock(true)
+                .lowStock(false)
+                .hasDiscount(true)
+                .discountAmount(new BigDecimal("50.00"))
+                .discountPercentage(new BigDecimal("25.00"))
+                .averageRating(new BigDecimal("4.5"))
+                .reviewCount(120 + i)
+                .ratingDistribution(Map.of(5, 80, 4, 25, 3, 10, 2, 3, 1, 2))
+                .build();
+    }
+}
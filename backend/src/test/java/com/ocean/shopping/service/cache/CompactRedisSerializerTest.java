@@ -0,0 +1,88 @@
+package com.ocean.shopping.service.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.ocean.shopping.dto.product.ProductResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRedisSerializerTest {
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper smileMapper;
+    private JavaType listType;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        smileMapper = objectMapper.copyWith(new SmileFactory());
+        listType = objectMapper.getTypeFactory().constructCollectionType(List.class, ProductResponse.class);
+    }
+
+    @Test
+    void roundTripsUncompressedValue() {
+        CompactRedisSerializer<ProductResponse> serializer =
+                new CompactRedisSerializer<>(smileMapper, objectMapper.constructType(ProductResponse.class), 0);
+        ProductResponse product = product(1);
+
+        ProductResponse decoded = serializer.deserialize(serializer.serialize(product));
+
+        assertEquals(product.getId(), decoded.getId());
+        assertEquals(product.getName(), decoded.getName());
+        assertEquals(0, product.getPrice().compareTo(decoded.getPrice()));
+    }
+
+    @Test
+    void roundTripsCompressedListAndIsSmallerThanJson() {
+        CompactRedisSerializer<List<ProductResponse>> serializer = new CompactRedisSerializer<>(smileMapper, listType, 256);
+        List<ProductResponse> products = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            products.add(product(i));
+        }
+
+        byte[] compact = serializer.serialize(products);
+        byte[] json = new GenericJackson2JsonRedisSerializer().serialize(products);
+        List<ProductResponse> decoded = serializer.deserialize(compact);
+
+        assertEquals(products.size(), decoded.size());
+        assertEquals(products.get(49).getSlug(), decoded.get(49).getSlug());
+        assertTrue(compact.length < json.length / 2,
+                "compact " + compact.length + " bytes vs json " + json.length + " bytes");
+    }
+
+    @Test
+    void readsForeignOrOutdatedEntriesAsMiss() {
+        CompactRedisSerializer<ProductResponse> productSerializer =
+                new CompactRedisSerializer<>(smileMapper, objectMapper.constructType(ProductResponse.class), 0);
+        CompactRedisSerializer<List<ProductResponse>> listSerializer = new CompactRedisSerializer<>(smileMapper, listType, 0);
+        byte[] legacyJson = new Jackson2JsonRedisSerializer<>(objectMapper, ProductResponse.class).serialize(product(1));
+
+        assertNull(productSerializer.deserialize(legacyJson));
+        assertNull(productSerializer.deserialize(listSerializer.serialize(List.of(product(1)))));
+        assertNull(productSerializer.deserialize(new byte[0]));
+    }
+
+    private ProductResponse product(int i) {
+        return ProductResponse.builder()
+                .id(UUID.randomUUID())
+                .name("Wireless Bluetooth Headphones " + i)
+                .slug("wireless-bluetooth-headphones-" + i)
+                .shortDescription("Noise cancelling over-ear headphones with 30 hour battery life")
+                .sku("WBH-" + i)
+                .price(new BigDecimal("149.99"))
+                .inventoryQuantity(25)
+                .trackInventory(true)
+                .build();
+    }
+}
@@ -26,7 +26,8 @@ import static org.junit.jupiter.api.Assertions.*;
     "spring.data.redis.host=localhost",
     "spring.data.redis.port=6379",
     "app.lock.default-ttl-seconds=5",
-    "app.lock.max-retries=3"
+    "app.lock.max-retries=3",
+    "app.lock.cleanup.max-locks-per-cleanup=2"
 })
 class DistributedLockIntegrationTest {
 
@@ -280,6 +281,43 @@ class DistributedLockIntegrationTest {
         assertFalse(distributedLock.isLocked(lockKey2));
     }
 
+    @Test
+    void testOrphanedLockCleanupRemovesOnlyLocksWithoutTtl() {
+        // A lock without TTL is orphaned; a held lock and a non-lock key must survive
+        stringRedisTemplate.opsForValue().set("lock:test:orphaned:1", "lost-token");
+        String heldKey = "test:orphaned:held";
+        String token = distributedLock.acquire(heldKey);
+        assertNotNull(token);
+        stringRedisTemplate.opsForValue().set("test:orphaned:not-a-lock", "value");
+
+        cleanupService.cleanupOrphanedLocks();
+
+        assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey("lock:test:orphaned:1")), "Orphaned lock should be removed");
+        assertTrue(distributedLock.isLocked(heldKey), "Lock with TTL should be kept");
+        assertTrue(Boolean.TRUE.equals(stringRedisTemplate.hasKey("test:orphaned:not-a-lock")), "Non-lock keys are not scanned");
+
+        // Clean up
+        distributedLock.release(heldKey, token);
+        stringRedisTemplate.delete("test:orphaned:not-a-lock");
+    }
+
+    @Test
+    void testExpiredLockCleanupStopsAtLimit() {
+        for (int i = 1; i <= 3; i++) {
+            stringRedisTemplate.opsForValue().set("lock:test:limit:" + i, "lost-token");
+        }
+
+        cleanupService.cleanupExpiredLocks();
+
+        long remaining = 0;
+        for (int i = 1; i <= 3; i++) {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey("lock:test:limit:" + i))) {
+                remaining++;
+            }
+        }
+        assertEquals(1, remaining, "Only max-locks-per-cleanup orphaned locks should be removed");
+    }
+
     @Test
     void testHighConcurrencyScenario() throws InterruptedException {
         String lockKey = "test:high-concurrency";
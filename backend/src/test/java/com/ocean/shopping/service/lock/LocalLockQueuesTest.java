@@ -0,0 +1,94 @@
+package com.ocean.shopping.service.lock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalLockQueuesTest {
+
+    private LocalLockQueues queues;
+
+    @BeforeEach
+    void setUp() {
+        queues = new LocalLockQueues();
+    }
+
+    @Test
+    void acquire_WithDistinctKeys_ShouldNotBlockEachOther() throws Exception {
+        // Given
+        List<String> first = queues.acquire(List.of("inventory:product:a"), 0);
+
+        // When
+        List<String> second = queues.acquire(List.of("inventory:product:b"), 0);
+        List<String> nested = queues.acquire(List.of("inventory:product:c"), 0);
+
+        // Then
+        assertEquals(List.of("inventory:product:a"), first);
+        assertEquals(List.of("inventory:product:b"), second);
+        assertEquals(List.of("inventory:product:c"), nested);
+    }
+
+    @Test
+    void acquire_WithHeldKey_ShouldTimeOut() throws Exception {
+        // Given
+        queues.acquire(List.of("inventory:product:a"), 0);
+
+        // When
+        List<String> acquired = queues.acquire(List.of("inventory:product:a"), 20);
+
+        // Then
+        assertNull(acquired);
+        assertEquals(1, queues.size());
+    }
+
+    @Test
+    void acquire_WithSeveralKeys_ShouldSortAndDeduplicate() throws Exception {
+        // When
+        List<String> acquired = queues.acquire(List.of("lock:c", "lock:a", "lock:c", "lock:b"), 0);
+
+        // Then
+        assertEquals(List.of("lock:a", "lock:b", "lock:c"), acquired);
+        assertEquals(3, queues.size());
+    }
+
+    @Test
+    void acquire_WhenOneKeyIsHeld_ShouldReleaseTheKeysTakenSoFar() throws Exception {
+        // Given
+        List<String> held = queues.acquire(List.of("lock:b"), 0);
+
+        // When
+        List<String> acquired = queues.acquire(List.of("lock:a", "lock:b"), 0);
+
+        // Then
+        assertNull(acquired);
+        assertNotNull(queues.acquire(List.of("lock:a"), 0));
+        queues.release(held);
+    }
+
+    @Test
+    void release_ShouldHandOverToWaiterAndRemoveIdleEntries() throws Exception {
+        // Given
+        List<String> held = queues.acquire(List.of("lock:a"), 0);
+        CompletableFuture<List<String>> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queues.acquire(List.of("lock:a"), 5_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // When
+        queues.release(held);
+        List<String> handedOver = waiter.get(5, TimeUnit.SECONDS);
+        queues.release(handedOver);
+
+        // Then
+        assertEquals(List.of("lock:a"), handedOver);
+        assertEquals(0, queues.size());
+    }
+}
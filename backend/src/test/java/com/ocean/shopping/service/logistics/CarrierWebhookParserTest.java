@@ -0,0 +1,237 @@
+package com.ocean.shopping.service.logistics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocean.shopping.config.LogisticsProperties;
+import com.ocean.shopping.dto.shipping.TrackingEventDto;
+import com.ocean.shopping.model.entity.enums.CarrierType;
+import com.ocean.shopping.model.entity.enums.ShipmentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarrierWebhookParserTest {
+
+    private static final String SECRET = "test-webhook-secret";
+
+    private static final String DHL_PAYLOAD = """
+        {"shipments": [{"id": "3318810025", "events": [{
+            "timestamp": "2024-03-01T10:15:00+01:00",
+            "statusCode": "transit",
+            "status": "Processed",
+            "description": "Arrived at sort facility",
+            "location": {"address": {"addressLocality": "Leipzig", "countryCode": "DE", "postalCode": "04435"}}
+        }]}]}
+        """;
+
+    private static final String FEDEX_PAYLOAD = """
+        {"trackingNumber": "986578788855", "scanEvents": [
+            {"date": "2024-03-01T08:00:00-05:00", "eventType": "PU", "derivedStatusCode": "PU",
+             "derivedStatus": "Picked up", "eventDescription": "Picked up",
+             "scanLocation": {"city": "Memphis", "stateOrProvinceCode": "TN", "countryCode": "US", "postalCode": "38118"}},
+            {"date": "2024-03-02T07:30:00-05:00", "eventType": "OD", "derivedStatusCode": "OD",
+             "derivedStatus": "Out for delivery", "eventDescription": "On FedEx vehicle for delivery",
+             "scanLocation": {"city": "Austin", "stateOrProvinceCode": "TX", "countryCode": "US", "postalCode": "78701"}}
+        ]}
+        """;
+
+    private static final String UPS_PAYLOAD = """
+        {"trackingNumber": "1Z999AA10123456784",
+         "localActivityDate": "20240301", "localActivityTime": "143000",
+         "activityLocation": {"city": "Seattle", "stateProvince": "WA", "countryCode": "US", "postalCode": "98101"},
+         "activityStatus": {"type": "D", "code": "KB", "description": "Delivered"},
+         "signedBy": "SMITH"}
+        """;
+
+    private static final String USPS_PAYLOAD = """
+        {"trackingNumber": "9400111899223197428497", "trackingEvents": [
+            {"eventType": "Out for Delivery", "eventTimestamp": "2024-03-01T07:45:00", "eventCode": "OF",
+             "eventCity": "Denver", "eventState": "CO", "eventZIP": "80202", "eventCountry": "US"},
+            {"eventType": "Arrived at Post Office", "eventCode": "07", "eventCity": "Denver"}
+        ]}
+        """;
+
+    private LogisticsProperties properties;
+
+    private CarrierWebhookParser parser;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LogisticsProperties();
+        properties.getWebhook().setSecretKey(SECRET);
+        parser = new CarrierWebhookParser(properties, new ObjectMapper());
+    }
+
+    @Test
+    void parse_WithDhlPayload_ShouldNormalizeEvent() {
+        // When
+        List<CarrierWebhookParser.CarrierEvent> events = parser.parse(CarrierType.DHL, DHL_PAYLOAD);
+
+        // Then
+        assertEquals(1, events.size());
+        CarrierWebhookParser.CarrierEvent event = events.get(0);
+        assertEquals("3318810025", event.trackingNumber());
+        assertEquals(ShipmentStatus.IN_TRANSIT, event.event().getStatus());
+        assertEquals("Arrived at sort facility", event.event().getEventDescription());
+        assertEquals(localTime("2024-03-01T10:15:00+01:00"), event.event().getEventTime());
+        assertEquals("Leipzig", event.event().getCity());
+        assertEquals("DE", event.event().getCountry());
+        assertEquals("04435", event.event().getPostalCode());
+        assertTrue(event.event().getEventId().startsWith("dhl:"));
+    }
+
+    @Test
+    void parse_WithFedexPayload_ShouldMapStatusCodes() {
+        // When
+        List<CarrierWebhookParser.CarrierEvent> events = parser.parse(CarrierType.FEDEX, FEDEX_PAYLOAD);
+
+        // Then
+        assertEquals(2, events.size());
+        assertEquals("986578788855", events.get(0).trackingNumber());
+        assertEquals(ShipmentStatus.PICKED_UP, events.get(0).event().getStatus());
+        assertEquals("Memphis", events.get(0).event().getCity());
+        assertEquals("TN", events.get(0).event().getState());
+        assertEquals(ShipmentStatus.OUT_FOR_DELIVERY, events.get(1).event().getStatus());
+        assertEquals(localTime("2024-03-02T07:30:00-05:00"), events.get(1).event().getEventTime());
+        assertNotEquals(events.get(0).event().getEventId(), events.get(1).event().getEventId());
+    }
+
+    @Test
+    void parse_WithUpsPayload_ShouldCombineLocalDateAndTime() {
+        // When
+        List<CarrierWebhookParser.CarrierEvent> events = parser.parse(CarrierType.UPS, UPS_PAYLOAD);
+
+        // Then
+        assertEquals(1, events.size());
+        TrackingEventDto event = events.get(0).event();
+        assertEquals("1Z999AA10123456784", events.get(0).trackingNumber());
+        assertEquals(ShipmentStatus.DELIVERED, event.getStatus());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 14, 30), event.getEventTime());
+        assertEquals("KB", event.getEventCode());
+        assertEquals("SMITH", event.getSignedBy());
+        assertEquals("Seattle", event.getCity());
+    }
+
+    @Test
+    void parse_WithUspsPayload_ShouldClassifyByDescriptionAndDropUntimedEvents() {
+        // When
+        List<CarrierWebhookParser.CarrierEvent> events = parser.parse(CarrierType.USPS, USPS_PAYLOAD);
+
+        // Then
+        assertEquals(1, events.size());
+        TrackingEventDto event = events.get(0).event();
+        assertEquals("9400111899223197428497", events.get(0).trackingNumber());
+        assertEquals(ShipmentStatus.OUT_FOR_DELIVERY, event.getStatus());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 7, 45), event.getEventTime());
+        assertEquals("80202", event.getPostalCode());
+    }
+
+    @Test
+    void parse_WithMalformedPayload_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(CarrierType.FEDEX, "{not json"));
+    }
+
+    @Test
+    void parse_WithRedeliveredWebhook_ShouldDeriveSameEventId() {
+        // When
+        String first = parser.parse(CarrierType.DHL, DHL_PAYLOAD).get(0).event().getEventId();
+        String second = parser.parse(CarrierType.DHL, DHL_PAYLOAD).get(0).event().getEventId();
+
+        // Then
+        assertEquals(first, second);
+    }
+
+    @Test
+    void parse_ShouldDeriveSameEventIdAsPolledEvent() {
+        // Given
+        TrackingEventDto polled = TrackingEventDto.builder()
+                .eventTime(localTime("2024-03-01T10:15:00+01:00"))
+                .eventCode("transit")
+                .eventDescription("Arrived at sort facility")
+                .city("Leipzig")
+                .postalCode("04435")
+                .build();
+
+        // When
+        String pushed = parser.parse(CarrierType.DHL, DHL_PAYLOAD).get(0).event().getEventId();
+
+        // Then
+        assertEquals(TrackingEventStore.eventId(CarrierType.DHL, "3318810025", polled), pushed);
+    }
+
+    @Test
+    void verifySignature_WithHexSignature_ShouldAccept() throws Exception {
+        // Given
+        String signature = HexFormat.of().formatHex(hmac(SECRET, UPS_PAYLOAD));
+
+        // Then
+        assertTrue(parser.verifySignature(CarrierType.UPS, UPS_PAYLOAD, signature));
+        assertTrue(parser.verifySignature(CarrierType.UPS, UPS_PAYLOAD, "sha256=" + signature));
+    }
+
+    @Test
+    void verifySignature_WithBase64Signature_ShouldAccept() throws Exception {
+        // Given
+        String signature = Base64.getEncoder().encodeToString(hmac(SECRET, DHL_PAYLOAD));
+
+        // Then
+        assertTrue(parser.verifySignature(CarrierType.DHL, DHL_PAYLOAD, signature));
+    }
+
+    @Test
+    void verifySignature_WithTamperedPayload_ShouldReject() throws Exception {
+        // Given
+        String signature = HexFormat.of().formatHex(hmac(SECRET, UPS_PAYLOAD));
+
+        // Then
+        assertFalse(parser.verifySignature(CarrierType.UPS, UPS_PAYLOAD.replace("SMITH", "JONES"), signature));
+        assertFalse(parser.verifySignature(CarrierType.UPS, UPS_PAYLOAD, "not-a-signature"));
+    }
+
+    @Test
+    void verifySignature_WithUnsignedPayload_ShouldReject() {
+        assertFalse(parser.verifySignature(CarrierType.FEDEX, FEDEX_PAYLOAD, null));
+        assertFalse(parser.verifySignature(CarrierType.FEDEX, FEDEX_PAYLOAD, " "));
+    }
+
+    @Test
+    void verifySignature_WithCarrierSecret_ShouldUseItInsteadOfDefault() throws Exception {
+        // Given
+        properties.getWebhook().getCarrierSecrets().put("usps", "usps-secret");
+
+        // Then
+        assertTrue(parser.verifySignature(CarrierType.USPS, USPS_PAYLOAD,
+                HexFormat.of().formatHex(hmac("usps-secret", USPS_PAYLOAD))));
+        assertFalse(parser.verifySignature(CarrierType.USPS, USPS_PAYLOAD,
+                HexFormat.of().formatHex(hmac(SECRET, USPS_PAYLOAD))));
+    }
+
+    @Test
+    void verifySignature_WhenValidationDisabled_ShouldAcceptUnsignedPayload() {
+        // Given
+        properties.getWebhook().setValidateSignature(false);
+
+        // Then
+        assertTrue(parser.verifySignature(CarrierType.FEDEX, FEDEX_PAYLOAD, null));
+    }
+
+    private static byte[] hmac(String secret, String payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static LocalDateTime localTime(String timestamp) {
+        return OffsetDateTime.parse(timestamp).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,145 @@
+package com.ocean.shopping.service.logistics;
+
+import com.ocean.shopping.config.LogisticsProperties;
+import com.ocean.shopping.model.entity.enums.CarrierType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrackingNumberClassifierTest {
+
+    private static final String UPS = "1Z999AA10123456784";
+    private static final String FEDEX_EXPRESS = "986578788855";
+    private static final String FEDEX_GROUND = "449044304137821";
+    private static final String DHL_EXPRESS = "3318810025";
+    private static final String USPS_IMPB = "9400111899223197428497";
+    private static final String USPS_S10 = "RA473124829US";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TrackingNumberClassifier classifier;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        classifier = new TrackingNumberClassifier(jdbcTemplate, new LogisticsProperties(), meterRegistry);
+        classifier.initialize();
+    }
+
+    @Test
+    void classify_WithValidNumbers_ShouldDetectCarrierFromFormat() {
+        assertEquals(CarrierType.UPS, classifier.classify(UPS));
+        assertEquals(CarrierType.FEDEX, classifier.classify(FEDEX_EXPRESS));
+        assertEquals(CarrierType.FEDEX, classifier.classify(FEDEX_GROUND));
+        assertEquals(CarrierType.DHL, classifier.classify(DHL_EXPRESS));
+        assertEquals(CarrierType.USPS, classifier.classify(USPS_IMPB));
+        assertEquals(CarrierType.USPS, classifier.classify(USPS_S10));
+    }
+
+    @Test
+    void classify_WithWrongCheckDigit_ShouldReturnNull() {
+        assertNull(classifier.classify("1Z999AA10123456783"));
+        assertNull(classifier.classify("986578788854"));
+        assertNull(classifier.classify("449044304137822"));
+        assertNull(classifier.classify("3318810024"));
+        assertNull(classifier.classify("9400111899223197428496"));
+        assertNull(classifier.classify("RA473124828US"));
+    }
+
+    @Test
+    void classify_WithUnknownFormat_ShouldReturnNull() {
+        assertNull(classifier.classify("TRACK-ME-PLEASE"));
+        assertNull(classifier.classify(""));
+    }
+
+    @Test
+    void classify_WithSpacesDashesAndLowerCase_ShouldNormalizeFirst() {
+        // When
+        CarrierType carrier = classifier.classify("1z 999 aa1-0123-4567-84");
+
+        // Then
+        assertEquals(CarrierType.UPS, carrier);
+        assertEquals(UPS, TrackingNumberClassifier.normalize("1z 999 aa1-0123-4567-84"));
+    }
+
+    @Test
+    void classify_WithStoredShipment_ShouldPreferShipmentCarrier() throws Exception {
+        // Given
+        when(resultSet.getString("tracking_number")).thenReturn(DHL_EXPRESS);
+        when(resultSet.getString("carrier")).thenReturn("UPS");
+        doAnswer(invocation -> {
+            ((RowCallbackHandler) invocation.getArgument(2)).processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+
+        // When
+        CarrierType carrier = classifier.classify(DHL_EXPRESS);
+
+        // Then
+        assertEquals(CarrierType.UPS, carrier);
+        assertEquals(1.0, meterRegistry.get("tracking.classifier.lookups").tag("source", "shipment").counter().count());
+    }
+
+    @Test
+    void classify_WhenShipmentLookupFails_ShouldFallBackToFormat() {
+        // Given
+        doThrow(new RuntimeException("connection refused"))
+                .when(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+
+        // When
+        CarrierType carrier = classifier.classify(FEDEX_EXPRESS);
+
+        // Then
+        assertEquals(CarrierType.FEDEX, carrier);
+    }
+
+    @Test
+    void classifyAll_ShouldLookUpShipmentsOnceAndCacheResults() {
+        // When
+        Map<String, CarrierType> carriers = classifier.classifyAll(List.of(UPS, DHL_EXPRESS, "UNKNOWN"));
+        CarrierType cached = classifier.classify(UPS);
+
+        // Then
+        assertEquals(Map.of(UPS, CarrierType.UPS, DHL_EXPRESS, CarrierType.DHL), carriers);
+        assertEquals(CarrierType.UPS, cached);
+        verify(jdbcTemplate, times(1)).query(anyString(), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+        assertEquals(1.0, meterRegistry.get("tracking.classifier.lookups").tag("source", "cache").counter().count());
+        assertEquals(2.0, meterRegistry.get("tracking.classifier.lookups").tag("source", "format").counter().count());
+        assertEquals(1.0, meterRegistry.get("tracking.classifier.lookups").tag("source", "unknown").counter().count());
+    }
+
+    @Test
+    void remember_ShouldClassifyWithoutLookup() {
+        // Given
+        classifier.remember("custom-123", CarrierType.DHL);
+
+        // When
+        CarrierType carrier = classifier.classify("CUSTOM-123");
+
+        // Then
+        assertEquals(CarrierType.DHL, carrier);
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
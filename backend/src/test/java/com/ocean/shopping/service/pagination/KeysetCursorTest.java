@@ -0,0 +1,160 @@
+package com.ocean.shopping.service.pagination;
+
+import com.ocean.shopping.dto.common.CursorPage;
+import com.ocean.shopping.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    private static final ZonedDateTime CREATED_AT = ZonedDateTime.parse("2024-03-01T10:15:30.123+01:00[Europe/Berlin]");
+    private static final UUID ID = UUID.fromString("3f2b8c1e-9d4a-4e7b-a1c2-5d6e7f8a9b0c");
+
+    @Test
+    void encodeNext_ThenDecode_ShouldRoundTripCreatedAtKeys() {
+        // Given
+        Window<String> window = window(List.of("first", "last"), true, createdAtKeys(CREATED_AT, ID));
+
+        // When
+        String cursor = KeysetCursor.encodeNext(window);
+        KeysetScrollPosition position = KeysetCursor.decode(cursor, KeysetCursor.CREATED_AT_KEYS);
+
+        // Then
+        assertNotNull(cursor);
+        assertFalse(cursor.contains("="), "Cursor should be unpadded URL-safe Base64");
+        assertEquals(CREATED_AT, position.getKeys().get("createdAt"));
+        assertEquals(ID, position.getKeys().get("id"));
+        assertEquals(List.of("createdAt", "id"), List.copyOf(position.getKeys().keySet()));
+    }
+
+    @Test
+    void encodeNext_ThenDecode_ShouldPreserveDecimalAndNumericKeys() {
+        // Given
+        Map<String, Class<?>> keyTypes = new LinkedHashMap<>();
+        keyTypes.put("price", BigDecimal.class);
+        keyTypes.put("reviewCount", Integer.class);
+        keyTypes.put("sequence", Long.class);
+        keyTypes.put("name", String.class);
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("price", new BigDecimal("1E+2"));
+        keys.put("reviewCount", 42);
+        keys.put("sequence", 9_000_000_000L);
+        keys.put("name", "Wireless Headphones");
+
+        // When
+        String cursor = KeysetCursor.encodeNext(window(List.of("only"), true, keys));
+        KeysetScrollPosition position = KeysetCursor.decode(cursor, keyTypes);
+
+        // Then
+        assertEquals(new BigDecimal("100"), position.getKeys().get("price"));
+        assertEquals(42, position.getKeys().get("reviewCount"));
+        assertEquals(9_000_000_000L, position.getKeys().get("sequence"));
+        assertEquals("Wireless Headphones", position.getKeys().get("name"));
+    }
+
+    @Test
+    void encodeNext_OnLastOrEmptySlice_ShouldReturnNull() {
+        assertNull(KeysetCursor.encodeNext(window(List.of("last"), false, createdAtKeys(CREATED_AT, ID))));
+        assertNull(KeysetCursor.encodeNext(window(List.of(), true, createdAtKeys(CREATED_AT, ID))));
+    }
+
+    @Test
+    void encodeNext_WithOffsetWindow_ShouldThrowException() {
+        // Given
+        Window<String> window = Window.from(List.of("a"), ScrollPosition::offset, true);
+
+        // Then
+        assertThrows(IllegalStateException.class, () -> KeysetCursor.encodeNext(window));
+    }
+
+    @Test
+    void decode_WithBlankCursor_ShouldStartFromTheBeginning() {
+        assertTrue(KeysetCursor.decode(null, KeysetCursor.CREATED_AT_KEYS).isInitial());
+        assertTrue(KeysetCursor.decode(" ", KeysetCursor.CREATED_AT_KEYS).isInitial());
+    }
+
+    @Test
+    void decode_WithMalformedCursor_ShouldThrowBadRequest() {
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode("not base64!", KeysetCursor.CREATED_AT_KEYS));
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode(encode("{not json"), KeysetCursor.CREATED_AT_KEYS));
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode(encode("[1, 2]"), KeysetCursor.CREATED_AT_KEYS));
+    }
+
+    @Test
+    void decode_WithTamperedKeySet_ShouldThrowBadRequest() {
+        // Given
+        String extraKey = encode("{\"createdAt\":\"" + CREATED_AT + "\",\"id\":\"" + ID + "\",\"price\":\"1\"}");
+        String missingKey = encode("{\"createdAt\":\"" + CREATED_AT + "\"}");
+
+        // Then
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> KeysetCursor.decode(extraKey, KeysetCursor.CREATED_AT_KEYS));
+        assertEquals("Cursor does not match the requested sort order", e.getMessage());
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode(missingKey, KeysetCursor.CREATED_AT_KEYS));
+    }
+
+    @Test
+    void decode_WithTamperedValue_ShouldThrowBadRequest() {
+        // Given
+        String badId = encode("{\"createdAt\":\"" + CREATED_AT + "\",\"id\":\"' OR 1=1 --\"}");
+        String badTime = encode("{\"createdAt\":\"yesterday\",\"id\":\"" + ID + "\"}");
+
+        // Then
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> KeysetCursor.decode(badId, KeysetCursor.CREATED_AT_KEYS));
+        assertEquals("Invalid cursor", e.getMessage());
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode(badTime, KeysetCursor.CREATED_AT_KEYS));
+    }
+
+    @Test
+    void limit_ShouldClampSliceSize() {
+        assertEquals(1, KeysetCursor.limit(0).max());
+        assertEquals(20, KeysetCursor.limit(20).max());
+        assertEquals(500, KeysetCursor.limit(10_000).max());
+    }
+
+    @Test
+    void toCursorPage_ShouldMapContentAndCarryNextCursor() {
+        // Given
+        Window<String> window = window(List.of("a", "bb"), true, createdAtKeys(CREATED_AT, ID));
+
+        // When
+        CursorPage<Integer> page = KeysetCursor.toCursorPage(window, String::length, 7L);
+
+        // Then
+        assertEquals(List.of(1, 2), page.getContent());
+        assertEquals(2, page.getSize());
+        assertTrue(page.isHasNext());
+        assertEquals(KeysetCursor.encodeNext(window), page.getNextCursor());
+        assertEquals(7L, page.getTotalElements());
+    }
+
+    private static <T> Window<T> window(List<T> content, boolean hasNext, Map<String, Object> lastKeys) {
+        return Window.from(content, index -> ScrollPosition.forward(lastKeys), hasNext);
+    }
+
+    private static Map<String, Object> createdAtKeys(ZonedDateTime createdAt, UUID id) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("createdAt", createdAt);
+        keys.put("id", id);
+        return keys;
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,152 @@
+package com.ocean.shopping.service.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency of the in-memory product index at 10k, 100k and 1M products.
+ * <p>
+ * Products are generated from a fixed seed: names from a small catalog vocabulary,
+ * descriptions from a larger one with a skewed word distribution, so posting lists
+ * range from very common to rare terms. Run with:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.ocean.shopping.service.search.InvertedIndexBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InvertedIndexBenchmark {
+
+    private static final String[] ADJECTIVES = {
+        "wireless", "portable", "compact", "premium", "classic", "ergonomic", "waterproof",
+        "adjustable", "rechargeable", "vintage", "slim", "heavy-duty", "organic", "smart"};
+    private static final String[] MATERIALS = {
+        "leather", "cotton", "steel", "bamboo", "ceramic", "wool", "glass", "aluminium", "silicone"};
+    private static final String[] NOUNS = {
+        "headphones", "speaker", "backpack", "wallet", "lamp", "chair", "kettle", "jacket",
+        "keyboard", "mouse", "bottle", "watch", "blanket", "charger", "notebook", "sneakers"};
+    private static final int DESCRIPTION_VOCABULARY = 20_000;
+    private static final int DESCRIPTION_WORDS = 30;
+    private static final int CATEGORIES = 200;
+    private static final int STORES = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    private int products;
+
+    private InvertedIndex index;
+    private UUID category;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        Random random = new Random(42);
+        List<UUID> categories = randomIds(CATEGORIES);
+        List<UUID> stores = randomIds(STORES);
+        category = categories.get(0);
+
+        index = new InvertedIndex();
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < products; i++) {
+            description.setLength(0);
+            for (int w = 0; w < DESCRIPTION_WORDS; w++) {
+                // Cubing skews picks towards the start of the vocabulary, like real text
+                double skew = Math.pow(random.nextDouble(), 3);
+                description.append('w').append((int) (skew * DESCRIPTION_VOCABULARY)).append(' ');
+            }
+            index.upsert(InvertedIndex.Document.builder()
+                    .productId(UUID.randomUUID())
+                    .storeId(stores.get(random.nextInt(STORES)))
+                    .categoryId(categories.get(random.nextInt(CATEGORIES)))
+                    .name(pick(random, ADJECTIVES) + " " + pick(random, MATERIALS) + " " + pick(random, NOUNS))
+                    .description(description.toString())
+                    .sku("SKU-" + i)
+                    .priceCents(100 + random.nextInt(100_000))
+                    .inStock(random.nextInt(10) > 0)
+                    .averageRating(1 + random.nextFloat() * 4)
+                    .reviewCount(random.nextInt(500))
+                    .createdAt(i)
+                    .updatedAt(i)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void singleTerm(Blackhole blackhole) {
+        blackhole.consume(index.search(query("headphones ").build()));
+    }
+
+    @Benchmark
+    public void twoTermsWithPrefix(Blackhole blackhole) {
+        blackhole.consume(index.search(query("wireless head").build()));
+    }
+
+    @Benchmark
+    public void rareDescriptionTerm(Blackhole blackhole) {
+        blackhole.consume(index.search(query("w19999 ").build()));
+    }
+
+    @Benchmark
+    public void filteredWithFacets(Blackhole blackhole) {
+        blackhole.consume(index.search(query("leather ")
+                .categoryIds(List.of(category))
+                .inStock(true)
+                .includeFacets(true)
+                .build()));
+    }
+
+    @Benchmark
+    public void sortedByPrice(Blackhole blackhole) {
+        blackhole.consume(index.search(query("steel ")
+                .sortBy("price")
+                .ascending(true)
+                .build()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InvertedIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static InvertedIndex.Query.QueryBuilder query(String text) {
+        return InvertedIndex.Query.builder()
+                .text(text)
+                .limit(20);
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private static List<UUID> randomIds(int count) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,227 @@
+package com.ocean.shopping.service.search;
+
+import com.ocean.shopping.dto.product.ProductSearchFacets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex();
+    }
+
+    @Test
+    void analyze_WithMixedText_ShouldLowercaseSplitAndDropStopWords() {
+        // When
+        List<String> terms = TextAnalyzer.analyze("The Wireless-Headphones for Kids!");
+
+        // Then
+        assertEquals(List.of("wireless", "headphone", "kid"), terms);
+    }
+
+    @Test
+    void stem_ShouldFoldPluralsAndVerbEndingsButKeepModelNumbers() {
+        assertEquals("battery", TextAnalyzer.stem("batteries"));
+        assertEquals("charg", TextAnalyzer.stem("charging"));
+        assertEquals("box", TextAnalyzer.stem("boxes"));
+        assertEquals("glass", TextAnalyzer.stem("glasses"));
+        assertEquals("bus", TextAnalyzer.stem("bus"));
+        assertEquals("x100s", TextAnalyzer.stem("x100s"));
+    }
+
+    @Test
+    void search_WithSeveralTerms_ShouldRequireEveryTerm() {
+        // Given
+        UUID headphones = add(document("Wireless Headphones"));
+        UUID mouse = add(document("Wireless Mouse"));
+
+        // When
+        InvertedIndex.Result result = index.search(query("wireless mouse ").build());
+
+        // Then
+        assertEquals(List.of(mouse), result.getProductIds());
+        assertEquals(1, result.getTotalHits());
+        assertFalse(result.getProductIds().contains(headphones));
+    }
+
+    @Test
+    void search_WithPartiallyTypedLastWord_ShouldMatchByPrefix() {
+        // Given
+        UUID headphones = add(document("Wireless Headphones"));
+        add(document("Desk Lamp"));
+
+        // When
+        InvertedIndex.Result typing = index.search(query("head").build());
+        InvertedIndex.Result complete = index.search(query("head ").build());
+
+        // Then
+        assertEquals(List.of(headphones), typing.getProductIds());
+        assertTrue(complete.getProductIds().isEmpty());
+    }
+
+    @Test
+    void search_WithSku_ShouldMatchSkuParts() {
+        // Given
+        UUID product = add(document("Desk Lamp").sku("DL-2040"));
+
+        // When
+        InvertedIndex.Result result = index.search(query("dl-2040 ").build());
+
+        // Then
+        assertEquals(List.of(product), result.getProductIds());
+    }
+
+    @Test
+    void search_ByRelevance_ShouldRankNameMatchesAboveDescriptionMatches() {
+        // Given
+        UUID bag = add(document("Travel Bag").description("Fits a leather wallet and a passport"));
+        UUID wallet = add(document("Leather Wallet").description("Slim card holder"));
+        add(document("Desk Lamp"));
+
+        // When
+        InvertedIndex.Result result = index.search(query("wallet ").build());
+
+        // Then
+        assertEquals(List.of(wallet, bag), result.getProductIds());
+    }
+
+    @Test
+    void search_SortedByPrice_ShouldReturnRequestedPage() {
+        // Given
+        UUID[] cables = new UUID[5];
+        long[] prices = {500, 100, 300, 200, 400};
+        for (int i = 0; i < prices.length; i++) {
+            cables[i] = add(document("USB Cable").priceCents(prices[i]));
+        }
+
+        // When
+        InvertedIndex.Result result = index.search(query("cable ")
+                .sortBy("price")
+                .ascending(true)
+                .offset(1)
+                .limit(2)
+                .build());
+
+        // Then
+        assertEquals(List.of(cables[3], cables[2]), result.getProductIds());
+        assertEquals(5, result.getTotalHits());
+    }
+
+    @Test
+    void upsert_WithExistingProduct_ShouldReplacePreviousVersion() {
+        // Given
+        UUID productId = UUID.randomUUID();
+        index.upsert(document("Red Shirt").productId(productId).build());
+
+        // When
+        index.upsert(document("Blue Shirt").productId(productId).build());
+
+        // Then
+        assertTrue(index.search(query("red ").build()).getProductIds().isEmpty());
+        assertEquals(List.of(productId), index.search(query("blue ").build()).getProductIds());
+        assertEquals(List.of(productId), index.search(query("shirt ").build()).getProductIds());
+        assertEquals(1, index.size());
+        assertEquals(1, index.deletedDocs());
+    }
+
+    @Test
+    void remove_ShouldHideProductFromResults() {
+        // Given
+        UUID lamp = add(document("Desk Lamp"));
+        UUID otherLamp = add(document("Floor Lamp"));
+
+        // When
+        index.remove(lamp);
+
+        // Then
+        assertEquals(List.of(otherLamp), index.search(query("lamp ").build()).getProductIds());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void search_WithFilters_ShouldOnlyReturnMatchingProducts() {
+        // Given
+        UUID lighting = UUID.randomUUID();
+        UUID furniture = UUID.randomUUID();
+        UUID inStockLamp = add(document("Desk Lamp").categoryId(lighting).inStock(true));
+        add(document("Floor Lamp").categoryId(lighting).inStock(false));
+        add(document("Lamp Table").categoryId(furniture).inStock(true));
+
+        // When
+        InvertedIndex.Result result = index.search(query("lamp ")
+                .categoryIds(List.of(lighting))
+                .inStock(true)
+                .build());
+
+        // Then
+        assertEquals(List.of(inStockLamp), result.getProductIds());
+    }
+
+    @Test
+    void search_WithFacets_ShouldCountMatchesPerFacet() {
+        // Given
+        UUID lighting = UUID.randomUUID();
+        UUID furniture = UUID.randomUUID();
+        UUID store = UUID.randomUUID();
+        add(document("Desk Lamp").categoryId(lighting).storeId(store).priceCents(1_000).inStock(true));
+        add(document("Floor Lamp").categoryId(lighting).storeId(store).priceCents(3_000).inStock(false));
+        add(document("Lamp Table").categoryId(furniture).storeId(store).priceCents(60_000).inStock(true));
+        add(document("Office Chair").categoryId(furniture).storeId(store).priceCents(20_000).inStock(true));
+
+        // When
+        ProductSearchFacets facets = index.search(query("lamp ").includeFacets(true).build()).getFacets();
+
+        // Then
+        assertEquals(3, facets.getTotalHits());
+        assertEquals(Map.of(lighting, 2L, furniture, 1L), facets.getCategories());
+        assertEquals(Map.of(store, 3L), facets.getStores());
+        assertEquals(1L, facets.getPriceRanges().get("0-25"));
+        assertEquals(1L, facets.getPriceRanges().get("25-50"));
+        assertEquals(0L, facets.getPriceRanges().get("100-250"));
+        assertEquals(1L, facets.getPriceRanges().get("500+"));
+        assertEquals(2, facets.getInStock());
+        assertEquals(1, facets.getOutOfStock());
+    }
+
+    @Test
+    void search_WithOnlyStopWords_ShouldReturnEmptyResult() {
+        // Given
+        add(document("The Lamp"));
+
+        // When
+        InvertedIndex.Result result = index.search(query("the and ").build());
+
+        // Then
+        assertTrue(result.getProductIds().isEmpty());
+        assertEquals(0, result.getTotalHits());
+    }
+
+    private UUID add(InvertedIndex.Document.DocumentBuilder document) {
+        InvertedIndex.Document built = document.build();
+        index.upsert(built);
+        return built.getProductId();
+    }
+
+    private static InvertedIndex.Document.DocumentBuilder document(String name) {
+        return InvertedIndex.Document.builder()
+                .productId(UUID.randomUUID())
+                .name(name)
+                .priceCents(1_000)
+                .inStock(true);
+    }
+
+    private static InvertedIndex.Query.QueryBuilder query(String text) {
+        return InvertedIndex.Query.builder()
+                .text(text)
+                .limit(20);
+    }
+}